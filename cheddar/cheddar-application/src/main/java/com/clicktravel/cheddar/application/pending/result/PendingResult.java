@@ -16,39 +16,136 @@
  */
 package com.clicktravel.cheddar.application.pending.result;
 
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.joda.time.DateTimeUtils;
 
 /**
  * Container for a single {@link Result} that is passed between threads. This is used as a rendezvous between a thread
- * which offers a result and another thread which polls for the result, blocking until it is offered. Instances of this
- * class are single use only, just one result may be passed.
+ * which offers a result and another thread which either polls for the result, blocking until it is offered, or
+ * registers for asynchronous completion using {@link #resultFuture()}. Instances of this class are single use only, just
+ * one result may be passed. Each instance has a deadline, after which it may be expired by its holder.
  */
 class PendingResult {
 
-    private static final long TIMEOUT_SECONDS = 30;
-    private final CountDownLatch countdownLatch = new CountDownLatch(1);
-    private Result result;
+    static final long DEFAULT_TIMEOUT_SECONDS = 30;
+    private final CompletableFuture<Result> resultFuture = new CompletableFuture<>();
+    private final long createdMillis;
+    private final AtomicLong deadlineMillis;
+    private final AtomicLong completedMillis = new AtomicLong();
+
+    PendingResult() {
+        this(TimeUnit.SECONDS.toMillis(DEFAULT_TIMEOUT_SECONDS));
+    }
+
+    /**
+     * @param timeToLiveMillis Time from creation until the initial deadline, in milliseconds
+     */
+    PendingResult(final long timeToLiveMillis) {
+        createdMillis = DateTimeUtils.currentTimeMillis();
+        deadlineMillis = new AtomicLong(createdMillis + timeToLiveMillis);
+    }
+
+    public long createdMillis() {
+        return createdMillis;
+    }
+
+    public long deadlineMillis() {
+        return deadlineMillis.get();
+    }
 
     /**
-     * Offers a {@link Result}, returning immediately.
+     * Moves the deadline of this pending result later, if it is currently earlier than the given deadline
+     * @param newDeadlineMillis Candidate deadline, in epoch milliseconds
+     */
+    public void extendDeadline(final long newDeadlineMillis) {
+        deadlineMillis.accumulateAndGet(newDeadlineMillis, Math::max);
+    }
+
+    /**
+     * Sets the deadline of this pending result, which may be earlier than its current deadline
+     * @param newDeadlineMillis Deadline, in epoch milliseconds
+     */
+    public void setDeadline(final long newDeadlineMillis) {
+        deadlineMillis.set(newDeadlineMillis);
+    }
+
+    /**
+     * @return Time at which a result was first offered or this pending result expired, in epoch milliseconds, or 0 if
+     *         neither has happened
+     */
+    public long completedMillis() {
+        return completedMillis.get();
+    }
+
+    /**
+     * @return {@code true} if a result has been offered or this pending result has expired
+     */
+    public boolean isDone() {
+        return resultFuture.isDone();
+    }
+
+    /**
+     * Offers a {@link Result}, returning immediately. Has no effect if this pending result has already completed.
      * @param result {@link Result} to offer
      */
     public void offerResult(final Result result) {
-        this.result = result;
-        countdownLatch.countDown();
+        completedMillis.compareAndSet(0, DateTimeUtils.currentTimeMillis());
+        resultFuture.complete(result);
+    }
+
+    /**
+     * Completes this pending result with a {@link PendingResultTimeoutException}, unless a result has already been
+     * offered
+     * @return {@code true} if this pending result was expired, {@code false} if it had already completed
+     */
+    public boolean expire() {
+        completedMillis.compareAndSet(0, DateTimeUtils.currentTimeMillis());
+        return resultFuture.completeExceptionally(new PendingResultTimeoutException());
     }
 
     /**
-     * Polls for a {@link Result}, blocking until it is offered by some other thread. If the result has already been
-     * offered, the result is returned immediately.
+     * Polls for a {@link Result}, blocking until it is offered by some other thread or the default timeout elapses. If
+     * the result has already been offered, the result is returned immediately.
      * @return {@link Result} obtained, potentially after blocking
      * @throws InterruptedException, PendingResultTimeoutException
      */
     public Result pollResult() throws InterruptedException, PendingResultTimeoutException {
-        if (!countdownLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        return pollResult(DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Polls for a {@link Result}, blocking until it is offered by some other thread or the given timeout elapses. If
+     * the result has already been offered, the result is returned immediately.
+     * @param timeout Maximum time to wait
+     * @param unit Unit of {@code timeout}
+     * @return {@link Result} obtained, potentially after blocking
+     * @throws InterruptedException, PendingResultTimeoutException
+     */
+    public Result pollResult(final long timeout, final TimeUnit unit)
+            throws InterruptedException, PendingResultTimeoutException {
+        extendDeadline(DateTimeUtils.currentTimeMillis() + unit.toMillis(timeout));
+        try {
+            return resultFuture.get(timeout, unit);
+        } catch (final TimeoutException e) {
             throw new PendingResultTimeoutException();
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof PendingResultTimeoutException) {
+                throw (PendingResultTimeoutException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
         }
-        return result;
+    }
+
+    /**
+     * @return {@link CompletableFuture} completed when a {@link Result} is offered, or completed exceptionally with
+     *         {@link PendingResultTimeoutException} if this pending result expires first
+     */
+    public CompletableFuture<Result> resultFuture() {
+        return resultFuture;
     }
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.application.pending.result;
+
+import com.clicktravel.cheddar.infrastructure.messaging.exception.MessagingException;
+
+/**
+ * Point-to-point channel for delivering a {@link PendingResultOfferedEvent} only to the application instance which
+ * created the {@link PendingResult}. Each application instance has its own address, which is embedded in the ID of each
+ * {@link PendingResult} it creates. When no channel is configured, or delivery fails, offered results are broadcast to
+ * all application instances as system events.
+ */
+public interface PendingResultDeliveryChannel {
+
+    /**
+     * @return Address of this application instance on this channel
+     */
+    String localAddress();
+
+    /**
+     * @param address Address embedded in the ID of a {@link PendingResult}, which may have been supplied by a caller
+     * @return {@code true} if the address may be that of an application instance of this deployment, so that results
+     *         are delivered to it; otherwise results are broadcast instead
+     */
+    boolean accepts(String address);
+
+    /**
+     * Delivers an event to the application instance with the given address
+     * @param address Address of the application instance which created the {@link PendingResult}, which must be
+     *            accepted by {@link #accepts(String)}
+     * @param event {@link PendingResultOfferedEvent} to deliver
+     * @throws MessagingException if the event could not be delivered; other runtime exceptions, such as those of the
+     *             underlying messaging service, are also treated as a failure to deliver
+     */
+    void deliver(String address, PendingResultOfferedEvent event) throws MessagingException;
+
+}
@@ -17,12 +17,19 @@
 package com.clicktravel.cheddar.application.pending.result;
 
 import java.io.StringWriter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
+import org.joda.time.DateTimeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import com.clicktravel.cheddar.system.event.publisher.SystemEventPublisher;
+import com.clicktravel.common.serialization.KryoObjectSerializer;
+import com.clicktravel.common.serialization.ObjectSerializer;
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.io.xml.CompactWriter;
 
@@ -30,19 +37,45 @@ import com.thoughtworks.xstream.io.xml.CompactWriter;
  * Facade for using {@link PendingResult} objects. This facade has methods to create and poll a {@link PendingResult}
  * object for a value which is supplied by another thread which may be executing in a different (remote) application
  * instance. Each {@link PendingResult} has a unique ID generated on creation which is used to coordinate its operation.
+ * If a {@link PendingResultDeliveryChannel} is configured, offered results are delivered only to the application
+ * instance which created the {@link PendingResult}, otherwise they are broadcast to all instances as system events.
  */
 @Component
 public class PendingResultHandler {
 
+    private final Logger logger = LoggerFactory.getLogger(getClass());
     private final PendingResultsHolder pendingResultsHolder;
     private final String applicationName;
-    private final XStream xStream = new XStream();
+    private final ObjectSerializer objectSerializer;
+    private final XStream legacyXStream = new XStream();
+    private PendingResultDeliveryChannel pendingResultDeliveryChannel;
 
+    public PendingResultHandler(final PendingResultsHolder pendingResultsHolder, final String applicationName) {
+        this(pendingResultsHolder, applicationName, "");
+    }
+
+    /**
+     * @param allowedPackages Comma separated list of packages of classes, in addition to
+     *            {@link KryoObjectSerializer#DEFAULT_ALLOWED_PACKAGES}, which results may contain
+     */
     @Autowired
     public PendingResultHandler(final PendingResultsHolder pendingResultsHolder,
-            @Value("${server.application.name}") final String applicationName) {
+            @Value("${server.application.name}") final String applicationName,
+            @Value("${pending.result.allowedPackages:}") final String allowedPackages) {
+        this(pendingResultsHolder, applicationName,
+                new KryoObjectSerializer(PendingResultOfferedEvent.allowedResultPackages(allowedPackages)));
+    }
+
+    public PendingResultHandler(final PendingResultsHolder pendingResultsHolder, final String applicationName,
+            final ObjectSerializer objectSerializer) {
         this.pendingResultsHolder = pendingResultsHolder;
         this.applicationName = applicationName;
+        this.objectSerializer = objectSerializer;
+    }
+
+    @Autowired(required = false)
+    public void setPendingResultDeliveryChannel(final PendingResultDeliveryChannel pendingResultDeliveryChannel) {
+        this.pendingResultDeliveryChannel = pendingResultDeliveryChannel;
     }
 
     /**
@@ -50,6 +83,9 @@ public class PendingResultHandler {
      * @return pendingResultId Unique identifier of created {@PendingResult}
      */
     public String createPendingResult() {
+        if (pendingResultDeliveryChannel != null) {
+            return pendingResultsHolder.create(pendingResultDeliveryChannel.localAddress());
+        }
         return pendingResultsHolder.create();
     }
 
@@ -63,14 +99,96 @@ public class PendingResultHandler {
 
     /**
      * Polls a {@link PendingResult} stored on the local application instance for a returned value, blocking until a
-     * value is offered or an exception is thrown
+     * value is offered or an exception is thrown. The {@link PendingResult} is removed once it has completed.
      * @param pendingResultId ID of locally stored {@link PendingResult}
      * @return Value from returned result
+     * @throws UnknownPendingResultException If the {@link PendingResult} is not stored, e.g. because it has expired
      * @throws Exception If exception was thrown
      */
     public Object pollValue(final String pendingResultId) throws Exception {
+        final PendingResult pendingResult = storedPendingResult(pendingResultId);
+        try {
+            return pendingResult.pollResult().getValue();
+        } finally {
+            removeIfDone(pendingResultId, pendingResult);
+        }
+    }
+
+    /**
+     * Polls a {@link PendingResult} stored on the local application instance for a returned value, blocking until a
+     * value is offered, an exception is thrown or the given timeout elapses
+     * @param pendingResultId ID of locally stored {@link PendingResult}
+     * @param timeout Maximum time to wait
+     * @param unit Unit of {@code timeout}
+     * @return Value from returned result
+     * @throws PendingResultTimeoutException If the timeout elapsed before a value was offered
+     * @throws UnknownPendingResultException If the {@link PendingResult} is not stored, e.g. because it has expired
+     * @throws Exception If exception was thrown
+     */
+    public Object pollValue(final String pendingResultId, final long timeout, final TimeUnit unit) throws Exception {
+        final PendingResult pendingResult = storedPendingResult(pendingResultId);
+        try {
+            return pendingResult.pollResult(timeout, unit).getValue();
+        } finally {
+            removeIfDone(pendingResultId, pendingResult);
+        }
+    }
+
+    private PendingResult storedPendingResult(final String pendingResultId) {
+        final PendingResult pendingResult = pendingResultsHolder.get(pendingResultId);
+        if (pendingResult == null) {
+            throw new UnknownPendingResultException(pendingResultId);
+        }
+        return pendingResult;
+    }
+
+    private void removeIfDone(final String pendingResultId, final PendingResult pendingResult) {
+        if (pendingResult.isDone()) {
+            pendingResultsHolder.remove(pendingResultId);
+        }
+    }
+
+    /**
+     * Obtains the value of a {@link PendingResult} stored on the local application instance without blocking. The
+     * {@link PendingResult} is removed once it completes or the timeout elapses, so there is no need to call
+     * {@link #removePendingResult(String)}. The timeout is enforced by the sweeper of {@link PendingResultsHolder}, so
+     * may elapse up to a second late. The returned future is completed by the thread offering the value, or by the
+     * sweeper thread on timeout, so dependent actions should be brief or use an executor.
+     * @param pendingResultId ID of locally stored {@link PendingResult}
+     * @param timeout Maximum time to wait
+     * @param unit Unit of {@code timeout}
+     * @return {@link CompletableFuture} completed with the offered value, or completed exceptionally with the offered
+     *         exception, a {@link PendingResultTimeoutException} or an {@link UnknownPendingResultException}
+     */
+    public CompletableFuture<Object> valueFuture(final String pendingResultId, final long timeout,
+            final TimeUnit unit) {
+        final CompletableFuture<Object> valueFuture = new CompletableFuture<>();
         final PendingResult pendingResult = pendingResultsHolder.get(pendingResultId);
-        return pendingResult.pollResult().getValue();
+        if (pendingResult == null) {
+            valueFuture.completeExceptionally(new UnknownPendingResultException(pendingResultId));
+            return valueFuture;
+        }
+        pendingResult.setDeadline(DateTimeUtils.currentTimeMillis() + unit.toMillis(timeout));
+        pendingResult.resultFuture().whenComplete((result, throwable) -> {
+            pendingResultsHolder.remove(pendingResultId);
+            if (throwable != null) {
+                valueFuture.completeExceptionally(throwable);
+            } else {
+                try {
+                    valueFuture.complete(result.getValue());
+                } catch (final Exception e) {
+                    valueFuture.completeExceptionally(e);
+                }
+            }
+        });
+        return valueFuture;
+    }
+
+    /**
+     * @return Current statistics of {@link PendingResult}s stored on the local application instance
+     */
+    public PendingResultStatistics statistics() {
+        return pendingResultsHolder.statistics();
     }
 
     /**
@@ -97,13 +215,35 @@ public class PendingResultHandler {
         final PendingResultOfferedEvent event = new PendingResultOfferedEvent();
         event.setTargetApplicationName(applicationName);
         event.setPendingResultId(pendingResultId);
-        event.setResultXml(toCompactXml(result));
-        SystemEventPublisher.instance().publishEvent(event);
+        event.setSerializedResult(objectSerializer.serialize(result));
+        if (!deliverDirectly(pendingResultId, event)) {
+            // Application instances of earlier versions read only the XML form of broadcast results
+            event.setResultXml(toCompactXml(result));
+            SystemEventPublisher.instance().publishEvent(event);
+        }
     }
 
     private String toCompactXml(final Object object) {
         final StringWriter stringWriter = new StringWriter();
-        xStream.marshal(object, new CompactWriter(stringWriter));
+        legacyXStream.marshal(object, new CompactWriter(stringWriter));
         return stringWriter.toString();
     }
+
+    private boolean deliverDirectly(final String pendingResultId, final PendingResultOfferedEvent event) {
+        final String address = PendingResultsHolder.address(pendingResultId);
+        if (pendingResultDeliveryChannel == null || address == null) {
+            return false;
+        }
+        if (!pendingResultDeliveryChannel.accepts(address)) {
+            logger.warn("Pending result address [" + address + "] not accepted by delivery channel, broadcasting");
+            return false;
+        }
+        try {
+            pendingResultDeliveryChannel.deliver(address, event);
+            return true;
+        } catch (final RuntimeException e) {
+            logger.warn("Could not deliver pending result to [" + address + "], falling back to broadcast", e);
+            return false;
+        }
+    }
 }
@@ -16,15 +16,22 @@
  */
 package com.clicktravel.cheddar.application.pending.result;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.clicktravel.cheddar.system.event.AbstractSystemEvent;
 
 /**
- * System event indicating a {@link Result} has been offered to a {@link PendingResult}. The result is serialised as XML
- * to enable any Java type to be returned.
+ * System event indicating a {@link Result} has been offered to a {@link PendingResult}. The result is serialised using an
+ * {@link com.clicktravel.common.serialization.ObjectSerializer} to enable any Java type to be returned. Application
+ * instances of earlier versions serialise the result as XML instead; broadcast results carry both forms, and both are
+ * accepted, so that results are not lost while a fleet is being upgraded. The XML form will be removed in a later
+ * release.
  */
 public class PendingResultOfferedEvent extends AbstractSystemEvent {
 
     private String pendingResultId;
+    private byte[] serializedResult;
     private String resultXml;
 
     public String getPendingResultId() {
@@ -35,6 +42,17 @@ public class PendingResultOfferedEvent extends AbstractSystemEvent {
         this.pendingResultId = pendingResultId;
     }
 
+    public byte[] getSerializedResult() {
+        return serializedResult;
+    }
+
+    public void setSerializedResult(final byte[] serializedResult) {
+        this.serializedResult = serializedResult;
+    }
+
+    /**
+     * @return Result serialised as XML by an application instance of an earlier version, or {@code null}
+     */
     public String getResultXml() {
         return resultXml;
     }
@@ -43,6 +61,20 @@ public class PendingResultOfferedEvent extends AbstractSystemEvent {
         this.resultXml = resultXml;
     }
 
+    /**
+     * @param allowedPackages Comma separated list of packages, may be empty
+     * @return Packages of classes, in addition to the defaults, which results may contain
+     */
+    static List<String> allowedResultPackages(final String allowedPackages) {
+        final List<String> packages = new ArrayList<>();
+        for (final String allowedPackage : allowedPackages.split(",")) {
+            if (!allowedPackage.trim().isEmpty()) {
+                packages.add(allowedPackage.trim());
+            }
+        }
+        return packages;
+    }
+
     @Override
     public String toString() {
         return "PendingResultOfferedEvent [pendingResultId=" + pendingResultId + "]";
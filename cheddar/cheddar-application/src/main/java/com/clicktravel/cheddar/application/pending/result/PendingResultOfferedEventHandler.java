@@ -16,30 +16,91 @@
  */
 package com.clicktravel.cheddar.application.pending.result;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import com.clicktravel.cheddar.system.event.SystemEvent;
 import com.clicktravel.cheddar.system.event.handler.AbstractSystemEventHandler;
+import com.clicktravel.common.serialization.KryoObjectSerializer;
+import com.clicktravel.common.serialization.ObjectSerializer;
 import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.security.ArrayTypePermission;
+import com.thoughtworks.xstream.security.NoTypePermission;
+import com.thoughtworks.xstream.security.NullPermission;
+import com.thoughtworks.xstream.security.PrimitiveTypePermission;
 
 /**
  * Handles a {@link PendingResultOfferedEvent} by offering the {@link Result} to the specified {@link PendingResult} if it
- * is stored on this application instance.
+ * is stored on this application instance. Results serialised as XML by application instances of earlier versions are
+ * also accepted. In either form, only classes in the allowed packages may be deserialised.
  */
 @Component
 public class PendingResultOfferedEventHandler extends AbstractSystemEventHandler {
 
     private final PendingResultsHolder pendingResultsHolder;
-    private final XStream xStream = new XStream();
+    private final ObjectSerializer objectSerializer;
+    private final XStream legacyXStream;
 
+    public PendingResultOfferedEventHandler(final String applicationName, final String applicationVersion,
+            final PendingResultsHolder pendingResultsHolder) {
+        this(applicationName, applicationVersion, pendingResultsHolder, "");
+    }
+
+    /**
+     * @param allowedPackages Comma separated list of packages of classes, in addition to
+     *            {@link KryoObjectSerializer#DEFAULT_ALLOWED_PACKAGES}, which results may contain
+     */
     @Autowired
     public PendingResultOfferedEventHandler(@Value("${server.application.name}") final String applicationName,
             @Value("${server.application.version}") final String applicationVersion,
-            final PendingResultsHolder pendingResultsHolder) {
+            final PendingResultsHolder pendingResultsHolder,
+            @Value("${pending.result.allowedPackages:}") final String allowedPackages) {
+        this(applicationName, applicationVersion, pendingResultsHolder,
+                PendingResultOfferedEvent.allowedResultPackages(allowedPackages));
+    }
+
+    public PendingResultOfferedEventHandler(final String applicationName, final String applicationVersion,
+            final PendingResultsHolder pendingResultsHolder, final ObjectSerializer objectSerializer) {
+        this(applicationName, applicationVersion, pendingResultsHolder, objectSerializer,
+                legacyXStream(Collections.<String> emptyList()));
+    }
+
+    private PendingResultOfferedEventHandler(final String applicationName, final String applicationVersion,
+            final PendingResultsHolder pendingResultsHolder, final List<String> allowedPackages) {
+        this(applicationName, applicationVersion, pendingResultsHolder, new KryoObjectSerializer(allowedPackages),
+                legacyXStream(allowedPackages));
+    }
+
+    private PendingResultOfferedEventHandler(final String applicationName, final String applicationVersion,
+            final PendingResultsHolder pendingResultsHolder, final ObjectSerializer objectSerializer,
+            final XStream legacyXStream) {
         super(applicationName, applicationVersion);
         this.pendingResultsHolder = pendingResultsHolder;
+        this.objectSerializer = objectSerializer;
+        this.legacyXStream = legacyXStream;
+    }
+
+    private static XStream legacyXStream(final Collection<String> allowedPackages) {
+        final XStream xStream = new XStream();
+        xStream.addPermission(NoTypePermission.NONE);
+        xStream.addPermission(NullPermission.NULL);
+        xStream.addPermission(PrimitiveTypePermission.PRIMITIVES);
+        xStream.addPermission(ArrayTypePermission.ARRAYS);
+        final List<String> wildcards = new ArrayList<>();
+        for (final String allowedPackage : KryoObjectSerializer.DEFAULT_ALLOWED_PACKAGES) {
+            wildcards.add(allowedPackage + ".**");
+        }
+        for (final String allowedPackage : allowedPackages) {
+            wildcards.add(allowedPackage + ".**");
+        }
+        xStream.allowTypesByWildcard(wildcards.toArray(new String[wildcards.size()]));
+        return xStream;
     }
 
     @Override
@@ -47,9 +108,21 @@ public class PendingResultOfferedEventHandler extends AbstractSystemEventHandler
         final PendingResultOfferedEvent event = (PendingResultOfferedEvent) systemEvent;
         final PendingResult pendingResult = pendingResultsHolder.get(event.getPendingResultId());
         if (pendingResult != null) {
-            final Result result = (Result) xStream.fromXML(event.getResultXml());
-            pendingResult.offerResult(result);
+            final Result result = deserializeResult(event);
+            if (result != null) {
+                pendingResult.offerResult(result);
+            }
+        }
+    }
+
+    private Result deserializeResult(final PendingResultOfferedEvent event) {
+        if (event.getSerializedResult() != null) {
+            return (Result) objectSerializer.deserialize(event.getSerializedResult());
+        }
+        if (event.getResultXml() != null) {
+            return (Result) legacyXStream.fromXML(event.getResultXml());
         }
+        return null;
     }
 
     @Override
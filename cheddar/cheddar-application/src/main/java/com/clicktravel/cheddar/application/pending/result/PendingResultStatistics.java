@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.application.pending.result;
+
+/**
+ * Snapshot of counts of {@link PendingResult}s stored on the local application instance. Other than the live count, the
+ * counts are cumulative since application start.
+ */
+public class PendingResultStatistics {
+
+    private final long liveCount;
+    private final long completedCount;
+    private final long expiredCount;
+    private final long rejectedCount;
+
+    public PendingResultStatistics(final long liveCount, final long completedCount, final long expiredCount,
+            final long rejectedCount) {
+        this.liveCount = liveCount;
+        this.completedCount = completedCount;
+        this.expiredCount = expiredCount;
+        this.rejectedCount = rejectedCount;
+    }
+
+    /**
+     * @return Number of pending results currently stored
+     */
+    public long getLiveCount() {
+        return liveCount;
+    }
+
+    /**
+     * @return Number of pending results which have been offered a result
+     */
+    public long getCompletedCount() {
+        return completedCount;
+    }
+
+    /**
+     * @return Number of pending results which reached their deadline or timed out before a result was offered
+     */
+    public long getExpiredCount() {
+        return expiredCount;
+    }
+
+    /**
+     * @return Number of pending results which could not be created because the maximum size was reached
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "PendingResultStatistics [liveCount=" + liveCount + ", completedCount=" + completedCount
+                + ", expiredCount=" + expiredCount + ", rejectedCount=" + rejectedCount + "]";
+    }
+
+}
@@ -18,25 +18,130 @@ package com.clicktravel.cheddar.application.pending.result;
 
 import static com.clicktravel.common.random.Randoms.randomId;
 
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.PreDestroy;
+
+import org.joda.time.DateTimeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
- * Simple threadsafe map of locally stored {@link PendingResult} objects, keyed by their ID
+ * Threadsafe map of locally stored {@link PendingResult} objects, keyed by their ID. An ID may embed the
+ * {@link PendingResultDeliveryChannel} address of the application instance which created it.
+ *
+ * Each {@link PendingResult} is given a deadline on creation. A background sweeper periodically expires and removes any
+ * {@link PendingResult} still awaiting a result at its deadline, so entries abandoned by callers do not accumulate. A
+ * {@link PendingResult} which has been offered a result is kept until it is removed by its poller, or until a retention
+ * period has passed since the result was offered. The number of stored entries is bounded; creation is rejected when
+ * the bound is reached.
  */
 @Component
 class PendingResultsHolder {
 
+    static final int DEFAULT_MAX_SIZE = 10000;
+    static final long DEFAULT_TIME_TO_LIVE_SECONDS = 60;
+    static final long DEFAULT_RETENTION_SECONDS = 60;
+    private static final long SWEEP_INTERVAL_MILLIS = 1000;
+    private static final char ADDRESS_SEPARATOR = '@';
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
     private final Map<String, PendingResult> pendingResults = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long timeToLiveMillis;
+    private final long retentionMillis;
+    private final ScheduledExecutorService sweepScheduler;
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
 
+    PendingResultsHolder() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_TIME_TO_LIVE_SECONDS);
+    }
+
+    PendingResultsHolder(final int maxSize, final long timeToLiveSeconds) {
+        this(maxSize, timeToLiveSeconds, DEFAULT_RETENTION_SECONDS);
+    }
+
+    /**
+     * @param maxSize Maximum number of stored {@link PendingResult}s
+     * @param timeToLiveSeconds Time from creation of a {@link PendingResult} until its initial deadline, in seconds.
+     *            The deadline is extended when polling with a longer timeout.
+     * @param retentionSeconds Time for which a {@link PendingResult} is kept after a result is offered, if it is not
+     *            removed by its poller, in seconds
+     */
+    @Autowired
+    PendingResultsHolder(@Value("${pending.result.maxSize:" + DEFAULT_MAX_SIZE + "}") final int maxSize,
+            @Value("${pending.result.timeToLiveSeconds:" + DEFAULT_TIME_TO_LIVE_SECONDS
+                    + "}") final long timeToLiveSeconds,
+            @Value("${pending.result.retentionSeconds:" + DEFAULT_RETENTION_SECONDS
+                    + "}") final long retentionSeconds) {
+        this.maxSize = maxSize;
+        timeToLiveMillis = TimeUnit.SECONDS.toMillis(timeToLiveSeconds);
+        retentionMillis = TimeUnit.SECONDS.toMillis(retentionSeconds);
+        sweepScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "PendingResultSweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweepScheduler.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_MILLIS, SWEEP_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return ID of created {@link PendingResult}
+     * @throws PendingResultCapacityExceededException if the maximum number of pending results are already stored
+     */
     public String create() {
-        final String id = randomId();
-        pendingResults.put(id, new PendingResult());
+        return put(randomId());
+    }
+
+    /**
+     * @param address Address of this application instance, to be embedded in the ID
+     * @return ID of created {@link PendingResult}
+     * @throws PendingResultCapacityExceededException if the maximum number of pending results are already stored
+     */
+    public String create(final String address) {
+        return put(randomId() + ADDRESS_SEPARATOR + address);
+    }
+
+    private String put(final String id) {
+        // Size check is not atomic with insertion, so the bound may be exceeded slightly under contention
+        if (pendingResults.size() >= maxSize) {
+            rejectedCount.incrementAndGet();
+            throw new PendingResultCapacityExceededException("Maximum number of pending results reached: " + maxSize);
+        }
+        final PendingResult pendingResult = new PendingResult(timeToLiveMillis);
+        pendingResult.resultFuture().whenComplete((result, throwable) -> {
+            if (throwable == null) {
+                completedCount.incrementAndGet();
+            } else {
+                expiredCount.incrementAndGet();
+            }
+        });
+        pendingResults.put(id, pendingResult);
         return id;
     }
 
+    /**
+     * @param id ID of a {@link PendingResult}, possibly created by another application instance
+     * @return Address embedded in the ID, or {@code null} if the ID has no embedded address
+     */
+    public static String address(final String id) {
+        final int separatorIndex = id.indexOf(ADDRESS_SEPARATOR);
+        return separatorIndex < 0 ? null : id.substring(separatorIndex + 1);
+    }
+
     public void remove(final String id) {
         pendingResults.remove(id);
     }
@@ -45,4 +150,40 @@ class PendingResultsHolder {
         return pendingResults.get(id);
     }
 
+    /**
+     * Expires and removes all {@link PendingResult}s which are past their deadline without a result, and removes all
+     * {@link PendingResult}s offered a result longer ago than the retention period
+     */
+    void sweep() {
+        try {
+            final long nowMillis = DateTimeUtils.currentTimeMillis();
+            final Iterator<Entry<String, PendingResult>> iterator = pendingResults.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final PendingResult pendingResult = iterator.next().getValue();
+                if (!pendingResult.isDone()) {
+                    if (nowMillis >= pendingResult.deadlineMillis() && pendingResult.expire()) {
+                        iterator.remove();
+                    }
+                } else if (nowMillis >= pendingResult.completedMillis() + retentionMillis) {
+                    iterator.remove();
+                }
+            }
+        } catch (final RuntimeException e) {
+            logger.error("Error sweeping pending results", e);
+        }
+    }
+
+    /**
+     * Stops the background sweeper
+     */
+    @PreDestroy
+    public void shutdown() {
+        sweepScheduler.shutdownNow();
+    }
+
+    public PendingResultStatistics statistics() {
+        return new PendingResultStatistics(pendingResults.size(), completedCount.get(), expiredCount.get(),
+                rejectedCount.get());
+    }
+
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.application.pending.result;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import com.clicktravel.cheddar.infrastructure.messaging.MessageSender;
+import com.clicktravel.cheddar.infrastructure.messaging.SimpleMessage;
+import com.clicktravel.cheddar.infrastructure.messaging.TypedMessage;
+
+/**
+ * {@link PendingResultDeliveryChannel} where each application instance has its own message queue, addressed by queue
+ * name. Events are sent as {@link TypedMessage}s, so the queue of each application instance should be listened to by a
+ * {@link com.clicktravel.cheddar.infrastructure.messaging.TypedMessageListener} with a
+ * {@link PendingResultOfferedEventHandler} registered, for example using an
+ * {@link com.clicktravel.cheddar.event.EventHandlerRegistry}. Provisioning of the per-instance queues is the
+ * responsibility of the application. The names of all per-instance queues of a deployment share a prefix, and only
+ * addresses with that prefix are accepted, so that a crafted {@link PendingResult} ID cannot direct events to any other
+ * queue.
+ *
+ * A {@link MessageSender} is retained for each of the most recently used queues. A sender is discarded when sending
+ * with it fails, as the queue may have been removed along with its application instance.
+ */
+public class QueuePendingResultDeliveryChannel implements PendingResultDeliveryChannel {
+
+    static final int DEFAULT_MAX_MESSAGE_SENDERS = 256;
+
+    /** Characters and length allowed in a queue name */
+    private static final Pattern QUEUE_NAME_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,80}");
+
+    private final String queueNamePrefix;
+    private final String localQueueName;
+    private final Function<String, MessageSender<TypedMessage>> messageSenderFactory;
+    private final Map<String, MessageSender<TypedMessage>> messageSenders;
+
+    /**
+     * @param queueNamePrefix Prefix of the names of the message queues of all application instances of this deployment
+     * @param localQueueName Name of the message queue of this application instance
+     * @param messageSenderFactory Creates a {@link MessageSender} for the message queue with a given name; each created
+     *            {@link MessageSender} is retained for reuse
+     */
+    public QueuePendingResultDeliveryChannel(final String queueNamePrefix, final String localQueueName,
+            final Function<String, MessageSender<TypedMessage>> messageSenderFactory) {
+        this(queueNamePrefix, localQueueName, messageSenderFactory, DEFAULT_MAX_MESSAGE_SENDERS);
+    }
+
+    /**
+     * @param queueNamePrefix Prefix of the names of the message queues of all application instances of this deployment
+     * @param localQueueName Name of the message queue of this application instance
+     * @param messageSenderFactory Creates a {@link MessageSender} for the message queue with a given name; each created
+     *            {@link MessageSender} is retained for reuse
+     * @param maxMessageSenders Maximum number of retained {@link MessageSender}s; the least recently used is discarded
+     *            when exceeded
+     */
+    public QueuePendingResultDeliveryChannel(final String queueNamePrefix, final String localQueueName,
+            final Function<String, MessageSender<TypedMessage>> messageSenderFactory, final int maxMessageSenders) {
+        if (queueNamePrefix.isEmpty()) {
+            throw new IllegalArgumentException("Queue name prefix must not be empty");
+        }
+        this.queueNamePrefix = queueNamePrefix;
+        if (!accepts(localQueueName)) {
+            throw new IllegalArgumentException("Local queue name must be a valid queue name with the prefix");
+        }
+        this.localQueueName = localQueueName;
+        this.messageSenderFactory = messageSenderFactory;
+        messageSenders = new LinkedHashMap<String, MessageSender<TypedMessage>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, MessageSender<TypedMessage>> eldest) {
+                return size() > maxMessageSenders;
+            }
+        };
+    }
+
+    @Override
+    public String localAddress() {
+        return localQueueName;
+    }
+
+    @Override
+    public boolean accepts(final String address) {
+        return address.startsWith(queueNamePrefix) && address.length() > queueNamePrefix.length()
+                && QUEUE_NAME_PATTERN.matcher(address).matches();
+    }
+
+    @Override
+    public void deliver(final String address, final PendingResultOfferedEvent event) {
+        if (!accepts(address)) {
+            throw new IllegalArgumentException("Not a queue of this deployment: " + address);
+        }
+        final MessageSender<TypedMessage> messageSender = messageSender(address);
+        try {
+            messageSender.send(new SimpleMessage(event.type(), event.serialize()));
+        } catch (final RuntimeException e) {
+            synchronized (messageSenders) {
+                messageSenders.remove(address, messageSender);
+            }
+            throw e;
+        }
+    }
+
+    private MessageSender<TypedMessage> messageSender(final String address) {
+        synchronized (messageSenders) {
+            final MessageSender<TypedMessage> messageSender = messageSenders.get(address);
+            if (messageSender != null) {
+                return messageSender;
+            }
+        }
+        // Created outside the lock, as creating a sender may call the messaging service
+        final MessageSender<TypedMessage> messageSender = messageSenderFactory.apply(address);
+        synchronized (messageSenders) {
+            final MessageSender<TypedMessage> existingMessageSender = messageSenders.putIfAbsent(address,
+                    messageSender);
+            return existingMessageSender == null ? messageSender : existingMessageSender;
+        }
+    }
+
+}
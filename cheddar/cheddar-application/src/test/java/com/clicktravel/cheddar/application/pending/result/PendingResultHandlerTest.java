@@ -20,11 +20,21 @@ import static com.clicktravel.common.random.Randoms.randomId;
 import static com.clicktravel.common.random.Randoms.randomInt;
 import static com.clicktravel.common.random.Randoms.randomString;
 import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.mock;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTimeUtils;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -33,7 +43,9 @@ import org.mockito.ArgumentCaptor;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import com.clicktravel.cheddar.infrastructure.messaging.exception.MessageSendException;
 import com.clicktravel.cheddar.system.event.publisher.SystemEventPublisher;
+import com.clicktravel.common.serialization.KryoObjectSerializer;
 import com.thoughtworks.xstream.XStream;
 
 @RunWith(PowerMockRunner.class)
@@ -60,6 +72,11 @@ public class PendingResultHandlerTest {
         pendingResultHandler = new PendingResultHandler(mockPendingResultsHolder, applicationName);
     }
 
+    @After
+    public void tearDown() {
+        DateTimeUtils.setCurrentMillisSystem();
+    }
+
     @Test
     public void shouldPublishEvent_onOfferValue() throws Exception {
         // Given
@@ -76,7 +93,24 @@ public class PendingResultHandlerTest {
         assertEquals(applicationName, event.getTargetApplicationName());
         assertNull(event.getTargetApplicationVersion());
         assertEquals(pendingResultId, event.getPendingResultId());
-        final Object actualResult = new XStream().fromXML(event.getResultXml());
+        final Object actualResult = new KryoObjectSerializer().deserialize(event.getSerializedResult());
+        assertTrue(actualResult instanceof Result);
+        assertEquals(((Result) actualResult).getValue(), testValue);
+    }
+
+    @Test
+    public void shouldPublishEventWithResultXml_onOfferValue() throws Exception {
+        // Given
+        final TestValue testValue = new TestValue(randomString(), randomInt(100));
+        final String pendingResultId = randomId();
+
+        // When
+        pendingResultHandler.offerValue(pendingResultId, testValue);
+
+        // Then
+        final ArgumentCaptor<PendingResultOfferedEvent> captor = ArgumentCaptor.forClass(PendingResultOfferedEvent.class);
+        verify(mockSystemEventPublisher).publishEvent(captor.capture());
+        final Object actualResult = new XStream().fromXML(captor.getValue().getResultXml());
         assertTrue(actualResult instanceof Result);
         assertEquals(((Result) actualResult).getValue(), testValue);
     }
@@ -97,7 +131,7 @@ public class PendingResultHandlerTest {
         assertEquals(applicationName, event.getTargetApplicationName());
         assertNull(event.getTargetApplicationVersion());
         assertEquals(pendingResultId, event.getPendingResultId());
-        final Object actualResult = new XStream().fromXML(event.getResultXml());
+        final Object actualResult = new KryoObjectSerializer().deserialize(event.getSerializedResult());
         assertTrue(actualResult instanceof Result);
         assertNull(((Result) actualResult).getValue());
     }
@@ -118,7 +152,7 @@ public class PendingResultHandlerTest {
         assertEquals(applicationName, event.getTargetApplicationName());
         assertNull(event.getTargetApplicationVersion());
         assertEquals(pendingResultId, event.getPendingResultId());
-        final Object actualResult = new XStream().fromXML(event.getResultXml());
+        final Object actualResult = new KryoObjectSerializer().deserialize(event.getSerializedResult());
         assertTrue(actualResult instanceof Result);
         IllegalStateException thrownException = null;
         try {
@@ -143,6 +177,108 @@ public class PendingResultHandlerTest {
         assertEquals(pendingResultId, returnedId);
     }
 
+    @Test
+    public void shouldCreatePendingResultWithAddress_withDeliveryChannel() {
+        // Given
+        final String address = randomString(10);
+        final PendingResultDeliveryChannel mockPendingResultDeliveryChannel = mock(PendingResultDeliveryChannel.class);
+        when(mockPendingResultDeliveryChannel.localAddress()).thenReturn(address);
+        pendingResultHandler.setPendingResultDeliveryChannel(mockPendingResultDeliveryChannel);
+        final String pendingResultId = randomId() + "@" + address;
+        when(mockPendingResultsHolder.create(address)).thenReturn(pendingResultId);
+
+        // When
+        final String returnedId = pendingResultHandler.createPendingResult();
+
+        // Then
+        assertEquals(pendingResultId, returnedId);
+    }
+
+    @Test
+    public void shouldDeliverEventDirectly_onOfferValueWithAddressedPendingResultId() throws Exception {
+        // Given
+        final String address = randomString(10);
+        final PendingResultDeliveryChannel mockPendingResultDeliveryChannel = mock(PendingResultDeliveryChannel.class);
+        when(mockPendingResultDeliveryChannel.accepts(address)).thenReturn(true);
+        pendingResultHandler.setPendingResultDeliveryChannel(mockPendingResultDeliveryChannel);
+        final TestValue testValue = new TestValue(randomString(), randomInt(100));
+        final String pendingResultId = randomId() + "@" + address;
+
+        // When
+        pendingResultHandler.offerValue(pendingResultId, testValue);
+
+        // Then
+        final ArgumentCaptor<PendingResultOfferedEvent> captor = ArgumentCaptor.forClass(PendingResultOfferedEvent.class);
+        verify(mockPendingResultDeliveryChannel).deliver(eq(address), captor.capture());
+        final PendingResultOfferedEvent event = captor.getValue();
+        assertEquals(applicationName, event.getTargetApplicationName());
+        assertEquals(pendingResultId, event.getPendingResultId());
+        final Object actualResult = new KryoObjectSerializer().deserialize(event.getSerializedResult());
+        assertEquals(((Result) actualResult).getValue(), testValue);
+        assertNull(event.getResultXml());
+        verify(mockSystemEventPublisher, never()).publishEvent(any(PendingResultOfferedEvent.class));
+    }
+
+    @Test
+    public void shouldPublishEvent_onOfferValueWithUnacceptedAddress() throws Exception {
+        // Given
+        final String address = randomString(10);
+        final PendingResultDeliveryChannel mockPendingResultDeliveryChannel = mock(PendingResultDeliveryChannel.class);
+        when(mockPendingResultDeliveryChannel.accepts(address)).thenReturn(false);
+        pendingResultHandler.setPendingResultDeliveryChannel(mockPendingResultDeliveryChannel);
+        final String pendingResultId = randomId() + "@" + address;
+
+        // When
+        pendingResultHandler.offerValue(pendingResultId, randomString());
+
+        // Then
+        verify(mockPendingResultDeliveryChannel, never()).deliver(any(String.class),
+                any(PendingResultOfferedEvent.class));
+        final ArgumentCaptor<PendingResultOfferedEvent> captor = ArgumentCaptor.forClass(PendingResultOfferedEvent.class);
+        verify(mockSystemEventPublisher).publishEvent(captor.capture());
+        assertEquals(pendingResultId, captor.getValue().getPendingResultId());
+    }
+
+    @Test
+    public void shouldPublishEvent_onOfferValueWithFailedDirectDelivery() throws Exception {
+        // Given
+        final String address = randomString(10);
+        final PendingResultDeliveryChannel mockPendingResultDeliveryChannel = mock(PendingResultDeliveryChannel.class);
+        doThrow(new MessageSendException(randomString(), null)).when(mockPendingResultDeliveryChannel)
+                .deliver(eq(address), any(PendingResultOfferedEvent.class));
+        when(mockPendingResultDeliveryChannel.accepts(address)).thenReturn(true);
+        pendingResultHandler.setPendingResultDeliveryChannel(mockPendingResultDeliveryChannel);
+        final String pendingResultId = randomId() + "@" + address;
+
+        // When
+        pendingResultHandler.offerValue(pendingResultId, randomString());
+
+        // Then
+        final ArgumentCaptor<PendingResultOfferedEvent> captor = ArgumentCaptor.forClass(PendingResultOfferedEvent.class);
+        verify(mockSystemEventPublisher).publishEvent(captor.capture());
+        assertEquals(pendingResultId, captor.getValue().getPendingResultId());
+    }
+
+    @Test
+    public void shouldPublishEvent_onOfferValueWithDirectDeliveryRuntimeException() throws Exception {
+        // Given
+        final String address = randomString(10);
+        final PendingResultDeliveryChannel mockPendingResultDeliveryChannel = mock(PendingResultDeliveryChannel.class);
+        doThrow(new IllegalStateException()).when(mockPendingResultDeliveryChannel).deliver(eq(address),
+                any(PendingResultOfferedEvent.class));
+        when(mockPendingResultDeliveryChannel.accepts(address)).thenReturn(true);
+        pendingResultHandler.setPendingResultDeliveryChannel(mockPendingResultDeliveryChannel);
+        final String pendingResultId = randomId() + "@" + address;
+
+        // When
+        pendingResultHandler.offerValue(pendingResultId, randomString());
+
+        // Then
+        final ArgumentCaptor<PendingResultOfferedEvent> captor = ArgumentCaptor.forClass(PendingResultOfferedEvent.class);
+        verify(mockSystemEventPublisher).publishEvent(captor.capture());
+        assertEquals(pendingResultId, captor.getValue().getPendingResultId());
+    }
+
     @Test
     public void shouldRemovePendingResult_withPendingResultId() {
         // Given
@@ -173,4 +309,121 @@ public class PendingResultHandlerTest {
         assertNotNull(returnedValue);
         assertSame(value, returnedValue);
     }
+
+    @Test
+    public void shouldRemovePendingResult_onPollValueWhenDone() throws Exception {
+        // Given
+        final Object value = new Object();
+        final PendingResult pendingResult = new PendingResult();
+        pendingResult.offerResult(new SimpleResult(value));
+        final String pendingResultId = randomId();
+        when(mockPendingResultsHolder.get(pendingResultId)).thenReturn(pendingResult);
+
+        // When
+        final Object returnedValue = pendingResultHandler.pollValue(pendingResultId, 10, TimeUnit.SECONDS);
+
+        // Then
+        assertSame(value, returnedValue);
+        verify(mockPendingResultsHolder).remove(pendingResultId);
+    }
+
+    @Test
+    public void shouldThrowUnknownPendingResultException_onPollValueWithUnknownPendingResultId() throws Exception {
+        // Given
+        final String pendingResultId = randomId();
+
+        // When
+        UnknownPendingResultException thrownException = null;
+        try {
+            pendingResultHandler.pollValue(pendingResultId);
+        } catch (final UnknownPendingResultException e) {
+            thrownException = e;
+        }
+
+        // Then
+        assertNotNull(thrownException);
+    }
+
+    @Test
+    public void shouldCompleteValueFuture_onOfferedValue() throws Exception {
+        // Given
+        final Object value = new Object();
+        final PendingResult pendingResult = new PendingResult();
+        final String pendingResultId = randomId();
+        when(mockPendingResultsHolder.get(pendingResultId)).thenReturn(pendingResult);
+
+        // When
+        final CompletableFuture<Object> valueFuture = pendingResultHandler.valueFuture(pendingResultId, 10,
+                TimeUnit.SECONDS);
+        pendingResult.offerResult(new SimpleResult(value));
+
+        // Then
+        assertSame(value, valueFuture.get());
+        verify(mockPendingResultsHolder).remove(pendingResultId);
+    }
+
+    @Test
+    public void shouldCompleteValueFutureExceptionally_onOfferedException() throws Exception {
+        // Given
+        final Exception exception = new IllegalStateException(randomString());
+        final PendingResult pendingResult = new PendingResult();
+        final String pendingResultId = randomId();
+        when(mockPendingResultsHolder.get(pendingResultId)).thenReturn(pendingResult);
+
+        // When
+        final CompletableFuture<Object> valueFuture = pendingResultHandler.valueFuture(pendingResultId, 10,
+                TimeUnit.SECONDS);
+        pendingResult.offerResult(new ExceptionResult(exception));
+
+        // Then
+        ExecutionException thrownException = null;
+        try {
+            valueFuture.get();
+        } catch (final ExecutionException e) {
+            thrownException = e;
+        }
+        assertNotNull(thrownException);
+        assertSame(exception, thrownException.getCause());
+        verify(mockPendingResultsHolder).remove(pendingResultId);
+    }
+
+    @Test
+    public void shouldSetDeadlineOfPendingResult_onValueFuture() {
+        // Given
+        final long nowMillis = System.currentTimeMillis();
+        DateTimeUtils.setCurrentMillisFixed(nowMillis);
+        final PendingResult pendingResult = new PendingResult();
+        final String pendingResultId = randomId();
+        when(mockPendingResultsHolder.get(pendingResultId)).thenReturn(pendingResult);
+
+        // When
+        pendingResultHandler.valueFuture(pendingResultId, 10, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertEquals(nowMillis + 10, pendingResult.deadlineMillis());
+    }
+
+    @Test
+    public void shouldCompleteValueFutureExceptionally_onExpire() throws Exception {
+        // Given
+        final PendingResult pendingResult = new PendingResult();
+        final String pendingResultId = randomId();
+        when(mockPendingResultsHolder.get(pendingResultId)).thenReturn(pendingResult);
+        final CompletableFuture<Object> valueFuture = pendingResultHandler.valueFuture(pendingResultId, 10,
+                TimeUnit.MILLISECONDS);
+
+        // When
+        pendingResult.expire();
+
+        // Then
+        ExecutionException thrownException = null;
+        try {
+            valueFuture.get(10, TimeUnit.SECONDS);
+        } catch (final ExecutionException e) {
+            thrownException = e;
+        }
+        assertNotNull(thrownException);
+        assertTrue(thrownException.getCause() instanceof PendingResultTimeoutException);
+        verify(mockPendingResultsHolder).remove(pendingResultId);
+    }
 }
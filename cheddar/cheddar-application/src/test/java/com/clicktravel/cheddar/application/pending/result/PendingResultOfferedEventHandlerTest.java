@@ -19,17 +19,22 @@ package com.clicktravel.cheddar.application.pending.result;
 import static com.clicktravel.common.random.Randoms.randomId;
 import static com.clicktravel.common.random.Randoms.randomString;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
+import javax.xml.namespace.QName;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
 import com.clicktravel.cheddar.system.event.SystemEvent;
+import com.clicktravel.common.serialization.KryoObjectSerializer;
 import com.thoughtworks.xstream.XStream;
 
 public class PendingResultOfferedEventHandlerTest {
@@ -53,11 +58,11 @@ public class PendingResultOfferedEventHandlerTest {
         // Given
         final String value = randomString();
         final Result result = new SimpleResult(value);
-        final String resultXml = new XStream().toXML(result);
+        final byte[] serializedResult = new KryoObjectSerializer().serialize(result);
         final String pendingResultId = randomId();
         final PendingResultOfferedEvent event = mock(PendingResultOfferedEvent.class);
         when(event.getPendingResultId()).thenReturn(pendingResultId);
-        when(event.getResultXml()).thenReturn(resultXml);
+        when(event.getSerializedResult()).thenReturn(serializedResult);
         final PendingResult mockPendingResult = mock(PendingResult.class);
         when(mockPendingResultsHolder.get(pendingResultId)).thenReturn(mockPendingResult);
 
@@ -72,6 +77,51 @@ public class PendingResultOfferedEventHandlerTest {
         assertEquals(value, actualResult.getValue());
     }
 
+    @Test
+    public void shouldOfferResult_onHandleEventWithLegacyResultXml() throws Exception {
+        // Given
+        final String value = randomString();
+        final String resultXml = new XStream().toXML(new SimpleResult(value));
+        final String pendingResultId = randomId();
+        final PendingResultOfferedEvent event = mock(PendingResultOfferedEvent.class);
+        when(event.getPendingResultId()).thenReturn(pendingResultId);
+        when(event.getResultXml()).thenReturn(resultXml);
+        final PendingResult mockPendingResult = mock(PendingResult.class);
+        when(mockPendingResultsHolder.get(pendingResultId)).thenReturn(mockPendingResult);
+
+        // When
+        pendingResultOfferedEventHandler.handleSystemEvent(event);
+
+        // Then
+        final ArgumentCaptor<Result> captor = ArgumentCaptor.forClass(Result.class);
+        verify(mockPendingResult).offerResult(captor.capture());
+        assertEquals(value, captor.getValue().getValue());
+    }
+
+    @Test
+    public void shouldNotOfferResult_onHandleEventWithLegacyResultXmlOfDisallowedClass() {
+        // Given
+        final String resultXml = new XStream().toXML(new SimpleResult(new QName(randomString(), randomString())));
+        final String pendingResultId = randomId();
+        final PendingResultOfferedEvent event = mock(PendingResultOfferedEvent.class);
+        when(event.getPendingResultId()).thenReturn(pendingResultId);
+        when(event.getResultXml()).thenReturn(resultXml);
+        final PendingResult mockPendingResult = mock(PendingResult.class);
+        when(mockPendingResultsHolder.get(pendingResultId)).thenReturn(mockPendingResult);
+
+        // When
+        Exception thrownException = null;
+        try {
+            pendingResultOfferedEventHandler.handleSystemEvent(event);
+        } catch (final Exception e) {
+            thrownException = e;
+        }
+
+        // Then
+        assertNotNull(thrownException);
+        verifyZeroInteractions(mockPendingResult);
+    }
+
     @Test
     public void shouldDoNothing_onHandleEventForUnknownPendingResult() {
         // Given
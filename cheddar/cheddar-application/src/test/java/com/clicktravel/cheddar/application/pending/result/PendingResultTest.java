@@ -16,9 +16,12 @@
  */
 package com.clicktravel.cheddar.application.pending.result;
 
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
@@ -45,4 +48,53 @@ public class PendingResultTest {
         // Then
         assertSame(mockResult, actualResult);
     }
+
+    @Test
+    public void shouldThrowPendingResultTimeoutException_whenPollAndNoOffer() throws Exception {
+        // Given
+        final PendingResult pendingResult = new PendingResult();
+
+        // When
+        PendingResultTimeoutException thrownException = null;
+        try {
+            pendingResult.pollResult(10, TimeUnit.MILLISECONDS);
+        } catch (final PendingResultTimeoutException e) {
+            thrownException = e;
+        }
+
+        // Then
+        assertNotNull(thrownException);
+    }
+
+    @Test
+    public void shouldCompleteResultFuture_onOffer() throws Exception {
+        // Given
+        final Result mockResult = mock(Result.class);
+        final PendingResult pendingResult = new PendingResult();
+
+        // When
+        pendingResult.offerResult(mockResult);
+
+        // Then
+        assertSame(mockResult, pendingResult.resultFuture().get());
+    }
+
+    @Test
+    public void shouldCompleteResultFutureExceptionally_onExpire() throws Exception {
+        // Given
+        final PendingResult pendingResult = new PendingResult();
+
+        // When
+        pendingResult.expire();
+
+        // Then
+        ExecutionException thrownException = null;
+        try {
+            pendingResult.resultFuture().get();
+        } catch (final ExecutionException e) {
+            thrownException = e;
+        }
+        assertNotNull(thrownException);
+        assertTrue(thrownException.getCause() instanceof PendingResultTimeoutException);
+    }
 }
@@ -17,9 +17,17 @@
 package com.clicktravel.cheddar.application.pending.result;
 
 import static com.clicktravel.common.random.Randoms.randomId;
+import static com.clicktravel.common.random.Randoms.randomString;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTimeUtils;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -32,6 +40,12 @@ public class PendingResultsHolderTest {
         pendingResultsHolder = new PendingResultsHolder();
     }
 
+    @After
+    public void tearDown() {
+        pendingResultsHolder.shutdown();
+        DateTimeUtils.setCurrentMillisSystem();
+    }
+
     @Test
     public void shouldReturnId_onCreate() {
         // When
@@ -77,4 +91,163 @@ public class PendingResultsHolderTest {
         final PendingResult pendingResult = pendingResultsHolder.get(id);
         assertNull(pendingResult);
     }
+
+    @Test
+    public void shouldReturnPendingResult_onCreateWithAddressThenGet() {
+        // Given
+        final String address = randomString(10);
+        final String id = pendingResultsHolder.create(address);
+
+        // When
+        final PendingResult pendingResult = pendingResultsHolder.get(id);
+
+        // Then
+        assertNotNull(pendingResult);
+        assertEquals(address, PendingResultsHolder.address(id));
+    }
+
+    @Test
+    public void shouldNotReturnAddress_withIdCreatedWithoutAddress() {
+        // Given
+        final String id = pendingResultsHolder.create();
+
+        // When
+        final String address = PendingResultsHolder.address(id);
+
+        // Then
+        assertNull(address);
+    }
+
+    @Test
+    public void shouldExpireAndRemovePendingResult_onSweepAfterDeadline() {
+        // Given
+        final long nowMillis = System.currentTimeMillis();
+        DateTimeUtils.setCurrentMillisFixed(nowMillis);
+        final String id = pendingResultsHolder.create();
+        final PendingResult pendingResult = pendingResultsHolder.get(id);
+        DateTimeUtils.setCurrentMillisFixed(pendingResult.deadlineMillis());
+
+        // When
+        pendingResultsHolder.sweep();
+
+        // Then
+        assertNull(pendingResultsHolder.get(id));
+        assertTrue(pendingResult.isDone());
+        final PendingResultStatistics statistics = pendingResultsHolder.statistics();
+        assertEquals(0, statistics.getLiveCount());
+        assertEquals(1, statistics.getExpiredCount());
+        assertEquals(0, statistics.getCompletedCount());
+    }
+
+    @Test
+    public void shouldNotRemoveCompletedPendingResult_onSweepAfterDeadline() {
+        // Given
+        final long nowMillis = System.currentTimeMillis();
+        DateTimeUtils.setCurrentMillisFixed(nowMillis);
+        pendingResultsHolder.shutdown();
+        pendingResultsHolder = new PendingResultsHolder(PendingResultsHolder.DEFAULT_MAX_SIZE, 1);
+        final String id = pendingResultsHolder.create();
+        final PendingResult pendingResult = pendingResultsHolder.get(id);
+        final Result result = new SimpleResult(randomString());
+        pendingResult.offerResult(result);
+        DateTimeUtils.setCurrentMillisFixed(pendingResult.deadlineMillis());
+
+        // When
+        pendingResultsHolder.sweep();
+
+        // Then
+        assertSame(pendingResult, pendingResultsHolder.get(id));
+        assertSame(result, pendingResult.resultFuture().getNow(null));
+    }
+
+    @Test
+    public void shouldRemoveCompletedPendingResult_onSweepAfterRetention() {
+        // Given
+        final long nowMillis = System.currentTimeMillis();
+        DateTimeUtils.setCurrentMillisFixed(nowMillis);
+        final String id = pendingResultsHolder.create();
+        pendingResultsHolder.get(id).offerResult(new SimpleResult(randomString()));
+        DateTimeUtils.setCurrentMillisFixed(
+                nowMillis + TimeUnit.SECONDS.toMillis(PendingResultsHolder.DEFAULT_RETENTION_SECONDS));
+
+        // When
+        pendingResultsHolder.sweep();
+
+        // Then
+        assertNull(pendingResultsHolder.get(id));
+    }
+
+    @Test
+    public void shouldNotRemovePendingResult_onSweepBeforeDeadline() {
+        // Given
+        final long nowMillis = System.currentTimeMillis();
+        DateTimeUtils.setCurrentMillisFixed(nowMillis);
+        final String id = pendingResultsHolder.create();
+        final PendingResult pendingResult = pendingResultsHolder.get(id);
+        DateTimeUtils.setCurrentMillisFixed(pendingResult.deadlineMillis() - 1);
+
+        // When
+        pendingResultsHolder.sweep();
+
+        // Then
+        assertNotNull(pendingResultsHolder.get(id));
+        assertEquals(1, pendingResultsHolder.statistics().getLiveCount());
+    }
+
+    @Test
+    public void shouldNotRemovePendingResult_onSweepBeforeExtendedDeadline() {
+        // Given
+        final long nowMillis = System.currentTimeMillis();
+        DateTimeUtils.setCurrentMillisFixed(nowMillis);
+        final String id = pendingResultsHolder.create();
+        final PendingResult pendingResult = pendingResultsHolder.get(id);
+        final long originalDeadlineMillis = pendingResult.deadlineMillis();
+        pendingResult.extendDeadline(originalDeadlineMillis + 1000);
+        DateTimeUtils.setCurrentMillisFixed(originalDeadlineMillis);
+
+        // When
+        pendingResultsHolder.sweep();
+
+        // Then
+        assertNotNull(pendingResultsHolder.get(id));
+    }
+
+    @Test
+    public void shouldCountCompletedPendingResult_onOfferResult() {
+        // Given
+        final String id = pendingResultsHolder.create();
+
+        // When
+        pendingResultsHolder.get(id).offerResult(new SimpleResult(randomString()));
+
+        // Then
+        final PendingResultStatistics statistics = pendingResultsHolder.statistics();
+        assertEquals(1, statistics.getLiveCount());
+        assertEquals(1, statistics.getCompletedCount());
+        assertEquals(0, statistics.getExpiredCount());
+    }
+
+    @Test
+    public void shouldThrowPendingResultCapacityExceededException_onCreateWhenFull() {
+        // Given
+        final int maxSize = 3;
+        pendingResultsHolder.shutdown();
+        pendingResultsHolder = new PendingResultsHolder(maxSize, PendingResultsHolder.DEFAULT_TIME_TO_LIVE_SECONDS);
+        for (int n = 0; n < maxSize; n++) {
+            pendingResultsHolder.create();
+        }
+
+        // When
+        PendingResultCapacityExceededException thrownException = null;
+        try {
+            pendingResultsHolder.create();
+        } catch (final PendingResultCapacityExceededException e) {
+            thrownException = e;
+        }
+
+        // Then
+        assertNotNull(thrownException);
+        assertEquals(maxSize, pendingResultsHolder.statistics().getLiveCount());
+        assertEquals(1, pendingResultsHolder.statistics().getRejectedCount());
+    }
 }
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.application.pending.result;
+
+import static com.clicktravel.common.random.Randoms.randomId;
+import static com.clicktravel.common.random.Randoms.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.function.Function;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.clicktravel.cheddar.event.AbstractEvent;
+import com.clicktravel.cheddar.infrastructure.messaging.MessageSender;
+import com.clicktravel.cheddar.infrastructure.messaging.TypedMessage;
+
+public class QueuePendingResultDeliveryChannelTest {
+
+    private String queueNamePrefix;
+    private String localQueueName;
+    private Function<String, MessageSender<TypedMessage>> mockMessageSenderFactory;
+    private QueuePendingResultDeliveryChannel queuePendingResultDeliveryChannel;
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() {
+        queueNamePrefix = randomString(10) + "-";
+        localQueueName = queueNamePrefix + randomString(10);
+        mockMessageSenderFactory = mock(Function.class);
+        queuePendingResultDeliveryChannel = new QueuePendingResultDeliveryChannel(queueNamePrefix, localQueueName,
+                mockMessageSenderFactory);
+    }
+
+    @Test
+    public void shouldReturnLocalQueueName_onLocalAddress() {
+        // When
+        final String localAddress = queuePendingResultDeliveryChannel.localAddress();
+
+        // Then
+        assertEquals(localQueueName, localAddress);
+    }
+
+    @Test
+    public void shouldAcceptQueueName_withQueueNamePrefix() {
+        // When
+        final boolean accepted = queuePendingResultDeliveryChannel.accepts(queueNamePrefix + randomString(10));
+
+        // Then
+        assertTrue(accepted);
+    }
+
+    @Test
+    public void shouldNotAcceptQueueName_withoutQueueNamePrefix() {
+        // When
+        final boolean accepted = queuePendingResultDeliveryChannel.accepts(randomString(10));
+
+        // Then
+        assertFalse(accepted);
+    }
+
+    @Test
+    public void shouldNotAcceptAddress_withInvalidQueueNameCharacters() {
+        // When
+        final boolean accepted = queuePendingResultDeliveryChannel.accepts(queueNamePrefix + "../" + randomString(10));
+
+        // Then
+        assertFalse(accepted);
+    }
+
+    @Test
+    public void shouldNotSendEvent_onDeliverToUnacceptedAddress() {
+        // Given
+        final PendingResultOfferedEvent event = new PendingResultOfferedEvent();
+        event.setPendingResultId(randomId());
+
+        // When
+        IllegalArgumentException thrownException = null;
+        try {
+            queuePendingResultDeliveryChannel.deliver(randomString(10), event);
+        } catch (final IllegalArgumentException e) {
+            thrownException = e;
+        }
+
+        // Then
+        assertNotNull(thrownException);
+        verify(mockMessageSenderFactory, never()).apply(any(String.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldSendEventToQueue_onDeliver() {
+        // Given
+        final String queueName = queueNamePrefix + randomString(10);
+        final MessageSender<TypedMessage> mockMessageSender = mock(MessageSender.class);
+        when(mockMessageSenderFactory.apply(queueName)).thenReturn(mockMessageSender);
+        final PendingResultOfferedEvent event = new PendingResultOfferedEvent();
+        event.setPendingResultId(randomId());
+        event.setSerializedResult(randomString().getBytes());
+
+        // When
+        queuePendingResultDeliveryChannel.deliver(queueName, event);
+        queuePendingResultDeliveryChannel.deliver(queueName, event);
+
+        // Then
+        verify(mockMessageSenderFactory).apply(queueName);
+        final ArgumentCaptor<TypedMessage> captor = ArgumentCaptor.forClass(TypedMessage.class);
+        verify(mockMessageSender, times(2)).send(captor.capture());
+        final TypedMessage typedMessage = captor.getValue();
+        assertEquals(event.type(), typedMessage.getType());
+        final PendingResultOfferedEvent sentEvent = AbstractEvent.newEvent(PendingResultOfferedEvent.class,
+                typedMessage.getPayload());
+        assertEquals(event.getPendingResultId(), sentEvent.getPendingResultId());
+        assertEquals(new String(event.getSerializedResult()), new String(sentEvent.getSerializedResult()));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldDiscardMessageSender_onDeliverWithSendFailure() {
+        // Given
+        final String queueName = queueNamePrefix + randomString(10);
+        final MessageSender<TypedMessage> mockMessageSender = mock(MessageSender.class);
+        when(mockMessageSenderFactory.apply(queueName)).thenReturn(mockMessageSender);
+        doThrow(new IllegalStateException()).doNothing().when(mockMessageSender).send(any(TypedMessage.class));
+        final PendingResultOfferedEvent event = new PendingResultOfferedEvent();
+        event.setPendingResultId(randomId());
+
+        // When
+        RuntimeException thrownException = null;
+        try {
+            queuePendingResultDeliveryChannel.deliver(queueName, event);
+        } catch (final RuntimeException e) {
+            thrownException = e;
+        }
+        queuePendingResultDeliveryChannel.deliver(queueName, event);
+
+        // Then
+        assertTrue(thrownException instanceof IllegalStateException);
+        verify(mockMessageSenderFactory, times(2)).apply(queueName);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldDiscardLeastRecentlyUsedMessageSender_onDeliverWithMaxMessageSenders() {
+        // Given
+        queuePendingResultDeliveryChannel = new QueuePendingResultDeliveryChannel(queueNamePrefix, localQueueName,
+                mockMessageSenderFactory, 1);
+        final String queueName = queueNamePrefix + randomString(10);
+        final String otherQueueName = queueNamePrefix + randomString(10);
+        when(mockMessageSenderFactory.apply(any(String.class))).thenReturn(mock(MessageSender.class));
+        final PendingResultOfferedEvent event = new PendingResultOfferedEvent();
+        event.setPendingResultId(randomId());
+
+        // When
+        queuePendingResultDeliveryChannel.deliver(queueName, event);
+        queuePendingResultDeliveryChannel.deliver(otherQueueName, event);
+        queuePendingResultDeliveryChannel.deliver(queueName, event);
+
+        // Then
+        verify(mockMessageSenderFactory, times(2)).apply(queueName);
+        verify(mockMessageSenderFactory).apply(otherQueueName);
+    }
+}
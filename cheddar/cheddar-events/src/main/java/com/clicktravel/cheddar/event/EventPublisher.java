@@ -16,6 +16,9 @@
  */
 package com.clicktravel.cheddar.event;
 
+import java.util.Collections;
+import java.util.Map;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,8 +37,19 @@ public abstract class EventPublisher<E extends Event> {
 
     public void publishEvent(final E event) {
         logger.debug("Publishing: " + event);
-        final TypedMessage typedMessage = new SimpleMessage(event.type(), event.serialize());
+        final TypedMessage typedMessage = new SimpleMessage(event.type(), event.serialize(),
+                messageAttributes(event));
         messagePublisher.publish(typedMessage);
     }
 
+    /**
+     * Override to attach routing attributes to the message published for an event, allowing messaging infrastructure
+     * to filter delivery. By default no attributes are attached.
+     * @param event Event being published
+     * @return Message attributes for the event
+     */
+    protected Map<String, String> messageAttributes(final E event) {
+        return Collections.emptyMap();
+    }
+
 }
@@ -17,6 +17,7 @@
 package com.clicktravel.cheddar.event;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -51,5 +52,6 @@ public class EventPublisherTest {
         verify(messagePublisher).publish(messageArgumentCaptor.capture());
         assertEquals(type, messageArgumentCaptor.getValue().getType());
         assertEquals(serialized, messageArgumentCaptor.getValue().getPayload());
+        assertTrue(messageArgumentCaptor.getValue().getAttributes().isEmpty());
     }
 }
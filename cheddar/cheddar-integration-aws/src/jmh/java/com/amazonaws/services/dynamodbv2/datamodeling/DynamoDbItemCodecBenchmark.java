@@ -0,0 +1,610 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import java.beans.PropertyDescriptor;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDbItemCodec.PropertyCodec;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.clicktravel.cheddar.infrastructure.persistence.database.Item;
+import com.clicktravel.cheddar.infrastructure.persistence.database.configuration.ItemConfiguration;
+
+/**
+ * Measures converting items of 10 to 50 attributes to and from DynamoDB attribute maps, as done by
+ * {@code DynamoDbTemplate} for each item written and read. {@link #codecEncode()} and {@link #codecDecode()} use a
+ * {@link DynamoDbItemCodec} created once for the item configuration; {@link #propertyMarshallerEncode()} and
+ * {@link #propertyMarshallerDecode()} use {@link DynamoDbPropertyMarshaller} for each property descriptor, as a
+ * baseline. Attributes are a mix of strings, numbers, booleans and string sets. Run with the {@code gradle jmh} task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DynamoDbItemCodecBenchmark {
+
+    @Param({ "10", "30", "50" })
+    private int attributes;
+
+    private Class<? extends Item> itemClass;
+    private ItemConfiguration itemConfiguration;
+    private DynamoDbItemCodec itemCodec;
+    private Item item;
+    private Map<String, AttributeValue> attributeMap;
+
+    @Setup
+    public void setUp() throws Exception {
+        switch (attributes) {
+            case 10:
+                itemClass = Item10.class;
+                break;
+            case 30:
+                itemClass = Item30.class;
+                break;
+            case 50:
+                itemClass = Item50.class;
+                break;
+            default:
+                throw new IllegalArgumentException("No item with attributes: " + attributes);
+        }
+        itemConfiguration = new ItemConfiguration(itemClass, "benchmark");
+        itemCodec = new DynamoDbItemCodec(itemConfiguration);
+        item = itemClass.newInstance();
+        for (final PropertyDescriptor propertyDescriptor : itemConfiguration.propertyDescriptors()) {
+            if (propertyDescriptor.getWriteMethod() != null) {
+                propertyDescriptor.getWriteMethod().invoke(item,
+                        value(propertyDescriptor.getPropertyType(), propertyDescriptor.getName()));
+            }
+        }
+        attributeMap = codecEncode();
+    }
+
+    private static Object value(final Class<?> type, final String name) {
+        if (type == String.class) {
+            return name + "-value";
+        } else if (type == Long.class) {
+            return 1234567890L;
+        } else if (type == Integer.class) {
+            return 42;
+        } else if (type == Boolean.class) {
+            return Boolean.TRUE;
+        } else if (type == Set.class) {
+            return new HashSet<>(Arrays.asList(name + "-a", name + "-b", name + "-c"));
+        }
+        throw new IllegalArgumentException("Unexpected property type: " + type);
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> codecEncode() {
+        final Map<String, AttributeValue> attributeMap = new HashMap<>();
+        for (final PropertyCodec property : itemCodec.properties()) {
+            if (property.isWritable()) {
+                attributeMap.put(property.name(), property.getValue(item));
+            }
+        }
+        return attributeMap;
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> propertyMarshallerEncode() {
+        final Map<String, AttributeValue> attributeMap = new HashMap<>();
+        for (final PropertyDescriptor propertyDescriptor : itemConfiguration.propertyDescriptors()) {
+            if (propertyDescriptor.getWriteMethod() != null) {
+                attributeMap.put(propertyDescriptor.getName(),
+                        DynamoDbPropertyMarshaller.getValue(item, propertyDescriptor));
+            }
+        }
+        return attributeMap;
+    }
+
+    @Benchmark
+    public Item codecDecode() throws Exception {
+        final Item decodedItem = itemClass.newInstance();
+        itemCodec.setValues(decodedItem, attributeMap);
+        return decodedItem;
+    }
+
+    @Benchmark
+    public Item propertyMarshallerDecode() throws Exception {
+        final Item decodedItem = itemClass.newInstance();
+        for (final PropertyDescriptor propertyDescriptor : itemConfiguration.propertyDescriptors()) {
+            DynamoDbPropertyMarshaller.setValue(decodedItem, propertyDescriptor,
+                    attributeMap.get(propertyDescriptor.getName()));
+        }
+        return decodedItem;
+    }
+
+    public static class Item10 implements Item {
+
+        private String id;
+        private Long version;
+        private String string00;
+        private Long long01;
+        private Boolean boolean02;
+        private Set<String> strings03;
+        private Integer integer04;
+        private String string05;
+        private Long long06;
+        private Boolean boolean07;
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(final String id) {
+            this.id = id;
+        }
+
+        @Override
+        public Long getVersion() {
+            return version;
+        }
+
+        @Override
+        public void setVersion(final Long version) {
+            this.version = version;
+        }
+
+        public String getString00() {
+            return string00;
+        }
+
+        public void setString00(final String string00) {
+            this.string00 = string00;
+        }
+
+        public Long getLong01() {
+            return long01;
+        }
+
+        public void setLong01(final Long long01) {
+            this.long01 = long01;
+        }
+
+        public Boolean getBoolean02() {
+            return boolean02;
+        }
+
+        public void setBoolean02(final Boolean boolean02) {
+            this.boolean02 = boolean02;
+        }
+
+        public Set<String> getStrings03() {
+            return strings03;
+        }
+
+        public void setStrings03(final Set<String> strings03) {
+            this.strings03 = strings03;
+        }
+
+        public Integer getInteger04() {
+            return integer04;
+        }
+
+        public void setInteger04(final Integer integer04) {
+            this.integer04 = integer04;
+        }
+
+        public String getString05() {
+            return string05;
+        }
+
+        public void setString05(final String string05) {
+            this.string05 = string05;
+        }
+
+        public Long getLong06() {
+            return long06;
+        }
+
+        public void setLong06(final Long long06) {
+            this.long06 = long06;
+        }
+
+        public Boolean getBoolean07() {
+            return boolean07;
+        }
+
+        public void setBoolean07(final Boolean boolean07) {
+            this.boolean07 = boolean07;
+        }
+    }
+
+    public static class Item30 extends Item10 {
+
+        private Set<String> strings08;
+        private Integer integer09;
+        private String string10;
+        private Long long11;
+        private Boolean boolean12;
+        private Set<String> strings13;
+        private Integer integer14;
+        private String string15;
+        private Long long16;
+        private Boolean boolean17;
+        private Set<String> strings18;
+        private Integer integer19;
+        private String string20;
+        private Long long21;
+        private Boolean boolean22;
+        private Set<String> strings23;
+        private Integer integer24;
+        private String string25;
+        private Long long26;
+        private Boolean boolean27;
+
+        public Set<String> getStrings08() {
+            return strings08;
+        }
+
+        public void setStrings08(final Set<String> strings08) {
+            this.strings08 = strings08;
+        }
+
+        public Integer getInteger09() {
+            return integer09;
+        }
+
+        public void setInteger09(final Integer integer09) {
+            this.integer09 = integer09;
+        }
+
+        public String getString10() {
+            return string10;
+        }
+
+        public void setString10(final String string10) {
+            this.string10 = string10;
+        }
+
+        public Long getLong11() {
+            return long11;
+        }
+
+        public void setLong11(final Long long11) {
+            this.long11 = long11;
+        }
+
+        public Boolean getBoolean12() {
+            return boolean12;
+        }
+
+        public void setBoolean12(final Boolean boolean12) {
+            this.boolean12 = boolean12;
+        }
+
+        public Set<String> getStrings13() {
+            return strings13;
+        }
+
+        public void setStrings13(final Set<String> strings13) {
+            this.strings13 = strings13;
+        }
+
+        public Integer getInteger14() {
+            return integer14;
+        }
+
+        public void setInteger14(final Integer integer14) {
+            this.integer14 = integer14;
+        }
+
+        public String getString15() {
+            return string15;
+        }
+
+        public void setString15(final String string15) {
+            this.string15 = string15;
+        }
+
+        public Long getLong16() {
+            return long16;
+        }
+
+        public void setLong16(final Long long16) {
+            this.long16 = long16;
+        }
+
+        public Boolean getBoolean17() {
+            return boolean17;
+        }
+
+        public void setBoolean17(final Boolean boolean17) {
+            this.boolean17 = boolean17;
+        }
+
+        public Set<String> getStrings18() {
+            return strings18;
+        }
+
+        public void setStrings18(final Set<String> strings18) {
+            this.strings18 = strings18;
+        }
+
+        public Integer getInteger19() {
+            return integer19;
+        }
+
+        public void setInteger19(final Integer integer19) {
+            this.integer19 = integer19;
+        }
+
+        public String getString20() {
+            return string20;
+        }
+
+        public void setString20(final String string20) {
+            this.string20 = string20;
+        }
+
+        public Long getLong21() {
+            return long21;
+        }
+
+        public void setLong21(final Long long21) {
+            this.long21 = long21;
+        }
+
+        public Boolean getBoolean22() {
+            return boolean22;
+        }
+
+        public void setBoolean22(final Boolean boolean22) {
+            this.boolean22 = boolean22;
+        }
+
+        public Set<String> getStrings23() {
+            return strings23;
+        }
+
+        public void setStrings23(final Set<String> strings23) {
+            this.strings23 = strings23;
+        }
+
+        public Integer getInteger24() {
+            return integer24;
+        }
+
+        public void setInteger24(final Integer integer24) {
+            this.integer24 = integer24;
+        }
+
+        public String getString25() {
+            return string25;
+        }
+
+        public void setString25(final String string25) {
+            this.string25 = string25;
+        }
+
+        public Long getLong26() {
+            return long26;
+        }
+
+        public void setLong26(final Long long26) {
+            this.long26 = long26;
+        }
+
+        public Boolean getBoolean27() {
+            return boolean27;
+        }
+
+        public void setBoolean27(final Boolean boolean27) {
+            this.boolean27 = boolean27;
+        }
+    }
+
+    public static class Item50 extends Item30 {
+
+        private Set<String> strings28;
+        private Integer integer29;
+        private String string30;
+        private Long long31;
+        private Boolean boolean32;
+        private Set<String> strings33;
+        private Integer integer34;
+        private String string35;
+        private Long long36;
+        private Boolean boolean37;
+        private Set<String> strings38;
+        private Integer integer39;
+        private String string40;
+        private Long long41;
+        private Boolean boolean42;
+        private Set<String> strings43;
+        private Integer integer44;
+        private String string45;
+        private Long long46;
+        private Boolean boolean47;
+
+        public Set<String> getStrings28() {
+            return strings28;
+        }
+
+        public void setStrings28(final Set<String> strings28) {
+            this.strings28 = strings28;
+        }
+
+        public Integer getInteger29() {
+            return integer29;
+        }
+
+        public void setInteger29(final Integer integer29) {
+            this.integer29 = integer29;
+        }
+
+        public String getString30() {
+            return string30;
+        }
+
+        public void setString30(final String string30) {
+            this.string30 = string30;
+        }
+
+        public Long getLong31() {
+            return long31;
+        }
+
+        public void setLong31(final Long long31) {
+            this.long31 = long31;
+        }
+
+        public Boolean getBoolean32() {
+            return boolean32;
+        }
+
+        public void setBoolean32(final Boolean boolean32) {
+            this.boolean32 = boolean32;
+        }
+
+        public Set<String> getStrings33() {
+            return strings33;
+        }
+
+        public void setStrings33(final Set<String> strings33) {
+            this.strings33 = strings33;
+        }
+
+        public Integer getInteger34() {
+            return integer34;
+        }
+
+        public void setInteger34(final Integer integer34) {
+            this.integer34 = integer34;
+        }
+
+        public String getString35() {
+            return string35;
+        }
+
+        public void setString35(final String string35) {
+            this.string35 = string35;
+        }
+
+        public Long getLong36() {
+            return long36;
+        }
+
+        public void setLong36(final Long long36) {
+            this.long36 = long36;
+        }
+
+        public Boolean getBoolean37() {
+            return boolean37;
+        }
+
+        public void setBoolean37(final Boolean boolean37) {
+            this.boolean37 = boolean37;
+        }
+
+        public Set<String> getStrings38() {
+            return strings38;
+        }
+
+        public void setStrings38(final Set<String> strings38) {
+            this.strings38 = strings38;
+        }
+
+        public Integer getInteger39() {
+            return integer39;
+        }
+
+        public void setInteger39(final Integer integer39) {
+            this.integer39 = integer39;
+        }
+
+        public String getString40() {
+            return string40;
+        }
+
+        public void setString40(final String string40) {
+            this.string40 = string40;
+        }
+
+        public Long getLong41() {
+            return long41;
+        }
+
+        public void setLong41(final Long long41) {
+            this.long41 = long41;
+        }
+
+        public Boolean getBoolean42() {
+            return boolean42;
+        }
+
+        public void setBoolean42(final Boolean boolean42) {
+            this.boolean42 = boolean42;
+        }
+
+        public Set<String> getStrings43() {
+            return strings43;
+        }
+
+        public void setStrings43(final Set<String> strings43) {
+            this.strings43 = strings43;
+        }
+
+        public Integer getInteger44() {
+            return integer44;
+        }
+
+        public void setInteger44(final Integer integer44) {
+            this.integer44 = integer44;
+        }
+
+        public String getString45() {
+            return string45;
+        }
+
+        public void setString45(final String string45) {
+            this.string45 = string45;
+        }
+
+        public Long getLong46() {
+            return long46;
+        }
+
+        public void setLong46(final Long long46) {
+            this.long46 = long46;
+        }
+
+        public Boolean getBoolean47() {
+            return boolean47;
+        }
+
+        public void setBoolean47(final Boolean boolean47) {
+            this.boolean47 = boolean47;
+        }
+    }
+
+}
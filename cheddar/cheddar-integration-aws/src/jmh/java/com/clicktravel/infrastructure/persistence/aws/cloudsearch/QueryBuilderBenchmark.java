@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.infrastructure.persistence.aws.cloudsearch;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.AndQuery;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.OrQuery;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.Query;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.RangeQuery;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.TermQuery;
+
+/**
+ * Measures building CloudSearch query strings for typical query shapes. {@link #sharedBuilder()} uses one builder for
+ * all searches, as {@link CloudSearchEngine} does; {@link #uncachedBuilder()} creates a builder which caches nothing for
+ * each search, as a baseline for the cost of writing the query. Queries are created once, as they would be for a
+ * repeated search. Run with the {@code gradle jmh} task; add {@code -prof gc} to the JMH arguments to compare
+ * allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBuilderBenchmark {
+
+    @Param({ "term", "range", "and", "nested" })
+    private String shape;
+
+    private Query query;
+    private QueryBuilder sharedBuilder;
+
+    @Setup
+    public void setUp() {
+        final TermQuery termQuery = new TermQuery("category", "hotel");
+        final RangeQuery rangeQuery = new RangeQuery("created", new DateTime(2018, 1, 1, 0, 0, DateTimeZone.UTC),
+                new DateTime(2018, 12, 31, 0, 0, DateTimeZone.UTC), true, false);
+        switch (shape) {
+            case "term":
+                query = termQuery;
+                break;
+            case "range":
+                query = rangeQuery;
+                break;
+            case "and":
+                query = new AndQuery(Arrays.asList(termQuery, rangeQuery, new TermQuery("rating", 4)));
+                break;
+            case "nested":
+                query = new AndQuery(Arrays.asList(termQuery, rangeQuery,
+                        new OrQuery(Arrays.asList(new TermQuery("city", "London"), new TermQuery("city", "Paris"),
+                                new TermQuery("city", "Berlin"))),
+                        new RangeQuery("price", 50.0, 250.0, true, true)));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown query shape: " + shape);
+        }
+        sharedBuilder = new QueryBuilder();
+    }
+
+    @Benchmark
+    public String sharedBuilder() {
+        return sharedBuilder.buildQuery(query);
+    }
+
+    @Benchmark
+    public String uncachedBuilder() {
+        return new QueryBuilder(0).buildQuery(query);
+    }
+
+}
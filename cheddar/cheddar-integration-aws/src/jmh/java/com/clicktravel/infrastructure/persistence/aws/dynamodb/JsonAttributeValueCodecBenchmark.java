@@ -0,0 +1,186 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.infrastructure.persistence.aws.dynamodb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.services.dynamodbv2.document.Item;
+import com.amazonaws.services.dynamodbv2.document.ItemUtils;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Measures converting documents with a growing number of nested lines to and from DynamoDB attribute maps.
+ * {@link #codecEncode()} and {@link #codecDecode()} use {@link JsonAttributeValueCodec}, as
+ * {@link DynamoDocumentStoreTemplate} does; {@link #jsonEncode()} and {@link #jsonDecode()} go through a JSON string
+ * and a document API {@link Item}, as a baseline. Run with the {@code gradle jmh} task; add {@code -prof gc} to the
+ * JMH arguments to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonAttributeValueCodecBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    private int lines;
+
+    private ObjectMapper mapper;
+    private JsonAttributeValueCodec jsonAttributeValueCodec;
+    private Document document;
+    private Map<String, AttributeValue> attributeValues;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = new ObjectMapper();
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mapper.setSerializationInclusion(Include.NON_NULL);
+        jsonAttributeValueCodec = new JsonAttributeValueCodec(mapper);
+        document = new Document();
+        document.setId("document-1");
+        document.setVersion(1L);
+        final List<Line> documentLines = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            final Line line = new Line();
+            line.setDescription("Line description " + i);
+            line.setQuantity(i);
+            line.setPrice(i * 1.25);
+            final Map<String, String> tags = new HashMap<>();
+            tags.put("category", "category-" + (i % 10));
+            tags.put("supplier", "supplier-" + (i % 7));
+            line.setTags(tags);
+            documentLines.add(line);
+        }
+        document.setLines(documentLines);
+        attributeValues = jsonAttributeValueCodec.toAttributeValues(document);
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> codecEncode() throws IOException {
+        return jsonAttributeValueCodec.toAttributeValues(document);
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> jsonEncode() throws IOException {
+        return ItemUtils.toAttributeValues(Item.fromJSON(mapper.writeValueAsString(document)));
+    }
+
+    @Benchmark
+    public Document codecDecode() throws IOException {
+        return jsonAttributeValueCodec.fromAttributeValues(attributeValues, Document.class);
+    }
+
+    @Benchmark
+    public Document jsonDecode() throws IOException {
+        return mapper.readValue(ItemUtils.toItem(attributeValues).toJSON(), Document.class);
+    }
+
+    public static class Document {
+
+        private String id;
+        private Long version;
+        private List<Line> lines;
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(final String id) {
+            this.id = id;
+        }
+
+        public Long getVersion() {
+            return version;
+        }
+
+        public void setVersion(final Long version) {
+            this.version = version;
+        }
+
+        public List<Line> getLines() {
+            return lines;
+        }
+
+        public void setLines(final List<Line> lines) {
+            this.lines = lines;
+        }
+
+    }
+
+    public static class Line {
+
+        private String description;
+        private int quantity;
+        private double price;
+        private Map<String, String> tags;
+
+        public String getDescription() {
+            return description;
+        }
+
+        public void setDescription(final String description) {
+            this.description = description;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(final int quantity) {
+            this.quantity = quantity;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public void setPrice(final double price) {
+            this.price = price;
+        }
+
+        public Map<String, String> getTags() {
+            return tags;
+        }
+
+        public void setTags(final Map<String, String> tags) {
+            this.tags = tags;
+        }
+
+    }
+
+}
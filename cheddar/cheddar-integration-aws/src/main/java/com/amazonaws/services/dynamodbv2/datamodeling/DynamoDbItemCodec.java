@@ -0,0 +1,232 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.text.ParseException;
+import java.util.*;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.clicktravel.cheddar.infrastructure.persistence.database.Item;
+import com.clicktravel.cheddar.infrastructure.persistence.database.configuration.ItemConfiguration;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Converts items of one {@link ItemConfiguration} to and from DynamoDB attribute values, in the same way as
+ * {@link DynamoDbPropertyMarshaller}. The marshaller, unmarshaller and accessor method handles of each property are
+ * resolved once when the codec is created, so converting an item needs no reflective lookup or locking. Instances are
+ * thread safe and should be created once per item configuration.
+ */
+public class DynamoDbItemCodec {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ObjectWriter jsonWriter = objectMapper.writer();
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<? extends Item> itemClass;
+    private final List<PropertyCodec> properties;
+    private final Map<String, PropertyCodec> propertiesByName;
+
+    public DynamoDbItemCodec(final ItemConfiguration itemConfiguration) {
+        itemClass = itemConfiguration.itemClass();
+        final DynamoDBReflectorUtil reflector = new DynamoDBReflectorUtil();
+        final List<PropertyCodec> properties = new ArrayList<>();
+        final Map<String, PropertyCodec> propertiesByName = new HashMap<>();
+        for (final PropertyDescriptor propertyDescriptor : itemConfiguration.propertyDescriptors()) {
+            if (propertyDescriptor.getReadMethod() != null) {
+                final PropertyCodec property = new PropertyCodec(propertyDescriptor, reflector);
+                properties.add(property);
+                propertiesByName.put(property.name(), property);
+            }
+        }
+        this.properties = Collections.unmodifiableList(properties);
+        this.propertiesByName = propertiesByName;
+    }
+
+    /**
+     * @return Codecs for the readable properties of the item, in the order of the item configuration
+     */
+    public List<PropertyCodec> properties() {
+        return properties;
+    }
+
+    /**
+     * @return Codec for the named property
+     * @throws IllegalStateException If the item has no such readable property
+     */
+    public PropertyCodec property(final String propertyName) {
+        final PropertyCodec property = propertiesByName.get(propertyName);
+        if (property == null) {
+            throw new IllegalStateException("No property found '" + propertyName + "' for item :" + itemClass);
+        }
+        return property;
+    }
+
+    /**
+     * Sets each writable property of the item which has a value in the attribute map
+     */
+    public void setValues(final Item item, final Map<String, AttributeValue> attributeMap) {
+        for (int i = 0; i < properties.size(); i++) {
+            final PropertyCodec property = properties.get(i);
+            property.setValue(item, attributeMap.get(property.name));
+        }
+    }
+
+    public static class PropertyCodec {
+
+        private final String name;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final ArgumentMarshaller marshaller;
+        private final ArgumentUnmarshaller unmarshaller;
+        private final ObjectReader jsonReader;
+
+        private PropertyCodec(final PropertyDescriptor propertyDescriptor, final DynamoDBReflectorUtil reflector) {
+            final Method readMethod = propertyDescriptor.getReadMethod();
+            final Method writeMethod = propertyDescriptor.getWriteMethod();
+            name = propertyDescriptor.getName();
+            getter = unreflect(readMethod).asType(GETTER_TYPE);
+            marshaller = argumentMarshaller(reflector, readMethod);
+            if (writeMethod != null) {
+                setter = unreflect(writeMethod).asType(SETTER_TYPE);
+                unmarshaller = argumentUnmarshaller(reflector, readMethod, writeMethod);
+                jsonReader = objectMapper.readerFor(writeMethod.getParameterTypes()[0]);
+            } else {
+                setter = null;
+                unmarshaller = null;
+                jsonReader = null;
+            }
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public boolean isWritable() {
+            return setter != null;
+        }
+
+        /**
+         * @return Attribute value of the property of the item, or null if the property is null or an empty collection
+         */
+        public AttributeValue getValue(final Item item) {
+            final Object propertyValue;
+            try {
+                propertyValue = getter.invokeExact((Object) item);
+            } catch (final Throwable e) {
+                throw new IllegalStateException(e);
+            }
+            return toAttributeValue(propertyValue);
+        }
+
+        /**
+         * @return Attribute value for a value of the property, or null if the value is null or an empty collection
+         */
+        public AttributeValue toAttributeValue(final Object propertyValue) {
+            if (propertyValue == null) {
+                return null;
+            }
+            if (propertyValue instanceof Collection && ((Collection<?>) propertyValue).isEmpty()) {
+                return null;
+            }
+            if (marshaller != null) {
+                try {
+                    return marshaller.marshall(propertyValue);
+                } catch (final DynamoDBMappingException e) {
+                    // Fall back to JSON
+                }
+            }
+            try {
+                return new AttributeValue(jsonWriter.writeValueAsString(propertyValue));
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Sets the property of the item from an attribute value, unless the attribute value is null or the property is
+         * not writable
+         */
+        public void setValue(final Item item, final AttributeValue attributeValue) {
+            if (attributeValue == null || setter == null) {
+                return;
+            }
+            final Object argument = fromAttributeValue(attributeValue);
+            try {
+                setter.invokeExact((Object) item, argument);
+            } catch (final Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private Object fromAttributeValue(final AttributeValue attributeValue) {
+            if (unmarshaller != null) {
+                try {
+                    return unmarshaller.unmarshall(attributeValue);
+                } catch (final DynamoDBMappingException | ParseException e) {
+                    // Fall back to JSON
+                }
+            }
+            try {
+                return jsonReader.readValue(attributeValue.getS());
+            } catch (final Exception e) {
+                throw new IllegalStateException("Could not parse attribute value: " + attributeValue, e);
+            }
+        }
+
+        private static ArgumentMarshaller argumentMarshaller(final DynamoDBReflectorUtil reflector,
+                final Method readMethod) {
+            try {
+                return reflector.getArgumentMarshaller(readMethod);
+            } catch (final DynamoDBMappingException e) {
+                return null;
+            }
+        }
+
+        private static ArgumentUnmarshaller argumentUnmarshaller(final DynamoDBReflectorUtil reflector,
+                final Method readMethod, final Method writeMethod) {
+            try {
+                return reflector.getArgumentUnmarshaller(null, readMethod, writeMethod, null);
+            } catch (final DynamoDBMappingException e) {
+                return null;
+            }
+        }
+
+        private static MethodHandle unreflect(final Method method) {
+            try {
+                return lookup.unreflect(method);
+            } catch (final IllegalAccessException e) {
+                try {
+                    method.setAccessible(true);
+                    return lookup.unreflect(method);
+                } catch (final IllegalAccessException | SecurityException accessException) {
+                    throw new IllegalStateException("Cannot access property method: " + method, accessException);
+                }
+            }
+        }
+    }
+
+}
@@ -39,17 +39,16 @@ import com.fasterxml.jackson.databind.MappingJsonFactory;
 public class DynamoDbPropertyMarshaller {
 
     private static final JsonFactory jsonFactory = new MappingJsonFactory();
+    private static final DynamoDBReflectorUtil reflector = new DynamoDBReflectorUtil();
 
     public static <T extends Item> void setValue(final T item, final PropertyDescriptor propertyDescriptor,
             final AttributeValue attributeValue) {
         if (attributeValue != null) {
-            final DynamoDBReflectorUtil reflector = new DynamoDBReflectorUtil();
-
             final Method writeMethod = propertyDescriptor.getWriteMethod();
             Object argument = null;
             if (writeMethod != null) {
                 try {
-                    final ArgumentUnmarshaller unmarshaller = reflector.getArgumentUnmarshaller(item,
+                    final ArgumentUnmarshaller unmarshaller = reflector.getArgumentUnmarshaller(null,
                             propertyDescriptor.getReadMethod(), writeMethod, null);
                     argument = unmarshaller.unmarshall(attributeValue);
                 } catch (final DynamoDBMappingException | ParseException mappingException) {
@@ -83,7 +82,6 @@ public class DynamoDbPropertyMarshaller {
         if (propertyValue instanceof Collection && ((Collection<?>) propertyValue).isEmpty()) {
             return null;
         }
-        final DynamoDBReflectorUtil reflector = new DynamoDBReflectorUtil();
         try {
             final ArgumentMarshaller marshaller = reflector.getArgumentMarshaller(readMethod);
             return marshaller.marshall(propertyValue);
@@ -121,7 +119,6 @@ public class DynamoDbPropertyMarshaller {
         if (propertyValue instanceof Collection && ((Collection<?>) propertyValue).isEmpty()) {
             return null;
         }
-        final DynamoDBReflectorUtil reflector = new DynamoDBReflectorUtil();
         try {
             final ArgumentMarshaller marshaller = reflector.getArgumentMarshaller(readMethod);
             return marshaller.marshall(propertyValue);
@@ -16,6 +16,8 @@
  */
 package com.clicktravel.infrastructure.messaging.aws.sns;
 
+import java.util.Map;
+
 import com.amazonaws.AmazonClientException;
 import com.clicktravel.cheddar.infrastructure.messaging.Exchange;
 import com.clicktravel.cheddar.infrastructure.messaging.Message;
@@ -41,8 +43,13 @@ public abstract class SnsExchange<T extends Message> implements Exchange<T> {
         final SnsSubjectAndMessage snsSubjectAndMessage = toSnsSubjectAndMessage(message);
         final String subject = snsSubjectAndMessage.getSubject();
         final String snsMessage = snsSubjectAndMessage.getMessage();
+        final Map<String, String> attributes = snsSubjectAndMessage.getAttributes();
         try {
-            snsTopicResource.publish(subject, snsMessage);
+            if (attributes.isEmpty()) {
+                snsTopicResource.publish(subject, snsMessage);
+            } else {
+                snsTopicResource.publish(subject, snsMessage, attributes);
+            }
         } catch (final AmazonClientException e) {
             throw new MessagePublishException("Could not publish to SNS: [" + snsTopicResource.getTopicName() + "]", e);
         }
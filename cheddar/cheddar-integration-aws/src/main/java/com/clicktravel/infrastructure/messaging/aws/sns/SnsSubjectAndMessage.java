@@ -16,9 +16,16 @@
  */
 package com.clicktravel.infrastructure.messaging.aws.sns;
 
+import java.util.Collections;
+import java.util.Map;
+
 public interface SnsSubjectAndMessage {
 
     String getSubject();
 
     String getMessage();
+
+    default Map<String, String> getAttributes() {
+        return Collections.emptyMap();
+    }
 }
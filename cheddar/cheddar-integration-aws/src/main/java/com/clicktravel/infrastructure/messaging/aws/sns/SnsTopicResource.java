@@ -16,6 +16,7 @@
  */
 package com.clicktravel.infrastructure.messaging.aws.sns;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -24,6 +25,7 @@ import com.amazonaws.auth.policy.Policy;
 import com.amazonaws.services.sns.AmazonSNS;
 import com.amazonaws.services.sns.model.MessageAttributeValue;
 import com.amazonaws.services.sns.model.PublishRequest;
+import com.amazonaws.services.sns.model.SetSubscriptionAttributesRequest;
 import com.amazonaws.services.sns.model.SetTopicAttributesRequest;
 import com.amazonaws.services.sns.model.SubscribeRequest;
 import com.clicktravel.infrastructure.messaging.aws.sqs.SqsQueueResource;
@@ -35,6 +37,7 @@ import com.clicktravel.infrastructure.messaging.aws.sqs.SqsQueueResource;
 public class SnsTopicResource {
 
     private static final String TOPIC_POLICY_ATTRIBUTE = "Policy";
+    private static final String SUBSCRIPTION_FILTER_POLICY_ATTRIBUTE = "FilterPolicy";
 
     private final String topicName;
     private final String topicArn;
@@ -53,9 +56,25 @@ public class SnsTopicResource {
      * @throws AmazonClientException
      */
     public void publish(final String subject, final String message) throws AmazonClientException {
-        // Auto setting the subject as a message attribute to support sns message filtering by subject
+        publish(subject, message, Collections.<String, String> emptyMap());
+    }
+
+    /**
+     * Publish a message with subject and message attributes to the AWS SNS topic. The attributes are set as String
+     * message attributes, so may be matched by subscription filter policies.
+     * @param subject "Subject" line of message to publish
+     * @param message Content of message to publish
+     * @param messageAttributes Names and values of message attributes to publish
+     * @throws AmazonClientException
+     */
+    public void publish(final String subject, final String message, final Map<String, String> messageAttributes)
+            throws AmazonClientException {
         final Map<String, MessageAttributeValue> attributes = new HashMap<String, MessageAttributeValue>();
-        attributes.put("subject", new MessageAttributeValue().withDataType("String").withStringValue(subject));
+        for (final Map.Entry<String, String> messageAttribute : messageAttributes.entrySet()) {
+            attributes.put(messageAttribute.getKey(), stringAttributeValue(messageAttribute.getValue()));
+        }
+        // Auto setting the subject as a message attribute to support sns message filtering by subject
+        attributes.put("subject", stringAttributeValue(subject));
 
         final PublishRequest request = new PublishRequest().withTopicArn(topicArn).withSubject(subject)
                 .withMessage(message).withMessageAttributes(attributes);
@@ -72,6 +91,25 @@ public class SnsTopicResource {
         amazonSnsClient.subscribe(new SubscribeRequest(topicArn, "sqs", sqsQueueResource.queueArn()));
     }
 
+    /**
+     * Adds an AWS SQS subscription to the AWS SNS topic with a filter policy, so that only messages whose attributes
+     * match the policy are delivered to the AWS SQS queue. If the subscription already exists, its filter policy is
+     * replaced.
+     * @param sqsQueueResource {@link SqsQueueResource} representative of AWS SQS queue subscribing to the AWS SNS
+     *            topic.
+     * @param filterPolicy JSON filter policy for the subscription
+     * @throws AmazonClientException
+     */
+    public void subscribe(final SqsQueueResource sqsQueueResource, final String filterPolicy)
+            throws AmazonClientException {
+        final String subscriptionArn = amazonSnsClient
+                .subscribe(new SubscribeRequest(topicArn, "sqs", sqsQueueResource.queueArn())
+                        .withReturnSubscriptionArn(true))
+                .getSubscriptionArn();
+        amazonSnsClient.setSubscriptionAttributes(new SetSubscriptionAttributesRequest(subscriptionArn,
+                SUBSCRIPTION_FILTER_POLICY_ATTRIBUTE, filterPolicy));
+    }
+
     /**
      * Sets the {@link Policy} of the AWS SNS topic
      * @param policy {@link Policy} to set
@@ -82,6 +120,10 @@ public class SnsTopicResource {
                 .setTopicAttributes(new SetTopicAttributesRequest(topicArn, TOPIC_POLICY_ATTRIBUTE, policy.toJson()));
     }
 
+    private static MessageAttributeValue stringAttributeValue(final String value) {
+        return new MessageAttributeValue().withDataType("String").withStringValue(value);
+    }
+
     /**
      * @return The AWS SNS topic name
      */
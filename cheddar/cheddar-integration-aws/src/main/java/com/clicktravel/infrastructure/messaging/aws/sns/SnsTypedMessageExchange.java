@@ -16,6 +16,8 @@
  */
 package com.clicktravel.infrastructure.messaging.aws.sns;
 
+import java.util.Map;
+
 import com.clicktravel.cheddar.infrastructure.messaging.TypedMessage;
 
 public class SnsTypedMessageExchange extends SnsExchange<TypedMessage> {
@@ -36,6 +38,11 @@ public class SnsTypedMessageExchange extends SnsExchange<TypedMessage> {
             public String getMessage() {
                 return typedMessage.getPayload();
             }
+
+            @Override
+            public Map<String, String> getAttributes() {
+                return typedMessage.getAttributes();
+            }
         };
     }
 
@@ -17,17 +17,20 @@
 package com.clicktravel.infrastructure.persistence.aws.cloudsearch;
 
 import java.beans.PropertyDescriptor;
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
-import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
+import javax.annotation.PreDestroy;
 import javax.ws.rs.core.MediaType;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkBaseException;
+import com.amazonaws.retry.RetryUtils;
 import com.amazonaws.services.cloudsearchdomain.AmazonCloudSearchDomain;
 import com.amazonaws.services.cloudsearchdomain.model.*;
 import com.amazonaws.services.cloudsearchv2.AmazonCloudSearch;
@@ -40,6 +43,8 @@ import com.clicktravel.cheddar.infrastructure.persistence.document.search.Docume
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.configuration.DocumentConfiguration;
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.configuration.DocumentConfigurationHolder;
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.configuration.IndexDefinition;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.facet.FacetBucket;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.facet.FacetRequest;
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.options.SearchOptions;
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.Query;
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.sort.SortOrder;
@@ -52,7 +57,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class CloudSearchEngine implements DocumentSearchEngine {
 
-    private static final int UPDATE_BATCH_SIZE = 1000;
+    /** HTTP status codes with which CloudSearch rejects uploads while throttling or overloaded */
+    private static final Set<Integer> RETRYABLE_UPLOAD_STATUS_CODES = new HashSet<>(Arrays.asList(429, 504, 507));
+    private static final long UPLOAD_SHUTDOWN_TIMEOUT_SECONDS = 30;
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final DocumentConfigurationHolder documentConfigurationHolder;
@@ -63,9 +70,19 @@ public class CloudSearchEngine implements DocumentSearchEngine {
     private boolean domainEndpointsCached;
     private final JsonDocumentSearchResponseUnmarshaller fieldParser;
     private final ObjectMapper objectMapper;
+    private final QueryBuilder queryBuilder;
+    private final CloudSearchUploadConfiguration uploadConfiguration;
+    private final Semaphore documentBatchPermits;
+    private final Queue<DocumentBatch> idleDocumentBatches = new ConcurrentLinkedQueue<>();
+    private final ExecutorService uploadExecutor;
 
     public CloudSearchEngine(final DocumentConfigurationHolder documentConfigurationHolder,
             final AmazonCloudSearch cloudSearchClient) {
+        this(documentConfigurationHolder, cloudSearchClient, CloudSearchUploadConfiguration.defaults());
+    }
+
+    public CloudSearchEngine(final DocumentConfigurationHolder documentConfigurationHolder,
+            final AmazonCloudSearch cloudSearchClient, final CloudSearchUploadConfiguration uploadConfiguration) {
         if (documentConfigurationHolder == null) {
             throw new IllegalArgumentException("Document store configuration must not be null");
         }
@@ -77,6 +94,23 @@ public class CloudSearchEngine implements DocumentSearchEngine {
         }
         fieldParser = new JsonDocumentSearchResponseUnmarshaller();
         objectMapper = new ObjectMapper();
+        queryBuilder = new QueryBuilder();
+        this.uploadConfiguration = uploadConfiguration;
+        final int uploadParallelism = uploadConfiguration.uploadParallelism();
+        if (uploadParallelism == 1) {
+            // Each call fills and uploads its own batch on the calling thread, so concurrent calls do not wait
+            documentBatchPermits = null;
+            uploadExecutor = null;
+        } else {
+            // One more batch than concurrent uploads, so the next batch can be filled while the others upload
+            documentBatchPermits = new Semaphore(uploadParallelism + 1);
+            final AtomicInteger threadNumber = new AtomicInteger();
+            uploadExecutor = Executors.newFixedThreadPool(uploadParallelism, runnable -> {
+                final Thread thread = new Thread(runnable, "CloudSearchUpload-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
         cacheDomainEndpoints();
     }
 
@@ -147,45 +181,216 @@ public class CloudSearchEngine implements DocumentSearchEngine {
             final DocumentConfiguration documentConfiguration = getDocumentConfiguration(documentClass);
             final String searchDomain = documentConfigurationHolder.schemaName() + "-"
                     + documentConfiguration.namespace();
-            for (final Collection<? extends Document> documentBatch : createDocumentBatches(documents)) {
-                uploadBatch(documentBatch, documentConfiguration, searchDomain);
+            upload(documents, document -> addDocumentUpdate(document, documentConfiguration), searchDomain);
+        }
+    }
+
+    private DocumentUpdate addDocumentUpdate(final Document document,
+            final DocumentConfiguration documentConfiguration) {
+        final DocumentUpdate documentUpdate = new DocumentUpdate(Type.ADD, document.getId());
+        final Collection<Field> fields = new ArrayList<>();
+        for (final IndexDefinition indexDefinition : documentConfiguration.indexDefinitions()) {
+            final String indexName = indexDefinition.getName();
+            final PropertyDescriptor propertyDescriptor = documentConfiguration.properties().get(indexName);
+            if (propertyDescriptor == null) {
+                throw new IllegalStateException("No property found for index: " + indexName);
             }
+            final Field field = new Field(indexName, getPropertyValue(document, propertyDescriptor));
+            fields.add(field);
         }
+        return documentUpdate.withFields(fields);
     }
 
-    private void uploadBatch(final Collection<? extends Document> documents,
-            final DocumentConfiguration documentConfiguration, final String searchDomain) {
-        final BatchDocumentUpdateRequest batchDocumentUpdateRequest = new BatchDocumentUpdateRequest(searchDomain);
+    /**
+     * Marshals a document update for each document into size-bounded batches, uploading each batch as soon as it is
+     * full. Returns when all batches have been uploaded, or throws the exception from the first failed upload.
+     */
+    private void upload(final Collection<? extends Document> documents,
+            final Function<Document, DocumentUpdate> documentUpdateFunction, final String searchDomain) {
+        final AmazonCloudSearchDomain documentServiceClient = getDocumentServiceClient(searchDomain);
+        if (uploadExecutor == null) {
+            uploadSequentially(documents, documentUpdateFunction, documentServiceClient);
+        } else {
+            uploadConcurrently(documents, documentUpdateFunction, documentServiceClient);
+        }
+    }
 
+    /**
+     * Uploads batches in turn on the calling thread, reusing a single batch owned by this call
+     */
+    private void uploadSequentially(final Collection<? extends Document> documents,
+            final Function<Document, DocumentUpdate> documentUpdateFunction,
+            final AmazonCloudSearchDomain documentServiceClient) {
+        final DocumentBatch documentBatch = new DocumentBatch(uploadConfiguration.maxBatchBytes());
         for (final Document document : documents) {
-            final DocumentUpdate documentUpdate = new DocumentUpdate(Type.ADD, document.getId());
-            final Collection<Field> fields = new ArrayList<>();
-            for (final IndexDefinition indexDefinition : documentConfiguration.indexDefinitions()) {
-                final String indexName = indexDefinition.getName();
-                final PropertyDescriptor propertyDescriptor = documentConfiguration.properties().get(indexName);
-                if (propertyDescriptor == null) {
-                    throw new IllegalStateException("No property found for index: " + indexName);
+            final DocumentUpdate documentUpdate = documentUpdateFunction.apply(document);
+            if (!documentBatch.add(documentUpdate)) {
+                uploadDocumentBatch(documentServiceClient, documentBatch);
+                documentBatch.reset();
+                documentBatch.add(documentUpdate);
+            }
+        }
+        if (documentBatch.documentCount() > 0) {
+            uploadDocumentBatch(documentServiceClient, documentBatch);
+        }
+    }
+
+    /**
+     * Uploads batches on the upload executor, the number of batches being filled or uploaded at once across all calls
+     * being bounded by {@link #documentBatchPermits}
+     */
+    private void uploadConcurrently(final Collection<? extends Document> documents,
+            final Function<Document, DocumentUpdate> documentUpdateFunction,
+            final AmazonCloudSearchDomain documentServiceClient) {
+        final List<Future<?>> uploads = new ArrayList<>();
+        DocumentBatch documentBatch = null;
+        try {
+            for (final Document document : documents) {
+                final DocumentUpdate documentUpdate = documentUpdateFunction.apply(document);
+                if (documentBatch == null) {
+                    documentBatch = acquireDocumentBatch();
+                }
+                if (!documentBatch.add(documentUpdate)) {
+                    checkCompletedUploads(uploads);
+                    final DocumentBatch fullDocumentBatch = documentBatch;
+                    documentBatch = null;
+                    uploads.add(submitUpload(documentServiceClient, fullDocumentBatch));
+                    documentBatch = acquireDocumentBatch();
+                    documentBatch.add(documentUpdate);
+                }
+            }
+            if (documentBatch != null) {
+                final DocumentBatch lastDocumentBatch = documentBatch;
+                documentBatch = null;
+                uploads.add(submitUpload(documentServiceClient, lastDocumentBatch));
+            }
+        } finally {
+            if (documentBatch != null) {
+                releaseDocumentBatch(documentBatch);
+            }
+        }
+        awaitUploads(uploads);
+    }
+
+    private DocumentBatch acquireDocumentBatch() {
+        try {
+            documentBatchPermits.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceResourceFailureException("Interrupted waiting to upload CloudSearch documents", e);
+        }
+        final DocumentBatch documentBatch = idleDocumentBatches.poll();
+        return documentBatch != null ? documentBatch : new DocumentBatch(uploadConfiguration.maxBatchBytes());
+    }
+
+    private void releaseDocumentBatch(final DocumentBatch documentBatch) {
+        documentBatch.reset();
+        idleDocumentBatches.offer(documentBatch);
+        documentBatchPermits.release();
+    }
+
+    private Future<?> submitUpload(final AmazonCloudSearchDomain documentServiceClient,
+            final DocumentBatch documentBatch) {
+        try {
+            return uploadExecutor.submit(() -> {
+                try {
+                    uploadDocumentBatch(documentServiceClient, documentBatch);
+                } finally {
+                    releaseDocumentBatch(documentBatch);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            releaseDocumentBatch(documentBatch);
+            throw new IllegalStateException("CloudSearch engine has been shut down", e);
+        }
+    }
+
+    /**
+     * Stops accepting concurrent uploads and waits for uploads in progress to complete, releasing the upload threads
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (uploadExecutor == null) {
+            return;
+        }
+        uploadExecutor.shutdown();
+        try {
+            if (!uploadExecutor.awaitTermination(UPLOAD_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("CloudSearch uploads still in progress after shut down timeout");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void uploadDocumentBatch(final AmazonCloudSearchDomain documentServiceClient,
+            final DocumentBatch documentBatch) {
+        int retries = 0;
+        while (true) {
+            try {
+                documentServiceClient.uploadDocuments(uploadDocumentsRequest(documentBatch));
+                return;
+            } catch (final AmazonServiceException e) {
+                if (retries >= uploadConfiguration.maxThrottlingRetries() || !isRetryableUploadFailure(e)) {
+                    throw e;
+                }
+                final long backoffMillis = uploadConfiguration.throttlingBackoffMillis() << retries++;
+                logger.debug("CloudSearch upload rejected with status " + e.getStatusCode() + "; retrying in "
+                        + backoffMillis + "ms");
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (final InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    throw e;
                 }
-                final Field field = new Field(indexName, getPropertyValue(document, propertyDescriptor));
-                fields.add(field);
             }
-            documentUpdate.withFields(fields);
-            batchDocumentUpdateRequest.withDocument(documentUpdate);
         }
-        getDocumentServiceClient(searchDomain).uploadDocuments(uploadDocumentsRequest(batchDocumentUpdateRequest));
     }
 
-    private List<Collection<? extends Document>> createDocumentBatches(final Collection<? extends Document> documents) {
-        final List<? extends Document> documentList = new ArrayList<>(documents);
-        final List<Collection<? extends Document>> batches = new ArrayList<>();
+    private static boolean isRetryableUploadFailure(final AmazonServiceException e) {
+        return RETRYABLE_UPLOAD_STATUS_CODES.contains(e.getStatusCode())
+                || RetryUtils.isThrottlingException((SdkBaseException) e);
+    }
 
-        for (int i = 0; i < documentList.size(); i += UPDATE_BATCH_SIZE) {
-            final List<? extends Document> batch = documentList.subList(i,
-                    Math.min(documentList.size(), i + UPDATE_BATCH_SIZE));
-            batches.add(batch);
+        private void checkCompletedUploads(final List<Future<?>> uploads) {
+        for (final Future<?> upload : uploads) {
+            if (upload.isDone()) {
+                awaitUpload(upload);
+            }
+        }
+    }
+
+    private void awaitUploads(final List<Future<?>> uploads) {
+        RuntimeException failure = null;
+        for (final Future<?> upload : uploads) {
+            try {
+                awaitUpload(upload);
+            } catch (final RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
         }
+    }
 
-        return batches;
+    private void awaitUpload(final Future<?> upload) {
+        try {
+            upload.get();
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceResourceFailureException("Interrupted waiting to upload CloudSearch documents", e);
+        }
     }
 
     private AmazonCloudSearchDomain getDocumentServiceClient(final String domainName) {
@@ -202,15 +407,10 @@ public class CloudSearchEngine implements DocumentSearchEngine {
         return searchServiceClients.get(domainName);
     }
 
-    private UploadDocumentsRequest uploadDocumentsRequest(final BatchDocumentUpdateRequest batchDocumentUpdateRequest) {
+    private UploadDocumentsRequest uploadDocumentsRequest(final DocumentBatch documentBatch) {
         final UploadDocumentsRequest uploadDocumentsRequest = new UploadDocumentsRequest();
-        final byte[] documentUpdatesJsonBytes;
-        final String documentUpdatesJson = JsonDocumentUpdateMarshaller
-                .marshall(batchDocumentUpdateRequest.getDocumentUpdates());
-        documentUpdatesJsonBytes = documentUpdatesJson.getBytes(Charset.forName("UTF-8"));
-        final InputStream documents = new ByteArrayInputStream(documentUpdatesJsonBytes);
-        uploadDocumentsRequest.setDocuments(documents);
-        uploadDocumentsRequest.setContentLength((long) documentUpdatesJsonBytes.length);
+        uploadDocumentsRequest.setDocuments(documentBatch.content());
+        uploadDocumentsRequest.setContentLength(documentBatch.contentLength());
         uploadDocumentsRequest.setContentType(MediaType.APPLICATION_JSON);
         return uploadDocumentsRequest;
     }
@@ -245,12 +445,7 @@ public class CloudSearchEngine implements DocumentSearchEngine {
             final DocumentConfiguration documentConfiguration = getDocumentConfiguration(documentClass);
             final String searchDomain = documentConfigurationHolder.schemaName() + "-"
                     + documentConfiguration.namespace();
-            final BatchDocumentUpdateRequest batchDocumentUpdateRequest = new BatchDocumentUpdateRequest(searchDomain);
-            for (final Document document : documents) {
-                final DocumentUpdate csDocument = new DocumentUpdate(Type.DELETE, document.getId());
-                batchDocumentUpdateRequest.withDocument(csDocument);
-            }
-            getDocumentServiceClient(searchDomain).uploadDocuments(uploadDocumentsRequest(batchDocumentUpdateRequest));
+            upload(documents, document -> new DocumentUpdate(Type.DELETE, document.getId()), searchDomain);
         }
     }
 
@@ -287,13 +482,28 @@ public class CloudSearchEngine implements DocumentSearchEngine {
         try {
             final DocumentConfiguration documentConfiguration = getDocumentConfiguration(documentClass);
             final SearchRequest searchRequest = getSearchRequest(query);
-            searchRequest.setStart((long) start);
-            searchRequest.setSize((long) size);
+            if (options.getCursor() != null) {
+                // CloudSearch rejects requests with both a cursor and a start index
+                searchRequest.setCursor(options.getCursor());
+            } else if (start != null) {
+                searchRequest.setStart((long) start);
+            }
+            if (size != null) {
+                searchRequest.setSize((long) size);
+            }
 
             if (!options.getExpressions().isEmpty()) {
                 searchRequest.setExpr(objectMapper.writeValueAsString(options.getExpressions()));
             }
 
+            if (!options.getReturnFields().isEmpty()) {
+                searchRequest.setReturn(String.join(",", options.getReturnFields()));
+            }
+
+            if (!options.getFacetRequests().isEmpty()) {
+                searchRequest.setFacet(objectMapper.writeValueAsString(facetParameters(options.getFacetRequests())));
+            }
+
             if (options.getSortOrder() != SortOrder.DEFAULT) {
                 final StringBuilder sort = new StringBuilder();
                 String direction = null;
@@ -331,15 +541,48 @@ public class CloudSearchEngine implements DocumentSearchEngine {
             }
             final long totalResults = searchResult.getHits().getFound();
             final String cursor = searchResult.getHits().getCursor();
-            return new DocumentSearchResponse<>((int) totalResults, cursor, documents);
+            return new DocumentSearchResponse<>((int) totalResults, cursor, documents, facets(searchResult));
         } catch (final AmazonServiceException | JsonProcessingException e) {
             throw new PersistenceResourceFailureException("Unable to perform CloudSearch query: " + query, e);
         }
     }
 
+    private Map<String, Map<String, Object>> facetParameters(final Collection<FacetRequest> facetRequests) {
+        final Map<String, Map<String, Object>> facetParameters = new LinkedHashMap<>();
+        for (final FacetRequest facetRequest : facetRequests) {
+            final Map<String, Object> facetOptions = new LinkedHashMap<>();
+            if (!facetRequest.getBuckets().isEmpty()) {
+                facetOptions.put("buckets", facetRequest.getBuckets());
+            }
+            if (facetRequest.getSort() != null) {
+                facetOptions.put("sort", facetRequest.getSort() == FacetRequest.Sort.COUNT ? "count" : "bucket");
+            }
+            if (facetRequest.getSize() != null) {
+                facetOptions.put("size", facetRequest.getSize());
+            }
+            facetParameters.put(facetRequest.getField(), facetOptions);
+        }
+        return facetParameters;
+    }
+
+    private Map<String, List<FacetBucket>> facets(final SearchResult searchResult) {
+        if (searchResult.getFacets() == null || searchResult.getFacets().isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final Map<String, List<FacetBucket>> facets = new HashMap<>();
+        for (final Map.Entry<String, BucketInfo> facet : searchResult.getFacets().entrySet()) {
+            final List<FacetBucket> buckets = new ArrayList<>();
+            for (final Bucket bucket : facet.getValue().getBuckets()) {
+                buckets.add(new FacetBucket(bucket.getValue(), bucket.getCount()));
+            }
+            facets.put(facet.getKey(), buckets);
+        }
+        return facets;
+    }
+
     private SearchRequest getSearchRequest(final Query query) {
         final SearchRequest searchRequest = new SearchRequest();
-        final String queryString = new QueryBuilder().buildQuery(query);
+        final String queryString = queryBuilder.buildQuery(query);
         searchRequest.setQuery(queryString);
         switch (query.queryType()) {
             case LUCENE:
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.infrastructure.persistence.aws.cloudsearch;
+
+/**
+ * Configuration of how {@link CloudSearchEngine} uploads document batches. Batches are bounded by their size in bytes,
+ * as CloudSearch rejects batches over 5MB, and may be uploaded concurrently. Uploads rejected because the domain is
+ * throttling requests or overloaded (HTTP status 429, 504 or 507) are retried with exponential backoff.
+ */
+public class CloudSearchUploadConfiguration {
+
+    public static final int DEFAULT_MAX_BATCH_BYTES = 5_000_000;
+    public static final int DEFAULT_UPLOAD_PARALLELISM = 1;
+    public static final int DEFAULT_MAX_THROTTLING_RETRIES = 5;
+    public static final long DEFAULT_THROTTLING_BACKOFF_MILLIS = 100;
+
+    private final int maxBatchBytes;
+    private final int uploadParallelism;
+    private final int maxThrottlingRetries;
+    private final long throttlingBackoffMillis;
+
+    /**
+     * @param maxBatchBytes Maximum size of an uploaded batch, in bytes
+     * @param uploadParallelism Maximum number of batches uploaded at once; with 1, batches are uploaded in turn on the
+     *            calling thread
+     * @param maxThrottlingRetries Maximum number of times a throttled batch upload is retried
+     * @param throttlingBackoffMillis Delay before the first retry of a throttled batch upload, doubled for each
+     *            subsequent retry
+     */
+    public CloudSearchUploadConfiguration(final int maxBatchBytes, final int uploadParallelism,
+            final int maxThrottlingRetries, final long throttlingBackoffMillis) {
+        if (maxBatchBytes <= 0) {
+            throw new IllegalArgumentException("Maximum batch size must be positive");
+        }
+        if (uploadParallelism < 1) {
+            throw new IllegalArgumentException("Upload parallelism must be at least 1");
+        }
+        if (maxThrottlingRetries < 0 || throttlingBackoffMillis < 0) {
+            throw new IllegalArgumentException("Throttling retries and backoff must not be negative");
+        }
+        this.maxBatchBytes = maxBatchBytes;
+        this.uploadParallelism = uploadParallelism;
+        this.maxThrottlingRetries = maxThrottlingRetries;
+        this.throttlingBackoffMillis = throttlingBackoffMillis;
+    }
+
+    public static CloudSearchUploadConfiguration defaults() {
+        return new CloudSearchUploadConfiguration(DEFAULT_MAX_BATCH_BYTES, DEFAULT_UPLOAD_PARALLELISM,
+                DEFAULT_MAX_THROTTLING_RETRIES, DEFAULT_THROTTLING_BACKOFF_MILLIS);
+    }
+
+    public int maxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    public int uploadParallelism() {
+        return uploadParallelism;
+    }
+
+    public int maxThrottlingRetries() {
+        return maxThrottlingRetries;
+    }
+
+    public long throttlingBackoffMillis() {
+        return throttlingBackoffMillis;
+    }
+
+}
@@ -16,10 +16,12 @@
  */
 package com.clicktravel.infrastructure.persistence.aws.cloudsearch;
 
-import java.io.IOException;
-import java.io.StringWriter;
-import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormatter;
@@ -29,110 +31,161 @@ import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.
 
 /**
  * Class Responsible for constructing cloudsearch query strings from Query.class
- * 
+ * <p>
+ * Structured queries are written canonically: the sub-queries of an and or or query are written in order of their
+ * query strings, so equal queries always give the same query string whatever the iteration order of their sub-query
+ * sets. A query builder is thread-safe and is intended to be shared. Each thread writes into its own reused
+ * {@link StringBuilder}, and query strings of term, range, simple and Lucene queries, which are immutable, are cached
+ * by query. And and or queries may be changed after they are built, so their query strings are not cached.
  */
-public class QueryBuilder implements QueryVisitor {
-
-    private final DateTimeFormatter formatter = ISODateTimeFormat.dateTime().withZoneUTC();
-    private Writer writer;
-
-    @Override
-    public void visit(final TermQuery termQuery) {
-        write("(term field=");
-        write(termQuery.getFieldName());
-        write(' ');
-        writeValue(termQuery.getValue());
-        write(')');
+public class QueryBuilder {
+
+    private static final int DEFAULT_MAX_CACHED_QUERIES = 1000;
+    private static final int INITIAL_BUFFER_CAPACITY = 256;
+    private static final int MAX_RETAINED_BUFFER_CAPACITY = 16384;
+    private static final DateTimeFormatter FORMATTER = ISODateTimeFormat.dateTime().withZoneUTC();
+    private static final Collection<Class<?>> IMMUTABLE_QUERY_CLASSES = new HashSet<>(
+            Arrays.asList(TermQuery.class, RangeQuery.class, SimpleQuery.class, LuceneQuery.class));
+
+    private final int maxCachedQueries;
+    private final ConcurrentMap<Query, String> cachedQueryStrings;
+    private final ThreadLocal<QueryWriter> queryWriters;
+
+    public QueryBuilder() {
+        this(DEFAULT_MAX_CACHED_QUERIES);
     }
 
-    @Override
-    public void visit(final RangeQuery rangeQuery) {
-        write("(range field=");
-        write(rangeQuery.getFieldName());
-        write(' ');
-        write(rangeQuery.isLowerBoundInclusive() ? '[' : '{');
-        writeValue(rangeQuery.getLowerBound());
-        write(',');
-        writeValue(rangeQuery.getUpperBound());
-        write(rangeQuery.isUpperBoundInclusive() ? ']' : '}');
-        write(')');
+    /**
+     * @param maxCachedQueries Maximum number of query strings to cache, or 0 to cache none. When the cache is full it
+     *            is emptied, so that it holds the queries currently in use.
+     */
+    public QueryBuilder(final int maxCachedQueries) {
+        if (maxCachedQueries < 0) {
+            throw new IllegalArgumentException("Maximum cached queries must not be negative");
+        }
+        this.maxCachedQueries = maxCachedQueries;
+        cachedQueryStrings = new ConcurrentHashMap<>();
+        queryWriters = ThreadLocal.withInitial(QueryWriter::new);
     }
 
-    private void writeValue(final Object value) {
-        if (value == null) {
-            return;
+    public String buildQuery(final Query query) {
+        final String cachedQueryString = cachedQueryString(query);
+        if (cachedQueryString != null) {
+            return cachedQueryString;
         }
+        final QueryWriter queryWriter = queryWriters.get();
+        try {
+            return queryWriter.queryString(query);
+        } finally {
+            queryWriter.release();
+        }
+    }
 
-        final boolean isQuoted = value instanceof String || value instanceof DateTime;
+    private String cachedQueryString(final Query query) {
+        return IMMUTABLE_QUERY_CLASSES.contains(query.getClass()) ? cachedQueryStrings.get(query) : null;
+    }
 
-        if (isQuoted) {
-            write('\'');
+    private void cacheQueryString(final Query query, final String queryString) {
+        if (maxCachedQueries > 0 && IMMUTABLE_QUERY_CLASSES.contains(query.getClass())) {
+            if (cachedQueryStrings.size() >= maxCachedQueries) {
+                cachedQueryStrings.clear();
+            }
+            cachedQueryStrings.put(query, queryString);
         }
+    }
+
+    /**
+     * Writes query strings for one thread. Sub-queries are written at the end of the buffer, copied out and then
+     * removed, so that they can be sorted before being written as part of their parent query.
+     */
+    private final class QueryWriter implements QueryVisitor {
+
+        private StringBuilder buffer = new StringBuilder(INITIAL_BUFFER_CAPACITY);
 
-        if (value instanceof DateTime) {
-            try {
-                formatter.printTo(writer, (DateTime) value);
-            } catch (final IOException e) {
-                throw new IllegalArgumentException(e);
+        private String queryString(final Query query) {
+            final int start = buffer.length();
+            query.accept(this);
+            final String queryString = buffer.substring(start);
+            buffer.setLength(start);
+            cacheQueryString(query, queryString);
+            return queryString;
+        }
+
+        private void release() {
+            buffer.setLength(0);
+            if (buffer.capacity() > MAX_RETAINED_BUFFER_CAPACITY) {
+                buffer = new StringBuilder(INITIAL_BUFFER_CAPACITY);
             }
-        } else {
-            write(value.toString());
         }
 
-        if (isQuoted) {
-            write('\'');
+        @Override
+        public void visit(final TermQuery termQuery) {
+            buffer.append("(term field=").append(termQuery.getFieldName()).append(' ');
+            writeValue(termQuery.getValue());
+            buffer.append(')');
         }
-    }
 
-    @Override
-    public void visit(final AndQuery andQuery) {
-        writeBooleanQuery(andQuery.getQueries(), "and");
-    }
+        @Override
+        public void visit(final RangeQuery rangeQuery) {
+            buffer.append("(range field=").append(rangeQuery.getFieldName()).append(' ');
+            buffer.append(rangeQuery.isLowerBoundInclusive() ? '[' : '{');
+            writeValue(rangeQuery.getLowerBound());
+            buffer.append(',');
+            writeValue(rangeQuery.getUpperBound());
+            buffer.append(rangeQuery.isUpperBoundInclusive() ? ']' : '}');
+            buffer.append(')');
+        }
 
-    @Override
-    public void visit(final OrQuery orQuery) {
-        writeBooleanQuery(orQuery.getQueries(), "or");
-    }
+        private void writeValue(final Object value) {
+            if (value == null) {
+                return;
+            }
+            if (value instanceof DateTime) {
+                buffer.append('\'');
+                FORMATTER.printTo(buffer, (DateTime) value);
+                buffer.append('\'');
+            } else if (value instanceof String) {
+                buffer.append('\'').append((String) value).append('\'');
+            } else {
+                buffer.append(value);
+            }
+        }
 
-    private void writeBooleanQuery(final Set<StructuredQuery> subqueries, final String operator) {
-        write('(');
-        write(operator);
-        for (final StructuredQuery query : subqueries) {
-            write(' ');
-            query.accept(this);
+        @Override
+        public void visit(final AndQuery andQuery) {
+            writeBooleanQuery(andQuery.getQueries(), "and");
         }
-        write(')');
-    }
 
-    public String buildQuery(final Query query) {
-        writer = new StringWriter();
-        query.accept(this);
-        return writer.toString();
-    }
+        @Override
+        public void visit(final OrQuery orQuery) {
+            writeBooleanQuery(orQuery.getQueries(), "or");
+        }
 
-    private void write(final int c) {
-        try {
-            writer.write(c);
-        } catch (final IOException e) {
-            throw new IllegalStateException(e);
+        private void writeBooleanQuery(final Set<StructuredQuery> subqueries, final String operator) {
+            final String[] subqueryStrings = new String[subqueries.size()];
+            int i = 0;
+            for (final StructuredQuery subquery : subqueries) {
+                final String cachedQueryString = cachedQueryString(subquery);
+                subqueryStrings[i++] = cachedQueryString != null ? cachedQueryString : queryString(subquery);
+            }
+            Arrays.sort(subqueryStrings);
+            buffer.append('(').append(operator);
+            for (final String subqueryString : subqueryStrings) {
+                buffer.append(' ').append(subqueryString);
+            }
+            buffer.append(')');
         }
-    }
 
-    private void write(final String s) {
-        try {
-            writer.write(s);
-        } catch (final IOException e) {
-            throw new IllegalStateException(e);
+        @Override
+        public void visit(final SimpleQuery simple) {
+            buffer.append(simple.getQuery());
         }
-    }
 
-    @Override
-    public void visit(final SimpleQuery simple) {
-        write(simple.getQuery());
-    }
+        @Override
+        public void visit(final LuceneQuery luceneQuery) {
+            buffer.append(luceneQuery.getQuery());
+        }
 
-    @Override
-    public void visit(final LuceneQuery luceneQuery) {
-        write(luceneQuery.getQuery());
     }
+
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.infrastructure.persistence.aws.cloudsearch.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+/**
+ * A batch of {@link DocumentUpdate}s for upload to a CloudSearch document service endpoint, held as a JSON array no
+ * larger than a given number of bytes. Each document update is marshalled straight into the batch buffer, which keeps
+ * its capacity when the batch is {@link #reset()} so it can be reused for the next batch.
+ */
+public class DocumentBatch {
+
+    private final int maxBytes;
+    private final Buffer buffer = new Buffer();
+    private int documentCount;
+    private boolean closed;
+
+    /**
+     * @param maxBytes Maximum size of the batch JSON, in bytes. A single document update larger than this is still
+     *            accepted into an empty batch, leaving CloudSearch to reject it.
+     */
+    public DocumentBatch(final int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Adds a document update to this batch, unless doing so would take the batch over its maximum size
+     * @param documentUpdate Document update to add
+     * @return {@code true} if the document update was added, {@code false} if this batch is full
+     */
+    public boolean add(final DocumentUpdate documentUpdate) {
+        if (closed) {
+            throw new IllegalStateException("Document batch content has already been read");
+        }
+        final int mark = buffer.size();
+        buffer.write(documentCount == 0 ? '[' : ',');
+        JsonDocumentUpdateMarshaller.marshall(documentUpdate, buffer);
+        if (documentCount > 0 && buffer.size() + 1 > maxBytes) {
+            buffer.truncate(mark);
+            return false;
+        }
+        documentCount++;
+        return true;
+    }
+
+    public int documentCount() {
+        return documentCount;
+    }
+
+    /**
+     * Completes the batch JSON; no further document updates may be added until the batch is reset
+     * @return Stream of the batch JSON, backed by the batch buffer
+     */
+    public InputStream content() {
+        close();
+        return buffer.inputStream();
+    }
+
+    /**
+     * @return Size of the batch JSON, in bytes
+     */
+    public long contentLength() {
+        close();
+        return buffer.size();
+    }
+
+    private void close() {
+        if (!closed) {
+            if (documentCount == 0) {
+                buffer.write('[');
+            }
+            buffer.write(']');
+            closed = true;
+        }
+    }
+
+    /**
+     * Empties this batch for reuse, retaining its buffer
+     */
+    public void reset() {
+        buffer.reset();
+        documentCount = 0;
+        closed = false;
+    }
+
+    private static class Buffer extends ByteArrayOutputStream {
+
+        private void truncate(final int size) {
+            count = size;
+        }
+
+        private InputStream inputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+
+    }
+
+}
@@ -16,13 +16,11 @@
  */
 package com.clicktravel.infrastructure.persistence.aws.cloudsearch.client;
 
-import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.Document;
 import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.joda.JodaModule;
@@ -39,14 +37,14 @@ public class JsonDocumentSearchResponseUnmarshaller {
         mapper.setPropertyNamingStrategy(new LowerCasePropertyNamingStrategy());
     }
 
+    /**
+     * Converts the fields of a search hit to a document in a single pass, without intermediate JSON. Only properties
+     * for the fields present are set, so a search returning a subset of fields populates only those properties.
+     */
     public <T extends Document> T unmarshall(final Map<String, List<String>> fields, final Class<T> documentClass) {
         try {
-            final String fieldJson = mapper.writeValueAsString(fields);
-            final JsonNode fieldsNode = mapper.readValue(fieldJson, JsonNode.class);
-            final String documentString = mapper.writeValueAsString(fieldsNode);
-            final T document = mapper.readValue(documentString, documentClass);
-            return document;
-        } catch (final IOException e) {
+            return mapper.convertValue(fields, documentClass);
+        } catch (final IllegalArgumentException e) {
             throw new IllegalStateException(e);
         }
     }
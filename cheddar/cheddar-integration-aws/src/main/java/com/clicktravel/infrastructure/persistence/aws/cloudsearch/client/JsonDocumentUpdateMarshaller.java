@@ -16,15 +16,17 @@
  */
 package com.clicktravel.infrastructure.persistence.aws.cloudsearch.client;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.module.SimpleModule;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.datatype.joda.JodaModule;
 
 public class JsonDocumentUpdateMarshaller {
@@ -32,9 +34,28 @@ public class JsonDocumentUpdateMarshaller {
     private static final JsonDocumentUpdateMarshaller INSTANCE = new JsonDocumentUpdateMarshaller();
 
     private final ObjectMapper mapper;
+    private final ObjectWriter fieldValueWriter;
 
     public static final String marshall(final Collection<DocumentUpdate> documentUpdates) {
-        return INSTANCE.marshallDocumentUpdates(documentUpdates);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        boolean first = true;
+        for (final DocumentUpdate documentUpdate : documentUpdates) {
+            out.write(first ? '[' : ',');
+            marshall(documentUpdate, out);
+            first = false;
+        }
+        if (first) {
+            out.write('[');
+        }
+        out.write(']');
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Streams the JSON object for a single {@link DocumentUpdate} to the given output stream, which is not closed
+     */
+    public static final void marshall(final DocumentUpdate documentUpdate, final OutputStream out) {
+        INSTANCE.marshallDocumentUpdate(documentUpdate, out);
     }
 
     private JsonDocumentUpdateMarshaller() {
@@ -45,36 +66,38 @@ public class JsonDocumentUpdateMarshaller {
         mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
         mapper.registerModule(new JodaModule());
         mapper.setPropertyNamingStrategy(new LowerCasePropertyNamingStrategy());
+        mapper.getFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        fieldValueWriter = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
-    private String marshallDocumentUpdates(final Collection<DocumentUpdate> documentUpdates) {
-        try {
-            final ArrayNode documentUpdateCollectionNode = mapper.createArrayNode();
-            for (final DocumentUpdate documentUpdate : documentUpdates) {
-                documentUpdateCollectionNode.add(createJsonNode(documentUpdate));
+    private void marshallDocumentUpdate(final DocumentUpdate documentUpdate, final OutputStream out) {
+        try (final JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("id", documentUpdate.getId());
+            generator.writeStringField("type", documentUpdate.getType().name().toLowerCase());
+            if (hasFieldValues(documentUpdate)) {
+                generator.writeObjectFieldStart("fields");
+                for (final Field field : documentUpdate.getFields()) {
+                    if (field.getValue() != null) {
+                        generator.writeFieldName(field.getName().toLowerCase());
+                        fieldValueWriter.writeValue(generator, field.getValue());
+                    }
+                }
+                generator.writeEndObject();
             }
-            return mapper.writeValueAsString(documentUpdateCollectionNode);
-        } catch (final Exception e) {
+            generator.writeEndObject();
+        } catch (final IOException e) {
             throw new IllegalStateException(e);
         }
     }
 
-    private ObjectNode createJsonNode(final DocumentUpdate document) throws IOException {
-        final ObjectNode documentUpdateNode = mapper.createObjectNode();
-        documentUpdateNode.put("id", document.getId());
-        documentUpdateNode.put("type", document.getType().name().toLowerCase());
-        final ObjectNode fields = mapper.createObjectNode();
-        for (final Field field : document.getFields()) {
+    private boolean hasFieldValues(final DocumentUpdate documentUpdate) {
+        for (final Field field : documentUpdate.getFields()) {
             if (field.getValue() != null) {
-                final String fieldValueStr = mapper.writeValueAsString(field.getValue());
-                final JsonNode fieldValueJsonNode = mapper.readTree(fieldValueStr);
-                fields.put(field.getName().toLowerCase(), fieldValueJsonNode);
+                return true;
             }
         }
-        if (fields.size() > 0) {
-            documentUpdateNode.put("fields", fields);
-        }
-        return documentUpdateNode;
+        return false;
     }
 
 }
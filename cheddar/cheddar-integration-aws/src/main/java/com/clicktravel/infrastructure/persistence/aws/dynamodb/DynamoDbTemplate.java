@@ -21,12 +21,14 @@ import static com.amazonaws.services.dynamodbv2.datamodeling.DynamoDbPropertyMar
 import java.beans.PropertyDescriptor;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDbPropertyMarshaller;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDbItemCodec;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDbItemCodec.PropertyCodec;
 import com.amazonaws.services.dynamodbv2.model.*;
 import com.clicktravel.cheddar.infrastructure.persistence.database.BatchDatabaseTemplate;
 import com.clicktravel.cheddar.infrastructure.persistence.database.Item;
@@ -44,11 +46,16 @@ import com.clicktravel.cheddar.infrastructure.persistence.exception.PersistenceR
 public class DynamoDbTemplate extends AbstractDynamoDbTemplate implements BatchDatabaseTemplate {
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final Map<ItemConfiguration, DynamoDbItemCodec> itemCodecs = new ConcurrentHashMap<>();
 
     public DynamoDbTemplate(final DatabaseSchemaHolder databaseSchemaHolder) {
         super(databaseSchemaHolder);
     }
 
+    private DynamoDbItemCodec itemCodec(final ItemConfiguration itemConfiguration) {
+        return itemCodecs.computeIfAbsent(itemConfiguration, DynamoDbItemCodec::new);
+    }
+
     @Override
     public <T extends Item> T read(final ItemId itemId, final Class<T> itemClass) throws NonExistentItemException {
         final Map<String, AttributeValue> attributeMap = readRaw(itemId, itemClass);
@@ -147,10 +154,7 @@ public class DynamoDbTemplate extends AbstractDynamoDbTemplate implements BatchD
         }
         try {
             final T item = actualItemClass.newInstance();
-            for (final PropertyDescriptor propertyDescriptor : itemConfiguration.propertyDescriptors()) {
-                final AttributeValue attributeValue = itemAttributeMap.get(propertyDescriptor.getName());
-                DynamoDbPropertyMarshaller.setValue(item, propertyDescriptor, attributeValue);
-            }
+            itemCodec(itemConfiguration).setValues(item, itemAttributeMap);
             return item;
         } catch (final Exception e) {
             throw new IllegalStateException(e);
@@ -215,12 +219,12 @@ public class DynamoDbTemplate extends AbstractDynamoDbTemplate implements BatchD
     private Map<String, AttributeValue> getAttributeMap(final Item item, final ItemConfiguration itemConfiguration,
             final Long version) {
         final Map<String, AttributeValue> attributeMap = new HashMap<>();
-        for (final PropertyDescriptor propertyDescriptor : itemConfiguration.propertyDescriptors()) {
-            final String propertyName = propertyDescriptor.getName();
+        for (final PropertyCodec property : itemCodec(itemConfiguration).properties()) {
+            final String propertyName = property.name();
             if (propertyName.equals(VERSION_ATTRIBUTE)) {
                 attributeMap.put(propertyName, new AttributeValue().withN(String.valueOf(version)));
-            } else if (propertyDescriptor.getWriteMethod() != null) {
-                final AttributeValue attributeValue = DynamoDbPropertyMarshaller.getValue(item, propertyDescriptor);
+            } else if (property.isWritable()) {
+                final AttributeValue attributeValue = property.getValue(item);
                 if (attributeMap != null) {
                     attributeMap.put(propertyName, attributeValue);
                 }
@@ -237,13 +241,13 @@ public class DynamoDbTemplate extends AbstractDynamoDbTemplate implements BatchD
     private Map<String, AttributeValueUpdate> getAttributeUpdateMap(final Item item,
             final ItemConfiguration itemConfiguration, final Long version) {
         final Map<String, AttributeValueUpdate> attributeMap = new HashMap<>();
-        for (final PropertyDescriptor propertyDescriptor : itemConfiguration.propertyDescriptors()) {
-            final String propertyName = propertyDescriptor.getName();
+        for (final PropertyCodec property : itemCodec(itemConfiguration).properties()) {
+            final String propertyName = property.name();
             if (propertyName.equals(VERSION_ATTRIBUTE)) {
                 attributeMap.put(propertyName, new AttributeValueUpdate().withAction(AttributeAction.PUT)
                         .withValue(new AttributeValue().withN(String.valueOf(version))));
-            } else if (propertyDescriptor.getWriteMethod() != null) {
-                final AttributeValue attributeValue = DynamoDbPropertyMarshaller.getValue(item, propertyDescriptor);
+            } else if (property.isWritable()) {
+                final AttributeValue attributeValue = property.getValue(item);
                 if (attributeMap != null) {
                     // TODO Only add to attribute map if there is a difference
                     if (attributeValue != null) {
@@ -674,9 +678,8 @@ public class DynamoDbTemplate extends AbstractDynamoDbTemplate implements BatchD
 
             for (final String stringValue : condition.getValues()) {
                 if (stringValue != null && !stringValue.isEmpty()) {
-                    final PropertyDescriptor propertyDescriptor = itemConfiguration.getPropertyDescriptor(propertyName);
-                    final AttributeValue attributeValue = DynamoDbPropertyMarshaller.getAttributeValue(stringValue,
-                            propertyDescriptor);
+                    final AttributeValue attributeValue = itemCodec(itemConfiguration).property(propertyName)
+                            .toAttributeValue(stringValue);
                     attributeValueList.add(attributeValue);
                 }
             }
@@ -28,7 +28,13 @@ import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.document.*;
 import com.amazonaws.services.dynamodbv2.document.spec.*;
 import com.amazonaws.services.dynamodbv2.document.utils.ValueMap;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
 import com.clicktravel.cheddar.infrastructure.persistence.database.Item;
 import com.clicktravel.cheddar.infrastructure.persistence.database.ItemId;
 import com.clicktravel.cheddar.infrastructure.persistence.database.configuration.CompoundPrimaryKeyDefinition;
@@ -39,9 +45,10 @@ import com.clicktravel.cheddar.infrastructure.persistence.database.exception.Non
 import com.clicktravel.cheddar.infrastructure.persistence.database.exception.OptimisticLockException;
 import com.clicktravel.cheddar.infrastructure.persistence.database.exception.handler.PersistenceExceptionHandler;
 import com.clicktravel.cheddar.infrastructure.persistence.database.query.*;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.reindex.ItemScanner;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.reindex.ScanPage;
 import com.clicktravel.cheddar.infrastructure.persistence.exception.PersistenceResourceFailureException;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -54,6 +61,7 @@ public class DynamoDocumentStoreTemplate extends AbstractDynamoDbTemplate {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
     private DynamoDB dynamoDBClient = null;
     private final ObjectMapper mapper;
+    private final JsonAttributeValueCodec jsonAttributeValueCodec;
 
     public DynamoDocumentStoreTemplate(final DatabaseSchemaHolder databaseSchemaHolder) {
         super(databaseSchemaHolder);
@@ -63,6 +71,7 @@ public class DynamoDocumentStoreTemplate extends AbstractDynamoDbTemplate {
         mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
         mapper.setSerializationInclusion(Include.NON_NULL);
         mapper.registerModule(new JodaModule());
+        jsonAttributeValueCodec = new JsonAttributeValueCodec(mapper);
     }
 
     @Override
@@ -107,7 +116,7 @@ public class DynamoDocumentStoreTemplate extends AbstractDynamoDbTemplate {
             final String tableName, final Class<T> itemClass) {
         final List<com.amazonaws.services.dynamodbv2.document.Item> items = outcome.getTableItems().get(tableName);
         for (final com.amazonaws.services.dynamodbv2.document.Item item : items) {
-            fetchedItems.add(stringToItem(item.toJSON(), itemClass));
+            fetchedItems.add(attributeValuesToItem(ItemUtils.toAttributeValues(item), itemClass));
         }
         if (outcome.getUnprocessedKeys().size() == 0) {
             logger.debug("All items fetched");
@@ -126,14 +135,11 @@ public class DynamoDocumentStoreTemplate extends AbstractDynamoDbTemplate {
         final Collection<PropertyDescriptor> createdConstraintPropertyDescriptors = createUniqueConstraintIndexes(item,
                 itemConfiguration);
         final String tableName = databaseSchemaHolder.schemaName() + "." + itemConfiguration.tableName();
-        final com.amazonaws.services.dynamodbv2.document.Item awsItem = com.amazonaws.services.dynamodbv2.document.Item
-                .fromJSON(itemToString(item));
-        final PutItemSpec putItemSpec = new PutItemSpec().withItem(awsItem);
+        final PutItemRequest putItemRequest = new PutItemRequest(tableName, itemToAttributeValues(item));
 
-        final Table table = dynamoDBClient.getTable(tableName);
         boolean itemRequestSucceeded = false;
         try {
-            table.putItem(putItemSpec);
+            amazonDynamoDbClient.putItem(putItemRequest);
             itemRequestSucceeded = true;
         } finally {
             if (!itemRequestSucceeded) {
@@ -153,25 +159,15 @@ public class DynamoDocumentStoreTemplate extends AbstractDynamoDbTemplate {
         final ItemConfiguration itemConfiguration = getItemConfiguration(itemClass);
         final String tableName = databaseSchemaHolder.schemaName() + "." + itemConfiguration.tableName();
 
-        final GetItemSpec itemSpec = new GetItemSpec().withPrimaryKey(getPrimaryKey(itemId, itemConfiguration));
-
-        T item = null;
-
-        final Table table = dynamoDBClient.getTable(tableName);
+        final GetItemRequest getItemRequest = new GetItemRequest(tableName,
+                ItemUtils.toAttributeValueMap(getPrimaryKey(itemId, itemConfiguration)));
 
-        final com.amazonaws.services.dynamodbv2.document.Item tableItem = table.getItem(itemSpec);
-        if (tableItem != null) {
-            final String tableText = tableItem.toJSON();
-            if (tableText.isEmpty()) {
-                throw new NonExistentItemException(String
-                        .format("The document of type [%s] with id [%s] does not exist", itemClass.getName(), itemId));
-            }
-            item = stringToItem(tableText, itemClass);
-        } else {
+        final GetItemResult getItemResult = amazonDynamoDbClient.getItem(getItemRequest);
+        if (getItemResult == null || getItemResult.getItem() == null || getItemResult.getItem().isEmpty()) {
             throw new NonExistentItemException(String.format("The document of type [%s] with id [%s] does not exist",
                     itemClass.getName(), itemId));
         }
-        return item;
+        return attributeValuesToItem(getItemResult.getItem(), itemClass);
     }
 
     @Override
@@ -187,7 +183,7 @@ public class DynamoDocumentStoreTemplate extends AbstractDynamoDbTemplate {
         item.setVersion(newVersion);
 
         final String tableName = databaseSchemaHolder.schemaName() + "." + itemConfiguration.tableName();
-        final String itemJson = itemToString(item);
+        final Map<String, AttributeValue> itemAttributeValues = itemToAttributeValues(item);
         final PrimaryKey primaryKey = new PrimaryKey();
         final ItemId itemId = itemConfiguration.getItemId(item);
         final PrimaryKeyDefinition primaryKeyDefinition = itemConfiguration.primaryKeyDefinition();
@@ -196,16 +192,17 @@ public class DynamoDocumentStoreTemplate extends AbstractDynamoDbTemplate {
             primaryKey.addComponent(((CompoundPrimaryKeyDefinition) primaryKeyDefinition).supportingPropertyName(),
                     itemId.supportingValue());
         }
-        final Table table = dynamoDBClient.getTable(tableName);
-        final com.amazonaws.services.dynamodbv2.document.Item previousAwsItem = table.getItem(primaryKey);
-        final String previousItemJson = previousAwsItem.toJSON();
+        final Map<String, AttributeValue> previousItemAttributeValues = amazonDynamoDbClient
+                .getItem(new GetItemRequest(tableName, ItemUtils.toAttributeValueMap(primaryKey))).getItem();
+        if (previousItemAttributeValues == null) {
+            throw new OptimisticLockException("Conflicting write detected while updating item");
+        }
 
-        final String mergedJson = mergeJSONObjects(itemJson, previousItemJson);
-        final com.amazonaws.services.dynamodbv2.document.Item awsItem = com.amazonaws.services.dynamodbv2.document.Item
-                .fromJSON(mergedJson);
-        final PutItemSpec putItemSpec = new PutItemSpec().withItem(awsItem).withExpected(expectedCondition);
+        final PutItemRequest putItemRequest = new PutItemRequest(tableName,
+                mergeAttributeValues(itemAttributeValues, previousItemAttributeValues))
+                        .withExpected(ItemUtils.toExpectedAttributeValueMap(Arrays.asList(expectedCondition)));
         try {
-            table.putItem(putItemSpec);
+            amazonDynamoDbClient.putItem(putItemRequest);
         } catch (final ConditionalCheckFailedException e) {
             throw new OptimisticLockException("Conflicting write detected while updating item");
         }
@@ -269,7 +266,7 @@ public class DynamoDocumentStoreTemplate extends AbstractDynamoDbTemplate {
             final Iterator<com.amazonaws.services.dynamodbv2.document.Item> iterator = queryOutcome.iterator();
             while (iterator != null && iterator.hasNext()) {
                 final com.amazonaws.services.dynamodbv2.document.Item item = iterator.next();
-                totalItems.add(stringToItem(item.toJSON(), itemClass));
+                totalItems.add(attributeValuesToItem(ItemUtils.toAttributeValues(item), itemClass));
             }
         } else {
             logger.debug("Performing table scan with query: " + query);
@@ -286,13 +283,53 @@ public class DynamoDocumentStoreTemplate extends AbstractDynamoDbTemplate {
             final Iterator<com.amazonaws.services.dynamodbv2.document.Item> iterator = scanOutcome.iterator();
             while (iterator.hasNext()) {
                 final com.amazonaws.services.dynamodbv2.document.Item item = iterator.next();
-                totalItems.add(stringToItem(item.toJSON(), itemClass));
+                totalItems.add(attributeValuesToItem(ItemUtils.toAttributeValues(item), itemClass));
             }
         }
 
         return totalItems;
     }
 
+    /**
+     * Creates an {@link ItemScanner} which reads all items of a class using a parallel scan, for reindexing. The
+     * position of a page is the last evaluated key of the previous page, as JSON.
+     * @param itemClass Class of items to scan
+     * @param totalSegments Number of segments the table is divided into for scanning in parallel
+     */
+    public <T extends Item> ItemScanner<T> itemScanner(final Class<T> itemClass, final int totalSegments) {
+        if (totalSegments < 1) {
+            throw new IllegalArgumentException("A scan must have at least one segment");
+        }
+        final ItemConfiguration itemConfiguration = getItemConfiguration(itemClass);
+        final String tableName = databaseSchemaHolder.schemaName() + "." + itemConfiguration.tableName();
+        return new ItemScanner<T>() {
+
+            @Override
+            public int segments() {
+                return totalSegments;
+            }
+
+            @Override
+            public ScanPage<T> scan(final int segment, final String position, final int maxItems) {
+                final ScanRequest scanRequest = new ScanRequest(tableName).withSegment(segment)
+                        .withTotalSegments(totalSegments).withLimit(maxItems);
+                if (position != null) {
+                    scanRequest.setExclusiveStartKey(ItemUtils.toAttributeValues(
+                            com.amazonaws.services.dynamodbv2.document.Item.fromJSON(position)));
+                }
+                final ScanResult scanResult = amazonDynamoDbClient.scan(scanRequest);
+                final List<T> items = new ArrayList<>(scanResult.getItems().size());
+                for (final Map<String, AttributeValue> attributeValues : scanResult.getItems()) {
+                    items.add(attributeValuesToItem(attributeValues, itemClass));
+                }
+                final Map<String, AttributeValue> lastEvaluatedKey = scanResult.getLastEvaluatedKey();
+                final String nextPosition = lastEvaluatedKey == null || lastEvaluatedKey.isEmpty() ? null
+                        : ItemUtils.toItem(lastEvaluatedKey).toJSON();
+                return new ScanPage<>(items, nextPosition);
+            }
+        };
+    }
+
     private <T extends Item> ScanSpec generateScanSpec(final AttributeQuery query, final Class<T> tableItemType)
             throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException,
             NoSuchMethodException, SecurityException {
@@ -364,25 +401,33 @@ public class DynamoDocumentStoreTemplate extends AbstractDynamoDbTemplate {
         return key;
     }
 
-    <T extends Item> String itemToString(final T item) {
-        final StringBuilder value = new StringBuilder();
+    <T extends Item> Map<String, AttributeValue> itemToAttributeValues(final T item) {
         try {
-            value.append(mapper.writeValueAsString(item));
-        } catch (final JsonProcessingException e) {
-            throw new PersistenceResourceFailureException("Failure converting item to String", e);
+            return jsonAttributeValueCodec.toAttributeValues(item);
+        } catch (final IOException e) {
+            throw new PersistenceResourceFailureException("Failure converting item to attribute values", e);
         }
-        return value.toString();
     }
 
-    private String mergeJSONObjects(final String itemJsonString, final String previousJsonString) {
-        try {
-            final JsonNode itemJson = mapper.readTree(itemJsonString);
-            final JsonNode previousItemJson = mapper.readTree(previousJsonString);
-            final JsonNode mergedItemJson = merge(itemJson, previousItemJson);
-            return mapper.writeValueAsString(mergedItemJson);
-        } catch (final IOException e) {
-            throw new RuntimeException("JSON Exception" + e);
+    /**
+     * Merges the attributes of an updated item with those of the previous item, as {@link #merge(JsonNode, JsonNode)}
+     * does for JSON objects: attributes of the previous item missing from the updated item are kept, and attributes
+     * which are maps in both are merged
+     */
+    private Map<String, AttributeValue> mergeAttributeValues(final Map<String, AttributeValue> attributeValues,
+            final Map<String, AttributeValue> previousAttributeValues) {
+        final Map<String, AttributeValue> mergedAttributeValues = new HashMap<>(previousAttributeValues);
+        for (final Map.Entry<String, AttributeValue> entry : attributeValues.entrySet()) {
+            final AttributeValue previousValue = previousAttributeValues.get(entry.getKey());
+            final AttributeValue value = entry.getValue();
+            if (previousValue != null && previousValue.getM() != null && value.getM() != null) {
+                mergedAttributeValues.put(entry.getKey(),
+                        new AttributeValue().withM(mergeAttributeValues(value.getM(), previousValue.getM())));
+            } else {
+                mergedAttributeValues.put(entry.getKey(), value);
+            }
         }
+        return mergedAttributeValues;
     }
 
     public JsonNode merge(final JsonNode newNode, final JsonNode oldNode) {
@@ -419,13 +464,12 @@ public class DynamoDocumentStoreTemplate extends AbstractDynamoDbTemplate {
         return mergedNode;
     }
 
-    private <T extends Item> T stringToItem(final String item, final Class<T> valueType) {
-        T value = null;
+    private <T extends Item> T attributeValuesToItem(final Map<String, AttributeValue> attributeValues,
+            final Class<T> valueType) {
         try {
-            value = mapper.readValue(item, valueType);
+            return jsonAttributeValueCodec.fromAttributeValues(attributeValues, valueType);
         } catch (final IOException e) {
-            throw new PersistenceResourceFailureException("Failure converting String to item", e);
+            throw new PersistenceResourceFailureException("Failure converting attribute values to item", e);
         }
-        return value;
     }
 }
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.infrastructure.persistence.aws.dynamodb;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Converts objects to and from DynamoDB attribute maps using an {@link ObjectMapper}, without an intermediate JSON
+ * string or document tree. Objects are serialised into a {@link TokenBuffer}, whose tokens are converted straight to
+ * attribute values; attribute values are written as tokens into a {@link TokenBuffer} which is deserialised straight to
+ * an object.
+ * <p>
+ * Attribute values are the same as those of the document API's {@code Item.fromJSON} for the object's JSON, and
+ * objects are the same as those read from {@code Item.toJSON}: numbers are stored in plain notation, with fractional
+ * numbers read and written as doubles; binary values are read as Base64 strings; sets are read as arrays.
+ */
+public class JsonAttributeValueCodec {
+
+    private final ObjectMapper mapper;
+
+    public JsonAttributeValueCodec(final ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * @param value Object which serialises to a JSON object
+     * @return Attribute map for the fields of the JSON object
+     */
+    public Map<String, AttributeValue> toAttributeValues(final Object value) throws IOException {
+        final TokenBuffer tokenBuffer = new TokenBuffer(mapper, false);
+        mapper.writeValue(tokenBuffer, value);
+        try (final JsonParser parser = tokenBuffer.asParser()) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Value does not serialise to a JSON object: " + value.getClass());
+            }
+            return readObject(parser);
+        }
+    }
+
+    /**
+     * @param attributeValues Attribute map for the fields of a JSON object
+     * @param valueType Class to deserialise the JSON object to
+     * @return Deserialised object
+     */
+    public <T> T fromAttributeValues(final Map<String, AttributeValue> attributeValues, final Class<T> valueType)
+            throws IOException {
+        final TokenBuffer tokenBuffer = new TokenBuffer(mapper, false);
+        writeObject(tokenBuffer, attributeValues);
+        try (final JsonParser parser = tokenBuffer.asParser(mapper)) {
+            return mapper.readValue(parser, valueType);
+        }
+    }
+
+    private Map<String, AttributeValue> readObject(final JsonParser parser) throws IOException {
+        final Map<String, AttributeValue> attributeValues = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String fieldName = parser.getCurrentName();
+            attributeValues.put(fieldName, readValue(parser, parser.nextToken()));
+        }
+        return attributeValues;
+    }
+
+    private AttributeValue readValue(final JsonParser parser, final JsonToken token) throws IOException {
+        switch (token) {
+            case START_OBJECT:
+                return new AttributeValue().withM(readObject(parser));
+            case START_ARRAY:
+                final List<AttributeValue> elements = new ArrayList<>();
+                JsonToken elementToken;
+                while ((elementToken = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    elements.add(readValue(parser, elementToken));
+                }
+                return new AttributeValue().withL(elements);
+            case VALUE_STRING:
+                return new AttributeValue(parser.getText());
+            case VALUE_NUMBER_INT:
+                return new AttributeValue().withN(parser.getText());
+            case VALUE_NUMBER_FLOAT:
+                return new AttributeValue()
+                        .withN(BigDecimal.valueOf(Double.parseDouble(parser.getText())).toPlainString());
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return new AttributeValue().withBOOL(parser.getBooleanValue());
+            case VALUE_NULL:
+                return new AttributeValue().withNULL(true);
+            case VALUE_EMBEDDED_OBJECT:
+                final Object embeddedObject = parser.getEmbeddedObject();
+                if (embeddedObject instanceof byte[]) {
+                    return new AttributeValue(Base64Variants.getDefaultVariant().encode((byte[]) embeddedObject));
+                }
+                throw new IOException("Cannot convert embedded object to attribute value: " + embeddedObject);
+            default:
+                throw new IOException("Unexpected JSON token: " + token);
+        }
+    }
+
+    private void writeObject(final JsonGenerator generator, final Map<String, AttributeValue> attributeValues)
+            throws IOException {
+        generator.writeStartObject();
+        for (final Map.Entry<String, AttributeValue> entry : attributeValues.entrySet()) {
+            generator.writeFieldName(entry.getKey());
+            writeValue(generator, entry.getValue());
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeValue(final JsonGenerator generator, final AttributeValue attributeValue) throws IOException {
+        if (attributeValue.getS() != null) {
+            generator.writeString(attributeValue.getS());
+        } else if (attributeValue.getN() != null) {
+            writeNumber(generator, attributeValue.getN());
+        } else if (attributeValue.getBOOL() != null) {
+            generator.writeBoolean(attributeValue.getBOOL());
+        } else if (attributeValue.getM() != null) {
+            writeObject(generator, attributeValue.getM());
+        } else if (attributeValue.getL() != null) {
+            generator.writeStartArray();
+            for (final AttributeValue element : attributeValue.getL()) {
+                writeValue(generator, element);
+            }
+            generator.writeEndArray();
+        } else if (attributeValue.getSS() != null) {
+            generator.writeStartArray();
+            for (final String element : attributeValue.getSS()) {
+                generator.writeString(element);
+            }
+            generator.writeEndArray();
+        } else if (attributeValue.getNS() != null) {
+            generator.writeStartArray();
+            for (final String element : attributeValue.getNS()) {
+                writeNumber(generator, element);
+            }
+            generator.writeEndArray();
+        } else if (attributeValue.getB() != null) {
+            writeBinary(generator, attributeValue.getB());
+        } else if (attributeValue.getBS() != null) {
+            generator.writeStartArray();
+            for (final ByteBuffer element : attributeValue.getBS()) {
+                writeBinary(generator, element);
+            }
+            generator.writeEndArray();
+        } else {
+            generator.writeNull();
+        }
+    }
+
+    private void writeNumber(final JsonGenerator generator, final String number) throws IOException {
+        final String canonicalNumber = new BigDecimal(number).toString();
+        if (canonicalNumber.indexOf('.') >= 0) {
+            generator.writeNumber(canonicalNumber);
+            return;
+        }
+        final int exponentIndex = canonicalNumber.indexOf('E');
+        if (exponentIndex >= 0) {
+            // Buffered numbers without a decimal point are read as integers
+            generator.writeNumber(canonicalNumber.substring(0, exponentIndex) + ".0"
+                    + canonicalNumber.substring(exponentIndex));
+            return;
+        }
+        try {
+            final long longValue = Long.parseLong(canonicalNumber);
+            if (longValue == (int) longValue) {
+                generator.writeNumber((int) longValue);
+            } else {
+                generator.writeNumber(longValue);
+            }
+        } catch (final NumberFormatException e) {
+            generator.writeNumber(new BigInteger(canonicalNumber));
+        }
+    }
+
+    private void writeBinary(final JsonGenerator generator, final ByteBuffer byteBuffer) throws IOException {
+        final ByteBuffer bytes = byteBuffer.duplicate();
+        final byte[] value = new byte[bytes.remaining()];
+        bytes.get(value);
+        generator.writeString(Base64Variants.getDefaultVariant().encode(value));
+    }
+
+}
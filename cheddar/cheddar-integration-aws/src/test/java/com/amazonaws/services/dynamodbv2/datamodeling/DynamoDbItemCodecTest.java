@@ -0,0 +1,208 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import static com.clicktravel.common.random.Randoms.randomBoolean;
+import static com.clicktravel.common.random.Randoms.randomInt;
+import static com.clicktravel.common.random.Randoms.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.*;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDbItemCodec.PropertyCodec;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.clicktravel.cheddar.infrastructure.persistence.database.configuration.ItemConfiguration;
+import com.clicktravel.infrastructure.persistence.aws.dynamodb.StubItem;
+
+public class DynamoDbItemCodecTest {
+
+    @Test
+    public void shouldGetSameAttributeValues_asPropertyMarshaller() {
+        // Given
+        final ItemConfiguration itemConfiguration = new ItemConfiguration(StubItem.class, randomString());
+        final DynamoDbItemCodec itemCodec = new DynamoDbItemCodec(itemConfiguration);
+        final StubItem item = randomStubItem();
+
+        // When
+        final Map<String, AttributeValue> attributeValues = new HashMap<>();
+        for (final PropertyCodec property : itemCodec.properties()) {
+            if (property.isWritable()) {
+                attributeValues.put(property.name(), property.getValue(item));
+            }
+        }
+
+        // Then
+        assertEquals(6, attributeValues.size());
+        for (final Map.Entry<String, AttributeValue> entry : attributeValues.entrySet()) {
+            assertEquals(DynamoDbPropertyMarshaller.getValue(item, itemConfiguration.getPropertyDescriptor(entry
+                    .getKey())), entry.getValue());
+        }
+    }
+
+    @Test
+    public void shouldSetValues_withAttributeMap() {
+        // Given
+        final DynamoDbItemCodec itemCodec = new DynamoDbItemCodec(
+                new ItemConfiguration(StubItem.class, randomString()));
+        final StubItem item = randomStubItem();
+        final Map<String, AttributeValue> attributeMap = new HashMap<>();
+        for (final PropertyCodec property : itemCodec.properties()) {
+            if (property.isWritable()) {
+                attributeMap.put(property.name(), property.getValue(item));
+            }
+        }
+        final StubItem decodedItem = new StubItem();
+
+        // When
+        itemCodec.setValues(decodedItem, attributeMap);
+
+        // Then
+        assertEquals(item.getId(), decodedItem.getId());
+        assertEquals(item.getStringProperty(), decodedItem.getStringProperty());
+        assertEquals(item.getStringProperty2(), decodedItem.getStringProperty2());
+        assertEquals(item.isBooleanProperty(), decodedItem.isBooleanProperty());
+        assertEquals(item.getStringSetProperty(), decodedItem.getStringSetProperty());
+        assertEquals(item.getVersion(), decodedItem.getVersion());
+    }
+
+    @Test
+    public void shouldNotSetValue_withMissingAttribute() {
+        // Given
+        final DynamoDbItemCodec itemCodec = new DynamoDbItemCodec(
+                new ItemConfiguration(StubItem.class, randomString()));
+        final StubItem item = new StubItem();
+        final String stringProperty = randomString();
+        item.setStringProperty(stringProperty);
+
+        // When
+        itemCodec.setValues(item, Collections.singletonMap("id", new AttributeValue(randomString())));
+
+        // Then
+        assertEquals(stringProperty, item.getStringProperty());
+    }
+
+    @Test
+    public void shouldGetNullAttributeValue_withNullOrEmptyProperty() {
+        // Given
+        final DynamoDbItemCodec itemCodec = new DynamoDbItemCodec(
+                new ItemConfiguration(StubItem.class, randomString()));
+        final StubItem item = new StubItem();
+
+        // When
+        final AttributeValue stringAttributeValue = itemCodec.property("stringProperty").getValue(item);
+        final AttributeValue stringSetAttributeValue = itemCodec.property("stringSetProperty").getValue(item);
+
+        // Then
+        assertNull(stringAttributeValue);
+        assertNull(stringSetAttributeValue);
+    }
+
+    @Test
+    public void shouldEncodeAndDecodeAsJson_withUnsupportedPropertyType() {
+        // Given
+        final DynamoDbItemCodec itemCodec = new DynamoDbItemCodec(
+                new ItemConfiguration(StubJsonItem.class, randomString()));
+        final StubJsonItem item = new StubJsonItem();
+        item.setStrings(Arrays.asList(randomString(), randomString()));
+        final DateTime dateTime = DateTime.now(DateTimeZone.UTC);
+        item.setDateTime(dateTime);
+        final PropertyCodec stringsProperty = itemCodec.property("strings");
+        final PropertyCodec dateTimeProperty = itemCodec.property("dateTime");
+        final StubJsonItem decodedItem = new StubJsonItem();
+
+        // When
+        final AttributeValue stringsAttributeValue = stringsProperty.getValue(item);
+        stringsProperty.setValue(decodedItem, stringsAttributeValue);
+        dateTimeProperty.setValue(decodedItem, dateTimeProperty.getValue(item));
+
+        // Then
+        assertEquals(DynamoDbPropertyMarshaller.getValue(item,
+                new ItemConfiguration(StubJsonItem.class, randomString()).getPropertyDescriptor("strings")),
+                stringsAttributeValue);
+        assertEquals(item.getStrings(), decodedItem.getStrings());
+        assertEquals(dateTime.getMillis(), decodedItem.getDateTime().getMillis());
+    }
+
+    @Test
+    public void shouldNotIncludeWritableClassProperty_withItem() {
+        // Given
+        final DynamoDbItemCodec itemCodec = new DynamoDbItemCodec(
+                new ItemConfiguration(StubItem.class, randomString()));
+
+        // When
+        final PropertyCodec classProperty = itemCodec.property("class");
+
+        // Then
+        assertFalse(classProperty.isWritable());
+        assertTrue(itemCodec.property("id").isWritable());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldThrowException_withUnknownProperty() {
+        // Given
+        final DynamoDbItemCodec itemCodec = new DynamoDbItemCodec(
+                new ItemConfiguration(StubItem.class, randomString()));
+
+        // When
+        itemCodec.property(randomString());
+    }
+
+    private StubItem randomStubItem() {
+        final StubItem item = new StubItem();
+        item.setId(randomString());
+        item.setStringProperty(randomString());
+        item.setStringProperty2(randomString());
+        item.setBooleanProperty(randomBoolean());
+        item.setVersion((long) randomInt(1000));
+        final Set<String> stringSet = new HashSet<>();
+        for (int i = 0; i <= randomInt(5); i++) {
+            stringSet.add(randomString());
+        }
+        item.setStringSetProperty(stringSet);
+        return item;
+    }
+
+    public static class StubJsonItem extends StubItem {
+
+        private List<String> strings;
+        private DateTime dateTime;
+
+        public List<String> getStrings() {
+            return strings;
+        }
+
+        public void setStrings(final List<String> strings) {
+            this.strings = strings;
+        }
+
+        public DateTime getDateTime() {
+            return dateTime;
+        }
+
+        public void setDateTime(final DateTime dateTime) {
+            this.dateTime = dateTime;
+        }
+    }
+
+}
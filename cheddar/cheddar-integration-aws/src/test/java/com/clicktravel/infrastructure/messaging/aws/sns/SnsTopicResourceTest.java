@@ -25,6 +25,9 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Collections;
+import java.util.Map;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -33,8 +36,10 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.auth.policy.Policy;
 import com.amazonaws.services.sns.AmazonSNS;
 import com.amazonaws.services.sns.model.PublishRequest;
+import com.amazonaws.services.sns.model.SetSubscriptionAttributesRequest;
 import com.amazonaws.services.sns.model.SetTopicAttributesRequest;
 import com.amazonaws.services.sns.model.SubscribeRequest;
+import com.amazonaws.services.sns.model.SubscribeResult;
 import com.clicktravel.infrastructure.messaging.aws.sqs.SqsQueueResource;
 
 @SuppressWarnings("unchecked")
@@ -73,6 +78,30 @@ public class SnsTopicResourceTest {
         assertEquals("String", publishRequest.getMessageAttributes().get("subject").getDataType());
     }
 
+    @Test
+    public void shouldPublish_withSubjectAndMessageAndMessageAttributes() {
+        // Given
+        final String subject = randomString();
+        final String message = randomString();
+        final String attributeName = randomString();
+        final String attributeValue = randomString();
+        final Map<String, String> messageAttributes = Collections.singletonMap(attributeName, attributeValue);
+
+        // When
+        snsTopicResource.publish(subject, message, messageAttributes);
+
+        // Then
+        final ArgumentCaptor<PublishRequest> captor = ArgumentCaptor.forClass(PublishRequest.class);
+        verify(mockAmazonSnsClient).publish(captor.capture());
+        final PublishRequest publishRequest = captor.getValue();
+        assertEquals(subject, publishRequest.getSubject());
+        assertEquals(message, publishRequest.getMessage());
+        assertEquals(2, publishRequest.getMessageAttributes().size());
+        assertEquals(subject, publishRequest.getMessageAttributes().get("subject").getStringValue());
+        assertEquals(attributeValue, publishRequest.getMessageAttributes().get(attributeName).getStringValue());
+        assertEquals("String", publishRequest.getMessageAttributes().get(attributeName).getDataType());
+    }
+
     @Test
     public void shouldThrowException_onAmazonClientExceptionFromPublish() {
         // Given
@@ -111,6 +140,37 @@ public class SnsTopicResourceTest {
         assertEquals(queueArn, subscribeRequest.getEndpoint());
     }
 
+    @Test
+    public void shouldSubscribe_withSqsQueueResourceAndFilterPolicy() {
+        // Given
+        final SqsQueueResource mockSqsQueueResource = mock(SqsQueueResource.class);
+        final String queueArn = randomString();
+        final String subscriptionArn = randomString();
+        final String filterPolicy = randomString();
+        when(mockSqsQueueResource.queueArn()).thenReturn(queueArn);
+        when(mockAmazonSnsClient.subscribe(any(SubscribeRequest.class)))
+                .thenReturn(new SubscribeResult().withSubscriptionArn(subscriptionArn));
+
+        // When
+        snsTopicResource.subscribe(mockSqsQueueResource, filterPolicy);
+
+        // Then
+        final ArgumentCaptor<SubscribeRequest> subscribeCaptor = ArgumentCaptor.forClass(SubscribeRequest.class);
+        verify(mockAmazonSnsClient).subscribe(subscribeCaptor.capture());
+        final SubscribeRequest subscribeRequest = subscribeCaptor.getValue();
+        assertEquals(topicArn, subscribeRequest.getTopicArn());
+        assertEquals("sqs", subscribeRequest.getProtocol());
+        assertEquals(queueArn, subscribeRequest.getEndpoint());
+        assertEquals(Boolean.TRUE, subscribeRequest.getReturnSubscriptionArn());
+        final ArgumentCaptor<SetSubscriptionAttributesRequest> attributesCaptor = ArgumentCaptor
+                .forClass(SetSubscriptionAttributesRequest.class);
+        verify(mockAmazonSnsClient).setSubscriptionAttributes(attributesCaptor.capture());
+        final SetSubscriptionAttributesRequest setSubscriptionAttributesRequest = attributesCaptor.getValue();
+        assertEquals(subscriptionArn, setSubscriptionAttributesRequest.getSubscriptionArn());
+        assertEquals("FilterPolicy", setSubscriptionAttributesRequest.getAttributeName());
+        assertEquals(filterPolicy, setSubscriptionAttributesRequest.getAttributeValue());
+    }
+
     @Test
     public void shouldThrowException_onAmazonClientExceptionFromSubscribe() {
         // Given
@@ -25,6 +25,9 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Collections;
+import java.util.Map;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -59,6 +62,24 @@ public class SnsTypedMessageExchangeTest {
         verify(mockSnsTopicResource).publish(messageType, payload);
     }
 
+    @Test
+    public void shouldRoute_withMessageAttributes() {
+        // Given
+        final TypedMessage mockTypedMessage = mock(TypedMessage.class);
+        final String messageType = randomString();
+        final String payload = randomString();
+        final Map<String, String> attributes = Collections.singletonMap(randomString(), randomString());
+        when(mockTypedMessage.getType()).thenReturn(messageType);
+        when(mockTypedMessage.getPayload()).thenReturn(payload);
+        when(mockTypedMessage.getAttributes()).thenReturn(attributes);
+
+        // When
+        snsTypedMessageExchange.route(mockTypedMessage);
+
+        // Then
+        verify(mockSnsTopicResource).publish(messageType, payload, attributes);
+    }
+
     @Test
     public void shouldThrowMessagePublishException_onAmazonClientExceptionFromPublish() {
         // Given
@@ -23,18 +23,17 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.*;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
-import static org.powermock.api.mockito.PowerMockito.verifyStatic;
 
 import java.beans.BeanInfo;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
-import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -54,6 +53,10 @@ import com.clicktravel.cheddar.infrastructure.persistence.document.search.Docume
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.DocumentSearchResponse;
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.configuration.DocumentConfiguration;
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.configuration.DocumentConfigurationHolder;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.configuration.IndexDefinition;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.configuration.IndexFieldType;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.facet.FacetBucket;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.facet.FacetRequest;
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.options.SearchOptions;
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.Query;
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.QueryType;
@@ -62,13 +65,11 @@ import com.clicktravel.cheddar.infrastructure.persistence.document.search.sort.S
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.sort.SortingOption.Direction;
 import com.clicktravel.cheddar.infrastructure.persistence.exception.PersistenceResourceFailureException;
 import com.clicktravel.common.random.Randoms;
-import com.clicktravel.infrastructure.persistence.aws.cloudsearch.client.DocumentUpdate;
-import com.clicktravel.infrastructure.persistence.aws.cloudsearch.client.DocumentUpdate.Type;
-import com.clicktravel.infrastructure.persistence.aws.cloudsearch.client.Field;
-import com.clicktravel.infrastructure.persistence.aws.cloudsearch.client.JsonDocumentUpdateMarshaller;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @RunWith(PowerMockRunner.class)
-@PrepareForTest({ AmazonCloudSearchDomainClientBuilder.class, JsonDocumentUpdateMarshaller.class })
+@PrepareForTest({ AmazonCloudSearchDomainClientBuilder.class })
 @SuppressWarnings({ "unchecked", "rawtypes" })
 public class CloudSearchEngineTest {
 
@@ -134,7 +135,6 @@ public class CloudSearchEngineTest {
         final DocumentConfigurationHolder documentConfigurationHolder = new DocumentConfigurationHolder(schemaName,
                 documentConfigurations);
         final AmazonCloudSearch mockAmazonCloudSearch = mock(AmazonCloudSearch.class);
-        final byte[] jsonBytes = randomString().getBytes(Charset.forName("UTF-8"));
         final String domainName = schemaName + "-" + namespace;
         final DescribeDomainsRequest describeDomainsRequest = new DescribeDomainsRequest()
                 .withDomainNames(Arrays.asList(domainName));
@@ -142,14 +142,15 @@ public class CloudSearchEngineTest {
         final DescribeDomainsResult describeDomainsResult = getDescribeDomainsResult(domainName,
                 documentServiceEndpoint, randomString());
         final AmazonCloudSearchDomain mockDocumentServiceClient = mock(AmazonCloudSearchDomain.class);
-        mockStatic(JsonDocumentUpdateMarshaller.class);
-        when(JsonDocumentUpdateMarshaller.marshall(anyCollection())).thenReturn(new String(jsonBytes));
         doReturn(StubDocument.class).when(mockStubDocumentConfiguration).documentClass();
         when(mockStubDocumentConfiguration.namespace()).thenReturn(namespace);
         when(mockStubDocumentConfiguration.properties()).thenReturn(properties);
         when(mockAmazonCloudSearch.describeDomains(describeDomainsRequest)).thenReturn(describeDomainsResult);
         mockStatic(AmazonCloudSearchDomainClientBuilder.class);
         when(AmazonCloudSearchDomainClientBuilder.build(documentServiceEndpoint)).thenReturn(mockDocumentServiceClient);
+        when(mockStubDocumentConfiguration.indexDefinitions())
+                .thenReturn(Arrays.asList(new IndexDefinition("stringProperty", IndexFieldType.TEXT)));
+        final List<byte[]> uploadedBatches = recordUploadedBatches(mockDocumentServiceClient);
 
         final CloudSearchEngine cloudSearchEngine = new CloudSearchEngine(documentConfigurationHolder,
                 mockAmazonCloudSearch);
@@ -158,23 +159,13 @@ public class CloudSearchEngineTest {
         cloudSearchEngine.update(document);
 
         // Then
-        final ArgumentCaptor<Collection> documentUpdateCollectionCaptor = ArgumentCaptor.forClass(Collection.class);
-        final ArgumentCaptor<UploadDocumentsRequest> uploadDocumentsRequestCaptor = ArgumentCaptor
-                .forClass(UploadDocumentsRequest.class);
-        verifyStatic(JsonDocumentUpdateMarshaller.class);
-        JsonDocumentUpdateMarshaller.marshall(documentUpdateCollectionCaptor.capture());
-        verify(mockDocumentServiceClient).uploadDocuments(uploadDocumentsRequestCaptor.capture());
-        final DocumentUpdate documentUpdate = (DocumentUpdate) documentUpdateCollectionCaptor.getValue().iterator()
-                .next();
-        assertEquals(document.getId(), documentUpdate.getId());
-        assertEquals(Type.ADD, documentUpdate.getType());
-        for (final Field field : documentUpdate.getFields()) {
-            if (field.getName().equals("stringProperty")) {
-                assertEquals(document.getStringProperty(), field.getValue());
-            }
-        }
-        final UploadDocumentsRequest uploadDocumentsRequest = uploadDocumentsRequestCaptor.getValue();
-        assertInputStreamEquals(jsonBytes, uploadDocumentsRequest.getDocuments());
+        assertEquals(1, uploadedBatches.size());
+        final List<JsonNode> documentUpdates = documentUpdates(uploadedBatches);
+        assertEquals(1, documentUpdates.size());
+        assertEquals(document.getId(), documentUpdates.get(0).get("id").asText());
+        assertEquals("add", documentUpdates.get(0).get("type").asText());
+        assertEquals(document.getStringProperty(),
+                documentUpdates.get(0).get("fields").get("stringproperty").asText());
     }
 
     @Test
@@ -191,7 +182,6 @@ public class CloudSearchEngineTest {
         final DocumentConfigurationHolder documentConfigurationHolder = new DocumentConfigurationHolder(schemaName,
                 documentConfigurations);
         final AmazonCloudSearch mockAmazonCloudSearch = mock(AmazonCloudSearch.class);
-        final byte[] jsonBytes = randomString().getBytes(Charset.forName("UTF-8"));
         final String domainName = schemaName + "-" + namespace;
         final DescribeDomainsRequest describeDomainsRequest = new DescribeDomainsRequest()
                 .withDomainNames(Arrays.asList(domainName));
@@ -199,8 +189,6 @@ public class CloudSearchEngineTest {
         final DescribeDomainsResult describeDomainsResult = getDescribeDomainsResult(domainName,
                 documentServiceEndpoint, randomString());
         final AmazonCloudSearchDomain mockDocumentServiceClient = mock(AmazonCloudSearchDomain.class);
-        mockStatic(JsonDocumentUpdateMarshaller.class);
-        when(JsonDocumentUpdateMarshaller.marshall(anyCollection())).thenReturn(new String(jsonBytes));
         doReturn(StubDocument.class).when(mockStubDocumentConfiguration).documentClass();
         when(mockStubDocumentConfiguration.namespace()).thenReturn(namespace);
         when(mockStubDocumentConfiguration.properties()).thenReturn(properties);
@@ -212,6 +200,10 @@ public class CloudSearchEngineTest {
         document.setStringProperty(whitespaceCharset.charAt(Randoms.randomInt(whitespaceCharset.length()))
                 + propertyValue + Randoms.randomInt(whitespaceCharset.length()));
 
+        when(mockStubDocumentConfiguration.indexDefinitions())
+                .thenReturn(Arrays.asList(new IndexDefinition("stringProperty", IndexFieldType.TEXT)));
+        final List<byte[]> uploadedBatches = recordUploadedBatches(mockDocumentServiceClient);
+
         final CloudSearchEngine cloudSearchEngine = new CloudSearchEngine(documentConfigurationHolder,
                 mockAmazonCloudSearch);
 
@@ -219,23 +211,12 @@ public class CloudSearchEngineTest {
         cloudSearchEngine.update(document);
 
         // Then
-        final ArgumentCaptor<Collection> documentUpdateCollectionCaptor = ArgumentCaptor.forClass(Collection.class);
-        final ArgumentCaptor<UploadDocumentsRequest> uploadDocumentsRequestCaptor = ArgumentCaptor
-                .forClass(UploadDocumentsRequest.class);
-        verifyStatic(JsonDocumentUpdateMarshaller.class);
-        JsonDocumentUpdateMarshaller.marshall(documentUpdateCollectionCaptor.capture());
-        verify(mockDocumentServiceClient).uploadDocuments(uploadDocumentsRequestCaptor.capture());
-        final DocumentUpdate documentUpdate = (DocumentUpdate) documentUpdateCollectionCaptor.getValue().iterator()
-                .next();
-        assertEquals(document.getId(), documentUpdate.getId());
-        assertEquals(Type.ADD, documentUpdate.getType());
-        for (final Field field : documentUpdate.getFields()) {
-            if (field.getName().equals("stringProperty")) {
-                assertEquals(propertyValue, field.getValue());
-            }
-        }
-        final UploadDocumentsRequest uploadDocumentsRequest = uploadDocumentsRequestCaptor.getValue();
-        assertInputStreamEquals(jsonBytes, uploadDocumentsRequest.getDocuments());
+        final List<JsonNode> documentUpdates = documentUpdates(uploadedBatches);
+        assertEquals(1, documentUpdates.size());
+        assertEquals(document.getId(), documentUpdates.get(0).get("id").asText());
+        assertEquals("add", documentUpdates.get(0).get("type").asText());
+        assertEquals(document.getStringProperty(),
+                documentUpdates.get(0).get("fields").get("stringproperty").asText());
     }
 
     @Test
@@ -251,7 +232,6 @@ public class CloudSearchEngineTest {
         final DocumentConfigurationHolder documentConfigurationHolder = new DocumentConfigurationHolder(schemaName,
                 documentConfigurations);
         final AmazonCloudSearch mockAmazonCloudSearch = mock(AmazonCloudSearch.class);
-        final byte[] jsonBytes = randomString().getBytes(Charset.forName("UTF-8"));
         final String domainName = schemaName + "-" + namespace;
         final DescribeDomainsRequest describeDomainsRequest = new DescribeDomainsRequest()
                 .withDomainNames(Arrays.asList(domainName));
@@ -259,8 +239,6 @@ public class CloudSearchEngineTest {
         final DescribeDomainsResult describeDomainsResult = getDescribeDomainsResult(domainName,
                 documentServiceEndpoint, randomString());
         final AmazonCloudSearchDomain mockDocumentServiceClient = mock(AmazonCloudSearchDomain.class);
-        mockStatic(JsonDocumentUpdateMarshaller.class);
-        when(JsonDocumentUpdateMarshaller.marshall(anyCollection())).thenReturn(new String(jsonBytes));
         doReturn(StubDocument.class).when(mockStubDocumentConfiguration).documentClass();
         when(mockStubDocumentConfiguration.namespace()).thenReturn(namespace);
         when(mockStubDocumentConfiguration.properties()).thenReturn(properties);
@@ -268,6 +246,8 @@ public class CloudSearchEngineTest {
         mockStatic(AmazonCloudSearchDomainClientBuilder.class);
         when(AmazonCloudSearchDomainClientBuilder.build(documentServiceEndpoint)).thenReturn(mockDocumentServiceClient);
 
+        final List<byte[]> uploadedBatches = recordUploadedBatches(mockDocumentServiceClient);
+
         final CloudSearchEngine cloudSearchEngine = new CloudSearchEngine(documentConfigurationHolder,
                 mockAmazonCloudSearch);
 
@@ -275,29 +255,13 @@ public class CloudSearchEngineTest {
         cloudSearchEngine.update(documents);
 
         // Then
-        final ArgumentCaptor<Collection> documentUpdateCollectionCaptor = ArgumentCaptor.forClass(Collection.class);
-        final ArgumentCaptor<UploadDocumentsRequest> uploadDocumentsRequestCaptor = ArgumentCaptor
-                .forClass(UploadDocumentsRequest.class);
-        final int numberOfBatches = (numberOfDocumentsToUpdate / 1000) + 1;
-        verifyStatic(JsonDocumentUpdateMarshaller.class, times(numberOfBatches));
-        JsonDocumentUpdateMarshaller.marshall(documentUpdateCollectionCaptor.capture());
-        verify(mockDocumentServiceClient, times(numberOfBatches))
-                .uploadDocuments(uploadDocumentsRequestCaptor.capture());
-
-        for (final Collection<DocumentUpdate> documentUpdates : documentUpdateCollectionCaptor.getAllValues()) {
-            assertTrue(documentUpdates.size() <= 1000);
-            for (final DocumentUpdate documentUpdate : documentUpdates) {
-                assertEquals(Type.ADD, documentUpdate.getType());
-                for (final Field field : documentUpdate.getFields()) {
-                    if (field.getName().equals("stringProperty")) {
-                        assertTrue(documents.stream().anyMatch(d -> d.getStringProperty().equals(field.getValue())));
-                    }
-                }
-            }
-        }
-
-        for (final UploadDocumentsRequest uploadDocumentsRequest : uploadDocumentsRequestCaptor.getAllValues()) {
-            assertInputStreamEquals(jsonBytes, uploadDocumentsRequest.getDocuments());
+        assertEquals(1, uploadedBatches.size());
+        final List<JsonNode> documentUpdates = documentUpdates(uploadedBatches);
+        assertEquals(documents.size(), documentUpdates.size());
+        final Iterator<StubDocument> expectedDocuments = documents.iterator();
+        for (final JsonNode documentUpdate : documentUpdates) {
+            assertEquals(expectedDocuments.next().getId(), documentUpdate.get("id").asText());
+            assertEquals("add", documentUpdate.get("type").asText());
         }
     }
 
@@ -313,7 +277,6 @@ public class CloudSearchEngineTest {
         final DocumentConfigurationHolder documentConfigurationHolder = new DocumentConfigurationHolder(schemaName,
                 documentConfigurations);
         final AmazonCloudSearch mockAmazonCloudSearch = mock(AmazonCloudSearch.class);
-        final byte[] jsonBytes = randomString().getBytes(Charset.forName("UTF-8"));
         final String domainName = schemaName + "-" + namespace;
         final DescribeDomainsRequest describeDomainsRequest = new DescribeDomainsRequest()
                 .withDomainNames(Arrays.asList(domainName));
@@ -321,8 +284,6 @@ public class CloudSearchEngineTest {
         final DescribeDomainsResult describeDomainsResult = getDescribeDomainsResult(domainName,
                 documentServiceEndpoint, randomString());
         final AmazonCloudSearchDomain mockDocumentServiceClient = mock(AmazonCloudSearchDomain.class);
-        mockStatic(JsonDocumentUpdateMarshaller.class);
-        when(JsonDocumentUpdateMarshaller.marshall(anyCollection())).thenReturn(new String(jsonBytes));
         doReturn(StubDocument.class).when(mockStubDocumentConfiguration).documentClass();
         when(mockStubDocumentConfiguration.namespace()).thenReturn(namespace);
         when(mockStubDocumentConfiguration.properties()).thenReturn(properties);
@@ -365,7 +326,6 @@ public class CloudSearchEngineTest {
         final DocumentConfigurationHolder documentConfigurationHolder = new DocumentConfigurationHolder(schemaName,
                 documentConfigurations);
         final AmazonCloudSearch mockAmazonCloudSearch = mock(AmazonCloudSearch.class);
-        final byte[] jsonBytes = randomString().getBytes(Charset.forName("UTF-8"));
         final String domainName = schemaName + "-" + namespace;
         final DescribeDomainsRequest describeDomainsRequest = new DescribeDomainsRequest()
                 .withDomainNames(Arrays.asList(domainName));
@@ -373,8 +333,6 @@ public class CloudSearchEngineTest {
         final DescribeDomainsResult describeDomainsResult = getDescribeDomainsResult(domainName,
                 documentServiceEndpoint, randomString());
         final AmazonCloudSearchDomain mockDocumentServiceClient = mock(AmazonCloudSearchDomain.class);
-        mockStatic(JsonDocumentUpdateMarshaller.class);
-        when(JsonDocumentUpdateMarshaller.marshall(anyCollection())).thenReturn(new String(jsonBytes));
         doReturn(StubDocument.class).when(mockStubDocumentConfiguration).documentClass();
         when(mockStubDocumentConfiguration.namespace()).thenReturn(namespace);
         when(mockStubDocumentConfiguration.properties()).thenReturn(properties);
@@ -382,6 +340,8 @@ public class CloudSearchEngineTest {
         mockStatic(AmazonCloudSearchDomainClientBuilder.class);
         when(AmazonCloudSearchDomainClientBuilder.build(documentServiceEndpoint)).thenReturn(mockDocumentServiceClient);
 
+        final List<byte[]> uploadedBatches = recordUploadedBatches(mockDocumentServiceClient);
+
         final CloudSearchEngine cloudSearchEngine = new CloudSearchEngine(documentConfigurationHolder,
                 mockAmazonCloudSearch);
 
@@ -389,18 +349,12 @@ public class CloudSearchEngineTest {
         cloudSearchEngine.delete(document);
 
         // Then
-        final ArgumentCaptor<Collection> documentUpdateCollectionCaptor = ArgumentCaptor.forClass(Collection.class);
-        final ArgumentCaptor<UploadDocumentsRequest> uploadDocumentsRequestCaptor = ArgumentCaptor
-                .forClass(UploadDocumentsRequest.class);
-        verifyStatic(JsonDocumentUpdateMarshaller.class);
-        JsonDocumentUpdateMarshaller.marshall(documentUpdateCollectionCaptor.capture());
-        verify(mockDocumentServiceClient).uploadDocuments(uploadDocumentsRequestCaptor.capture());
-        final DocumentUpdate documentUpdate = (DocumentUpdate) documentUpdateCollectionCaptor.getValue().iterator()
-                .next();
-        assertEquals(document.getId(), documentUpdate.getId());
-        assertEquals(Type.DELETE, documentUpdate.getType());
-        final UploadDocumentsRequest uploadDocumentsRequest = uploadDocumentsRequestCaptor.getValue();
-        assertInputStreamEquals(jsonBytes, uploadDocumentsRequest.getDocuments());
+        assertEquals(1, uploadedBatches.size());
+        final List<JsonNode> documentUpdates = documentUpdates(uploadedBatches);
+        assertEquals(1, documentUpdates.size());
+        assertEquals(document.getId(), documentUpdates.get(0).get("id").asText());
+        assertEquals("delete", documentUpdates.get(0).get("type").asText());
+        assertNull(documentUpdates.get(0).get("fields"));
     }
 
     @Test
@@ -415,7 +369,6 @@ public class CloudSearchEngineTest {
         final DocumentConfigurationHolder documentConfigurationHolder = new DocumentConfigurationHolder(schemaName,
                 documentConfigurations);
         final AmazonCloudSearch mockAmazonCloudSearch = mock(AmazonCloudSearch.class);
-        final byte[] jsonBytes = randomString().getBytes(Charset.forName("UTF-8"));
         final String domainName = schemaName + "-" + namespace;
         final DescribeDomainsRequest describeDomainsRequest = new DescribeDomainsRequest()
                 .withDomainNames(Arrays.asList(domainName));
@@ -423,8 +376,6 @@ public class CloudSearchEngineTest {
         final DescribeDomainsResult describeDomainsResult = getDescribeDomainsResult(domainName,
                 documentServiceEndpoint, randomString());
         final AmazonCloudSearchDomain mockDocumentServiceClient = mock(AmazonCloudSearchDomain.class);
-        mockStatic(JsonDocumentUpdateMarshaller.class);
-        when(JsonDocumentUpdateMarshaller.marshall(anyCollection())).thenReturn(new String(jsonBytes));
         doReturn(StubDocument.class).when(mockStubDocumentConfiguration).documentClass();
         when(mockStubDocumentConfiguration.namespace()).thenReturn(namespace);
         when(mockStubDocumentConfiguration.properties()).thenReturn(properties);
@@ -459,7 +410,6 @@ public class CloudSearchEngineTest {
         final DocumentConfigurationHolder documentConfigurationHolder = new DocumentConfigurationHolder(schemaName,
                 documentConfigurations);
         final AmazonCloudSearch mockAmazonCloudSearch = mock(AmazonCloudSearch.class);
-        final byte[] jsonBytes = randomString().getBytes(Charset.forName("UTF-8"));
         final String domainName = schemaName + "-" + namespace;
         final DescribeDomainsRequest describeDomainsRequest = new DescribeDomainsRequest()
                 .withDomainNames(Arrays.asList(domainName));
@@ -467,8 +417,6 @@ public class CloudSearchEngineTest {
         final DescribeDomainsResult describeDomainsResult = getDescribeDomainsResult(domainName,
                 documentServiceEndpoint, randomString());
         final AmazonCloudSearchDomain mockDocumentServiceClient = mock(AmazonCloudSearchDomain.class);
-        mockStatic(JsonDocumentUpdateMarshaller.class);
-        when(JsonDocumentUpdateMarshaller.marshall(anyCollection())).thenReturn(new String(jsonBytes));
         doReturn(StubDocument.class).when(mockStubDocumentConfiguration).documentClass();
         when(mockStubDocumentConfiguration.namespace()).thenReturn(namespace);
         when(mockStubDocumentConfiguration.properties()).thenReturn(properties);
@@ -476,6 +424,8 @@ public class CloudSearchEngineTest {
         mockStatic(AmazonCloudSearchDomainClientBuilder.class);
         when(AmazonCloudSearchDomainClientBuilder.build(documentServiceEndpoint)).thenReturn(mockDocumentServiceClient);
 
+        final List<byte[]> uploadedBatches = recordUploadedBatches(mockDocumentServiceClient);
+
         final CloudSearchEngine cloudSearchEngine = new CloudSearchEngine(documentConfigurationHolder,
                 mockAmazonCloudSearch);
 
@@ -483,20 +433,212 @@ public class CloudSearchEngineTest {
         cloudSearchEngine.delete(documents);
 
         // Then
-        final ArgumentCaptor<Collection> documentUpdateCollectionCaptor = ArgumentCaptor.forClass(Collection.class);
-        final ArgumentCaptor<UploadDocumentsRequest> uploadDocumentsRequestCaptor = ArgumentCaptor
-                .forClass(UploadDocumentsRequest.class);
-        verifyStatic(JsonDocumentUpdateMarshaller.class);
-        JsonDocumentUpdateMarshaller.marshall(documentUpdateCollectionCaptor.capture());
-        verify(mockDocumentServiceClient).uploadDocuments(uploadDocumentsRequestCaptor.capture());
-        final Collection<DocumentUpdate> documentUpdates = documentUpdateCollectionCaptor.getValue();
+        assertEquals(1, uploadedBatches.size());
+        final List<JsonNode> documentUpdates = documentUpdates(uploadedBatches);
+        assertEquals(documents.size(), documentUpdates.size());
+        for (final JsonNode documentUpdate : documentUpdates) {
+            assertEquals("delete", documentUpdate.get("type").asText());
+            assertTrue(documents.stream().anyMatch(d -> d.getId().equals(documentUpdate.get("id").asText())));
+        }
+    }
+
+    @Test
+    public void shouldUpdate_withDocumentsInBatchesBoundedBySize() throws Exception {
+        // Given
+        final int maxBatchBytes = 1000;
+        final Collection<StubDocument> documents = randomCollectionOfStubDocuments(Randoms.randomIntInRange(50, 100));
+        final AmazonCloudSearchDomain mockDocumentServiceClient = mock(AmazonCloudSearchDomain.class);
+        final List<byte[]> uploadedBatches = recordUploadedBatches(mockDocumentServiceClient);
+        final CloudSearchEngine cloudSearchEngine = cloudSearchEngine(mockDocumentServiceClient,
+                new CloudSearchUploadConfiguration(maxBatchBytes, 1, 0, 0));
+
+        // When
+        cloudSearchEngine.update(documents);
+
+        // Then
+        assertTrue(uploadedBatches.size() > 1);
+        for (final byte[] batch : uploadedBatches) {
+            assertTrue(batch.length <= maxBatchBytes);
+        }
+        final List<JsonNode> documentUpdates = documentUpdates(uploadedBatches);
         assertEquals(documents.size(), documentUpdates.size());
-        for (final DocumentUpdate documentUpdate : documentUpdates) {
-            assertEquals(Type.DELETE, documentUpdate.getType());
-            assertTrue(documents.stream().anyMatch(d -> d.getId().equals(documentUpdate.getId())));
+        final Iterator<StubDocument> expectedDocuments = documents.iterator();
+        for (final JsonNode documentUpdate : documentUpdates) {
+            final StubDocument expectedDocument = expectedDocuments.next();
+            assertEquals(expectedDocument.getId(), documentUpdate.get("id").asText());
+            assertEquals(expectedDocument.getStringProperty(),
+                    documentUpdate.get("fields").get("stringproperty").asText());
         }
-        final UploadDocumentsRequest uploadDocumentsRequest = uploadDocumentsRequestCaptor.getValue();
-        assertInputStreamEquals(jsonBytes, uploadDocumentsRequest.getDocuments());
+    }
+
+    @Test
+    public void shouldDelete_withDocumentsInBatchesBoundedBySize() throws Exception {
+        // Given
+        final int maxBatchBytes = 500;
+        final Collection<StubDocument> documents = randomCollectionOfStubDocuments(Randoms.randomIntInRange(50, 100));
+        final AmazonCloudSearchDomain mockDocumentServiceClient = mock(AmazonCloudSearchDomain.class);
+        final List<byte[]> uploadedBatches = recordUploadedBatches(mockDocumentServiceClient);
+        final CloudSearchEngine cloudSearchEngine = cloudSearchEngine(mockDocumentServiceClient,
+                new CloudSearchUploadConfiguration(maxBatchBytes, 1, 0, 0));
+
+        // When
+        cloudSearchEngine.delete(documents);
+
+        // Then
+        assertTrue(uploadedBatches.size() > 1);
+        for (final byte[] batch : uploadedBatches) {
+            assertTrue(batch.length <= maxBatchBytes);
+        }
+        final List<JsonNode> documentUpdates = documentUpdates(uploadedBatches);
+        assertEquals(documents.size(), documentUpdates.size());
+        for (final JsonNode documentUpdate : documentUpdates) {
+            assertEquals("delete", documentUpdate.get("type").asText());
+        }
+    }
+
+    @Test
+    public void shouldUpdate_withDocumentsUploadedConcurrently() throws Exception {
+        // Given
+        final Collection<StubDocument> documents = randomCollectionOfStubDocuments(Randoms.randomIntInRange(100, 200));
+        final AmazonCloudSearchDomain mockDocumentServiceClient = mock(AmazonCloudSearchDomain.class);
+        final List<byte[]> uploadedBatches = recordUploadedBatches(mockDocumentServiceClient);
+        final CloudSearchEngine cloudSearchEngine = cloudSearchEngine(mockDocumentServiceClient,
+                new CloudSearchUploadConfiguration(1000, 4, 0, 0));
+
+        // When
+        cloudSearchEngine.update(documents);
+
+        // Then
+        final Set<String> uploadedDocumentIds = new HashSet<>();
+        for (final JsonNode documentUpdate : documentUpdates(uploadedBatches)) {
+            uploadedDocumentIds.add(documentUpdate.get("id").asText());
+        }
+        final Set<String> documentIds = new HashSet<>();
+        for (final StubDocument document : documents) {
+            documentIds.add(document.getId());
+        }
+        assertEquals(documentIds, uploadedDocumentIds);
+    }
+
+    @Test(timeout = 5000)
+    public void shouldNotWaitForOtherUpdate_withSequentialUploads() throws Exception {
+        // Given
+        final AmazonCloudSearchDomain mockDocumentServiceClient = mock(AmazonCloudSearchDomain.class);
+        final CountDownLatch firstUploadStarted = new CountDownLatch(1);
+        final CountDownLatch firstUploadReleased = new CountDownLatch(1);
+        final AtomicInteger uploads = new AtomicInteger();
+        when(mockDocumentServiceClient.uploadDocuments(any(UploadDocumentsRequest.class))).thenAnswer(invocation -> {
+            if (uploads.incrementAndGet() == 1) {
+                firstUploadStarted.countDown();
+                firstUploadReleased.await();
+            }
+            return new UploadDocumentsResult();
+        });
+        final CloudSearchEngine cloudSearchEngine = cloudSearchEngine(mockDocumentServiceClient,
+                new CloudSearchUploadConfiguration(1000, 1, 0, 0));
+        final Thread firstUpdate = new Thread(() -> cloudSearchEngine.update(randomStubDocument()));
+        firstUpdate.start();
+        firstUploadStarted.await();
+
+        // When
+        cloudSearchEngine.update(randomStubDocument());
+
+        // Then
+        assertEquals(2, uploads.get());
+        firstUploadReleased.countDown();
+        firstUpdate.join();
+    }
+
+    @Test
+    public void shouldRetryUpload_onThrottling() throws Exception {
+        // Given
+        final StubDocument document = randomStubDocument();
+        final AmazonCloudSearchDomain mockDocumentServiceClient = mock(AmazonCloudSearchDomain.class);
+        final AmazonServiceException throttlingException = new AmazonServiceException(randomString());
+        throttlingException.setStatusCode(429);
+        final List<byte[]> uploadedBatches = new ArrayList<>();
+        when(mockDocumentServiceClient.uploadDocuments(any(UploadDocumentsRequest.class)))
+                .thenThrow(throttlingException).thenAnswer(invocation -> {
+                    final UploadDocumentsRequest uploadDocumentsRequest = invocation.getArgument(0);
+                    uploadedBatches.add(readBytes(uploadDocumentsRequest.getDocuments()));
+                    return new UploadDocumentsResult();
+                });
+        final CloudSearchEngine cloudSearchEngine = cloudSearchEngine(mockDocumentServiceClient,
+                new CloudSearchUploadConfiguration(1000, 1, 1, 1));
+
+        // When
+        cloudSearchEngine.update(document);
+
+        // Then
+        verify(mockDocumentServiceClient, times(2)).uploadDocuments(any(UploadDocumentsRequest.class));
+        final List<JsonNode> documentUpdates = documentUpdates(uploadedBatches);
+        assertEquals(1, documentUpdates.size());
+        assertEquals(document.getId(), documentUpdates.get(0).get("id").asText());
+    }
+
+    @Test
+    public void shouldRetryUpload_onOverloadedDomain() throws Exception {
+        // Given
+        final AmazonCloudSearchDomain mockDocumentServiceClient = mock(AmazonCloudSearchDomain.class);
+        final AmazonServiceException gatewayTimeoutException = new AmazonServiceException(randomString());
+        gatewayTimeoutException.setStatusCode(504);
+        final AmazonServiceException insufficientStorageException = new AmazonServiceException(randomString());
+        insufficientStorageException.setStatusCode(507);
+        when(mockDocumentServiceClient.uploadDocuments(any(UploadDocumentsRequest.class)))
+                .thenThrow(gatewayTimeoutException).thenThrow(insufficientStorageException)
+                .thenReturn(new UploadDocumentsResult());
+        final CloudSearchEngine cloudSearchEngine = cloudSearchEngine(mockDocumentServiceClient,
+                new CloudSearchUploadConfiguration(1000, 1, 2, 1));
+
+        // When
+        cloudSearchEngine.update(randomStubDocument());
+
+        // Then
+        verify(mockDocumentServiceClient, times(3)).uploadDocuments(any(UploadDocumentsRequest.class));
+    }
+
+    @Test
+    public void shouldThrowException_onUpdateAfterShutdown() throws Exception {
+        // Given
+        final AmazonCloudSearchDomain mockDocumentServiceClient = mock(AmazonCloudSearchDomain.class);
+        final CloudSearchEngine cloudSearchEngine = cloudSearchEngine(mockDocumentServiceClient,
+                new CloudSearchUploadConfiguration(1000, 2, 0, 1));
+        cloudSearchEngine.shutdown();
+
+        // When
+        IllegalStateException thrownException = null;
+        try {
+            cloudSearchEngine.update(randomStubDocument());
+        } catch (final IllegalStateException e) {
+            thrownException = e;
+        }
+
+        // Then
+        assertNotNull(thrownException);
+        verify(mockDocumentServiceClient, never()).uploadDocuments(any(UploadDocumentsRequest.class));
+    }
+
+    @Test
+    public void shouldNotRetryUpload_onOtherServiceException() throws Exception {
+        // Given
+        final AmazonCloudSearchDomain mockDocumentServiceClient = mock(AmazonCloudSearchDomain.class);
+        final AmazonServiceException serviceException = new AmazonServiceException(randomString());
+        serviceException.setStatusCode(400);
+        when(mockDocumentServiceClient.uploadDocuments(any(UploadDocumentsRequest.class))).thenThrow(serviceException);
+        final CloudSearchEngine cloudSearchEngine = cloudSearchEngine(mockDocumentServiceClient,
+                new CloudSearchUploadConfiguration(1000, 2, 3, 1));
+
+        // When
+        AmazonServiceException thrownException = null;
+        try {
+            cloudSearchEngine.update(randomStubDocument());
+        } catch (final AmazonServiceException e) {
+            thrownException = e;
+        }
+
+        // Then
+        assertEquals(serviceException, thrownException);
+        verify(mockDocumentServiceClient).uploadDocuments(any(UploadDocumentsRequest.class));
     }
 
     @Test
@@ -603,6 +745,119 @@ public class CloudSearchEngineTest {
         assertEquals(request.getExpr(), "{\"key\":\"expression\"}");
     }
 
+    @Test
+    public void shouldSearch_withCursor() throws Exception {
+        // Given
+        final StubDocument document = randomStubDocument();
+        final String documentId = document.getId();
+        final DocumentConfigurationHolder documentConfigurationHolder = mock(DocumentConfigurationHolder.class);
+        final String namespace = documentId;
+        final DocumentConfiguration mockStubDocumentConfiguration = mock(DocumentConfiguration.class);
+        final Map<String, PropertyDescriptor> properties = getStubDocumentPropertyDescriptors();
+        final Collection<DocumentConfiguration> documentConfigurations = Arrays.asList(mockStubDocumentConfiguration);
+        final String schemaName = randomString(10);
+        final Query query = mock(Query.class);
+        final QueryType queryType = randomEnum(QueryType.class);
+        final AmazonCloudSearchDomain mockCloudSearchClient = mock(AmazonCloudSearchDomain.class);
+        final Integer start = Randoms.randomInt(100);
+        final Integer size = Randoms.randomInt(100);
+        final String searchServiceEndpoint = randomString();
+        final String domainName = schemaName + "-" + namespace;
+        final DescribeDomainsResult describeDomainsResult = getDescribeDomainsResult(domainName, randomString(),
+                searchServiceEndpoint);
+        final AmazonCloudSearch mockAmazonCloudSearch = mock(AmazonCloudSearch.class);
+        final DescribeDomainsRequest describeDomainsRequest = new DescribeDomainsRequest()
+                .withDomainNames(Arrays.asList(domainName));
+        final SearchResult searchResult = new SearchResult().withHits(getExpectedHits(document));
+        mockStatic(AmazonCloudSearchDomainClientBuilder.class);
+        when(AmazonCloudSearchDomainClientBuilder.build(searchServiceEndpoint)).thenReturn(mockCloudSearchClient);
+        doReturn(StubDocument.class).when(mockStubDocumentConfiguration).documentClass();
+        when(mockStubDocumentConfiguration.properties()).thenReturn(properties);
+        when(mockStubDocumentConfiguration.namespace()).thenReturn(namespace);
+        when(mockAmazonCloudSearch.describeDomains(describeDomainsRequest)).thenReturn(describeDomainsResult);
+        when(documentConfigurationHolder.schemaName()).thenReturn(schemaName);
+        when(documentConfigurationHolder.documentConfigurations()).thenReturn(documentConfigurations);
+        when(query.queryType()).thenReturn(queryType);
+        when(mockCloudSearchClient.search(any(SearchRequest.class))).thenReturn(searchResult);
+
+        final CloudSearchEngine cloudSearchEngine = new CloudSearchEngine(documentConfigurationHolder,
+                mockAmazonCloudSearch);
+
+        final String cursor = randomString();
+        final SearchOptions options = new SearchOptions().withCursor(cursor);
+        // When
+        cloudSearchEngine.search(query, start, size, StubDocument.class, options);
+
+        // Then
+        final ArgumentCaptor<SearchRequest> searchRequestCaptor = ArgumentCaptor.forClass(SearchRequest.class);
+
+        verify(mockCloudSearchClient).search(searchRequestCaptor.capture());
+
+        final SearchRequest request = searchRequestCaptor.getValue();
+        assertEquals(cursor, request.getCursor());
+        assertNull(request.getStart());
+        assertEquals(Long.valueOf(size), request.getSize());
+    }
+
+    @Test
+    public void shouldSearch_withReturnFieldsAndFacets() throws Exception {
+        // Given
+        final StubDocument document = randomStubDocument();
+        final String documentId = document.getId();
+        final DocumentConfigurationHolder documentConfigurationHolder = mock(DocumentConfigurationHolder.class);
+        final String namespace = documentId;
+        final DocumentConfiguration mockStubDocumentConfiguration = mock(DocumentConfiguration.class);
+        final Map<String, PropertyDescriptor> properties = getStubDocumentPropertyDescriptors();
+        final Collection<DocumentConfiguration> documentConfigurations = Arrays.asList(mockStubDocumentConfiguration);
+        final String schemaName = randomString(10);
+        final Query query = mock(Query.class);
+        final QueryType queryType = randomEnum(QueryType.class);
+        final AmazonCloudSearchDomain mockCloudSearchClient = mock(AmazonCloudSearchDomain.class);
+        final Integer start = Randoms.randomInt(100);
+        final Integer size = Randoms.randomInt(100);
+        final String searchServiceEndpoint = randomString();
+        final String domainName = schemaName + "-" + namespace;
+        final DescribeDomainsResult describeDomainsResult = getDescribeDomainsResult(domainName, randomString(),
+                searchServiceEndpoint);
+        final AmazonCloudSearch mockAmazonCloudSearch = mock(AmazonCloudSearch.class);
+        final DescribeDomainsRequest describeDomainsRequest = new DescribeDomainsRequest()
+                .withDomainNames(Arrays.asList(domainName));
+        final Map<String, BucketInfo> facets = new HashMap<>();
+        facets.put("myenum", new BucketInfo().withBuckets(new Bucket().withValue("ONE").withCount(7L)));
+        final SearchResult searchResult = new SearchResult().withHits(getExpectedHits(document)).withFacets(facets);
+        mockStatic(AmazonCloudSearchDomainClientBuilder.class);
+        when(AmazonCloudSearchDomainClientBuilder.build(searchServiceEndpoint)).thenReturn(mockCloudSearchClient);
+        doReturn(StubDocument.class).when(mockStubDocumentConfiguration).documentClass();
+        when(mockStubDocumentConfiguration.properties()).thenReturn(properties);
+        when(mockStubDocumentConfiguration.namespace()).thenReturn(namespace);
+        when(mockAmazonCloudSearch.describeDomains(describeDomainsRequest)).thenReturn(describeDomainsResult);
+        when(documentConfigurationHolder.schemaName()).thenReturn(schemaName);
+        when(documentConfigurationHolder.documentConfigurations()).thenReturn(documentConfigurations);
+        when(query.queryType()).thenReturn(queryType);
+        when(mockCloudSearchClient.search(any(SearchRequest.class))).thenReturn(searchResult);
+
+        final CloudSearchEngine cloudSearchEngine = new CloudSearchEngine(documentConfigurationHolder,
+                mockAmazonCloudSearch);
+
+        final SearchOptions options = new SearchOptions().withReturnFields("stringproperty", "myenum")
+                .withFacetRequest(new FacetRequest("myenum").withSort(FacetRequest.Sort.COUNT).withSize(5))
+                .withFacetRequest(new FacetRequest("stringproperty").withBuckets("a", "b"));
+        // When
+        final DocumentSearchResponse<StubDocument> response = cloudSearchEngine.search(query, start, size,
+                StubDocument.class, options);
+
+        // Then
+        final ArgumentCaptor<SearchRequest> searchRequestCaptor = ArgumentCaptor.forClass(SearchRequest.class);
+
+        verify(mockCloudSearchClient).search(searchRequestCaptor.capture());
+
+        final SearchRequest request = searchRequestCaptor.getValue();
+        assertEquals("stringproperty,myenum", request.getReturn());
+        assertEquals("{\"myenum\":{\"sort\":\"count\",\"size\":5},\"stringproperty\":{\"buckets\":[\"a\",\"b\"]}}",
+                request.getFacet());
+        assertEquals(Arrays.asList(new FacetBucket("ONE", 7)), response.getFacets().get("myenum"));
+    }
+
     @Test
     public void shouldSearch_withSortInQuery() throws Exception {
         // Given
@@ -879,15 +1134,60 @@ public class CloudSearchEngineTest {
         return propertyDescriptors;
     }
 
-    private void assertInputStreamEquals(final byte[] bytes, final InputStream actual) throws Exception {
-        final String expectedString = new String(bytes);
+    private CloudSearchEngine cloudSearchEngine(final AmazonCloudSearchDomain mockDocumentServiceClient,
+            final CloudSearchUploadConfiguration uploadConfiguration) throws Exception {
+        final String namespace = randomString(10);
+        final DocumentConfiguration mockStubDocumentConfiguration = mock(DocumentConfiguration.class);
+        final String schemaName = randomString(10);
+        final DocumentConfigurationHolder documentConfigurationHolder = new DocumentConfigurationHolder(schemaName,
+                Arrays.asList(mockStubDocumentConfiguration));
+        final AmazonCloudSearch mockAmazonCloudSearch = mock(AmazonCloudSearch.class);
+        final String domainName = schemaName + "-" + namespace;
+        final String documentServiceEndpoint = randomString();
+        doReturn(StubDocument.class).when(mockStubDocumentConfiguration).documentClass();
+        when(mockStubDocumentConfiguration.namespace()).thenReturn(namespace);
+        when(mockStubDocumentConfiguration.properties()).thenReturn(getStubDocumentPropertyDescriptors());
+        when(mockStubDocumentConfiguration.indexDefinitions())
+                .thenReturn(Arrays.asList(new IndexDefinition("stringProperty", IndexFieldType.TEXT)));
+        when(mockAmazonCloudSearch.describeDomains(any(DescribeDomainsRequest.class)))
+                .thenReturn(getDescribeDomainsResult(domainName, documentServiceEndpoint, randomString()));
+        mockStatic(AmazonCloudSearchDomainClientBuilder.class);
+        when(AmazonCloudSearchDomainClientBuilder.build(documentServiceEndpoint)).thenReturn(mockDocumentServiceClient);
+        return new CloudSearchEngine(documentConfigurationHolder, mockAmazonCloudSearch, uploadConfiguration);
+    }
+
+    /**
+     * Batch buffers are reused once uploaded, so the content of each batch is read as it is uploaded
+     */
+    private List<byte[]> recordUploadedBatches(final AmazonCloudSearchDomain mockDocumentServiceClient) {
+        final List<byte[]> uploadedBatches = Collections.synchronizedList(new ArrayList<>());
+        when(mockDocumentServiceClient.uploadDocuments(any(UploadDocumentsRequest.class))).thenAnswer(invocation -> {
+            final UploadDocumentsRequest uploadDocumentsRequest = invocation.getArgument(0);
+            final byte[] batch = readBytes(uploadDocumentsRequest.getDocuments());
+            assertEquals(Long.valueOf(batch.length), uploadDocumentsRequest.getContentLength());
+            assertEquals("application/json", uploadDocumentsRequest.getContentType());
+            uploadedBatches.add(batch);
+            return new UploadDocumentsResult();
+        });
+        return uploadedBatches;
+    }
+
+    private List<JsonNode> documentUpdates(final List<byte[]> uploadedBatches) throws Exception {
+        final List<JsonNode> documentUpdates = new ArrayList<>();
+        for (final byte[] batch : uploadedBatches) {
+            new ObjectMapper().readTree(batch).forEach(documentUpdates::add);
+        }
+        return documentUpdates;
+    }
+
+    private byte[] readBytes(final InputStream actual) throws Exception {
         final ByteArrayOutputStream baos = new ByteArrayOutputStream();
         final byte[] buffer = new byte[1024];
         int length = 0;
         while ((length = actual.read(buffer)) != -1) {
             baos.write(buffer, 0, length);
         }
-        assertEquals(expectedString, new String(baos.toByteArray()));
+        return baos.toByteArray();
     }
 
 }
@@ -21,9 +21,17 @@ import static com.clicktravel.common.random.Randoms.randomDouble;
 import static com.clicktravel.common.random.Randoms.randomInt;
 import static com.clicktravel.common.random.Randoms.randomString;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormatter;
@@ -220,4 +228,113 @@ public class StructuredQueryBuilderTest {
         assertTrue(result.contains("(term field=" + field2Name + " '" + value2 + "')"));
         assertTrue(result.endsWith(")"));
     }
+
+    @Test
+    public void shouldBuildCanonicalQuery_withNestedBooleanQueries() {
+        // Given
+        final List<String> termQueryStrings = new ArrayList<>();
+        final List<StructuredQuery> termQueries = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            final String fieldName = randomString();
+            final String value = randomString();
+            termQueries.add(new TermQuery(fieldName, value));
+            termQueryStrings.add("(term field=" + fieldName + " '" + value + "')");
+        }
+        final RangeQuery rangeQuery = new RangeQuery("rating", 1, 5, true, false);
+        final OrQuery orQuery = new OrQuery(Arrays.asList(termQueries.get(3), termQueries.get(4)));
+        final List<StructuredQuery> andSubqueries = new ArrayList<>(termQueries.subList(0, 3));
+        andSubqueries.add(orQuery);
+        andSubqueries.add(rangeQuery);
+        final List<StructuredQuery> reversedAndSubqueries = new ArrayList<>(andSubqueries);
+        Collections.reverse(reversedAndSubqueries);
+        final QueryBuilder builder = new QueryBuilder();
+
+        // When
+        final String result = builder.buildQuery(new AndQuery(andSubqueries));
+        final String reversedResult = builder.buildQuery(new AndQuery(reversedAndSubqueries));
+
+        // Then
+        final List<String> orSubqueryStrings = new ArrayList<>(termQueryStrings.subList(3, 5));
+        Collections.sort(orSubqueryStrings);
+        final List<String> andSubqueryStrings = new ArrayList<>(termQueryStrings.subList(0, 3));
+        andSubqueryStrings.add("(or " + String.join(" ", orSubqueryStrings) + ")");
+        andSubqueryStrings.add("(range field=rating [1,5})");
+        Collections.sort(andSubqueryStrings);
+        assertEquals("(and " + String.join(" ", andSubqueryStrings) + ")", result);
+        assertEquals(result, reversedResult);
+    }
+
+    @Test
+    public void shouldReturnCachedQueryString_withEqualImmutableQuery() {
+        // Given
+        final String fieldName = randomString();
+        final String value = randomString();
+        final QueryBuilder builder = new QueryBuilder();
+        final String firstResult = builder.buildQuery(new TermQuery(fieldName, value));
+
+        // When
+        final String result = builder.buildQuery(new TermQuery(fieldName, value));
+
+        // Then
+        assertSame(firstResult, result);
+    }
+
+    @Test
+    public void shouldBuildChangedQuery_withAndQueryChangedAfterBuilding() {
+        // Given
+        final AndQuery andQuery = new AndQuery(Arrays.asList(new TermQuery(randomString(), randomString())));
+        final QueryBuilder builder = new QueryBuilder();
+        final String firstResult = builder.buildQuery(andQuery);
+        final TermQuery addedQuery = new TermQuery(randomString(), randomString());
+        andQuery.addQuery(addedQuery);
+
+        // When
+        final String result = builder.buildQuery(andQuery);
+
+        // Then
+        assertNotEquals(firstResult, result);
+        assertTrue(result.contains(builder.buildQuery(addedQuery)));
+    }
+
+    @Test
+    public void shouldBuildQueries_withSharedBuilderOnConcurrentThreads() throws Exception {
+        // Given
+        final QueryBuilder builder = new QueryBuilder(10);
+        final List<StructuredQuery> queries = new ArrayList<>();
+        final List<String> expectedResults = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            final TermQuery termQuery = new TermQuery(randomString(), randomString());
+            final RangeQuery rangeQuery = new RangeQuery(randomString(), i, null, true, false);
+            final AndQuery andQuery = new AndQuery(Arrays.asList(termQuery, rangeQuery));
+            queries.add(andQuery);
+            expectedResults.add(new QueryBuilder(0).buildQuery(andQuery));
+        }
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+        // When
+        final List<Future<Boolean>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            futures.add(executorService.submit(() -> {
+                for (int repeat = 0; repeat < 100; repeat++) {
+                    for (int i = 0; i < queries.size(); i++) {
+                        if (!expectedResults.get(i).equals(builder.buildQuery(queries.get(i)))) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            }));
+        }
+
+        // Then
+        for (final Future<Boolean> future : futures) {
+            assertTrue(future.get());
+        }
+        executorService.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotCreateQueryBuilder_withNegativeMaxCachedQueries() {
+        new QueryBuilder(-1);
+    }
 }
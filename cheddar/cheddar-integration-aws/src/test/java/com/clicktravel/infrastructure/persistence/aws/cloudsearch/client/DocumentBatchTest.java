@@ -0,0 +1,119 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.infrastructure.persistence.aws.cloudsearch.client;
+
+import static com.clicktravel.common.random.Randoms.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.clicktravel.infrastructure.persistence.aws.cloudsearch.client.DocumentUpdate.Type;
+
+public class DocumentBatchTest {
+
+    @Test
+    public void shouldHoldJsonArray_withDocumentUpdates() throws Exception {
+        // Given
+        final DocumentUpdate documentUpdate1 = new DocumentUpdate(Type.ADD, randomString(10))
+                .withFields(Arrays.asList(new Field(randomString(10), randomString())));
+        final DocumentUpdate documentUpdate2 = new DocumentUpdate(Type.DELETE, randomString(10));
+        final DocumentBatch documentBatch = new DocumentBatch(1000);
+
+        // When
+        final boolean added1 = documentBatch.add(documentUpdate1);
+        final boolean added2 = documentBatch.add(documentUpdate2);
+
+        // Then
+        assertTrue(added1);
+        assertTrue(added2);
+        assertEquals(2, documentBatch.documentCount());
+        final String expectedJson = JsonDocumentUpdateMarshaller
+                .marshall(Arrays.asList(documentUpdate1, documentUpdate2));
+        assertEquals(expectedJson, read(documentBatch.content()));
+        assertEquals(expectedJson.length(), documentBatch.contentLength());
+    }
+
+    @Test
+    public void shouldNotAddDocumentUpdate_whenBatchWouldExceedMaxBytes() throws Exception {
+        // Given
+        final DocumentUpdate documentUpdate1 = new DocumentUpdate(Type.DELETE, randomString(10));
+        final DocumentUpdate documentUpdate2 = new DocumentUpdate(Type.DELETE, randomString(10));
+        final int maxBytes = JsonDocumentUpdateMarshaller.marshall(Arrays.asList(documentUpdate1)).length() + 10;
+        final DocumentBatch documentBatch = new DocumentBatch(maxBytes);
+        documentBatch.add(documentUpdate1);
+
+        // When
+        final boolean added = documentBatch.add(documentUpdate2);
+
+        // Then
+        assertFalse(added);
+        assertEquals(1, documentBatch.documentCount());
+        assertEquals(JsonDocumentUpdateMarshaller.marshall(Arrays.asList(documentUpdate1)),
+                read(documentBatch.content()));
+    }
+
+    @Test
+    public void shouldAddDocumentUpdate_withEmptyBatchAndDocumentUpdateLargerThanMaxBytes() throws Exception {
+        // Given
+        final DocumentUpdate documentUpdate = new DocumentUpdate(Type.DELETE, randomString(100));
+        final DocumentBatch documentBatch = new DocumentBatch(10);
+
+        // When
+        final boolean added = documentBatch.add(documentUpdate);
+
+        // Then
+        assertTrue(added);
+        assertEquals(1, documentBatch.documentCount());
+    }
+
+    @Test
+    public void shouldBeEmpty_onReset() throws Exception {
+        // Given
+        final DocumentUpdate documentUpdate1 = new DocumentUpdate(Type.DELETE, randomString(10));
+        final DocumentUpdate documentUpdate2 = new DocumentUpdate(Type.DELETE, randomString(10));
+        final DocumentBatch documentBatch = new DocumentBatch(1000);
+        documentBatch.add(documentUpdate1);
+        documentBatch.content();
+
+        // When
+        documentBatch.reset();
+
+        // Then
+        assertEquals(0, documentBatch.documentCount());
+        documentBatch.add(documentUpdate2);
+        assertEquals(JsonDocumentUpdateMarshaller.marshall(Arrays.asList(documentUpdate2)),
+                read(documentBatch.content()));
+    }
+
+    private String read(final InputStream inputStream) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int length;
+        while ((length = inputStream.read(buffer)) != -1) {
+            out.write(buffer, 0, length);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
@@ -21,6 +21,7 @@ import static com.clicktravel.common.random.Randoms.randomEnum;
 import static com.clicktravel.common.random.Randoms.randomString;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 import java.util.Arrays;
 import java.util.HashMap;
@@ -77,4 +78,21 @@ public class JsonDocumentSearchResponseUnmarshallerTest {
         assertEquals(myEnum, document.getMyEnum());
         assertEquals(dateTimeValue.getMillis(), document.getDateTimeValue().getMillis());
     }
+
+    @Test
+    public void shouldOnlySetReturnedProperties_onUnmarshall() {
+        // Given
+        final Map<String, List<String>> fields = new HashMap<>();
+        final String stringProperty = randomString(10);
+        fields.put("stringproperty", Arrays.asList(stringProperty));
+        final JsonDocumentSearchResponseUnmarshaller unmarshaller = new JsonDocumentSearchResponseUnmarshaller();
+
+        // When
+        final StubDocument document = unmarshaller.unmarshall(fields, StubDocument.class);
+
+        // Then
+        assertEquals(stringProperty, document.getStringProperty());
+        assertNull(document.getCollectionProperty());
+        assertNull(document.getMyEnum());
+    }
 }
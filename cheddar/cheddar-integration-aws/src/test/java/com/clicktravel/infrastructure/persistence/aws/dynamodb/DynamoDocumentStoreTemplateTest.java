@@ -22,19 +22,24 @@ import static com.clicktravel.common.random.Randoms.randomString;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.whenNew;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.junit.Before;
@@ -48,10 +53,14 @@ import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.document.*;
 import com.amazonaws.services.dynamodbv2.document.internal.IteratorSupport;
 import com.amazonaws.services.dynamodbv2.document.spec.DeleteItemSpec;
-import com.amazonaws.services.dynamodbv2.document.spec.GetItemSpec;
-import com.amazonaws.services.dynamodbv2.document.spec.PutItemSpec;
 import com.amazonaws.services.dynamodbv2.document.spec.QuerySpec;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
 import com.clicktravel.cheddar.infrastructure.persistence.database.ItemId;
 import com.clicktravel.cheddar.infrastructure.persistence.database.configuration.*;
 import com.clicktravel.cheddar.infrastructure.persistence.database.exception.NonExistentItemException;
@@ -60,6 +69,8 @@ import com.clicktravel.cheddar.infrastructure.persistence.database.query.Attribu
 import com.clicktravel.cheddar.infrastructure.persistence.database.query.CompoundAttributeQuery;
 import com.clicktravel.cheddar.infrastructure.persistence.database.query.Condition;
 import com.clicktravel.cheddar.infrastructure.persistence.database.query.Operators;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.reindex.ItemScanner;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.reindex.ScanPage;
 import com.clicktravel.common.random.Randoms;
 
 @SuppressWarnings({ "deprecation", "unchecked" })
@@ -95,25 +106,22 @@ public class DynamoDocumentStoreTemplateTest {
         final Collection<ItemConfiguration> itemConfigurations = Arrays.asList(itemConfiguration);
         when(mockDatabaseSchemaHolder.itemConfigurations()).thenReturn(itemConfigurations);
 
-        final Table mockTable = mock(Table.class);
-        when(mockDynamoDBClient.getTable(any(String.class))).thenReturn(mockTable);
-
         final DynamoDocumentStoreTemplate dynamoDocumentStoreTemplate = new DynamoDocumentStoreTemplate(
                 mockDatabaseSchemaHolder);
         dynamoDocumentStoreTemplate.initialize(mockAmazonDynamoDbClient);
 
-        final Item mockTableItem = mock(Item.class);
-        when(mockTableItem.toJSON()).thenReturn(dynamoDocumentStoreTemplate.itemToString(stubItem));
-
         // When
         final StubItem returnedItem = dynamoDocumentStoreTemplate.create(stubItem);
 
         // Then
-        final ArgumentCaptor<PutItemSpec> getItemRequestCaptor = ArgumentCaptor.forClass(PutItemSpec.class);
-        verify(mockTable).putItem(getItemRequestCaptor.capture());
+        final ArgumentCaptor<PutItemRequest> putItemRequestCaptor = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(mockAmazonDynamoDbClient).putItem(putItemRequestCaptor.capture());
 
-        final PutItemSpec spec = getItemRequestCaptor.getValue();
-        assertEquals(itemId.value(), spec.getItem().get("id"));
+        final PutItemRequest putItemRequest = putItemRequestCaptor.getValue();
+        assertEquals(schemaName + "." + tableName, putItemRequest.getTableName());
+        assertEquals(itemId.value(), putItemRequest.getItem().get("id").getS());
+        assertEquals(stubItem.getStringSetProperty().size(),
+                putItemRequest.getItem().get("stringSetProperty").getL().size());
 
         assertEquals(itemId.value(), returnedItem.getId());
         assertEquals(stubItem.getStringProperty(), returnedItem.getStringProperty());
@@ -132,25 +140,19 @@ public class DynamoDocumentStoreTemplateTest {
         final Collection<ItemConfiguration> itemConfigurations = Arrays.asList(itemConfiguration);
         when(mockDatabaseSchemaHolder.itemConfigurations()).thenReturn(itemConfigurations);
 
-        final Table mockTable = mock(Table.class);
-        when(mockDynamoDBClient.getTable(any(String.class))).thenReturn(mockTable);
-
         final DynamoDocumentStoreTemplate dynamoDocumentStoreTemplate = new DynamoDocumentStoreTemplate(
                 mockDatabaseSchemaHolder);
         dynamoDocumentStoreTemplate.initialize(mockAmazonDynamoDbClient);
 
-        final Item mockTableItem = mock(Item.class);
-        when(mockTableItem.toJSON()).thenReturn(dynamoDocumentStoreTemplate.itemToString(stubItem));
-
         // When
         dynamoDocumentStoreTemplate.create(stubItem);
 
         // Then
-        final ArgumentCaptor<PutItemSpec> getItemRequestCaptor = ArgumentCaptor.forClass(PutItemSpec.class);
-        verify(mockTable).putItem(getItemRequestCaptor.capture());
+        final ArgumentCaptor<PutItemRequest> putItemRequestCaptor = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(mockAmazonDynamoDbClient).putItem(putItemRequestCaptor.capture());
 
-        final PutItemSpec spec = getItemRequestCaptor.getValue();
-        assertFalse(spec.getItem().hasAttribute("stringProperty2"));
+        final PutItemRequest putItemRequest = putItemRequestCaptor.getValue();
+        assertFalse(putItemRequest.getItem().containsKey("stringProperty2"));
     }
 
     @Test
@@ -352,17 +354,11 @@ public class DynamoDocumentStoreTemplateTest {
         final Collection<ItemConfiguration> itemConfigurations = Arrays.asList(itemConfiguration);
         when(mockDatabaseSchemaHolder.itemConfigurations()).thenReturn(itemConfigurations);
 
-        final Table mockTable = mock(Table.class);
-        when(mockDynamoDBClient.getTable(any(String.class))).thenReturn(mockTable);
-
         final DynamoDocumentStoreTemplate dynamoDocumentStoreTemplate = new DynamoDocumentStoreTemplate(
                 mockDatabaseSchemaHolder);
         dynamoDocumentStoreTemplate.initialize(mockAmazonDynamoDbClient);
 
-        final Item mockTableItem = mock(Item.class);
-        when(mockTableItem.toJSON()).thenReturn(dynamoDocumentStoreTemplate.itemToString(stubItem));
-
-        doThrow(RuntimeException.class).when(mockTable).putItem(any(PutItemSpec.class));
+        doThrow(RuntimeException.class).when(mockAmazonDynamoDbClient).putItem(any(PutItemRequest.class));
         RuntimeException thrownException = null;
 
         // When
@@ -389,25 +385,20 @@ public class DynamoDocumentStoreTemplateTest {
                 mockDatabaseSchemaHolder);
         dynamoDocumentStoreTemplate.initialize(mockAmazonDynamoDbClient);
 
-        final Table mockTable = mock(Table.class);
-        when(mockDynamoDBClient.getTable(any(String.class))).thenReturn(mockTable);
-
-        final Item mockTableItem = mock(Item.class);
-        when(mockTable.getItem(any(GetItemSpec.class))).thenReturn(mockTableItem);
-
         final StubItem stubItem = generateRandomStubItem(itemId);
-        when(mockTableItem.toJSON()).thenReturn(dynamoDocumentStoreTemplate.itemToString(stubItem));
+        when(mockAmazonDynamoDbClient.getItem(any(GetItemRequest.class)))
+                .thenReturn(new GetItemResult().withItem(dynamoDocumentStoreTemplate.itemToAttributeValues(stubItem)));
 
         // When
         final StubItem returnedItem = dynamoDocumentStoreTemplate.read(itemId, StubItem.class);
 
         // Then
-        final ArgumentCaptor<GetItemSpec> getItemRequestCaptor = ArgumentCaptor.forClass(GetItemSpec.class);
-        verify(mockTable).getItem(getItemRequestCaptor.capture());
+        final ArgumentCaptor<GetItemRequest> getItemRequestCaptor = ArgumentCaptor.forClass(GetItemRequest.class);
+        verify(mockAmazonDynamoDbClient).getItem(getItemRequestCaptor.capture());
 
-        final GetItemSpec spec = getItemRequestCaptor.getValue();
-        assertEquals(1, spec.getKeyComponents().size());
-        assertEquals(itemId.value(), spec.getKeyComponents().iterator().next().getValue());
+        final GetItemRequest getItemRequest = getItemRequestCaptor.getValue();
+        assertEquals(1, getItemRequest.getKey().size());
+        assertEquals(itemId.value(), getItemRequest.getKey().get("id").getS());
 
         assertEquals(itemId.value(), returnedItem.getId());
         assertEquals(stubItem.getStringProperty(), returnedItem.getStringProperty());
@@ -428,10 +419,7 @@ public class DynamoDocumentStoreTemplateTest {
                 mockDatabaseSchemaHolder);
         dynamoDocumentStoreTemplate.initialize(mockAmazonDynamoDbClient);
 
-        final Table mockTable = mock(Table.class);
-        when(mockDynamoDBClient.getTable(any(String.class))).thenReturn(mockTable);
-
-        when(mockTable.getItem(any(GetItemSpec.class))).thenReturn(null);
+        when(mockAmazonDynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(new GetItemResult());
 
         NonExistentItemException thrownException = null;
         // When
@@ -458,13 +446,8 @@ public class DynamoDocumentStoreTemplateTest {
                 mockDatabaseSchemaHolder);
         dynamoDocumentStoreTemplate.initialize(mockAmazonDynamoDbClient);
 
-        final Table mockTable = mock(Table.class);
-        when(mockDynamoDBClient.getTable(any(String.class))).thenReturn(mockTable);
-
-        final Item mockTableItem = mock(Item.class);
-        when(mockTable.getItem(any(GetItemSpec.class))).thenReturn(mockTableItem);
-
-        when(mockTableItem.toJSON()).thenReturn("");
+        when(mockAmazonDynamoDbClient.getItem(any(GetItemRequest.class)))
+                .thenReturn(new GetItemResult().withItem(Collections.emptyMap()));
 
         NonExistentItemException thrownException = null;
         // When
@@ -486,20 +469,14 @@ public class DynamoDocumentStoreTemplateTest {
         final StubItem previousStubItem = generateRandomStubItem(itemId);
         final ItemConfiguration itemConfiguration = new ItemConfiguration(StubItem.class, tableName);
         final Collection<ItemConfiguration> itemConfigurations = Arrays.asList(itemConfiguration);
-        final Table mockTable = mock(Table.class);
-        final Item mockTableItem = mock(Item.class);
-        final PrimaryKey primaryKey = new PrimaryKey();
-        primaryKey.addComponent("id", itemId.value());
-        final Item previousItem = mock(Item.class);
-
         when(mockDatabaseSchemaHolder.itemConfigurations()).thenReturn(itemConfigurations);
-        when(mockDynamoDBClient.getTable(schemaName + "." + tableName)).thenReturn(mockTable);
-        when(mockTable.getItem(any(PrimaryKey.class))).thenReturn(previousItem);
 
         final DynamoDocumentStoreTemplate dynamoDocumentStoreTemplate = new DynamoDocumentStoreTemplate(
                 mockDatabaseSchemaHolder);
-        when(previousItem.toJSON()).thenReturn(dynamoDocumentStoreTemplate.itemToString(previousStubItem));
-        when(mockTableItem.toJSON()).thenReturn(dynamoDocumentStoreTemplate.itemToString(stubItem));
+        final Map<String, AttributeValue> previousItemAttributeValues = dynamoDocumentStoreTemplate
+                .itemToAttributeValues(previousStubItem);
+        when(mockAmazonDynamoDbClient.getItem(any(GetItemRequest.class)))
+                .thenReturn(new GetItemResult().withItem(previousItemAttributeValues));
 
         dynamoDocumentStoreTemplate.initialize(mockAmazonDynamoDbClient);
 
@@ -507,10 +484,14 @@ public class DynamoDocumentStoreTemplateTest {
         final StubItem returnedItem = dynamoDocumentStoreTemplate.update(stubItem);
 
         // Then
-        final ArgumentCaptor<PutItemSpec> putItemRequestCaptor = ArgumentCaptor.forClass(PutItemSpec.class);
-        verify(mockTable).putItem(putItemRequestCaptor.capture());
-        final PutItemSpec spec = putItemRequestCaptor.getValue();
-        assertEquals(itemId.value(), spec.getItem().get("id"));
+        final ArgumentCaptor<PutItemRequest> putItemRequestCaptor = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(mockAmazonDynamoDbClient).putItem(putItemRequestCaptor.capture());
+        final PutItemRequest putItemRequest = putItemRequestCaptor.getValue();
+        assertEquals(itemId.value(), putItemRequest.getItem().get("id").getS());
+        assertEquals(stubItem.getStringProperty(), putItemRequest.getItem().get("stringProperty").getS());
+        assertEquals(String.valueOf(stubItem.getVersion()), putItemRequest.getItem().get("version").getN());
+        assertEquals(String.valueOf(stubItem.getVersion() - 1),
+                putItemRequest.getExpected().get("version").getAttributeValueList().get(0).getN());
         assertEquals(itemId.value(), returnedItem.getId());
         assertEquals(stubItem.getStringProperty(), returnedItem.getStringProperty());
         assertEquals(stubItem.getStringProperty2(), returnedItem.getStringProperty2());
@@ -525,21 +506,16 @@ public class DynamoDocumentStoreTemplateTest {
         final StubItem previousStubItem = generateRandomStubItem(itemId);
         final ItemConfiguration itemConfiguration = new ItemConfiguration(StubItem.class, tableName);
         final Collection<ItemConfiguration> itemConfigurations = Arrays.asList(itemConfiguration);
-        final Table mockTable = mock(Table.class);
-        final Item mockTableItem = mock(Item.class);
-        final PrimaryKey primaryKey = new PrimaryKey();
-        primaryKey.addComponent("id", itemId.value());
-        final Item previousItem = mock(Item.class);
-
         when(mockDatabaseSchemaHolder.itemConfigurations()).thenReturn(itemConfigurations);
-        when(mockDynamoDBClient.getTable(schemaName + "." + tableName)).thenReturn(mockTable);
-        when(mockTable.getItem(any(PrimaryKey.class))).thenReturn(previousItem);
 
         final DynamoDocumentStoreTemplate dynamoDocumentStoreTemplate = new DynamoDocumentStoreTemplate(
                 mockDatabaseSchemaHolder);
-        when(previousItem.toJSON()).thenReturn(dynamoDocumentStoreTemplate.itemToString(previousStubItem));
-        when(mockTableItem.toJSON()).thenReturn(dynamoDocumentStoreTemplate.itemToString(stubItem));
-        when(mockTable.putItem(any(PutItemSpec.class))).thenThrow(ConditionalCheckFailedException.class);
+        final Map<String, AttributeValue> previousItemAttributeValues = dynamoDocumentStoreTemplate
+                .itemToAttributeValues(previousStubItem);
+        when(mockAmazonDynamoDbClient.getItem(any(GetItemRequest.class)))
+                .thenReturn(new GetItemResult().withItem(previousItemAttributeValues));
+        when(mockAmazonDynamoDbClient.putItem(any(PutItemRequest.class)))
+                .thenThrow(ConditionalCheckFailedException.class);
 
         dynamoDocumentStoreTemplate.initialize(mockAmazonDynamoDbClient);
 
@@ -579,6 +555,47 @@ public class DynamoDocumentStoreTemplateTest {
         verify(mockTable).deleteItem(getItemRequestCaptor.capture());
     }
 
+    @Test
+    public void shouldScanSegmentFromPosition_withItemScanner() {
+        // Given
+        final ItemConfiguration itemConfiguration = new ItemConfiguration(StubItem.class, tableName);
+        when(mockDatabaseSchemaHolder.itemConfigurations()).thenReturn(Arrays.asList(itemConfiguration));
+        final String itemId = randomId();
+        final String stringProperty = randomString(10);
+        final Map<String, AttributeValue> attributeValues = new HashMap<>();
+        attributeValues.put("id", new AttributeValue(itemId));
+        attributeValues.put("stringProperty", new AttributeValue(stringProperty));
+        final Map<String, AttributeValue> lastEvaluatedKey = Collections.singletonMap("id", new AttributeValue(itemId));
+        when(mockAmazonDynamoDbClient.scan(any(ScanRequest.class)))
+                .thenReturn(new ScanResult().withItems(attributeValues).withLastEvaluatedKey(lastEvaluatedKey))
+                .thenReturn(new ScanResult().withItems(Collections.emptyList()));
+        final DynamoDocumentStoreTemplate dynamoDocumentStoreTemplate = new DynamoDocumentStoreTemplate(
+                mockDatabaseSchemaHolder);
+        dynamoDocumentStoreTemplate.initialize(mockAmazonDynamoDbClient);
+        final ItemScanner<StubItem> itemScanner = dynamoDocumentStoreTemplate.itemScanner(StubItem.class, 4);
+
+        // When
+        final ScanPage<StubItem> firstPage = itemScanner.scan(2, null, 100);
+        final ScanPage<StubItem> lastPage = itemScanner.scan(2, firstPage.nextPosition(), 100);
+
+        // Then
+        assertEquals(4, itemScanner.segments());
+        assertEquals(1, firstPage.items().size());
+        assertEquals(itemId, firstPage.items().get(0).getId());
+        assertEquals(stringProperty, firstPage.items().get(0).getStringProperty());
+        assertTrue(lastPage.items().isEmpty());
+        assertNull(lastPage.nextPosition());
+        final ArgumentCaptor<ScanRequest> scanRequestCaptor = ArgumentCaptor.forClass(ScanRequest.class);
+        verify(mockAmazonDynamoDbClient, times(2)).scan(scanRequestCaptor.capture());
+        final ScanRequest firstScanRequest = scanRequestCaptor.getAllValues().get(0);
+        assertEquals(schemaName + "." + tableName, firstScanRequest.getTableName());
+        assertEquals(Integer.valueOf(2), firstScanRequest.getSegment());
+        assertEquals(Integer.valueOf(4), firstScanRequest.getTotalSegments());
+        assertEquals(Integer.valueOf(100), firstScanRequest.getLimit());
+        assertNull(firstScanRequest.getExclusiveStartKey());
+        assertEquals(lastEvaluatedKey, scanRequestCaptor.getAllValues().get(1).getExclusiveStartKey());
+    }
+
     private StubItem generateRandomStubItem(final ItemId itemId) {
         final StubItem item = new StubItem();
         item.setBooleanProperty(Randoms.randomBoolean());
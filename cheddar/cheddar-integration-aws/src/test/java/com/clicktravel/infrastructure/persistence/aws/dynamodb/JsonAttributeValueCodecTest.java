@@ -0,0 +1,181 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.infrastructure.persistence.aws.dynamodb;
+
+import static com.clicktravel.common.random.Randoms.randomBoolean;
+import static com.clicktravel.common.random.Randoms.randomId;
+import static com.clicktravel.common.random.Randoms.randomInt;
+import static com.clicktravel.common.random.Randoms.randomLong;
+import static com.clicktravel.common.random.Randoms.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.IOException;
+import java.util.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.document.Item;
+import com.amazonaws.services.dynamodbv2.document.ItemUtils;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class JsonAttributeValueCodecTest {
+
+    private ObjectMapper mapper;
+    private JsonAttributeValueCodec jsonAttributeValueCodec;
+
+    @Before
+    public void setUp() {
+        mapper = new ObjectMapper();
+        mapper.setSerializationInclusion(Include.NON_NULL);
+        jsonAttributeValueCodec = new JsonAttributeValueCodec(mapper);
+    }
+
+    @Test
+    public void shouldConvertToAttributeValues_withNestedDocument() throws Exception {
+        // Given
+        final Map<String, Object> document = randomDocument();
+
+        // When
+        final Map<String, AttributeValue> attributeValues = jsonAttributeValueCodec.toAttributeValues(document);
+
+        // Then
+        assertEquals(ItemUtils.toAttributeValues(Item.fromJSON(mapper.writeValueAsString(document))),
+                attributeValues);
+    }
+
+    @Test
+    public void shouldConvertFromAttributeValues_withNestedDocument() throws Exception {
+        // Given
+        final Map<String, AttributeValue> attributeValues = ItemUtils
+                .toAttributeValues(Item.fromJSON(mapper.writeValueAsString(randomDocument())));
+
+        // When
+        final Map<?, ?> document = jsonAttributeValueCodec.fromAttributeValues(attributeValues, Map.class);
+
+        // Then
+        assertEquals(mapper.readValue(ItemUtils.toItem(attributeValues).toJSON(), Map.class), document);
+    }
+
+    @Test
+    public void shouldConvertFromAttributeValues_withNumbers() throws Exception {
+        // Given
+        final Map<String, AttributeValue> attributeValues = new HashMap<>();
+        attributeValues.put("int", new AttributeValue().withN(String.valueOf(randomInt(1000))));
+        attributeValues.put("long", new AttributeValue().withN(String.valueOf(Long.MAX_VALUE)));
+        attributeValues.put("bigInteger", new AttributeValue().withN("123456789012345678901234567890"));
+        attributeValues.put("decimal", new AttributeValue().withN("1.50"));
+        attributeValues.put("exponent", new AttributeValue().withN("1E+3"));
+        attributeValues.put("numberSet", new AttributeValue().withNS("1", "2.5"));
+
+        // When
+        final Map<?, ?> document = jsonAttributeValueCodec.fromAttributeValues(attributeValues, Map.class);
+
+        // Then
+        assertEquals(mapper.readValue(ItemUtils.toItem(attributeValues).toJSON(), Map.class), document);
+    }
+
+    @Test
+    public void shouldConvertFromAttributeValues_withSets() throws Exception {
+        // Given
+        final Map<String, AttributeValue> attributeValues = new HashMap<>();
+        final String element = randomString(10);
+        attributeValues.put("stringSet", new AttributeValue().withSS(element));
+
+        // When
+        final Map<?, ?> document = jsonAttributeValueCodec.fromAttributeValues(attributeValues, Map.class);
+
+        // Then
+        assertEquals(Arrays.asList(element), document.get("stringSet"));
+    }
+
+    @Test
+    public void shouldRoundTrip_withItem() throws Exception {
+        // Given
+        final StubItem stubItem = new StubItem();
+        stubItem.setId(randomId());
+        stubItem.setStringProperty(randomString());
+        stubItem.setStringProperty2(randomString());
+        stubItem.setBooleanProperty(randomBoolean());
+        stubItem.setVersion(randomLong());
+        stubItem.setStringSetProperty(new HashSet<>(Arrays.asList(randomString(), randomString())));
+
+        // When
+        final StubItem roundTrippedItem = jsonAttributeValueCodec
+                .fromAttributeValues(jsonAttributeValueCodec.toAttributeValues(stubItem), StubItem.class);
+
+        // Then
+        assertEquals(stubItem.getId(), roundTrippedItem.getId());
+        assertEquals(stubItem.getStringProperty(), roundTrippedItem.getStringProperty());
+        assertEquals(stubItem.getStringProperty2(), roundTrippedItem.getStringProperty2());
+        assertEquals(stubItem.isBooleanProperty(), roundTrippedItem.isBooleanProperty());
+        assertEquals(stubItem.getVersion(), roundTrippedItem.getVersion());
+        assertEquals(stubItem.getStringSetProperty(), roundTrippedItem.getStringSetProperty());
+    }
+
+    @Test
+    public void shouldOmitNullProperties_withItem() throws Exception {
+        // Given
+        final StubItem stubItem = new StubItem();
+        stubItem.setId(randomId());
+
+        // When
+        final Map<String, AttributeValue> attributeValues = jsonAttributeValueCodec.toAttributeValues(stubItem);
+
+        // Then
+        assertEquals(stubItem.getId(), attributeValues.get("id").getS());
+        assertFalse(attributeValues.containsKey("stringProperty"));
+        assertFalse(attributeValues.containsKey("version"));
+    }
+
+    @Test
+    public void shouldNotConvertToAttributeValues_withNonObjectValue() throws Exception {
+        // Given
+        final String value = randomString();
+
+        // When
+        IOException actualException = null;
+        try {
+            jsonAttributeValueCodec.toAttributeValues(value);
+        } catch (final IOException e) {
+            actualException = e;
+        }
+
+        // Then
+        assertNotNull(actualException);
+    }
+
+    private Map<String, Object> randomDocument() {
+        final Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("string", randomString());
+        nested.put("long", randomLong());
+        nested.put("double", randomInt(100000) / 100.0);
+        nested.put("list", Arrays.asList(randomString(), randomInt(1000), randomBoolean()));
+        final Map<String, Object> document = new LinkedHashMap<>();
+        document.put("id", randomId());
+        document.put("int", randomInt(1000));
+        document.put("boolean", randomBoolean());
+        document.put("nested", nested);
+        document.put("nestedList", Arrays.asList(nested, Collections.singletonMap("key", randomString())));
+        document.put("emptyList", Collections.emptyList());
+        return document;
+    }
+}
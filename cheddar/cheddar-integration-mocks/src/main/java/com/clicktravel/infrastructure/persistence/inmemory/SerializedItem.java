@@ -16,29 +16,35 @@
  */
 package com.clicktravel.infrastructure.persistence.inmemory;
 
-import com.thoughtworks.xstream.XStream;
+import java.util.Arrays;
+
+import com.clicktravel.common.serialization.KryoObjectSerializer;
+import com.clicktravel.common.serialization.ObjectSerializer;
 
 public class SerializedItem {
 
-    private static final XStream xstream = new XStream();
+    private static final ObjectSerializer DEFAULT_OBJECT_SERIALIZER = KryoObjectSerializer.unrestricted();
 
-    private final String serializedEntity;
+    private final ObjectSerializer objectSerializer;
+    private final byte[] serializedEntity;
 
     public SerializedItem(final Object entity) {
-        serializedEntity = xstream.toXML(entity);
+        this(entity, DEFAULT_OBJECT_SERIALIZER);
+    }
+
+    public SerializedItem(final Object entity, final ObjectSerializer objectSerializer) {
+        this.objectSerializer = objectSerializer;
+        serializedEntity = objectSerializer.serialize(entity);
     }
 
     @SuppressWarnings("unchecked")
     public <T> T getEntity(final Class<T> clazz) {
-        return (T) xstream.fromXML(serializedEntity);
+        return (T) objectSerializer.deserialize(serializedEntity);
     }
 
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((serializedEntity == null) ? 0 : serializedEntity.hashCode());
-        return result;
+        return Arrays.hashCode(serializedEntity);
     }
 
     @Override
@@ -53,14 +59,7 @@ public class SerializedItem {
             return false;
         }
         final SerializedItem other = (SerializedItem) obj;
-        if (serializedEntity == null) {
-            if (other.serializedEntity != null) {
-                return false;
-            }
-        } else if (!serializedEntity.equals(other.serializedEntity)) {
-            return false;
-        }
-        return true;
+        return Arrays.equals(serializedEntity, other.serializedEntity);
     }
 
 }
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.infrastructure.persistence.inmemory.document.search;
+
+import java.util.*;
+import java.util.function.Function;
+
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.Document;
+
+/**
+ * In-memory index of the documents of one class, held as a list of immutable {@link IndexSegment}s. Each segment has a
+ * set of removed document numbers, marking documents which have since been updated or deleted. Updates and deletes
+ * never change a published segment list or removed set; they publish a new {@link Snapshot} holding copies of any they
+ * change. Searches read a snapshot without locking, so they run concurrently with each other and with writes.
+ * <p>
+ * Each update adds a segment of the updated documents. To keep the number of segments small, a segment is merged with
+ * the one before it whenever it has at least as many current documents; as with a binary counter, this keeps the
+ * number of segments logarithmic in the number of documents, and each document is re-indexed a logarithmic number of
+ * times. Merging also discards removed documents.
+ */
+final class DocumentIndex {
+
+    /**
+     * An immutable view of the index at a point in time
+     */
+    static final class Snapshot {
+
+        private final List<IndexSegment> segments;
+        private final List<BitSet> removedDocuments;
+
+        private Snapshot(final List<IndexSegment> segments, final List<BitSet> removedDocuments) {
+            this.segments = segments;
+            this.removedDocuments = removedDocuments;
+        }
+
+        /**
+         * Finds current documents from postings of each segment
+         * @param postings Function giving the postings of a segment to search
+         * @return Ids of current documents found in the postings
+         */
+        Set<String> match(final Function<IndexSegment, Collection<int[]>> postings) {
+            final Set<String> ids = new HashSet<>();
+            for (int i = 0; i < segments.size(); i++) {
+                final IndexSegment segment = segments.get(i);
+                final BitSet removed = removedDocuments.get(i);
+                for (final int[] documentNumbers : postings.apply(segment)) {
+                    for (final int documentNumber : documentNumbers) {
+                        if (!removed.get(documentNumber)) {
+                            ids.add(segment.entry(documentNumber).document().getId());
+                        }
+                    }
+                }
+            }
+            return ids;
+        }
+
+        /**
+         * @return Ids of all current documents
+         */
+        Set<String> allIds() {
+            final Set<String> ids = new HashSet<>();
+            for (int i = 0; i < segments.size(); i++) {
+                final IndexSegment segment = segments.get(i);
+                final BitSet removed = removedDocuments.get(i);
+                for (int documentNumber = removed.nextClearBit(0); documentNumber < segment.size();
+                        documentNumber = removed.nextClearBit(documentNumber + 1)) {
+                    ids.add(segment.entry(documentNumber).document().getId());
+                }
+            }
+            return ids;
+        }
+
+        /**
+         * @param ids Ids of current documents
+         * @return Entries for the documents, in no particular order
+         */
+        List<IndexSegment.Entry> entries(final Collection<String> ids) {
+            final List<IndexSegment.Entry> entries = new ArrayList<>(ids.size());
+            for (final String id : ids) {
+                for (int i = segments.size() - 1; i >= 0; i--) {
+                    final Integer documentNumber = segments.get(i).documentNumber(id);
+                    if (documentNumber != null && !removedDocuments.get(i).get(documentNumber)) {
+                        entries.add(segments.get(i).entry(documentNumber));
+                        break;
+                    }
+                }
+            }
+            return entries;
+        }
+
+        int segmentCount() {
+            return segments.size();
+        }
+
+    }
+
+    private final Map<String, IndexedField> fields;
+    private final Map<String, IndexSegment> documentSegments;
+    private final Map<IndexSegment, Integer> currentDocumentCounts;
+    private volatile Snapshot snapshot;
+    private long nextSequence;
+
+    DocumentIndex(final Collection<IndexedField> fields) {
+        this.fields = new LinkedHashMap<>();
+        for (final IndexedField field : fields) {
+            this.fields.put(field.name(), field);
+        }
+        documentSegments = new HashMap<>();
+        currentDocumentCounts = new IdentityHashMap<>();
+        snapshot = new Snapshot(Collections.emptyList(), Collections.emptyList());
+    }
+
+    /**
+     * @return Indexed field with the given name, or null if there is no such field
+     */
+    IndexedField field(final String name) {
+        return fields.get(name);
+    }
+
+    Collection<IndexedField> fields() {
+        return fields.values();
+    }
+
+    Snapshot snapshot() {
+        return snapshot;
+    }
+
+    synchronized void update(final Collection<? extends Document> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        final Map<String, IndexSegment.Entry> entries = new LinkedHashMap<>();
+        for (final Document document : documents) {
+            entries.put(document.getId(), new IndexSegment.Entry(document, nextSequence++));
+        }
+        final IndexSegment segment = new IndexSegment(entries.values(), fields.values());
+        final SnapshotBuilder snapshotBuilder = new SnapshotBuilder(snapshot);
+        for (final String id : entries.keySet()) {
+            snapshotBuilder.remove(id, documentSegments.put(id, segment));
+        }
+        snapshotBuilder.add(segment);
+        currentDocumentCounts.put(segment, segment.size());
+        snapshot = snapshotBuilder.merge();
+    }
+
+    synchronized void delete(final Collection<? extends Document> documents) {
+        final SnapshotBuilder snapshotBuilder = new SnapshotBuilder(snapshot);
+        for (final Document document : documents) {
+            snapshotBuilder.remove(document.getId(), documentSegments.remove(document.getId()));
+        }
+        snapshot = snapshotBuilder.merge();
+    }
+
+    synchronized void clear() {
+        documentSegments.clear();
+        currentDocumentCounts.clear();
+        snapshot = new Snapshot(Collections.emptyList(), Collections.emptyList());
+    }
+
+    /**
+     * Builds the next snapshot from the current one, copying removed sets before changing them
+     */
+    private final class SnapshotBuilder {
+
+        private final List<IndexSegment> segments;
+        private final List<BitSet> removedDocuments;
+        private final Set<BitSet> copiedRemovedDocuments;
+
+        private SnapshotBuilder(final Snapshot snapshot) {
+            segments = new ArrayList<>(snapshot.segments);
+            removedDocuments = new ArrayList<>(snapshot.removedDocuments);
+            copiedRemovedDocuments = Collections.newSetFromMap(new IdentityHashMap<>());
+        }
+
+        private void add(final IndexSegment segment) {
+            segments.add(segment);
+            removedDocuments.add(new BitSet(segment.size()));
+        }
+
+        /**
+         * Marks a document as removed from the segment holding it
+         * @param id Id of the document
+         * @param segment Segment holding the document, or null if no segment holds it
+         */
+        private void remove(final String id, final IndexSegment segment) {
+            if (segment == null) {
+                return;
+            }
+            final int index = indexOf(segment);
+            BitSet removed = removedDocuments.get(index);
+            if (!copiedRemovedDocuments.contains(removed)) {
+                removed = (BitSet) removed.clone();
+                copiedRemovedDocuments.add(removed);
+                removedDocuments.set(index, removed);
+            }
+            removed.set(segment.documentNumber(id));
+            currentDocumentCounts.merge(segment, -1, Integer::sum);
+        }
+
+        private Snapshot merge() {
+            for (int index = segments.size() - 1; index >= 0; index--) {
+                if (currentDocumentCounts.get(segments.get(index)) == 0) {
+                    currentDocumentCounts.remove(segments.remove(index));
+                    removedDocuments.remove(index);
+                }
+            }
+            int index = segments.size() - 2;
+            while (index >= 0) {
+                final IndexSegment older = segments.get(index);
+                final IndexSegment newer = segments.get(index + 1);
+                if (currentDocumentCounts.get(older) > currentDocumentCounts.get(newer)) {
+                    index--;
+                    continue;
+                }
+                final IndexSegment merged = IndexSegment.merge(older, removedDocuments.get(index), newer,
+                        removedDocuments.get(index + 1));
+                for (int documentNumber = 0; documentNumber < merged.size(); documentNumber++) {
+                    documentSegments.put(merged.entry(documentNumber).document().getId(), merged);
+                }
+                currentDocumentCounts.remove(older);
+                currentDocumentCounts.remove(newer);
+                currentDocumentCounts.put(merged, merged.size());
+                segments.set(index, merged);
+                segments.remove(index + 1);
+                removedDocuments.set(index, new BitSet(merged.size()));
+                removedDocuments.remove(index + 1);
+                index = Math.min(index, segments.size() - 2);
+            }
+            return new Snapshot(Collections.unmodifiableList(segments), Collections.unmodifiableList(removedDocuments));
+        }
+
+        private int indexOf(final IndexSegment segment) {
+            for (int index = segments.size() - 1; index >= 0; index--) {
+                if (segments.get(index) == segment) {
+                    return index;
+                }
+            }
+            throw new IllegalStateException("Segment not in index");
+        }
+
+    }
+
+}
@@ -16,47 +16,116 @@
  */
 package com.clicktravel.infrastructure.persistence.inmemory.document.search;
 
-import java.util.ArrayList;
-import java.util.Collection;
+import java.beans.PropertyDescriptor;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.Document;
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.DocumentSearchEngine;
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.DocumentSearchResponse;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.configuration.DocumentConfiguration;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.configuration.DocumentConfigurationHolder;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.configuration.IndexDefinition;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.configuration.IndexFieldType;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.exception.UnsuccessfulSearchException;
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.options.SearchOptions;
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.Query;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.sort.SortingOption;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.sort.SortingOption.Direction;
 
+/**
+ * A {@link DocumentSearchEngine} which holds documents in memory, for use in tests and as a local development backend.
+ * <p>
+ * Documents are indexed by the fields of their {@link DocumentConfiguration}, or, if constructed without document
+ * configurations, by all their properties. Each document class has an inverted index of copy-on-write segments, so
+ * searches never wait for each other or for updates. Term, range, and, or and simple queries are supported, as
+ * described in {@link QueryMatcher}, and results may be sorted by any sortable field. Documents with no value for a
+ * sort field are sorted last; without a sort order, or for documents which sort equally, results are in the order in
+ * which documents were last updated. Expressions, return fields and facets are not supported, so search responses hold
+ * whole documents and no facets.
+ */
 public class InMemoryDocumentSearchEngine implements DocumentSearchEngine {
 
+    private static final int DEFAULT_PAGE_SIZE = 10;
+    private static final String SCORE_SORT_KEY = "_score";
+
     protected final Collection<Document> allDocuments;
+    private final Map<Class<? extends Document>, DocumentConfiguration> documentConfigurations;
+    private final ConcurrentMap<Class<? extends Document>, DocumentIndex> documentIndexes;
 
     public InMemoryDocumentSearchEngine() {
+        this(null);
+    }
+
+    /**
+     * @param documentConfigurationHolder Configurations of the documents to index, or null to index all properties of
+     *            any document
+     */
+    public InMemoryDocumentSearchEngine(final DocumentConfigurationHolder documentConfigurationHolder) {
         allDocuments = new ArrayList<>();
+        if (documentConfigurationHolder == null) {
+            documentConfigurations = null;
+        } else {
+            documentConfigurations = new HashMap<>();
+            for (final DocumentConfiguration documentConfiguration : documentConfigurationHolder
+                    .documentConfigurations()) {
+                documentConfigurations.put(documentConfiguration.documentClass(), documentConfiguration);
+            }
+        }
+        documentIndexes = new ConcurrentHashMap<>();
     }
 
     @Override
     public void update(final Document document) {
-        allDocuments.add(document);
+        update(Collections.singletonList(document));
     }
 
     @Override
-    public void update(final Collection<? extends Document> documents) {
+    public synchronized void update(final Collection<? extends Document> documents) {
         allDocuments.addAll(documents);
+        for (final Map.Entry<Class<? extends Document>, List<Document>> classDocuments : byClass(documents)
+                .entrySet()) {
+            documentIndex(classDocuments.getKey()).update(classDocuments.getValue());
+        }
     }
 
     @Override
     public void delete(final Document document) {
-        allDocuments.remove(document);
+        delete(Collections.singletonList(document));
     }
 
     @Override
-    public void delete(final Collection<? extends Document> documents) {
+    public synchronized void delete(final Collection<? extends Document> documents) {
         allDocuments.removeAll(documents);
+        for (final Map.Entry<Class<? extends Document>, List<Document>> classDocuments : byClass(documents)
+                .entrySet()) {
+            documentIndex(classDocuments.getKey()).delete(classDocuments.getValue());
+        }
+    }
+
+    /**
+     * Removes all documents
+     */
+    protected synchronized void clear() {
+        allDocuments.clear();
+        for (final DocumentIndex documentIndex : documentIndexes.values()) {
+            documentIndex.clear();
+        }
     }
 
     @Override
     public <T extends Document> DocumentSearchResponse<T> search(final Query query, final Integer start,
             final Integer size, final Class<T> documentClass, final SearchOptions searchOptions) {
-        throw new UnsupportedOperationException();
+        final DocumentIndex documentIndex = documentIndex(documentClass);
+        final DocumentIndex.Snapshot snapshot = documentIndex.snapshot();
+        final Set<String> matchingIds = new QueryMatcher(documentIndex, snapshot).matchingIds(query);
+        final List<IndexSegment.Entry> matchingEntries = snapshot.entries(matchingIds);
+        final List<T> matchingDocuments = new ArrayList<>(matchingEntries.size());
+        for (final IndexSegment.Entry entry : sort(matchingEntries, documentIndex, searchOptions)) {
+            matchingDocuments.add(documentClass.cast(entry.document()));
+        }
+        return page(matchingDocuments, start, size, searchOptions);
     }
 
     @Override
@@ -65,4 +134,122 @@ public class InMemoryDocumentSearchEngine implements DocumentSearchEngine {
         return search(query, start, size, documentClass, SearchOptions.DEFAULT);
     }
 
+    /**
+     * Selects a page of matching documents, paging by start index or by cursor as CloudSearch does. As with
+     * CloudSearch, a cursor is returned with every cursor-paged page, including the last.
+     * @param matchingDocuments All documents matching a search, in order
+     * @param start Index of first document of the page; ignored if paging by cursor
+     * @param size Size of the page, or null for the default size
+     * @param searchOptions Search options, which may contain a cursor
+     * @return Page of documents
+     */
+    protected <T extends Document> DocumentSearchResponse<T> page(final List<T> matchingDocuments,
+            final Integer start, final Integer size, final SearchOptions searchOptions) {
+        final String cursor = searchOptions.getCursor();
+        final int pageStart;
+        if (cursor == null) {
+            pageStart = start == null ? 0 : start;
+        } else if (SearchOptions.INITIAL_CURSOR.equals(cursor)) {
+            pageStart = 0;
+        } else {
+            pageStart = parseCursor(cursor);
+        }
+        final int fromIndex = Math.min(pageStart, matchingDocuments.size());
+        final int toIndex = Math.min(fromIndex + (size == null ? DEFAULT_PAGE_SIZE : size), matchingDocuments.size());
+        final String nextCursor = cursor == null ? null : String.valueOf(toIndex);
+        return new DocumentSearchResponse<>(matchingDocuments.size(), nextCursor,
+                new ArrayList<>(matchingDocuments.subList(fromIndex, toIndex)));
+    }
+
+    private List<IndexSegment.Entry> sort(final List<IndexSegment.Entry> entries, final DocumentIndex documentIndex,
+            final SearchOptions searchOptions) {
+        final List<IndexedField> sortFields = new ArrayList<>();
+        final List<Direction> sortDirections = new ArrayList<>();
+        for (final SortingOption sortingOption : searchOptions.getSortOrder().sortingOptions()) {
+            if (SCORE_SORT_KEY.equals(sortingOption.key())) {
+                continue; // documents are not scored, so all have the same score
+            }
+            final IndexedField sortField = documentIndex.field(sortingOption.key());
+            if (sortField == null || !sortField.isSortable()) {
+                throw new UnsuccessfulSearchException("Unable to sort by: " + sortingOption.key());
+            }
+            sortFields.add(sortField);
+            sortDirections.add(sortingOption.direction());
+        }
+        final Map<IndexSegment.Entry, Object[]> sortValues = new IdentityHashMap<>();
+        for (final IndexSegment.Entry entry : entries) {
+            final Object[] values = new Object[sortFields.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = sortFields.get(i).sortValue(entry.document());
+            }
+            sortValues.put(entry, values);
+        }
+        entries.sort((entry1, entry2) -> {
+            final Object[] values1 = sortValues.get(entry1);
+            final Object[] values2 = sortValues.get(entry2);
+            for (int i = 0; i < values1.length; i++) {
+                final int comparison = compareSortValues(values1[i], values2[i], sortDirections.get(i));
+                if (comparison != 0) {
+                    return comparison;
+                }
+            }
+            return Long.compare(entry1.sequence(), entry2.sequence());
+        });
+        return entries;
+    }
+
+    private int compareSortValues(final Object value1, final Object value2, final Direction direction) {
+        if (value1 == null || value2 == null) {
+            return value1 == null ? (value2 == null ? 0 : 1) : -1;
+        }
+        final int comparison = IndexedField.VALUE_ORDER.compare(value1, value2);
+        return direction == Direction.DESCENDING ? -comparison : comparison;
+    }
+
+    private Map<Class<? extends Document>, List<Document>> byClass(final Collection<? extends Document> documents) {
+        final Map<Class<? extends Document>, List<Document>> documentsByClass = new LinkedHashMap<>();
+        for (final Document document : documents) {
+            documentsByClass.computeIfAbsent(document.getClass(), c -> new ArrayList<>()).add(document);
+        }
+        return documentsByClass;
+    }
+
+    DocumentIndex documentIndex(final Class<? extends Document> documentClass) {
+        return documentIndexes.computeIfAbsent(documentClass, c -> new DocumentIndex(indexedFields(c)));
+    }
+
+    private Collection<IndexedField> indexedFields(final Class<? extends Document> documentClass) {
+        final Collection<IndexedField> indexedFields = new ArrayList<>();
+        if (documentConfigurations == null) {
+            final DocumentConfiguration documentConfiguration = new DocumentConfiguration(documentClass,
+                    documentClass.getName());
+            for (final PropertyDescriptor propertyDescriptor : documentConfiguration.properties().values()) {
+                if (propertyDescriptor.getReadMethod() != null) {
+                    indexedFields.add(IndexedField.inferredField(propertyDescriptor));
+                }
+            }
+            return indexedFields;
+        }
+        final DocumentConfiguration documentConfiguration = documentConfigurations.get(documentClass);
+        if (documentConfiguration == null) {
+            throw new IllegalStateException("No document configuration found for: " + documentClass);
+        }
+        for (final IndexDefinition indexDefinition : documentConfiguration.indexDefinitions()) {
+            final IndexFieldType fieldType = indexDefinition.getFieldType();
+            indexedFields.add(new IndexedField(indexDefinition.getName(),
+                    documentConfiguration.properties().get(indexDefinition.getName()), fieldType,
+                    fieldType == IndexFieldType.TEXT || fieldType == IndexFieldType.TEXT_ARRAY,
+                    indexDefinition.isSortEnabled()));
+        }
+        return indexedFields;
+    }
+
+    private int parseCursor(final String cursor) {
+        try {
+            return Integer.parseInt(cursor);
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
 }
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.infrastructure.persistence.inmemory.document.search;
+
+import java.util.*;
+
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.Document;
+
+/**
+ * An immutable part of the in-memory index of a document class, holding a set of documents and an inverted index of
+ * their field values and words. Documents are numbered within the segment, and postings hold document numbers. A
+ * segment is never changed once built, so it can be read without locking; a document which is later updated or deleted
+ * stays in its segment until the segment is merged, but is marked as removed in each later {@link DocumentIndex}
+ * snapshot.
+ */
+final class IndexSegment {
+
+    /**
+     * A version of a document, with a sequence number recording the order in which documents were updated
+     */
+    static final class Entry {
+
+        private final Document document;
+        private final long sequence;
+
+        Entry(final Document document, final long sequence) {
+            this.document = document;
+            this.sequence = sequence;
+        }
+
+        Document document() {
+            return document;
+        }
+
+        long sequence() {
+            return sequence;
+        }
+
+    }
+
+    private final Entry[] entries;
+    private final Map<String, Integer> documentNumbers;
+    private final Map<String, NavigableMap<Object, int[]>> valuePostings;
+    private final Map<String, NavigableMap<String, int[]>> wordPostings;
+
+    IndexSegment(final Collection<Entry> entries, final Collection<IndexedField> fields) {
+        this.entries = entries.toArray(new Entry[entries.size()]);
+        documentNumbers = new HashMap<>();
+        final Map<String, Map<Object, List<Integer>>> values = new HashMap<>();
+        final Map<String, Map<String, List<Integer>>> words = new HashMap<>();
+        for (final IndexedField field : fields) {
+            values.put(field.name(), new HashMap<>());
+            words.put(field.name(), new HashMap<>());
+        }
+        for (int documentNumber = 0; documentNumber < this.entries.length; documentNumber++) {
+            final Document document = this.entries[documentNumber].document();
+            documentNumbers.put(document.getId(), documentNumber);
+            for (final IndexedField field : fields) {
+                final Collection<Object> fieldValues = field.values(document);
+                for (final Object value : new LinkedHashSet<>(fieldValues)) {
+                    values.get(field.name()).computeIfAbsent(value, v -> new ArrayList<>()).add(documentNumber);
+                }
+                for (final String word : field.words(fieldValues)) {
+                    words.get(field.name()).computeIfAbsent(word, w -> new ArrayList<>()).add(documentNumber);
+                }
+            }
+        }
+        valuePostings = new HashMap<>();
+        wordPostings = new HashMap<>();
+        for (final IndexedField field : fields) {
+            valuePostings.put(field.name(),
+                    postings(values.get(field.name()), new TreeMap<>(IndexedField.VALUE_ORDER)));
+            if (field.indexesWords()) {
+                wordPostings.put(field.name(), postings(words.get(field.name()), new TreeMap<>()));
+            }
+        }
+    }
+
+    private IndexSegment(final Entry[] entries, final Map<String, NavigableMap<Object, int[]>> valuePostings,
+            final Map<String, NavigableMap<String, int[]>> wordPostings) {
+        this.entries = entries;
+        documentNumbers = new HashMap<>();
+        for (int documentNumber = 0; documentNumber < entries.length; documentNumber++) {
+            documentNumbers.put(entries[documentNumber].document().getId(), documentNumber);
+        }
+        this.valuePostings = valuePostings;
+        this.wordPostings = wordPostings;
+    }
+
+    /**
+     * Merges two segments into one holding their current documents, combining their postings rather than indexing the
+     * documents again
+     * @param older Older segment, whose documents are numbered first in the merged segment
+     * @param olderRemoved Numbers of documents removed from the older segment
+     * @param newer Newer segment
+     * @param newerRemoved Numbers of documents removed from the newer segment
+     * @return Merged segment
+     */
+    static IndexSegment merge(final IndexSegment older, final BitSet olderRemoved, final IndexSegment newer,
+            final BitSet newerRemoved) {
+        final List<Entry> entries = new ArrayList<>();
+        final int[] olderNumbers = renumber(older, olderRemoved, entries);
+        final int[] newerNumbers = renumber(newer, newerRemoved, entries);
+        final Map<String, NavigableMap<Object, int[]>> valuePostings = new HashMap<>();
+        for (final String fieldName : older.valuePostings.keySet()) {
+            valuePostings.put(fieldName, mergePostings(older.valuePostings.get(fieldName), olderNumbers,
+                    newer.valuePostings.get(fieldName), newerNumbers, new TreeMap<>(IndexedField.VALUE_ORDER)));
+        }
+        final Map<String, NavigableMap<String, int[]>> wordPostings = new HashMap<>();
+        for (final String fieldName : older.wordPostings.keySet()) {
+            wordPostings.put(fieldName, mergePostings(older.wordPostings.get(fieldName), olderNumbers,
+                    newer.wordPostings.get(fieldName), newerNumbers, new TreeMap<>()));
+        }
+        return new IndexSegment(entries.toArray(new Entry[entries.size()]), valuePostings, wordPostings);
+    }
+
+    int size() {
+        return entries.length;
+    }
+
+    Entry entry(final int documentNumber) {
+        return entries[documentNumber];
+    }
+
+    /**
+     * @return Number of the document with the given id in this segment, or null if this segment does not hold the
+     *         document
+     */
+    Integer documentNumber(final String id) {
+        return documentNumbers.get(id);
+    }
+
+    /**
+     * @return Numbers of documents in this segment with the given value in the field
+     */
+    Collection<int[]> postingsForValue(final String fieldName, final Object value) {
+        final int[] documentNumbers = valuePostings.get(fieldName).get(value);
+        return documentNumbers == null ? Collections.emptyList() : Collections.singletonList(documentNumbers);
+    }
+
+    /**
+     * @param lowerBound Lower bound of the range, or null if there is no lower bound
+     * @param upperBound Upper bound of the range, or null if there is no upper bound
+     * @return Numbers of documents in this segment with a value in the field within the range, grouped by value
+     */
+    Collection<int[]> postingsForRange(final String fieldName, final Object lowerBound,
+            final boolean lowerBoundInclusive, final Object upperBound, final boolean upperBoundInclusive) {
+        NavigableMap<Object, int[]> postings = valuePostings.get(fieldName);
+        if (lowerBound != null && upperBound != null && IndexedField.VALUE_ORDER.compare(lowerBound, upperBound) > 0) {
+            return Collections.emptyList();
+        }
+        if (lowerBound != null) {
+            postings = postings.tailMap(lowerBound, lowerBoundInclusive);
+        }
+        if (upperBound != null) {
+            postings = postings.headMap(upperBound, upperBoundInclusive);
+        }
+        return postings.values();
+    }
+
+    /**
+     * @return Numbers of documents in this segment with the given word in the field
+     */
+    Collection<int[]> postingsForWord(final String fieldName, final String word) {
+        final int[] documentNumbers = wordPostings.get(fieldName).get(word);
+        return documentNumbers == null ? Collections.emptyList() : Collections.singletonList(documentNumbers);
+    }
+
+    /**
+     * @return Numbers of documents in this segment with a word in the field starting with the given prefix, grouped by
+     *         word
+     */
+    Collection<int[]> postingsForWordPrefix(final String fieldName, final String prefix) {
+        return wordPostings.get(fieldName).subMap(prefix, true, prefix + Character.MAX_VALUE, false).values();
+    }
+
+    /**
+     * Adds the current entries of a segment to a list of entries
+     * @return New document numbers for the documents of the segment, indexed by their old number; -1 for a removed
+     *         document
+     */
+    private static int[] renumber(final IndexSegment segment, final BitSet removed, final List<Entry> entries) {
+        final int[] newNumbers = new int[segment.entries.length];
+        for (int documentNumber = 0; documentNumber < newNumbers.length; documentNumber++) {
+            if (removed.get(documentNumber)) {
+                newNumbers[documentNumber] = -1;
+            } else {
+                newNumbers[documentNumber] = entries.size();
+                entries.add(segment.entries[documentNumber]);
+            }
+        }
+        return newNumbers;
+    }
+
+    private static <K> NavigableMap<K, int[]> mergePostings(final NavigableMap<K, int[]> olderPostings,
+            final int[] olderNumbers, final NavigableMap<K, int[]> newerPostings, final int[] newerNumbers,
+            final NavigableMap<K, int[]> mergedPostings) {
+        final Set<K> keys = new HashSet<>(olderPostings.keySet());
+        keys.addAll(newerPostings.keySet());
+        for (final K key : keys) {
+            final int[] olderPostingList = olderPostings.getOrDefault(key, new int[0]);
+            final int[] newerPostingList = newerPostings.getOrDefault(key, new int[0]);
+            final int[] postingList = new int[olderPostingList.length + newerPostingList.length];
+            int length = 0;
+            for (final int documentNumber : olderPostingList) {
+                if (olderNumbers[documentNumber] >= 0) {
+                    postingList[length++] = olderNumbers[documentNumber];
+                }
+            }
+            for (final int documentNumber : newerPostingList) {
+                if (newerNumbers[documentNumber] >= 0) {
+                    postingList[length++] = newerNumbers[documentNumber];
+                }
+            }
+            if (length > 0) {
+                mergedPostings.put(key,
+                        length == postingList.length ? postingList : Arrays.copyOf(postingList, length));
+            }
+        }
+        return mergedPostings;
+    }
+
+    private static <K> NavigableMap<K, int[]> postings(final Map<K, List<Integer>> documentNumbersByKey,
+            final NavigableMap<K, int[]> postings) {
+        for (final Map.Entry<K, List<Integer>> keyDocumentNumbers : documentNumbersByKey.entrySet()) {
+            final List<Integer> documentNumbers = keyDocumentNumbers.getValue();
+            final int[] postingList = new int[documentNumbers.size()];
+            for (int i = 0; i < postingList.length; i++) {
+                postingList[i] = documentNumbers.get(i);
+            }
+            postings.put(keyDocumentNumbers.getKey(), postingList);
+        }
+        return postings;
+    }
+
+}
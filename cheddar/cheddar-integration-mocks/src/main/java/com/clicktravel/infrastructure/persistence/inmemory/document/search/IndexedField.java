@@ -0,0 +1,235 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.infrastructure.persistence.inmemory.document.search;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.joda.time.DateTime;
+import org.joda.time.ReadableInstant;
+
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.Document;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.configuration.IndexFieldType;
+
+/**
+ * A document property held in the in-memory index. Every value of a field is indexed whole, with numbers and dates
+ * held as numbers so that they order correctly in range queries; values of text fields are also indexed by their lower
+ * case words.
+ */
+final class IndexedField {
+
+    /**
+     * Orders indexed values, which are either {@link Double} or {@link String}; numbers come before strings
+     */
+    static final Comparator<Object> VALUE_ORDER = (value1, value2) -> {
+        if (value1 instanceof Double) {
+            return value2 instanceof Double ? ((Double) value1).compareTo((Double) value2) : -1;
+        }
+        return value2 instanceof Double ? 1 : ((String) value1).compareTo((String) value2);
+    };
+
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final String name;
+    private final Method readMethod;
+    private final IndexFieldType fieldType;
+    private final boolean text;
+    private final boolean sortable;
+
+    /**
+     * @param name Name of the field, which is the name of the document property
+     * @param propertyDescriptor Descriptor of the document property
+     * @param fieldType Type of the field
+     * @param text Whether values of the field are indexed by their words
+     * @param sortable Whether search results may be sorted by the field
+     */
+    IndexedField(final String name, final PropertyDescriptor propertyDescriptor, final IndexFieldType fieldType,
+            final boolean text, final boolean sortable) {
+        this.name = name;
+        readMethod = propertyDescriptor.getReadMethod();
+        this.fieldType = fieldType;
+        this.text = text;
+        this.sortable = sortable;
+    }
+
+    /**
+     * Creates a field for a document property for which there is no index definition, with its type inferred from
+     * the property type. String values of such fields are indexed by their words as well as whole, so they can be
+     * matched exactly by term queries and by words in simple queries.
+     * @param propertyDescriptor Descriptor of the document property
+     * @return Field for the property
+     */
+    static IndexedField inferredField(final PropertyDescriptor propertyDescriptor) {
+        final Class<?> propertyType = propertyDescriptor.getPropertyType();
+        final IndexFieldType fieldType;
+        if (Number.class.isAssignableFrom(propertyType)
+                || propertyType.isPrimitive() && propertyType != boolean.class && propertyType != char.class) {
+            fieldType = IndexFieldType.DOUBLE;
+        } else if (ReadableInstant.class.isAssignableFrom(propertyType) || Date.class.isAssignableFrom(propertyType)) {
+            fieldType = IndexFieldType.DATETIME;
+        } else if (Collection.class.isAssignableFrom(propertyType) || propertyType.isArray()) {
+            fieldType = IndexFieldType.LITERAL_ARRAY;
+        } else {
+            fieldType = IndexFieldType.LITERAL;
+        }
+        return new IndexedField(propertyDescriptor.getName(), propertyDescriptor, fieldType, true,
+                !fieldType.isArray());
+    }
+
+    String name() {
+        return name;
+    }
+
+    /**
+     * @return {@code true} if term queries on this field match words rather than whole values
+     */
+    boolean matchesWords() {
+        return text && (fieldType == IndexFieldType.TEXT || fieldType == IndexFieldType.TEXT_ARRAY);
+    }
+
+    boolean isSortable() {
+        return sortable;
+    }
+
+    /**
+     * @return {@code true} if values of this field are indexed by their words, and so are searched by simple queries
+     */
+    boolean indexesWords() {
+        return text;
+    }
+
+    /**
+     * @param document Document to read
+     * @return Indexed values of this field in the document, in the order they appear
+     */
+    Collection<Object> values(final Document document) {
+        final Object propertyValue = read(document);
+        if (propertyValue == null) {
+            return Collections.emptyList();
+        }
+        final Collection<Object> values = new ArrayList<>();
+        if (propertyValue instanceof Collection) {
+            for (final Object element : (Collection<?>) propertyValue) {
+                addValue(values, element);
+            }
+        } else if (propertyValue.getClass().isArray()) {
+            for (int i = 0; i < Array.getLength(propertyValue); i++) {
+                addValue(values, Array.get(propertyValue, i));
+            }
+        } else {
+            addValue(values, propertyValue);
+        }
+        return values;
+    }
+
+    /**
+     * @param values Indexed values of this field in a document
+     * @return Distinct lower case words of the values, or none if this field is not indexed by words
+     */
+    Set<String> words(final Collection<Object> values) {
+        if (!text) {
+            return Collections.emptySet();
+        }
+        final Set<String> words = new LinkedHashSet<>();
+        for (final Object value : values) {
+            if (value instanceof String) {
+                words.addAll(words((String) value));
+            }
+        }
+        return words;
+    }
+
+    /**
+     * @return The value of this field to sort a document by, or null if the document has no value
+     */
+    Object sortValue(final Document document) {
+        final Collection<Object> values = values(document);
+        return values.isEmpty() ? null : values.iterator().next();
+    }
+
+    /**
+     * Converts a value given in a query to the form in which values of this field are indexed
+     * @param value Value given in a query
+     * @return Indexed form of the value
+     */
+    Object indexedValue(final Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof ReadableInstant) {
+            return (double) ((ReadableInstant) value).getMillis();
+        }
+        if (value instanceof Date) {
+            return (double) ((Date) value).getTime();
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        final String string = value.toString();
+        try {
+            if (fieldType == IndexFieldType.DATETIME || fieldType == IndexFieldType.DATETIME_ARRAY) {
+                return (double) DateTime.parse(string).getMillis();
+            }
+            if (fieldType == IndexFieldType.DOUBLE || fieldType == IndexFieldType.DOUBLE_ARRAY
+                    || fieldType == IndexFieldType.INT || fieldType == IndexFieldType.INT_ARRAY) {
+                return Double.valueOf(string);
+            }
+        } catch (final IllegalArgumentException e) {
+            // Not a valid number or date for this field; compare as a string
+        }
+        return string;
+    }
+
+    /**
+     * @param string Text to split
+     * @return Lower case words of the text, in the order they appear
+     */
+    static Collection<String> words(final String string) {
+        final Collection<String> words = new ArrayList<>();
+        for (final String word : WORD_SEPARATOR.split(string.toLowerCase())) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private void addValue(final Collection<Object> values, final Object value) {
+        if (value == null || value instanceof String && ((String) value).trim().isEmpty()) {
+            return;
+        }
+        values.add(indexedValue(value));
+    }
+
+    private Object read(final Document document) {
+        try {
+            return readMethod.invoke(document);
+        } catch (final Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.infrastructure.persistence.inmemory.document.search;
+
+import java.util.*;
+
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.exception.UnsuccessfulSearchException;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.*;
+
+/**
+ * Finds the documents in a snapshot of a {@link DocumentIndex} matching a query, following the CloudSearch query
+ * parsers:
+ * <ul>
+ * <li>A {@link TermQuery} on a text field matches documents with all the words of the value in the field; on any other
+ * field it matches documents with exactly the value in the field</li>
+ * <li>A {@link RangeQuery} matches documents with a value in the field within the range, comparing numbers and dates
+ * numerically and strings lexicographically</li>
+ * <li>A {@link SimpleQuery} matches documents with all its terms in any field indexed by words. A term may be a word, a
+ * prefix ending in {@code *}, or a phrase in double quotes, which matches documents with all its words; a term
+ * prefixed with {@code -} excludes documents which match it, and a term prefixed with {@code +} is required, as all
+ * terms are.</li>
+ * </ul>
+ * Lucene queries are not supported.
+ */
+final class QueryMatcher implements QueryVisitor {
+
+    private final DocumentIndex documentIndex;
+    private final DocumentIndex.Snapshot snapshot;
+    private Set<String> matchingIds;
+
+    QueryMatcher(final DocumentIndex documentIndex, final DocumentIndex.Snapshot snapshot) {
+        this.documentIndex = documentIndex;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * @return Ids of the documents matching the query
+     */
+    Set<String> matchingIds(final Query query) {
+        query.accept(this);
+        return matchingIds;
+    }
+
+    @Override
+    public void visit(final TermQuery termQuery) {
+        final IndexedField field = field(termQuery.getFieldName());
+        if (field.matchesWords()) {
+            matchingIds = matchingAllWords(Collections.singleton(field),
+                    IndexedField.words(termQuery.getValue().toString()));
+        } else {
+            final Object value = field.indexedValue(termQuery.getValue());
+            matchingIds = snapshot.match(segment -> segment.postingsForValue(field.name(), value));
+        }
+    }
+
+    @Override
+    public void visit(final RangeQuery rangeQuery) {
+        final IndexedField field = field(rangeQuery.getFieldName());
+        final Object lowerBound = rangeQuery.getLowerBound() == null ? null
+                : field.indexedValue(rangeQuery.getLowerBound());
+        final Object upperBound = rangeQuery.getUpperBound() == null ? null
+                : field.indexedValue(rangeQuery.getUpperBound());
+        matchingIds = snapshot.match(segment -> segment.postingsForRange(field.name(), lowerBound,
+                rangeQuery.isLowerBoundInclusive(), upperBound, rangeQuery.isUpperBoundInclusive()));
+    }
+
+    @Override
+    public void visit(final AndQuery andQuery) {
+        final List<Set<String>> subQueryMatches = new ArrayList<>();
+        for (final StructuredQuery subQuery : andQuery.getQueries()) {
+            subQueryMatches.add(new QueryMatcher(documentIndex, snapshot).matchingIds(subQuery));
+        }
+        matchingIds = intersection(subQueryMatches);
+    }
+
+    @Override
+    public void visit(final OrQuery orQuery) {
+        final Set<String> ids = new HashSet<>();
+        for (final StructuredQuery subQuery : orQuery.getQueries()) {
+            ids.addAll(new QueryMatcher(documentIndex, snapshot).matchingIds(subQuery));
+        }
+        matchingIds = ids;
+    }
+
+    @Override
+    public void visit(final SimpleQuery simpleQuery) {
+        final Collection<IndexedField> fields = new ArrayList<>();
+        for (final IndexedField field : documentIndex.fields()) {
+            if (field.indexesWords()) {
+                fields.add(field);
+            }
+        }
+        final List<Set<String>> requiredTermMatches = new ArrayList<>();
+        final Set<String> excludedIds = new HashSet<>();
+        for (final String term : terms(simpleQuery.getQuery())) {
+            final boolean excluded = term.startsWith("-");
+            final String unsignedTerm = excluded || term.startsWith("+") ? term.substring(1) : term;
+            final Set<String> termMatches;
+            if (unsignedTerm.endsWith("*") && !unsignedTerm.startsWith("\"")) {
+                termMatches = matchingPrefix(fields, unsignedTerm.substring(0, unsignedTerm.length() - 1));
+            } else {
+                termMatches = matchingAllWords(fields, IndexedField.words(unsignedTerm));
+            }
+            if (excluded) {
+                excludedIds.addAll(termMatches);
+            } else {
+                requiredTermMatches.add(termMatches);
+            }
+        }
+        final Set<String> ids = requiredTermMatches.isEmpty() && !excludedIds.isEmpty() ? snapshot.allIds()
+                : intersection(requiredTermMatches);
+        ids.removeAll(excludedIds);
+        matchingIds = ids;
+    }
+
+    @Override
+    public void visit(final LuceneQuery luceneQuery) {
+        throw new UnsupportedOperationException("Lucene queries are not supported by the in-memory search engine");
+    }
+
+    private IndexedField field(final String fieldName) {
+        final IndexedField field = documentIndex.field(fieldName);
+        if (field == null) {
+            throw new UnsuccessfulSearchException("No index field: " + fieldName);
+        }
+        return field;
+    }
+
+    private Set<String> matchingAllWords(final Collection<IndexedField> fields, final Collection<String> words) {
+        final List<Set<String>> wordMatches = new ArrayList<>();
+        for (final String word : words) {
+            wordMatches.add(snapshot.match(segment -> {
+                final Collection<int[]> postings = new ArrayList<>();
+                for (final IndexedField field : fields) {
+                    postings.addAll(segment.postingsForWord(field.name(), word));
+                }
+                return postings;
+            }));
+        }
+        return intersection(wordMatches);
+    }
+
+    private Set<String> matchingPrefix(final Collection<IndexedField> fields, final String prefix) {
+        final String lowerCasePrefix = prefix.toLowerCase();
+        return snapshot.match(segment -> {
+            final Collection<int[]> postings = new ArrayList<>();
+            for (final IndexedField field : fields) {
+                postings.addAll(segment.postingsForWordPrefix(field.name(), lowerCasePrefix));
+            }
+            return postings;
+        });
+    }
+
+    /**
+     * Intersects sets of ids, starting with the smallest
+     * @param idSets Sets of ids, which may be changed
+     * @return Ids in every set, or no ids if there are no sets
+     */
+    private Set<String> intersection(final List<Set<String>> idSets) {
+        if (idSets.isEmpty()) {
+            return new HashSet<>();
+        }
+        idSets.sort(Comparator.comparingInt(Set::size));
+        final Set<String> ids = idSets.get(0);
+        for (int i = 1; i < idSets.size() && !ids.isEmpty(); i++) {
+            ids.retainAll(idSets.get(i));
+        }
+        return ids;
+    }
+
+    /**
+     * Splits a simple query into terms separated by white space, keeping phrases in double quotes as single terms
+     */
+    private List<String> terms(final String query) {
+        final List<String> terms = new ArrayList<>();
+        final StringBuilder term = new StringBuilder();
+        boolean inPhrase = false;
+        for (int i = 0; i < query.length(); i++) {
+            final char c = query.charAt(i);
+            if (c == '"') {
+                inPhrase = !inPhrase;
+            }
+            if (Character.isWhitespace(c) && !inPhrase) {
+                if (term.length() > 0) {
+                    terms.add(term.toString());
+                    term.setLength(0);
+                }
+            } else {
+                term.append(c);
+            }
+        }
+        if (term.length() > 0) {
+            terms.add(term.toString());
+        }
+        return terms;
+    }
+
+}
@@ -78,7 +78,7 @@ public class InMemoryMockDocumentSearchEngine extends InMemoryDocumentSearchEngi
 
     @Override
     public void reset() {
-        allDocuments.clear();
+        clear();
         searchExpectations.clear();
     }
 
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.infrastructure.persistence.inmemory.document.search;
+
+import static com.clicktravel.common.random.Randoms.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.DocumentSearchResponse;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.configuration.DocumentConfiguration;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.configuration.DocumentConfigurationHolder;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.configuration.IndexDefinition;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.configuration.IndexFieldType;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.exception.UnsuccessfulSearchException;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.options.SearchOptions;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.AndQuery;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.OrQuery;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.Query;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.RangeQuery;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.SimpleQuery;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.StructuredQuery;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.TermQuery;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.sort.SortOrder;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.sort.SortingOption;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.sort.SortingOption.Direction;
+
+public class InMemoryDocumentSearchEngineTest {
+
+    private final InMemoryDocumentSearchEngine inMemoryDocumentSearchEngine = new InMemoryDocumentSearchEngine();
+
+    @Test
+    public void shouldPageByStart_withNoCursor() {
+        // Given
+        final List<StubDocument> documents = documents(5);
+
+        // When
+        final DocumentSearchResponse<StubDocument> page = inMemoryDocumentSearchEngine.page(documents, 3, 10,
+                new SearchOptions());
+
+        // Then
+        assertEquals(5, page.getTotalCount());
+        assertEquals(documents.subList(3, 5), page.getHits());
+        assertNull(page.getCursor());
+    }
+
+    @Test
+    public void shouldPageByCursor_withCursor() {
+        // Given
+        final List<StubDocument> documents = documents(5);
+
+        // When
+        final DocumentSearchResponse<StubDocument> firstPage = inMemoryDocumentSearchEngine.page(documents, 3, 2,
+                new SearchOptions().withCursor(SearchOptions.INITIAL_CURSOR));
+        final DocumentSearchResponse<StubDocument> secondPage = inMemoryDocumentSearchEngine.page(documents, null, 2,
+                new SearchOptions().withCursor(firstPage.getCursor()));
+
+        // Then
+        assertEquals(documents.subList(0, 2), firstPage.getHits());
+        assertEquals(documents.subList(2, 4), secondPage.getHits());
+        assertEquals(5, secondPage.getTotalCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotPage_withInvalidCursor() {
+        inMemoryDocumentSearchEngine.page(documents(1), null, 2, new SearchOptions().withCursor("invalid"));
+    }
+
+    @Test
+    public void shouldFindDocuments_withTermQueryOnLiteralField() {
+        // Given
+        final InMemoryDocumentSearchEngine searchEngine = configuredSearchEngine();
+        final StubSearchDocument document1 = searchDocument("1", "London Hotel", "hotel", 4, 100.0);
+        final StubSearchDocument document2 = searchDocument("2", "Paris Hotel", "Hotel", 3, 80.0);
+        searchEngine.update(Arrays.asList(document1, document2));
+
+        // When
+        final List<StubSearchDocument> hits = search(searchEngine, new TermQuery("category", "hotel"));
+
+        // Then
+        assertEquals(Arrays.asList(document1), hits);
+    }
+
+    @Test
+    public void shouldFindDocuments_withTermQueryOnTextField() {
+        // Given
+        final InMemoryDocumentSearchEngine searchEngine = configuredSearchEngine();
+        final StubSearchDocument document1 = searchDocument("1", "The Grand Hotel, London", "hotel", 4, 100.0);
+        final StubSearchDocument document2 = searchDocument("2", "Grand Apartments Paris", "apartment", 3, 80.0);
+        searchEngine.update(Arrays.asList(document1, document2));
+
+        // When
+        final List<StubSearchDocument> hits = search(searchEngine, new TermQuery("name", "london GRAND"));
+
+        // Then
+        assertEquals(Arrays.asList(document1), hits);
+    }
+
+    @Test
+    public void shouldFindDocuments_withRangeQueries() {
+        // Given
+        final InMemoryDocumentSearchEngine searchEngine = configuredSearchEngine();
+        final List<StubSearchDocument> documents = new ArrayList<>();
+        for (int rating = 1; rating <= 5; rating++) {
+            documents.add(searchDocument(String.valueOf(rating), randomString(10), "hotel", rating, rating * 50.0));
+        }
+        searchEngine.update(documents);
+
+        // When
+        final List<StubSearchDocument> inclusiveHits = search(searchEngine, new RangeQuery("rating", 2, 4, true, true));
+        final List<StubSearchDocument> exclusiveHits = search(searchEngine,
+                new RangeQuery("price", 100.0, 200.0, false, false));
+        final List<StubSearchDocument> openHits = search(searchEngine, new RangeQuery("rating", 4, null, true, true));
+
+        // Then
+        assertEquals(documents.subList(1, 4), inclusiveHits);
+        assertEquals(documents.subList(2, 3), exclusiveHits);
+        assertEquals(documents.subList(3, 5), openHits);
+    }
+
+    @Test
+    public void shouldFindDocuments_withDateTimeRangeQuery() {
+        // Given
+        final InMemoryDocumentSearchEngine searchEngine = configuredSearchEngine();
+        final DateTime now = DateTime.now();
+        final StubSearchDocument oldDocument = searchDocument("1", randomString(10), "hotel", 1, 1.0);
+        oldDocument.setCreated(now.minusDays(10));
+        final StubSearchDocument newDocument = searchDocument("2", randomString(10), "hotel", 1, 1.0);
+        newDocument.setCreated(now.minusHours(1));
+        searchEngine.update(Arrays.asList(oldDocument, newDocument));
+
+        // When
+        final List<StubSearchDocument> hits = search(searchEngine,
+                new RangeQuery("created", now.minusDays(1), now, true, true));
+
+        // Then
+        assertEquals(Arrays.asList(newDocument), hits);
+    }
+
+    @Test
+    public void shouldFindDocuments_withAndAndOrQueries() {
+        // Given
+        final InMemoryDocumentSearchEngine searchEngine = configuredSearchEngine();
+        final StubSearchDocument document1 = searchDocument("1", randomString(10), "hotel", 5, 100.0);
+        final StubSearchDocument document2 = searchDocument("2", randomString(10), "hotel", 2, 80.0);
+        final StubSearchDocument document3 = searchDocument("3", randomString(10), "apartment", 5, 60.0);
+        document3.setTags(Arrays.asList("pool", "parking"));
+        searchEngine.update(Arrays.asList(document1, document2, document3));
+        final AndQuery andQuery = new AndQuery(new HashSet<StructuredQuery>(
+                Arrays.asList(new TermQuery("category", "hotel"), new RangeQuery("rating", 4, null, true, true))));
+        final OrQuery orQuery = new OrQuery(new HashSet<StructuredQuery>(
+                Arrays.asList(andQuery, new TermQuery("tags", "parking"))));
+
+        // When
+        final List<StubSearchDocument> andHits = search(searchEngine, andQuery);
+        final List<StubSearchDocument> orHits = search(searchEngine, orQuery);
+
+        // Then
+        assertEquals(Arrays.asList(document1), andHits);
+        assertEquals(Arrays.asList(document1, document3), orHits);
+    }
+
+    @Test
+    public void shouldFindDocuments_withSimpleQuery() {
+        // Given
+        final InMemoryDocumentSearchEngine searchEngine = configuredSearchEngine();
+        final StubSearchDocument document1 = searchDocument("1", "Grand Hotel London", "hotel", 5, 100.0);
+        final StubSearchDocument document2 = searchDocument("2", "Grand Hotel Paris", "hotel", 4, 90.0);
+        final StubSearchDocument document3 = searchDocument("3", "Londoner Apartments", "apartment", 3, 80.0);
+        searchEngine.update(Arrays.asList(document1, document2, document3));
+
+        // When
+        final List<StubSearchDocument> wordHits = search(searchEngine, new SimpleQuery("grand hotel"));
+        final List<StubSearchDocument> prefixHits = search(searchEngine, new SimpleQuery("lond*"));
+        final List<StubSearchDocument> excludingHits = search(searchEngine, new SimpleQuery("grand -paris"));
+        final List<StubSearchDocument> phraseHits = search(searchEngine, new SimpleQuery("\"hotel paris\""));
+
+        // Then
+        assertEquals(Arrays.asList(document1, document2), wordHits);
+        assertEquals(Arrays.asList(document1, document3), prefixHits);
+        assertEquals(Arrays.asList(document1), excludingHits);
+        assertEquals(Arrays.asList(document2), phraseHits);
+    }
+
+    @Test
+    public void shouldSortDocuments_withSortOrder() {
+        // Given
+        final InMemoryDocumentSearchEngine searchEngine = configuredSearchEngine();
+        final StubSearchDocument document1 = searchDocument("1", randomString(10), "hotel", 3, 100.0);
+        final StubSearchDocument document2 = searchDocument("2", randomString(10), "hotel", null, 90.0);
+        final StubSearchDocument document3 = searchDocument("3", randomString(10), "hotel", 5, 80.0);
+        final StubSearchDocument document4 = searchDocument("4", randomString(10), "hotel", 3, 70.0);
+        searchEngine.update(Arrays.asList(document1, document2, document3, document4));
+        final SortOrder sortOrder = new SortOrder();
+        sortOrder.addSortingOption(new SortingOption("rating", Direction.DESCENDING));
+        sortOrder.addSortingOption(new SortingOption("price"));
+
+        // When
+        final DocumentSearchResponse<StubSearchDocument> response = searchEngine.search(
+                new TermQuery("category", "hotel"), 0, 10, StubSearchDocument.class,
+                new SearchOptions().withSortOrder(sortOrder));
+
+        // Then
+        assertEquals(Arrays.asList(document3, document4, document1, document2), response.getHits());
+    }
+
+    @Test
+    public void shouldFindCurrentDocuments_afterUpdatesAndDeletes() {
+        // Given
+        final InMemoryDocumentSearchEngine searchEngine = configuredSearchEngine();
+        final StubSearchDocument document1 = searchDocument("1", randomString(10), "hotel", 1, 1.0);
+        final StubSearchDocument document2 = searchDocument("2", randomString(10), "hotel", 1, 1.0);
+        searchEngine.update(Arrays.asList(document1, document2));
+        final StubSearchDocument updatedDocument1 = searchDocument("1", randomString(10), "apartment", 1, 1.0);
+
+        // When
+        searchEngine.update(updatedDocument1);
+        searchEngine.delete(document2);
+
+        // Then
+        assertTrue(search(searchEngine, new TermQuery("category", "hotel")).isEmpty());
+        assertEquals(Arrays.asList(updatedDocument1), search(searchEngine, new TermQuery("category", "apartment")));
+    }
+
+    @Test
+    public void shouldMergeSegments_withManyUpdates() {
+        // Given
+        final InMemoryDocumentSearchEngine searchEngine = configuredSearchEngine();
+        final int documentCount = 1000;
+
+        // When
+        for (int i = 0; i < documentCount; i++) {
+            searchEngine.update(searchDocument(String.valueOf(i), randomString(10), "hotel", i % 5, (double) i));
+            searchEngine.update(searchDocument(String.valueOf(i), randomString(10), "hotel", i % 5, (double) i));
+        }
+
+        // Then
+        final DocumentSearchResponse<StubSearchDocument> response = searchEngine.search(
+                new RangeQuery("rating", 4, 4, true, true), 0, documentCount, StubSearchDocument.class);
+        assertEquals(documentCount / 5, response.getTotalCount());
+        assertTrue(searchEngine.documentIndex(StubSearchDocument.class).snapshot().segmentCount() <= 20);
+    }
+
+    @Test
+    public void shouldNotChangeSnapshot_withLaterUpdatesAndDeletes() {
+        // Given
+        final InMemoryDocumentSearchEngine searchEngine = configuredSearchEngine();
+        final StubSearchDocument document1 = searchDocument("1", randomString(10), "hotel", 1, 1.0);
+        final StubSearchDocument document2 = searchDocument("2", randomString(10), "hotel", 1, 1.0);
+        searchEngine.update(Arrays.asList(document1, document2));
+        final DocumentIndex documentIndex = searchEngine.documentIndex(StubSearchDocument.class);
+        final DocumentIndex.Snapshot snapshot = documentIndex.snapshot();
+
+        // When
+        searchEngine.update(searchDocument("1", randomString(10), "apartment", 1, 1.0));
+        searchEngine.delete(document2);
+
+        // Then
+        final Set<String> matchingIds = new QueryMatcher(documentIndex, snapshot)
+                .matchingIds(new TermQuery("category", "hotel"));
+        assertEquals(new HashSet<>(Arrays.asList("1", "2")), matchingIds);
+    }
+
+    @Test
+    public void shouldFindDocuments_withNoDocumentConfigurations() {
+        // Given
+        final InMemoryDocumentSearchEngine searchEngine = new InMemoryDocumentSearchEngine();
+        final StubDocument document1 = new StubDocument();
+        document1.setId("1");
+        document1.setStringProperty("Some Value");
+        final StubDocument document2 = new StubDocument();
+        document2.setId("2");
+        document2.setStringProperty("Other Value");
+        searchEngine.update(Arrays.asList(document1, document2));
+
+        // When
+        final DocumentSearchResponse<StubDocument> termResponse = searchEngine
+                .search(new TermQuery("stringProperty", "Some Value"), 0, 10, StubDocument.class);
+        final DocumentSearchResponse<StubDocument> simpleResponse = searchEngine.search(new SimpleQuery("value"), 0,
+                10, StubDocument.class);
+
+        // Then
+        assertEquals(Arrays.asList(document1), termResponse.getHits());
+        assertEquals(Arrays.asList(document1, document2), simpleResponse.getHits());
+    }
+
+    @Test(expected = UnsuccessfulSearchException.class)
+    public void shouldNotSearch_withUnknownField() {
+        search(configuredSearchEngine(), new TermQuery(randomString(10), randomString(10)));
+    }
+
+    private InMemoryDocumentSearchEngine configuredSearchEngine() {
+        final DocumentConfiguration documentConfiguration = new DocumentConfiguration(StubSearchDocument.class,
+                "stub");
+        documentConfiguration.registerIndexes(Arrays.asList(new IndexDefinition("name", IndexFieldType.TEXT),
+                new IndexDefinition("category", IndexFieldType.LITERAL),
+                new IndexDefinition("rating", IndexFieldType.INT),
+                new IndexDefinition("price", IndexFieldType.DOUBLE),
+                new IndexDefinition("created", IndexFieldType.DATETIME),
+                new IndexDefinition("tags", IndexFieldType.LITERAL_ARRAY, true, true, false)));
+        return new InMemoryDocumentSearchEngine(
+                new DocumentConfigurationHolder(randomString(10), Collections.singletonList(documentConfiguration)));
+    }
+
+    private List<StubSearchDocument> search(final InMemoryDocumentSearchEngine searchEngine, final Query query) {
+        return searchEngine.search(query, 0, 100, StubSearchDocument.class).getHits();
+    }
+
+    private StubSearchDocument searchDocument(final String id, final String name, final String category,
+            final Integer rating, final Double price) {
+        final StubSearchDocument document = new StubSearchDocument();
+        document.setId(id);
+        document.setName(name);
+        document.setCategory(category);
+        document.setRating(rating);
+        document.setPrice(price);
+        return document;
+    }
+
+    private List<StubDocument> documents(final int count) {
+        final List<StubDocument> documents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final StubDocument document = new StubDocument();
+            document.setId(String.valueOf(i));
+            documents.add(document);
+        }
+        return documents;
+    }
+}
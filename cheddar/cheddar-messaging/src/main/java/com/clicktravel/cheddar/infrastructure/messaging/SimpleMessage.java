@@ -16,21 +16,34 @@
  */
 package com.clicktravel.cheddar.infrastructure.messaging;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 public class SimpleMessage extends AbstractMessage implements TypedMessage {
 
     private final String type;
     private final String payload;
+    private final Map<String, String> attributes;
 
     public SimpleMessage(final String type, final String payload, final String messageId, final String receiptHandle) {
         super(messageId, receiptHandle);
         this.type = type;
         this.payload = payload;
+        attributes = Collections.emptyMap();
     }
 
     public SimpleMessage(final String type, final String payload) {
         this(type, payload, null, null);
     }
 
+    public SimpleMessage(final String type, final String payload, final Map<String, String> attributes) {
+        super(null, null);
+        this.type = type;
+        this.payload = payload;
+        this.attributes = Collections.unmodifiableMap(new HashMap<>(attributes));
+    }
+
     @Override
     public String getType() {
         return type;
@@ -41,6 +54,11 @@ public class SimpleMessage extends AbstractMessage implements TypedMessage {
         return payload;
     }
 
+    @Override
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
     @Override
     public String toString() {
         return "SimpleMessage; type:[" + type + "] payload:[" + payload + "]";
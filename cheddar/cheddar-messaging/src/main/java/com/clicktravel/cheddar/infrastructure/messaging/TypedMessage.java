@@ -16,6 +16,9 @@
  */
 package com.clicktravel.cheddar.infrastructure.messaging;
 
+import java.util.Collections;
+import java.util.Map;
+
 /**
  * An abstract representation of a message that has type and payload components. This is used for all messages sent by a
  * Cheddar application.
@@ -26,4 +29,12 @@ public interface TypedMessage extends Message {
 
     String getPayload();
 
+    /**
+     * @return Routing attributes of this message, which are not part of the payload but may be used by messaging
+     *         infrastructure to restrict delivery to interested subscribers. Empty if the message has no attributes.
+     */
+    default Map<String, String> getAttributes() {
+        return Collections.emptyMap();
+    }
+
 }
\ No newline at end of file
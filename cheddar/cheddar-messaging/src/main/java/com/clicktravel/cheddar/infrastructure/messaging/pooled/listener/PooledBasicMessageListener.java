@@ -25,7 +25,7 @@ import org.slf4j.LoggerFactory;
 import com.clicktravel.cheddar.infrastructure.messaging.BasicMessage;
 import com.clicktravel.cheddar.infrastructure.messaging.MessageHandler;
 import com.clicktravel.cheddar.infrastructure.messaging.MessageQueue;
-import com.clicktravel.common.concurrent.RateLimiter;
+import com.clicktravel.common.concurrent.TokenBucket;
 
 public class PooledBasicMessageListener extends PooledMessageListener<BasicMessage> {
 
@@ -58,12 +58,12 @@ public class PooledBasicMessageListener extends PooledMessageListener<BasicMessa
      * @param basicMessageQueue The basic message queue to listen to
      * @param messageHandler The handler used for all messages that are received
      * @param numWorkerThreads The number of worker threads to use
-     * @param rateLimiter An optional {@link RateLimiter} used to limit the message throughput
+     * @param rateLimiter An optional {@link TokenBucket} used to limit the message throughput
      */
     public PooledBasicMessageListener(final MessageQueue<BasicMessage> basicMessageQueue,
-            final MessageHandler<BasicMessage> messageHandler, final int numWorkerThreads, final RateLimiter rateLimiter) {
+            final MessageHandler<BasicMessage> messageHandler, final int numWorkerThreads, final TokenBucket rateLimiter) {
         this(basicMessageQueue, messageHandler, rateLimiter, new MessageHandlerExecutor(basicMessageQueue.getName(),
-                numWorkerThreads), new Semaphore((numWorkerThreads * IDEAL_RUNNABLES_PER_THREAD)
+                numWorkerThreads), new ResizableSemaphore((numWorkerThreads * IDEAL_RUNNABLES_PER_THREAD)
                 + DEFAULT_MAX_RECEIVED_MESSAGES - 1), DEFAULT_MAX_RECEIVED_MESSAGES);
     }
 
@@ -71,13 +71,13 @@ public class PooledBasicMessageListener extends PooledMessageListener<BasicMessa
      * Most general constructor, allows for greatest flexibility
      * @param basicMessageQueue The basic message queue to listen to
      * @param messageHandler The handler used for all messages that are received
-     * @param rateLimiter An optional {@link RateLimiter} used to limit the message throughput
+     * @param rateLimiter An optional {@link TokenBucket} used to limit the message throughput
      * @param threadPoolExecutor {@link ThreadPoolExecutor} for a fixed-size thread pool for message handler tasks
      * @param semaphore {@link Semaphore} used to regulate number of in-flight messages to keep all worker threads busy
      * @param maxReceivedMessages Maximum number of messages to receive from the queue at a time
      */
     public PooledBasicMessageListener(final MessageQueue<BasicMessage> basicMessageQueue,
-            final MessageHandler<BasicMessage> messageHandler, final RateLimiter rateLimiter,
+            final MessageHandler<BasicMessage> messageHandler, final TokenBucket rateLimiter,
             final ThreadPoolExecutor threadPoolExecutor, final Semaphore semaphore, final int maxReceivedMessages) {
         super(basicMessageQueue, rateLimiter, threadPoolExecutor, semaphore, maxReceivedMessages);
         this.messageHandler = messageHandler;
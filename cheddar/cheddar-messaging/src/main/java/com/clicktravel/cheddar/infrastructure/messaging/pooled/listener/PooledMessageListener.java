@@ -31,7 +31,8 @@ import com.clicktravel.cheddar.infrastructure.messaging.MessageListener;
 import com.clicktravel.cheddar.infrastructure.messaging.MessageQueue;
 import com.clicktravel.cheddar.infrastructure.messaging.exception.MessageDeleteException;
 import com.clicktravel.cheddar.infrastructure.messaging.exception.MessageReceiveException;
-import com.clicktravel.common.concurrent.RateLimiter;
+import com.clicktravel.common.concurrent.AdaptiveConcurrencyLimiter;
+import com.clicktravel.common.concurrent.TokenBucket;
 
 public abstract class PooledMessageListener<T extends Message> implements MessageListener, Runnable {
 
@@ -83,14 +84,15 @@ public abstract class PooledMessageListener<T extends Message> implements Messag
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final MessageQueue<T> messageQueue;
     private final ThreadPoolExecutor threadPoolExecutor;
-    private final RateLimiter rateLimiter;
+    private final TokenBucket rateLimiter;
+    private volatile AdaptiveConcurrencyLimiter concurrencyLimiter;
     private final Semaphore semaphore;
     private final int maxReceivedMessages;
     private volatile boolean started;
     private volatile boolean shutdownRequested;
     private volatile boolean shutdownRequestImminent;
 
-    public PooledMessageListener(final MessageQueue<T> messageQueue, final RateLimiter rateLimiter,
+    public PooledMessageListener(final MessageQueue<T> messageQueue, final TokenBucket rateLimiter,
             final ThreadPoolExecutor threadPoolExecutor, final Semaphore semaphore, final int maxReceivedMessages) {
         this.messageQueue = messageQueue;
         this.rateLimiter = rateLimiter;
@@ -99,6 +101,49 @@ public abstract class PooledMessageListener<T extends Message> implements Messag
         this.maxReceivedMessages = maxReceivedMessages;
     }
 
+    /**
+     * Sets an optional {@link AdaptiveConcurrencyLimiter} to limit the number of messages concurrently being handled,
+     * within the limit set by the worker thread pool. The latency of each message handler is reported to the limiter.
+     * This should be set before the listener is started.
+     * @param concurrencyLimiter Limiter of concurrently handled messages
+     */
+    public void setConcurrencyLimiter(final AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    /**
+     * Resizes the worker thread pool at runtime. The number of in-flight messages permitted by the semaphore is
+     * adjusted in proportion, to keep all worker threads busy. Permits can only be removed from a
+     * {@link ResizableSemaphore}; for other semaphores the in-flight message limit is left unchanged when shrinking.
+     * @param workerThreads New number of worker threads, must be at least 1
+     */
+    public synchronized void setWorkerThreads(final int workerThreads) {
+        if (workerThreads < 1) {
+            throw new IllegalArgumentException("Number of worker threads must be at least 1");
+        }
+        final int currentWorkerThreads = threadPoolExecutor.getMaximumPoolSize();
+        final int permitsDelta = (workerThreads - currentWorkerThreads) * IDEAL_RUNNABLES_PER_THREAD;
+        if (workerThreads > currentWorkerThreads) {
+            threadPoolExecutor.setMaximumPoolSize(workerThreads);
+            threadPoolExecutor.setCorePoolSize(workerThreads);
+            semaphore.release(permitsDelta);
+        } else if (workerThreads < currentWorkerThreads) {
+            threadPoolExecutor.setCorePoolSize(workerThreads);
+            threadPoolExecutor.setMaximumPoolSize(workerThreads);
+            if (semaphore instanceof ResizableSemaphore) {
+                ((ResizableSemaphore) semaphore).reducePermits(-permitsDelta);
+            } else {
+                logger.warn(String.format("In-flight message limit for queue [%s] cannot be reduced", queueName()));
+            }
+        }
+        logger.info(String.format("Listener for queue [%s] resized from %d to %d worker threads", queueName(),
+                currentWorkerThreads, workerThreads));
+    }
+
+    public int getWorkerThreads() {
+        return threadPoolExecutor.getMaximumPoolSize();
+    }
+
     protected abstract MessageHandler<T> getHandlerForMessage(T message);
 
     protected abstract void listenerStarted();
@@ -113,8 +158,9 @@ public abstract class PooledMessageListener<T extends Message> implements Messag
         try {
             started = true;
             listenerStarted();
-            final String limiterSummary = rateLimiter != null ? ("using " + rateLimiter.toString())
-                    : "not rate limited";
+            final String limiterSummary = (rateLimiter != null ? ("using " + rateLimiter.toString())
+                    : "not rate limited")
+                    + (concurrencyLimiter != null ? (" with " + concurrencyLimiter.toString()) : "");
             logger.debug(String.format("Listener for queue [%s] has pool of %d threads and is %s", queueName(),
                     threadPoolExecutor.getMaximumPoolSize(), limiterSummary));
             processMessagesUntilShutdownRequested();
@@ -169,7 +215,11 @@ public abstract class PooledMessageListener<T extends Message> implements Messag
             final MessageHandler<T> messageHandler = getHandlerForMessage(message);
             if (messageHandler != null) {
                 applyRateLimiter();
-                threadPoolExecutor.execute(new MessageHandlerWorker<T>(this, message, messageHandler));
+                if (!executeWorker(new MessageHandlerWorker<T>(this, message, messageHandler))) {
+                    // Not deleted, so the message is received again once its visibility timeout expires
+                    semaphore.release();
+                    return;
+                }
                 workerAssigned = true;
             }
         } catch (final Exception e) {
@@ -205,6 +255,39 @@ public abstract class PooledMessageListener<T extends Message> implements Messag
                 message.getMessageId(), queueName()));
     }
 
+    /**
+     * Executes a worker, first waiting for a permit from the concurrency limiter if there is one
+     * @return {@code false} if the worker was not executed because the thread was interrupted while waiting for a
+     *         permit, the interrupt status being restored
+     */
+    private boolean executeWorker(final MessageHandlerWorker<T> worker) {
+        final AdaptiveConcurrencyLimiter limiter = concurrencyLimiter;
+        if (limiter == null) {
+            threadPoolExecutor.execute(worker);
+            return true;
+        }
+        try {
+            limiter.acquire(); // block until in-flight messages are below limit
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        try {
+            threadPoolExecutor.execute(() -> {
+                final long start = System.nanoTime();
+                try {
+                    worker.run();
+                } finally {
+                    limiter.release(System.nanoTime() - start);
+                }
+            });
+        } catch (final RuntimeException e) {
+            limiter.release();
+            throw e;
+        }
+        return true;
+    }
+
     private void applyRateLimiter() {
         if (rateLimiter != null) {
             try {
@@ -29,7 +29,7 @@ import com.clicktravel.cheddar.infrastructure.messaging.MessageHandler;
 import com.clicktravel.cheddar.infrastructure.messaging.MessageQueue;
 import com.clicktravel.cheddar.infrastructure.messaging.TypedMessage;
 import com.clicktravel.cheddar.infrastructure.messaging.TypedMessageListener;
-import com.clicktravel.common.concurrent.RateLimiter;
+import com.clicktravel.common.concurrent.TokenBucket;
 import com.clicktravel.common.functional.StringUtils;
 
 public class PooledTypedMessageListener extends PooledMessageListener<TypedMessage> implements TypedMessageListener {
@@ -58,25 +58,26 @@ public class PooledTypedMessageListener extends PooledMessageListener<TypedMessa
      * Convenience constructor, uses defaults based on specified number of threads
      * @param typedMessageQueue The typed message queue to listen to
      * @param numWorkerThreads The number of worker threads to use
-     * @param rateLimiter An optional {@link RateLimiter} used to limit the message throughput
+     * @param rateLimiter An optional {@link TokenBucket} used to limit the message throughput
      */
     public PooledTypedMessageListener(final MessageQueue<TypedMessage> typedMessageQueue, final int numWorkerThreads,
-            final RateLimiter rateLimiter) {
+            final TokenBucket rateLimiter) {
         this(typedMessageQueue, rateLimiter, new MessageHandlerExecutor(typedMessageQueue.getName(), numWorkerThreads),
-                new Semaphore((numWorkerThreads * IDEAL_RUNNABLES_PER_THREAD) + DEFAULT_MAX_RECEIVED_MESSAGES - 1),
+                new ResizableSemaphore(
+                        (numWorkerThreads * IDEAL_RUNNABLES_PER_THREAD) + DEFAULT_MAX_RECEIVED_MESSAGES - 1),
                 DEFAULT_MAX_RECEIVED_MESSAGES);
     }
 
     /**
      * Most general constructor, allows for greatest flexibility
      * @param typedMessageQueue The typed message queue to listen to
-     * @param rateLimiter An optional {@link RateLimiter} used to limit the message throughput
+     * @param rateLimiter An optional {@link TokenBucket} used to limit the message throughput
      * @param threadPoolExecutor {@link ThreadPoolExecutor} for a fixed-size thread pool for message handler tasks
      * @param semaphore {@link Semaphore} used to regulate number of in-flight messages to keep all worker threads busy
      * @param maxReceivedMessages Maximum number of messages to receive from the queue at a time
      */
     public PooledTypedMessageListener(final MessageQueue<TypedMessage> typedMessageQueue,
-            final RateLimiter rateLimiter, final ThreadPoolExecutor threadPoolExecutor, final Semaphore semaphore,
+            final TokenBucket rateLimiter, final ThreadPoolExecutor threadPoolExecutor, final Semaphore semaphore,
             final int maxReceivedMessages) {
         super(typedMessageQueue, rateLimiter, threadPoolExecutor, semaphore, maxReceivedMessages);
     }
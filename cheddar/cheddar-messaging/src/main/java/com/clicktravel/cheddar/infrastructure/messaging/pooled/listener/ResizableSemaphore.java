@@ -0,0 +1,38 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.messaging.pooled.listener;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * {@link Semaphore} whose number of permits can be reduced as well as increased, allowing the in-flight message limit
+ * of a {@link PooledMessageListener} to follow changes to the size of its worker thread pool.
+ */
+public class ResizableSemaphore extends Semaphore {
+
+    private static final long serialVersionUID = 1L;
+
+    public ResizableSemaphore(final int permits) {
+        super(permits);
+    }
+
+    @Override
+    public void reducePermits(final int reduction) {
+        super.reducePermits(reduction);
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.messaging.pooled.listener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.clicktravel.cheddar.infrastructure.messaging.BasicMessage;
+import com.clicktravel.cheddar.infrastructure.messaging.MessageHandler;
+import com.clicktravel.cheddar.infrastructure.messaging.MessageQueue;
+import com.clicktravel.cheddar.infrastructure.messaging.SimpleBasicMessage;
+import com.clicktravel.common.concurrent.AdaptiveConcurrencyLimiter;
+
+@SuppressWarnings("unchecked")
+public class PooledBasicMessageListenerTest {
+
+    private MessageQueue<BasicMessage> messageQueue;
+    private MessageHandler<BasicMessage> messageHandler;
+    private ThreadPoolExecutor threadPoolExecutor;
+
+    @Before
+    public void setUp() {
+        messageQueue = mock(MessageQueue.class);
+        messageHandler = mock(MessageHandler.class);
+        threadPoolExecutor = new MessageHandlerExecutor("queue", 4);
+    }
+
+    @After
+    public void tearDown() {
+        threadPoolExecutor.shutdownNow();
+    }
+
+    @Test
+    public void shouldIncreaseThreadsAndPermits_onSetWorkerThreads() {
+        // Given
+        final Semaphore semaphore = new ResizableSemaphore(17);
+        final PooledBasicMessageListener listener = new PooledBasicMessageListener(messageQueue, messageHandler,
+                null, threadPoolExecutor, semaphore, 10);
+
+        // When
+        listener.setWorkerThreads(6);
+
+        // Then
+        assertEquals(6, listener.getWorkerThreads());
+        assertEquals(6, threadPoolExecutor.getCorePoolSize());
+        assertEquals(21, semaphore.availablePermits());
+    }
+
+    @Test
+    public void shouldDecreaseThreadsAndPermits_onSetWorkerThreads() {
+        // Given
+        final Semaphore semaphore = new ResizableSemaphore(17);
+        final PooledBasicMessageListener listener = new PooledBasicMessageListener(messageQueue, messageHandler,
+                null, threadPoolExecutor, semaphore, 10);
+
+        // When
+        listener.setWorkerThreads(1);
+
+        // Then
+        assertEquals(1, listener.getWorkerThreads());
+        assertEquals(1, threadPoolExecutor.getCorePoolSize());
+        assertEquals(11, semaphore.availablePermits());
+    }
+
+    @Test
+    public void shouldNotReducePermits_onSetWorkerThreadsWithNonResizableSemaphore() {
+        // Given
+        final Semaphore semaphore = new Semaphore(17);
+        final PooledBasicMessageListener listener = new PooledBasicMessageListener(messageQueue, messageHandler,
+                null, threadPoolExecutor, semaphore, 10);
+
+        // When
+        listener.setWorkerThreads(2);
+
+        // Then
+        assertEquals(2, listener.getWorkerThreads());
+        assertEquals(17, semaphore.availablePermits());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowException_onSetWorkerThreadsBelowOne() {
+        // Given
+        final PooledBasicMessageListener listener = new PooledBasicMessageListener(messageQueue, messageHandler,
+                null, threadPoolExecutor, new ResizableSemaphore(17), 10);
+
+        // When
+        listener.setWorkerThreads(0);
+    }
+
+    @Test
+    public void shouldNotDeleteMessage_onInterruptWaitingForConcurrencyPermit() throws Exception {
+        // Given
+        final BasicMessage message = new SimpleBasicMessage("body", "messageId", "receiptHandle");
+        when(messageQueue.receive(anyInt(), anyInt())).thenReturn(Collections.singletonList(message));
+        final AdaptiveConcurrencyLimiter concurrencyLimiter = mock(AdaptiveConcurrencyLimiter.class);
+        doThrow(new InterruptedException()).when(concurrencyLimiter).acquire();
+        final Semaphore semaphore = new ResizableSemaphore(17);
+        final PooledBasicMessageListener listener = new PooledBasicMessageListener(messageQueue, messageHandler,
+                null, threadPoolExecutor, semaphore, 10);
+        listener.setConcurrencyLimiter(concurrencyLimiter);
+
+        // When
+        try {
+            listener.run();
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+
+        // Then
+        verify(messageQueue, never()).delete(any(BasicMessage.class));
+        verifyZeroInteractions(messageHandler);
+        assertEquals(0, threadPoolExecutor.getTaskCount());
+        assertEquals(17, semaphore.availablePermits());
+    }
+
+}
@@ -79,7 +79,9 @@ public interface DocumentSearchEngine {
      * @param size the size of the page of documents you want returned; leave <code>null</code> to return up the
      *            implementation defined default size
      * @param documentClass the type of document being queried
-     * @param options the extra values you wish to pass to the search see {@link SearchOptions.class}
+     * @param options the extra values you wish to pass to the search see {@link SearchOptions.class}; if these include
+     *            a cursor, the start index is ignored and the response includes the cursor for the following page (see
+     *            {@link DocumentSearchPages} to iterate through all pages)
      * @return a DocumentSearchResponse containing a page of documents matching the supplied query in the desired sort
      *         order along with results metadata
      */
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.options.SearchOptions;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.Query;
+
+/**
+ * Iterates through an entire result set of a {@link DocumentSearchEngine} search page by page using cursors, which
+ * unlike paging by start index does not get slower for deeper pages. Each page is only searched for when required.
+ * @param <T> Document type
+ */
+public class DocumentSearchPages<T extends Document> implements Iterator<DocumentSearchResponse<T>> {
+
+    private final DocumentSearchEngine documentSearchEngine;
+    private final Query query;
+    private final int pageSize;
+    private final Class<T> documentClass;
+    private final SearchOptions options;
+    private String nextCursor;
+    private int documentsReturned;
+
+    /**
+     * @param documentSearchEngine Engine to search
+     * @param query Query describing the documents to return
+     * @param pageSize Number of documents to return in each page
+     * @param documentClass Type of document being queried
+     * @param options Search options; any cursor set in them is ignored
+     */
+    public DocumentSearchPages(final DocumentSearchEngine documentSearchEngine, final Query query,
+            final int pageSize, final Class<T> documentClass, final SearchOptions options) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.documentSearchEngine = documentSearchEngine;
+        this.query = query;
+        this.pageSize = pageSize;
+        this.documentClass = documentClass;
+        this.options = options;
+        nextCursor = SearchOptions.INITIAL_CURSOR;
+    }
+
+    /**
+     * @return Stream of all documents matching the query, searched for page by page as the stream is consumed
+     */
+    public static <T extends Document> Stream<T> documents(final DocumentSearchEngine documentSearchEngine,
+            final Query query, final int pageSize, final Class<T> documentClass, final SearchOptions options) {
+        final Iterator<DocumentSearchResponse<T>> pages = new DocumentSearchPages<>(documentSearchEngine, query,
+                pageSize, documentClass, options);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED), false)
+                .flatMap(page -> page.getHits().stream());
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public DocumentSearchResponse<T> next() {
+        if (nextCursor == null) {
+            throw new NoSuchElementException();
+        }
+        final DocumentSearchResponse<T> page = documentSearchEngine.search(query, null, pageSize, documentClass,
+                new SearchOptions(options).withCursor(nextCursor));
+        documentsReturned += page.getCount();
+        // A cursor is returned even with the last page, so stop once a page is short or all results are returned
+        final boolean lastPage = page.getCount() < pageSize || documentsReturned >= page.getTotalCount();
+        nextCursor = lastPage ? null : page.getCursor();
+        return page;
+    }
+}
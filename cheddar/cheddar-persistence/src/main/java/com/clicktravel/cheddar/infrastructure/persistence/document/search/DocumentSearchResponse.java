@@ -16,18 +16,29 @@
  */
 package com.clicktravel.cheddar.infrastructure.persistence.document.search;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.facet.FacetBucket;
 
 public class DocumentSearchResponse<T extends Document> {
 
     private final int totalCount;
     private final String cursor;
     private final List<T> hits;
+    private final Map<String, List<FacetBucket>> facets;
 
     public DocumentSearchResponse(final int totalCount, final String cursor, final List<T> hits) {
+        this(totalCount, cursor, hits, Collections.<String, List<FacetBucket>> emptyMap());
+    }
+
+    public DocumentSearchResponse(final int totalCount, final String cursor, final List<T> hits,
+            final Map<String, List<FacetBucket>> facets) {
         this.totalCount = totalCount;
         this.cursor = cursor;
         this.hits = hits;
+        this.facets = facets;
     }
 
     public int getCount() {
@@ -49,4 +60,11 @@ public class DocumentSearchResponse<T extends Document> {
     public List<T> getHits() {
         return hits;
     }
+
+    /**
+     * @return Buckets for each facet field requested in the search options, keyed by field
+     */
+    public Map<String, List<FacetBucket>> getFacets() {
+        return facets;
+    }
 }
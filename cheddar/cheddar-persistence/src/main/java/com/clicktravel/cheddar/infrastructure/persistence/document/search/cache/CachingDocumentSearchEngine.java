@@ -0,0 +1,217 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search.cache;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.Document;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.DocumentSearchEngine;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.DocumentSearchResponse;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.options.SearchOptions;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.Query;
+
+/**
+ * A {@link DocumentSearchEngine} which caches search responses from an underlying search engine, for repeated
+ * identical searches such as typeahead and listing queries. Searches are identified by document class, query type,
+ * normalised query string, start, size and {@link SearchOptions}. The query normaliser must give the same string for
+ * equivalent queries and must be thread-safe; for CloudSearch use {@code queryBuilder::buildQuery} with a shared
+ * {@code QueryBuilder}, which writes the sub-queries of and and or queries in a canonical order.
+ * <p>
+ * An update or delete through this search engine invalidates all cached responses for the document class. Changes made
+ * to the index by other means are only seen once cached responses expire. Cached responses, and the documents in them,
+ * are shared between callers so must not be modified.
+ */
+public class CachingDocumentSearchEngine implements DocumentSearchEngine {
+
+    private final DocumentSearchEngine documentSearchEngine;
+    private final Function<Query, String> queryNormaliser;
+    private final long timeToLiveNanos;
+    private final Map<SearchKey, CachedResponse> cachedResponses;
+    private final Map<Class<? extends Document>, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final Map<Class<? extends Document>, SearchResultCacheStatistics> statistics = new ConcurrentHashMap<>();
+
+    public CachingDocumentSearchEngine(final DocumentSearchEngine documentSearchEngine,
+            final Function<Query, String> queryNormaliser, final SearchResultCacheConfiguration configuration) {
+        this.documentSearchEngine = documentSearchEngine;
+        this.queryNormaliser = queryNormaliser;
+        timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(configuration.timeToLiveMillis());
+        final int maxEntries = configuration.maxEntries();
+        cachedResponses = new LinkedHashMap<SearchKey, CachedResponse>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<SearchKey, CachedResponse> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public void update(final Document document) {
+        documentSearchEngine.update(document);
+        invalidate(document.getClass());
+    }
+
+    @Override
+    public void update(final Collection<? extends Document> documents) {
+        documentSearchEngine.update(documents);
+        invalidate(documents);
+    }
+
+    @Override
+    public void delete(final Document document) {
+        documentSearchEngine.delete(document);
+        invalidate(document.getClass());
+    }
+
+    @Override
+    public void delete(final Collection<? extends Document> documents) {
+        documentSearchEngine.delete(documents);
+        invalidate(documents);
+    }
+
+    @Override
+    public <T extends Document> DocumentSearchResponse<T> search(final Query query, final Integer start,
+            final Integer size, final Class<T> documentClass) {
+        return search(query, start, size, documentClass, null,
+                () -> documentSearchEngine.search(query, start, size, documentClass));
+    }
+
+    @Override
+    public <T extends Document> DocumentSearchResponse<T> search(final Query query, final Integer start,
+            final Integer size, final Class<T> documentClass, final SearchOptions options) {
+        return search(query, start, size, documentClass, options,
+                () -> documentSearchEngine.search(query, start, size, documentClass, options));
+    }
+
+    /**
+     * @return Cache statistics for each document class searched
+     */
+    public Map<Class<? extends Document>, SearchResultCacheStatistics> statistics() {
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Document> DocumentSearchResponse<T> search(final Query query, final Integer start,
+            final Integer size, final Class<T> documentClass, final SearchOptions options,
+            final Supplier<DocumentSearchResponse<T>> search) {
+        // Copy the options, which are mutable, so later changes by the caller do not alter the key
+        final SearchKey searchKey = new SearchKey(documentClass, query.queryType() + ":" + queryNormaliser.apply(query),
+                start, size, options == null ? null : new SearchOptions(options));
+        final long generation = generation(documentClass).get();
+        final long now = System.nanoTime();
+        final CachedResponse cachedResponse;
+        synchronized (cachedResponses) {
+            cachedResponse = cachedResponses.get(searchKey);
+        }
+        final SearchResultCacheStatistics documentClassStatistics = statistics.computeIfAbsent(documentClass,
+                c -> new SearchResultCacheStatistics());
+        if (cachedResponse != null && cachedResponse.generation == generation && now < cachedResponse.expiryNanos) {
+            documentClassStatistics.recordHit();
+            return (DocumentSearchResponse<T>) cachedResponse.response;
+        }
+        documentClassStatistics.recordMiss();
+        final DocumentSearchResponse<T> response = search.get();
+        // Responses from searches that overlapped an update carry the old generation, so are never returned
+        synchronized (cachedResponses) {
+            cachedResponses.put(searchKey, new CachedResponse(response, generation, now + timeToLiveNanos));
+        }
+        return response;
+    }
+
+    private void invalidate(final Collection<? extends Document> documents) {
+        final Set<Class<? extends Document>> documentClasses = new HashSet<>();
+        for (final Document document : documents) {
+            documentClasses.add(document.getClass());
+        }
+        for (final Class<? extends Document> documentClass : documentClasses) {
+            invalidate(documentClass);
+        }
+    }
+
+    /**
+     * Invalidates all cached responses for the document class, which are then replaced as they are next searched for
+     * or evicted as least recently used
+     */
+    private void invalidate(final Class<? extends Document> documentClass) {
+        generation(documentClass).incrementAndGet();
+        statistics.computeIfAbsent(documentClass, c -> new SearchResultCacheStatistics()).recordInvalidation();
+    }
+
+    private AtomicLong generation(final Class<? extends Document> documentClass) {
+        return generations.computeIfAbsent(documentClass, c -> new AtomicLong());
+    }
+
+    private static class CachedResponse {
+
+        private final DocumentSearchResponse<?> response;
+        private final long generation;
+        private final long expiryNanos;
+
+        private CachedResponse(final DocumentSearchResponse<?> response, final long generation,
+                final long expiryNanos) {
+            this.response = response;
+            this.generation = generation;
+            this.expiryNanos = expiryNanos;
+        }
+
+    }
+
+    private static class SearchKey {
+
+        private final Class<? extends Document> documentClass;
+        private final String normalisedQuery;
+        private final Integer start;
+        private final Integer size;
+        private final SearchOptions options;
+
+        private SearchKey(final Class<? extends Document> documentClass, final String normalisedQuery,
+                final Integer start, final Integer size, final SearchOptions options) {
+            this.documentClass = documentClass;
+            this.normalisedQuery = normalisedQuery;
+            this.start = start;
+            this.size = size;
+            this.options = options;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(documentClass, normalisedQuery, start, size, options);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof SearchKey)) {
+                return false;
+            }
+            final SearchKey other = (SearchKey) obj;
+            return documentClass == other.documentClass && normalisedQuery.equals(other.normalisedQuery)
+                    && Objects.equals(start, other.start) && Objects.equals(size, other.size)
+                    && Objects.equals(options, other.options);
+        }
+
+    }
+
+}
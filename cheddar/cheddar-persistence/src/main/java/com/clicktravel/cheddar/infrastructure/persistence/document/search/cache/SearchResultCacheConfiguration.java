@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search.cache;
+
+/**
+ * Bounds of the cache held by a {@link CachingDocumentSearchEngine}
+ */
+public class SearchResultCacheConfiguration {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = 10000;
+
+    private final int maxEntries;
+    private final long timeToLiveMillis;
+
+    /**
+     * @param maxEntries Maximum number of cached search responses; the least recently used is evicted to make room
+     * @param timeToLiveMillis Time for which a search response is cached, in milliseconds. This bounds how long a
+     *            search may return stale results after a change not made through the caching search engine.
+     */
+    public SearchResultCacheConfiguration(final int maxEntries, final long timeToLiveMillis) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Maximum number of cache entries must be positive");
+        }
+        if (timeToLiveMillis < 0) {
+            throw new IllegalArgumentException("Time to live must not be negative");
+        }
+        this.maxEntries = maxEntries;
+        this.timeToLiveMillis = timeToLiveMillis;
+    }
+
+    public static SearchResultCacheConfiguration defaults() {
+        return new SearchResultCacheConfiguration(DEFAULT_MAX_ENTRIES, DEFAULT_TIME_TO_LIVE_MILLIS);
+    }
+
+    public int maxEntries() {
+        return maxEntries;
+    }
+
+    public long timeToLiveMillis() {
+        return timeToLiveMillis;
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache hits and misses of searches for one document class through a {@link CachingDocumentSearchEngine}
+ */
+public class SearchResultCacheStatistics {
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    void recordInvalidation() {
+        invalidations.incrementAndGet();
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * @return Number of times cached responses were invalidated by an update or delete
+     */
+    public long invalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * @return Proportion of searches answered from the cache, or 0 if there have been no searches
+     */
+    public double hitRatio() {
+        final long hits = this.hits.get();
+        final long searches = hits + misses.get();
+        return searches == 0 ? 0 : (double) hits / searches;
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search.facet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Request for the counts of matching documents in each bucket of values of an index field, returned with the search
+ * results. By default, the buckets are the field values with the highest counts; alternatively specific bucket values
+ * may be requested. Instances are immutable; each {@code with} method returns a new request.
+ */
+public class FacetRequest {
+
+    public enum Sort {
+        COUNT,
+        BUCKET;
+    }
+
+    private final String field;
+    private final Sort sort;
+    private final Integer size;
+    private final List<String> buckets;
+
+    public FacetRequest(final String field) {
+        this(field, null, null, Collections.<String> emptyList());
+    }
+
+    private FacetRequest(final String field, final Sort sort, final Integer size, final List<String> buckets) {
+        if (field == null) {
+            throw new IllegalArgumentException("Facet field cannot be null");
+        }
+        this.field = field;
+        this.sort = sort;
+        this.size = size;
+        this.buckets = buckets;
+    }
+
+    /**
+     * @param sort Order of the buckets, either by descending count or by bucket value
+     */
+    public FacetRequest withSort(final Sort sort) {
+        return new FacetRequest(field, sort, size, buckets);
+    }
+
+    /**
+     * @param size Maximum number of buckets to return
+     */
+    public FacetRequest withSize(final int size) {
+        return new FacetRequest(field, sort, size, buckets);
+    }
+
+    /**
+     * @param buckets Specific bucket values to count, instead of the values with the highest counts
+     */
+    public FacetRequest withBuckets(final String... buckets) {
+        return new FacetRequest(field, sort, size,
+                Collections.unmodifiableList(new ArrayList<>(Arrays.asList(buckets))));
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public List<String> getBuckets() {
+        return buckets;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + buckets.hashCode();
+        result = prime * result + field.hashCode();
+        result = prime * result + ((size == null) ? 0 : size.hashCode());
+        result = prime * result + ((sort == null) ? 0 : sort.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final FacetRequest other = (FacetRequest) obj;
+        if (!buckets.equals(other.buckets)) {
+            return false;
+        }
+        if (!field.equals(other.field)) {
+            return false;
+        }
+        if (size == null) {
+            if (other.size != null) {
+                return false;
+            }
+        } else if (!size.equals(other.size)) {
+            return false;
+        }
+        if (sort != other.sort) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "FacetRequest [field=" + field + ", sort=" + sort + ", size=" + size + ", buckets=" + buckets + "]";
+    }
+}
@@ -16,10 +16,18 @@
  */
 package com.clicktravel.cheddar.infrastructure.persistence.document.search.options;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.facet.FacetRequest;
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.sort.SortOrder;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.sort.SortingOption;
 
 /**
  * SearchOptions are custom values that can be passed to a search query such as sorting or expressions
@@ -28,6 +36,11 @@ public class SearchOptions {
 
     public static final SearchOptions DEFAULT = new SearchOptions();
 
+    /**
+     * Cursor value which requests the first page of a cursor-paged search
+     */
+    public static final String INITIAL_CURSOR = "initial";
+
     /**
      * Sorting option applied to the query defaults to the default value and cannot be null
      */
@@ -38,9 +51,51 @@ public class SearchOptions {
      */
     private Map<String, String> expressions;
 
+    /**
+     * Cursor for deep paging through results; either {@link #INITIAL_CURSOR} or the cursor returned with the previous
+     * page. When set, the start index of a search is ignored. Defaults to null, for paging by start index.
+     */
+    private String cursor;
+
+    /**
+     * Index fields to return for each document; when empty, all fields are returned. Document properties for fields
+     * not returned are left unset.
+     */
+    private Set<String> returnFields;
+
+    /**
+     * Facets to count across all matching documents
+     */
+    private List<FacetRequest> facetRequests;
+
     public SearchOptions() {
         sortOrder = SortOrder.DEFAULT;
         expressions = new HashMap<String, String>();
+        returnFields = new LinkedHashSet<>();
+        facetRequests = new ArrayList<>();
+    }
+
+    /**
+     * Copy constructor
+     * @param searchOptions Search options to copy
+     */
+    public SearchOptions(final SearchOptions searchOptions) {
+        sortOrder = copy(searchOptions.sortOrder);
+        expressions = new HashMap<String, String>(searchOptions.expressions);
+        cursor = searchOptions.cursor;
+        returnFields = new LinkedHashSet<>(searchOptions.returnFields);
+        facetRequests = new ArrayList<>(searchOptions.facetRequests); // each FacetRequest is immutable
+    }
+
+    private static SortOrder copy(final SortOrder sortOrder) {
+        if (sortOrder == SortOrder.DEFAULT) {
+            return sortOrder;
+        }
+        final SortOrder copy = new SortOrder();
+        for (final SortingOption sortingOption : sortOrder.sortingOptions()) {
+            copy.addSortingOption(sortingOption);
+        }
+        return copy;
     }
 
     public SortOrder getSortOrder() {
@@ -65,6 +120,36 @@ public class SearchOptions {
         this.expressions = expressions;
     }
 
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(final String cursor) {
+        this.cursor = cursor;
+    }
+
+    public Set<String> getReturnFields() {
+        return returnFields;
+    }
+
+    public void setReturnFields(final Collection<String> returnFields) {
+        if (returnFields == null) {
+            throw new IllegalArgumentException("Return fields cannot be null but can be empty");
+        }
+        this.returnFields = new LinkedHashSet<>(returnFields);
+    }
+
+    public List<FacetRequest> getFacetRequests() {
+        return facetRequests;
+    }
+
+    public void setFacetRequests(final List<FacetRequest> facetRequests) {
+        if (facetRequests == null) {
+            throw new IllegalArgumentException("Facet requests cannot be null but can be empty");
+        }
+        this.facetRequests = new ArrayList<>(facetRequests);
+    }
+
     public SearchOptions withSortOrder(final SortOrder order) {
         if (order == null) {
             throw new IllegalArgumentException("SortOrder cannot be null");
@@ -81,12 +166,35 @@ public class SearchOptions {
         return this;
     }
 
+    public SearchOptions withCursor(final String cursor) {
+        this.cursor = cursor;
+        return this;
+    }
+
+    public SearchOptions withReturnFields(final String... returnFields) {
+        for (final String returnField : returnFields) {
+            this.returnFields.add(returnField);
+        }
+        return this;
+    }
+
+    public SearchOptions withFacetRequest(final FacetRequest facetRequest) {
+        if (facetRequest == null) {
+            throw new IllegalArgumentException("Facet request cannot be null");
+        }
+        facetRequests.add(facetRequest);
+        return this;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
         int result = 1;
         result = prime * result + expressions.hashCode();
         result = prime * result + sortOrder.hashCode();
+        result = prime * result + Objects.hashCode(cursor);
+        result = prime * result + returnFields.hashCode();
+        result = prime * result + facetRequests.hashCode();
         return result;
     }
 
@@ -108,6 +216,15 @@ public class SearchOptions {
         if (!sortOrder.equals(other.sortOrder)) {
             return false;
         }
+        if (!Objects.equals(cursor, other.cursor)) {
+            return false;
+        }
+        if (!returnFields.equals(other.returnFields)) {
+            return false;
+        }
+        if (!facetRequests.equals(other.facetRequests)) {
+            return false;
+        }
         return true;
     }
 }
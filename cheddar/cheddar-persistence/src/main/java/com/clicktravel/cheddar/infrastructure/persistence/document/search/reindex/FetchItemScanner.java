@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search.reindex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.clicktravel.cheddar.infrastructure.persistence.database.DatabaseTemplate;
+import com.clicktravel.cheddar.infrastructure.persistence.database.Item;
+import com.clicktravel.cheddar.infrastructure.persistence.database.query.Query;
+
+/**
+ * An {@link ItemScanner} for a {@link DatabaseTemplate} which cannot scan, which fetches all items matching a query on
+ * the first scan and then pages through them. All items are held in memory, so this is only suitable for small tables;
+ * a position is an index into the fetched items, so a resumed scan is only correct if the items are fetched in the same
+ * order again.
+ * @param <T> Class of items scanned
+ */
+public class FetchItemScanner<T extends Item> implements ItemScanner<T> {
+
+    private final DatabaseTemplate databaseTemplate;
+    private final Query query;
+    private final Class<T> itemClass;
+    private List<T> items;
+
+    public FetchItemScanner(final DatabaseTemplate databaseTemplate, final Query query, final Class<T> itemClass) {
+        this.databaseTemplate = databaseTemplate;
+        this.query = query;
+        this.itemClass = itemClass;
+    }
+
+    @Override
+    public int segments() {
+        return 1;
+    }
+
+    @Override
+    public synchronized ScanPage<T> scan(final int segment, final String position, final int maxItems) {
+        if (segment != 0) {
+            throw new IllegalArgumentException("No such segment: " + segment);
+        }
+        if (items == null) {
+            items = new ArrayList<>(databaseTemplate.fetch(query, itemClass));
+        }
+        final int start = position == null ? 0 : Integer.parseInt(position);
+        final int end = Math.min(start + maxItems, items.size());
+        return new ScanPage<>(items.subList(start, end), end < items.size() ? String.valueOf(end) : null);
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search.reindex;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ReindexTracker} which holds progress in memory and logs it, so a reindex can only be resumed within the same
+ * process
+ */
+public class InMemoryReindexTracker implements ReindexTracker {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final Map<String, ReindexProgress> progresses = new ConcurrentHashMap<>();
+
+    @Override
+    public void startReindex(final ReindexProgress progress) {
+        progresses.put(progress.reindexId(), progress);
+        logger.info("Started reindex: " + progress);
+    }
+
+    @Override
+    public void updateReindex(final ReindexProgress progress) {
+        progresses.put(progress.reindexId(), progress);
+        logger.debug("Reindex progress: " + progress);
+    }
+
+    @Override
+    public void completeReindex(final ReindexProgress progress) {
+        progresses.put(progress.reindexId(), progress);
+        logger.info("Completed reindex: " + progress);
+    }
+
+    @Override
+    public ReindexProgress progressForId(final String reindexId) {
+        return progresses.get(reindexId);
+    }
+
+}
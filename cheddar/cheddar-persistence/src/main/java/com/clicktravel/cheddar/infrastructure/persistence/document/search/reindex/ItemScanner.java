@@ -0,0 +1,43 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search.reindex;
+
+import com.clicktravel.cheddar.infrastructure.persistence.database.Item;
+
+/**
+ * Reads all items of a class a page at a time, for a {@link ReindexJob}. The items are divided into one or more
+ * segments, which may be scanned in parallel. Each page gives the position of the next page in its segment as a string,
+ * so that an interrupted scan can resume from the last position recorded.
+ * @param <T> Class of items scanned
+ */
+public interface ItemScanner<T extends Item> {
+
+    /**
+     * @return Number of segments, numbered from 0
+     */
+    int segments();
+
+    /**
+     * Reads the next page of items in a segment
+     * @param segment Number of the segment
+     * @param position Position of the page, as given by the previous page, or null for the first page
+     * @param maxItems Maximum number of items in the page
+     * @return Page of items
+     */
+    ScanPage<T> scan(int segment, String position, int maxItems);
+
+}
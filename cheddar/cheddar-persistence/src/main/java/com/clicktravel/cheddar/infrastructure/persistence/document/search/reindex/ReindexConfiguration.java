@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search.reindex;
+
+/**
+ * Configuration of a {@link ReindexJob}. Up to {@link #scanParallelism()} segments are scanned at once, a page of at
+ * most {@link #scanPageSize()} items at a time. Documents are uploaded in batches of at most
+ * {@link #uploadBatchSize()}; scanning waits while {@link #maxPendingBatches()} batches are waiting to be uploaded,
+ * which bounds the memory used however large the table.
+ */
+public class ReindexConfiguration {
+
+    public static final int DEFAULT_SCAN_PAGE_SIZE = 1000;
+    public static final int DEFAULT_UPLOAD_BATCH_SIZE = 500;
+    public static final int DEFAULT_MAX_PENDING_BATCHES = 4;
+    public static final int DEFAULT_SCAN_PARALLELISM = 4;
+
+    private final int scanPageSize;
+    private final int uploadBatchSize;
+    private final int maxPendingBatches;
+    private final int scanParallelism;
+
+    /**
+     * @param scanPageSize Maximum number of items read by each scan
+     * @param uploadBatchSize Maximum number of documents uploaded to the search engine at once
+     * @param maxPendingBatches Maximum number of batches waiting to be uploaded
+     * @param scanParallelism Maximum number of segments scanned at once
+     */
+    public ReindexConfiguration(final int scanPageSize, final int uploadBatchSize, final int maxPendingBatches,
+            final int scanParallelism) {
+        if (scanPageSize < 1 || uploadBatchSize < 1) {
+            throw new IllegalArgumentException("Scan page size and upload batch size must be positive");
+        }
+        if (maxPendingBatches < 1) {
+            throw new IllegalArgumentException("At least one batch must be allowed to wait for upload");
+        }
+        if (scanParallelism < 1) {
+            throw new IllegalArgumentException("Scan parallelism must be positive");
+        }
+        this.scanPageSize = scanPageSize;
+        this.uploadBatchSize = uploadBatchSize;
+        this.maxPendingBatches = maxPendingBatches;
+        this.scanParallelism = scanParallelism;
+    }
+
+    public static ReindexConfiguration defaults() {
+        return new ReindexConfiguration(DEFAULT_SCAN_PAGE_SIZE, DEFAULT_UPLOAD_BATCH_SIZE, DEFAULT_MAX_PENDING_BATCHES,
+                DEFAULT_SCAN_PARALLELISM);
+    }
+
+    public int scanPageSize() {
+        return scanPageSize;
+    }
+
+    public int uploadBatchSize() {
+        return uploadBatchSize;
+    }
+
+    public int maxPendingBatches() {
+        return maxPendingBatches;
+    }
+
+    public int scanParallelism() {
+        return scanParallelism;
+    }
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search.reindex;
+
+import com.clicktravel.cheddar.infrastructure.persistence.exception.PersistenceException;
+
+/**
+ * Thrown when a {@link ReindexJob} fails. The progress recorded by its {@link ReindexTracker} is that of the last
+ * uploaded batch, so the job can be run again to resume.
+ */
+public class ReindexException extends PersistenceException {
+
+    private static final long serialVersionUID = -2839117320455641972L;
+
+    public ReindexException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search.reindex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.clicktravel.cheddar.infrastructure.persistence.database.Item;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.Document;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.DocumentSearchEngine;
+import com.clicktravel.common.concurrent.TokenBucket;
+import com.clicktravel.common.mapper.Mapper;
+
+/**
+ * Rebuilds a search index from the items of a table. Items are scanned by an {@link ItemScanner}, mapped to documents
+ * and uploaded to a {@link DocumentSearchEngine} in batches, as a pipeline:
+ * <ul>
+ * <li>Background threads scan segments in parallel, mapping each page of items to documents and splitting them into
+ * batches. Items mapped to null are not indexed.</li>
+ * <li>The thread calling {@link #run()} uploads the batches in the order they were scanned. Scanning waits while too
+ * many batches are pending, so memory use is bounded by the {@link ReindexConfiguration}.</li>
+ * </ul>
+ * Once all documents from a page are uploaded, the position of the next page is recorded by the
+ * {@link ReindexTracker}. Running a job again with the same reindex id resumes from the recorded positions, so at most
+ * one page per segment is indexed twice. If a scan rate limiter is given, a token is taken before each page is scanned,
+ * to leave capacity for other traffic.
+ * @param <T> Class of items scanned
+ * @param <D> Class of documents indexed
+ */
+public class ReindexJob<T extends Item, D extends Document> {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final String reindexId;
+    private final ItemScanner<T> itemScanner;
+    private final Mapper<T, D> mapper;
+    private final DocumentSearchEngine documentSearchEngine;
+    private final ReindexTracker reindexTracker;
+    private final ReindexConfiguration configuration;
+    private final TokenBucket scanRateLimiter;
+
+    /**
+     * @param reindexId Identifies the reindex, so that it can be resumed
+     * @param itemScanner Scans the items to index
+     * @param mapper Maps each item to the document to index, or to null if it is not to be indexed
+     * @param documentSearchEngine Search engine to upload documents to
+     * @param reindexTracker Records progress of the reindex
+     * @param configuration Page, batch and parallelism limits
+     * @param scanRateLimiter Limits the rate at which pages are scanned, or null for no limit
+     */
+    public ReindexJob(final String reindexId, final ItemScanner<T> itemScanner, final Mapper<T, D> mapper,
+            final DocumentSearchEngine documentSearchEngine, final ReindexTracker reindexTracker,
+            final ReindexConfiguration configuration, final TokenBucket scanRateLimiter) {
+        if (reindexId == null || itemScanner == null || mapper == null || documentSearchEngine == null
+                || reindexTracker == null || configuration == null) {
+            throw new IllegalArgumentException("Only the scan rate limiter of a reindex job may be null");
+        }
+        this.reindexId = reindexId;
+        this.itemScanner = itemScanner;
+        this.mapper = mapper;
+        this.documentSearchEngine = documentSearchEngine;
+        this.reindexTracker = reindexTracker;
+        this.configuration = configuration;
+        this.scanRateLimiter = scanRateLimiter;
+    }
+
+    public ReindexJob(final String reindexId, final ItemScanner<T> itemScanner, final Mapper<T, D> mapper,
+            final DocumentSearchEngine documentSearchEngine, final ReindexTracker reindexTracker) {
+        this(reindexId, itemScanner, mapper, documentSearchEngine, reindexTracker, ReindexConfiguration.defaults(),
+                null);
+    }
+
+    /**
+     * Indexes all items not yet indexed by a previous run with the same reindex id, returning once all are uploaded
+     * @return Progress of the completed reindex
+     * @throws ReindexException If scanning, mapping or uploading fails; the reindex may be resumed by running again
+     */
+    public ReindexProgress run() {
+        ReindexProgress progress = reindexTracker.progressForId(reindexId);
+        if (progress == null) {
+            progress = ReindexProgress.notStarted(reindexId, itemScanner.segments());
+            reindexTracker.startReindex(progress);
+        } else if (progress.segments() != itemScanner.segments()) {
+            throw new IllegalStateException("Cannot resume reindex " + reindexId
+                    + " with a different number of segments");
+        }
+        final List<Integer> segments = new ArrayList<>();
+        for (int segment = 0; segment < progress.segments(); segment++) {
+            if (!progress.isSegmentComplete(segment)) {
+                segments.add(segment);
+            }
+        }
+        if (!segments.isEmpty()) {
+            progress = scanAndUpload(progress, segments);
+        }
+        reindexTracker.completeReindex(progress);
+        return progress;
+    }
+
+    private ReindexProgress scanAndUpload(final ReindexProgress startProgress, final List<Integer> segments) {
+        final BlockingQueue<Batch<D>> batches = new ArrayBlockingQueue<>(configuration.maxPendingBatches());
+        final ExecutorService scanExecutor = Executors.newFixedThreadPool(
+                Math.min(segments.size(), configuration.scanParallelism()), daemonThreadFactory());
+        for (final Integer segment : segments) {
+            scanExecutor.execute(() -> scanSegment(segment, startProgress.position(segment), batches));
+        }
+        scanExecutor.shutdown();
+        ReindexProgress progress = startProgress;
+        try {
+            int segmentsRemaining = segments.size();
+            while (segmentsRemaining > 0) {
+                final Batch<D> batch = batches.take();
+                if (batch.failure != null) {
+                    throw new ReindexException("Failed to scan segment " + batch.segment + " of reindex " + reindexId,
+                            batch.failure);
+                }
+                if (!batch.documents.isEmpty()) {
+                    documentSearchEngine.update(batch.documents);
+                }
+                if (batch.endOfPage) {
+                    progress = progress.withBatchUploaded(batch.segment, batch.nextPosition, batch.segmentComplete,
+                            batch.pageItems, batch.documents.size());
+                    reindexTracker.updateReindex(progress);
+                    if (batch.segmentComplete) {
+                        segmentsRemaining--;
+                    }
+                } else {
+                    progress = progress.withDocumentsUploaded(batch.documents.size());
+                }
+            }
+            return progress;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ReindexException("Interrupted while running reindex " + reindexId, e);
+        } catch (final ReindexException e) {
+            throw e;
+        } catch (final RuntimeException e) {
+            throw new ReindexException("Failed to upload documents for reindex " + reindexId, e);
+        } finally {
+            scanExecutor.shutdownNow();
+        }
+    }
+
+    private void scanSegment(final int segment, final String startPosition, final BlockingQueue<Batch<D>> batches) {
+        try {
+            String position = startPosition;
+            boolean segmentComplete = false;
+            while (!segmentComplete) {
+                if (scanRateLimiter != null) {
+                    scanRateLimiter.takeToken();
+                }
+                final ScanPage<T> page = itemScanner.scan(segment, position, configuration.scanPageSize());
+                position = page.nextPosition();
+                segmentComplete = page.isLastPage();
+                putPage(segment, page, batches);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final Exception e) {
+            logger.warn("Failed to scan segment " + segment + " of reindex " + reindexId, e);
+            try {
+                batches.put(new Batch<>(segment, e));
+            } catch (final InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void putPage(final int segment, final ScanPage<T> page, final BlockingQueue<Batch<D>> batches)
+            throws InterruptedException {
+        final List<D> documents = new ArrayList<>(page.items().size());
+        for (final T item : page.items()) {
+            final D document = mapper.map(item);
+            if (document != null) {
+                documents.add(document);
+            }
+        }
+        final int batchSize = configuration.uploadBatchSize();
+        int start = 0;
+        while (documents.size() - start > batchSize) {
+            batches.put(new Batch<>(segment, documents.subList(start, start + batchSize)));
+            start += batchSize;
+        }
+        batches.put(new Batch<>(segment, documents.subList(start, documents.size()), page.items().size(),
+                page.nextPosition(), page.isLastPage()));
+    }
+
+    private ThreadFactory daemonThreadFactory() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, "Reindex-" + reindexId + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static class Batch<D> {
+
+        private final int segment;
+        private final List<D> documents;
+        private final boolean endOfPage;
+        private final int pageItems;
+        private final String nextPosition;
+        private final boolean segmentComplete;
+        private final Exception failure;
+
+        private Batch(final int segment, final List<D> documents, final int pageItems, final String nextPosition,
+                final boolean segmentComplete) {
+            this.segment = segment;
+            this.documents = documents;
+            endOfPage = true;
+            this.pageItems = pageItems;
+            this.nextPosition = nextPosition;
+            this.segmentComplete = segmentComplete;
+            failure = null;
+        }
+
+        private Batch(final int segment, final List<D> documents) {
+            this.segment = segment;
+            this.documents = documents;
+            endOfPage = false;
+            pageItems = 0;
+            nextPosition = null;
+            segmentComplete = false;
+            failure = null;
+        }
+
+        private Batch(final int segment, final Exception failure) {
+            this.segment = segment;
+            documents = Collections.emptyList();
+            endOfPage = false;
+            pageItems = 0;
+            nextPosition = null;
+            segmentComplete = false;
+            this.failure = failure;
+        }
+    }
+
+}
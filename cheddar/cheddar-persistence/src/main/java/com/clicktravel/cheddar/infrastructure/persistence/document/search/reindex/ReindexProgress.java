@@ -0,0 +1,129 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search.reindex;
+
+import java.util.Arrays;
+
+/**
+ * Progress of a {@link ReindexJob}, as a checkpoint from which it can resume. For each segment this holds the position
+ * of the first page not yet uploaded, or whether the whole segment has been uploaded. Instances are immutable.
+ */
+public class ReindexProgress {
+
+    private final String reindexId;
+    private final String[] positions;
+    private final boolean[] segmentsComplete;
+    private final long itemsScanned;
+    private final long documentsIndexed;
+
+    private ReindexProgress(final String reindexId, final String[] positions, final boolean[] segmentsComplete,
+            final long itemsScanned, final long documentsIndexed) {
+        this.reindexId = reindexId;
+        this.positions = positions;
+        this.segmentsComplete = segmentsComplete;
+        this.itemsScanned = itemsScanned;
+        this.documentsIndexed = documentsIndexed;
+    }
+
+    /**
+     * @param reindexId Identifies the reindex, so that it can be resumed
+     * @param segments Number of segments scanned
+     * @return Progress of a reindex which has not started
+     */
+    public static ReindexProgress notStarted(final String reindexId, final int segments) {
+        if (segments < 1) {
+            throw new IllegalArgumentException("A reindex must scan at least one segment");
+        }
+        return new ReindexProgress(reindexId, new String[segments], new boolean[segments], 0, 0);
+    }
+
+    /**
+     * @param reindexId Identifies the reindex
+     * @param positions Position of the next page of each segment, null for a segment not started or complete
+     * @param segmentsComplete Whether each segment is complete
+     * @param itemsScanned Number of items scanned and uploaded so far
+     * @param documentsIndexed Number of documents uploaded so far
+     * @return Progress restored from a checkpoint, for use by a {@link ReindexTracker}
+     */
+    public static ReindexProgress restore(final String reindexId, final String[] positions,
+            final boolean[] segmentsComplete, final long itemsScanned, final long documentsIndexed) {
+        if (positions.length < 1 || positions.length != segmentsComplete.length) {
+            throw new IllegalArgumentException("Positions and completion must be given for each segment");
+        }
+        return new ReindexProgress(reindexId, positions.clone(), segmentsComplete.clone(), itemsScanned,
+                documentsIndexed);
+    }
+
+    ReindexProgress withBatchUploaded(final int segment, final String nextPosition, final boolean segmentComplete,
+            final int items, final int documents) {
+        final String[] newPositions = positions.clone();
+        final boolean[] newSegmentsComplete = segmentsComplete.clone();
+        newPositions[segment] = segmentComplete ? null : nextPosition;
+        newSegmentsComplete[segment] = segmentComplete;
+        return new ReindexProgress(reindexId, newPositions, newSegmentsComplete, itemsScanned + items,
+                documentsIndexed + documents);
+    }
+
+    ReindexProgress withDocumentsUploaded(final int documents) {
+        return new ReindexProgress(reindexId, positions, segmentsComplete, itemsScanned,
+                documentsIndexed + documents);
+    }
+
+    public String reindexId() {
+        return reindexId;
+    }
+
+    public int segments() {
+        return positions.length;
+    }
+
+    /**
+     * @return Position of the next page to scan in the segment, or null to scan from its start
+     */
+    public String position(final int segment) {
+        return positions[segment];
+    }
+
+    public boolean isSegmentComplete(final int segment) {
+        return segmentsComplete[segment];
+    }
+
+    public boolean isComplete() {
+        for (final boolean segmentComplete : segmentsComplete) {
+            if (!segmentComplete) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long itemsScanned() {
+        return itemsScanned;
+    }
+
+    public long documentsIndexed() {
+        return documentsIndexed;
+    }
+
+    @Override
+    public String toString() {
+        return "ReindexProgress [reindexId=" + reindexId + ", positions=" + Arrays.toString(positions)
+                + ", segmentsComplete=" + Arrays.toString(segmentsComplete) + ", itemsScanned=" + itemsScanned
+                + ", documentsIndexed=" + documentsIndexed + "]";
+    }
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search.reindex;
+
+/**
+ * Records the progress of {@link ReindexJob}s, so that progress can be reported and an interrupted reindex resumed
+ */
+public interface ReindexTracker {
+
+    void startReindex(ReindexProgress progress);
+
+    void updateReindex(ReindexProgress progress);
+
+    void completeReindex(ReindexProgress progress);
+
+    /**
+     * @return Last progress recorded for the reindex, or null if it has not been started
+     */
+    ReindexProgress progressForId(String reindexId);
+
+}
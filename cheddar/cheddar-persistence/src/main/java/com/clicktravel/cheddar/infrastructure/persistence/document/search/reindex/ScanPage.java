@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search.reindex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.clicktravel.cheddar.infrastructure.persistence.database.Item;
+
+/**
+ * A page of items read by an {@link ItemScanner}
+ * @param <T> Class of items
+ */
+public class ScanPage<T extends Item> {
+
+    private final List<T> items;
+    private final String nextPosition;
+
+    /**
+     * @param items Items in the page
+     * @param nextPosition Position of the next page in the segment, or null if this is the last page
+     */
+    public ScanPage(final Collection<T> items, final String nextPosition) {
+        this.items = new ArrayList<>(items);
+        this.nextPosition = nextPosition;
+    }
+
+    public List<T> items() {
+        return items;
+    }
+
+    public String nextPosition() {
+        return nextPosition;
+    }
+
+    public boolean isLastPage() {
+        return nextPosition == null;
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search.writebehind;
+
+/**
+ * Configuration of a {@link WriteBehindDocumentSearchEngine}. Pending operations are written once there are
+ * {@link #maxBatchSize()} of them, or once the oldest has waited {@link #maxBatchDelayMillis()}. At most
+ * {@link #queueCapacity()} documents may be pending; the {@link OverflowPolicy} decides what happens to an operation on
+ * a further document.
+ */
+public class WriteBehindConfiguration {
+
+    public enum OverflowPolicy {
+        /**
+         * Wait until the background writer makes room in the queue
+         */
+        BLOCK,
+        /**
+         * Write the oldest batch of pending operations on the calling thread to make room in the queue
+         */
+        CALLER_WRITES,
+        /**
+         * Reject the operation by throwing a {@link WriteBehindQueueFullException}
+         */
+        REJECT
+    }
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 500;
+    public static final long DEFAULT_MAX_BATCH_DELAY_MILLIS = 1000;
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    public static final int DEFAULT_MAX_WRITE_ATTEMPTS = 3;
+
+    private final int maxBatchSize;
+    private final long maxBatchDelayMillis;
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final int maxWriteAttempts;
+
+    /**
+     * @param maxBatchSize Maximum number of operations written to the underlying search engine at once
+     * @param maxBatchDelayMillis Maximum time an operation waits before it is written, in milliseconds
+     * @param queueCapacity Maximum number of documents with pending operations
+     * @param overflowPolicy Handling of operations on further documents when the queue is full
+     * @param maxWriteAttempts Number of times an operation is written before it is dropped if writing keeps failing
+     */
+    public WriteBehindConfiguration(final int maxBatchSize, final long maxBatchDelayMillis, final int queueCapacity,
+            final OverflowPolicy overflowPolicy, final int maxWriteAttempts) {
+        if (maxBatchSize < 1 || queueCapacity < maxBatchSize) {
+            throw new IllegalArgumentException("Batch size must be positive and no larger than the queue capacity");
+        }
+        if (maxBatchDelayMillis < 0) {
+            throw new IllegalArgumentException("Batch delay must not be negative");
+        }
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("Overflow policy must not be null");
+        }
+        if (maxWriteAttempts < 1) {
+            throw new IllegalArgumentException("Operations must be written at least once");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelayMillis = maxBatchDelayMillis;
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.maxWriteAttempts = maxWriteAttempts;
+    }
+
+    public static WriteBehindConfiguration defaults() {
+        return new WriteBehindConfiguration(DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_BATCH_DELAY_MILLIS,
+                DEFAULT_QUEUE_CAPACITY, OverflowPolicy.BLOCK, DEFAULT_MAX_WRITE_ATTEMPTS);
+    }
+
+    public int maxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public long maxBatchDelayMillis() {
+        return maxBatchDelayMillis;
+    }
+
+    public int queueCapacity() {
+        return queueCapacity;
+    }
+
+    public OverflowPolicy overflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public int maxWriteAttempts() {
+        return maxWriteAttempts;
+    }
+
+}
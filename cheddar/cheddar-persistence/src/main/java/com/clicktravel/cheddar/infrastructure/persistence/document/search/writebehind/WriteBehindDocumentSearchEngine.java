@@ -0,0 +1,382 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search.writebehind;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.Document;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.DocumentSearchEngine;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.DocumentSearchResponse;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.options.SearchOptions;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.Query;
+import com.clicktravel.cheddar.infrastructure.persistence.exception.PersistenceResourceFailureException;
+
+/**
+ * A {@link DocumentSearchEngine} which queues updates and deletes and writes them to an underlying search engine in
+ * batches from a background thread, so callers do not wait for the underlying search engine. Only the latest operation
+ * on each document is kept while it is pending. Searches go straight to the underlying search engine, so they do not
+ * see pending operations.
+ * <p>
+ * Writes to the underlying search engine are made one batch at a time, so operations on a document are applied in the
+ * order they were made. A batch which fails to write is queued again, unless there is a newer operation on the same
+ * document, until it has failed {@link WriteBehindConfiguration#maxWriteAttempts()} times.
+ */
+public class WriteBehindDocumentSearchEngine implements DocumentSearchEngine {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final DocumentSearchEngine documentSearchEngine;
+    private final WriteBehindConfiguration configuration;
+    private final WriteBehindStatistics statistics = new WriteBehindStatistics();
+    private final Map<DocumentKey, PendingOperation> pendingOperations = new LinkedHashMap<>();
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private final Condition batchReady = queueLock.newCondition();
+    private final Condition notFull = queueLock.newCondition();
+    // Fair, so a caller waiting to write or flush is not overtaken by the background writer
+    private final ReentrantLock writeLock = new ReentrantLock(true);
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    public WriteBehindDocumentSearchEngine(final DocumentSearchEngine documentSearchEngine,
+            final WriteBehindConfiguration configuration) {
+        this.documentSearchEngine = documentSearchEngine;
+        this.configuration = configuration;
+        writerThread = new Thread(this::writeBehind, "DocumentSearchWriteBehind");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void update(final Document document) {
+        enqueue(document, false);
+    }
+
+    @Override
+    public void update(final Collection<? extends Document> documents) {
+        for (final Document document : documents) {
+            enqueue(document, false);
+        }
+    }
+
+    @Override
+    public void delete(final Document document) {
+        enqueue(document, true);
+    }
+
+    @Override
+    public void delete(final Collection<? extends Document> documents) {
+        for (final Document document : documents) {
+            enqueue(document, true);
+        }
+    }
+
+    @Override
+    public <T extends Document> DocumentSearchResponse<T> search(final Query query, final Integer start,
+            final Integer size, final Class<T> documentClass) {
+        return documentSearchEngine.search(query, start, size, documentClass);
+    }
+
+    @Override
+    public <T extends Document> DocumentSearchResponse<T> search(final Query query, final Integer start,
+            final Integer size, final Class<T> documentClass, final SearchOptions options) {
+        return documentSearchEngine.search(query, start, size, documentClass, options);
+    }
+
+    /**
+     * Writes all operations pending at the time of the call, returning once they have been written or have failed
+     */
+    public void flush() {
+        writeLock.lock();
+        try {
+            int remaining = pendingOperations();
+            while (remaining > 0) {
+                final int written = writeBatch(Math.min(remaining, configuration.maxBatchSize()));
+                if (written == 0) {
+                    return;
+                }
+                remaining -= written;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting operations and stops the background writer, then writes all pending operations on the calling
+     * thread. Any later update or delete throws {@link IllegalStateException}.
+     */
+    public void shutdown() {
+        queueLock.lock();
+        try {
+            running = false;
+            notFull.signalAll();
+        } finally {
+            queueLock.unlock();
+        }
+        writerThread.interrupt();
+        try {
+            writerThread.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * @return Number of documents with pending operations
+     */
+    public int pendingOperations() {
+        queueLock.lock();
+        try {
+            return pendingOperations.size();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    public WriteBehindStatistics statistics() {
+        return statistics;
+    }
+
+    private void enqueue(final Document document, final boolean delete) {
+        final DocumentKey documentKey = new DocumentKey(document);
+        while (true) {
+            queueLock.lock();
+            try {
+                if (!running) {
+                    throw new IllegalStateException(
+                            "Write-behind search engine is shut down; rejected operation on document: "
+                                    + document.getId());
+                }
+                final PendingOperation existingOperation = pendingOperations.get(documentKey);
+                if (pendingOperations.size() < configuration.queueCapacity() || existingOperation != null) {
+                    if (pendingOperations.isEmpty()) {
+                        batchReady.signal();
+                    }
+                    // A merged operation keeps its place in the queue, so keeps the time it was first enqueued
+                    final long enqueuedNanos = existingOperation != null ? existingOperation.enqueuedNanos
+                            : System.nanoTime();
+                    pendingOperations.put(documentKey, new PendingOperation(document, delete, enqueuedNanos));
+                    statistics.recordEnqueued(existingOperation != null);
+                    if (pendingOperations.size() == configuration.maxBatchSize()) {
+                        batchReady.signal();
+                    }
+                    return;
+                }
+                statistics.recordOverflowed();
+                switch (configuration.overflowPolicy()) {
+                    case REJECT:
+                        throw new WriteBehindQueueFullException(
+                                "Write-behind queue is full; rejected operation on document: " + document.getId());
+                    case BLOCK:
+                        notFull.await();
+                        continue;
+                    case CALLER_WRITES:
+                    default:
+                        break;
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PersistenceResourceFailureException("Interrupted waiting for write-behind queue", e);
+            } finally {
+                queueLock.unlock();
+            }
+            writeBatch(configuration.maxBatchSize());
+        }
+    }
+
+    private void writeBehind() {
+        while (running) {
+            try {
+                awaitBatch();
+                writeBatch(configuration.maxBatchSize());
+            } catch (final InterruptedException e) {
+                // Woken to check whether still running
+            } catch (final RuntimeException e) {
+                logger.error("Unexpected failure in document search write-behind", e);
+            }
+        }
+    }
+
+    private void awaitBatch() throws InterruptedException {
+        queueLock.lock();
+        try {
+            while (pendingOperations.size() < configuration.maxBatchSize()) {
+                if (pendingOperations.isEmpty()) {
+                    batchReady.await();
+                } else {
+                    // Operations are queued in the order they were enqueued, so the first is the oldest
+                    final long oldestPendingNanos = pendingOperations.values().iterator().next().enqueuedNanos;
+                    final long remainingNanos = oldestPendingNanos
+                            + TimeUnit.MILLISECONDS.toNanos(configuration.maxBatchDelayMillis()) - System.nanoTime();
+                    if (remainingNanos <= 0) {
+                        return;
+                    }
+                    batchReady.awaitNanos(remainingNanos);
+                }
+            }
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the oldest pending operations from the queue and writes them to the underlying search engine
+     * @return Number of operations removed from the queue
+     */
+    private int writeBatch(final int maxBatchSize) {
+        writeLock.lock();
+        try {
+            final List<PendingOperation> batch = takeBatch(maxBatchSize);
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+            return batch.size();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private List<PendingOperation> takeBatch(final int maxBatchSize) {
+        queueLock.lock();
+        try {
+            final List<PendingOperation> batch = new ArrayList<>(Math.min(maxBatchSize, pendingOperations.size()));
+            final Iterator<PendingOperation> iterator = pendingOperations.values().iterator();
+            while (batch.size() < maxBatchSize && iterator.hasNext()) {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+            if (!batch.isEmpty()) {
+                notFull.signalAll();
+            }
+            return batch;
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private void write(final List<PendingOperation> batch) {
+        // The underlying search engine accepts documents of only one class per call
+        final Map<Class<?>, List<PendingOperation>> updates = new LinkedHashMap<>();
+        final Map<Class<?>, List<PendingOperation>> deletes = new LinkedHashMap<>();
+        for (final PendingOperation pendingOperation : batch) {
+            (pendingOperation.delete ? deletes : updates)
+                    .computeIfAbsent(pendingOperation.document.getClass(), c -> new ArrayList<>())
+                    .add(pendingOperation);
+        }
+        for (final List<PendingOperation> documentUpdates : updates.values()) {
+            write(documentUpdates, documents -> documentSearchEngine.update(documents));
+        }
+        for (final List<PendingOperation> documentDeletes : deletes.values()) {
+            write(documentDeletes, documents -> documentSearchEngine.delete(documents));
+        }
+    }
+
+    private void write(final List<PendingOperation> operations,
+            final Consumer<Collection<Document>> writer) {
+        final List<Document> documents = new ArrayList<>(operations.size());
+        for (final PendingOperation operation : operations) {
+            documents.add(operation.document);
+        }
+        final long startNanos = System.nanoTime();
+        try {
+            writer.accept(documents);
+            statistics.recordBatchWritten(documents.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        } catch (final RuntimeException e) {
+            logger.warn("Failed to write " + documents.size() + " documents to search engine", e);
+            statistics.recordFailed(documents.size(), requeue(operations));
+        }
+    }
+
+    /**
+     * @return Number of operations dropped because they have been attempted too many times
+     */
+    private int requeue(final List<PendingOperation> operations) {
+        int dropped = 0;
+        queueLock.lock();
+        try {
+            for (final PendingOperation operation : operations) {
+                if (++operation.attempts >= configuration.maxWriteAttempts()) {
+                    logger.error("Dropped write-behind operation on document: " + operation.document.getId());
+                    dropped++;
+                } else {
+                    if (pendingOperations.isEmpty()) {
+                        batchReady.signal();
+                    }
+                    // Queued again at the back, so counted as enqueued now to keep the queue in enqueue time order
+                    operation.enqueuedNanos = System.nanoTime();
+                    pendingOperations.putIfAbsent(new DocumentKey(operation.document), operation);
+                }
+            }
+        } finally {
+            queueLock.unlock();
+        }
+        return dropped;
+    }
+
+    private static class PendingOperation {
+
+        private final Document document;
+        private final boolean delete;
+        private long enqueuedNanos;
+        private int attempts;
+
+        private PendingOperation(final Document document, final boolean delete, final long enqueuedNanos) {
+            this.document = document;
+            this.delete = delete;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+
+    }
+
+    private static class DocumentKey {
+
+        private final Class<?> documentClass;
+        private final String id;
+
+        private DocumentKey(final Document document) {
+            documentClass = document.getClass();
+            id = document.getId();
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * documentClass.hashCode() + Objects.hashCode(id);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof DocumentKey)) {
+                return false;
+            }
+            final DocumentKey other = (DocumentKey) obj;
+            return documentClass == other.documentClass && Objects.equals(id, other.id);
+        }
+
+    }
+
+}
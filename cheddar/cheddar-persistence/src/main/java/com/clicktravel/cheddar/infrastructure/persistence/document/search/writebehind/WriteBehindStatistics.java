@@ -0,0 +1,120 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search.writebehind;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts of operations passing through a {@link WriteBehindDocumentSearchEngine}, and of the batches in which they are
+ * written to the underlying search engine
+ */
+public class WriteBehindStatistics {
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+    private final AtomicLong batchesWritten = new AtomicLong();
+    private final AtomicLong documentsWritten = new AtomicLong();
+    private final AtomicLong documentsFailed = new AtomicLong();
+    private final AtomicLong documentsDropped = new AtomicLong();
+    private final AtomicLong writeMillis = new AtomicLong();
+    private volatile long lastWriteMillis;
+
+    void recordEnqueued(final boolean merged) {
+        enqueued.incrementAndGet();
+        if (merged) {
+            this.merged.incrementAndGet();
+        }
+    }
+
+    void recordOverflowed() {
+        overflowed.incrementAndGet();
+    }
+
+    void recordBatchWritten(final int documentsWritten, final long writeMillis) {
+        batchesWritten.incrementAndGet();
+        this.documentsWritten.addAndGet(documentsWritten);
+        this.writeMillis.addAndGet(writeMillis);
+        lastWriteMillis = writeMillis;
+    }
+
+    void recordFailed(final int documentsFailed, final int documentsDropped) {
+        this.documentsFailed.addAndGet(documentsFailed);
+        this.documentsDropped.addAndGet(documentsDropped);
+    }
+
+    /**
+     * @return Number of update and delete operations accepted
+     */
+    public long enqueued() {
+        return enqueued.get();
+    }
+
+    /**
+     * @return Number of accepted operations that replaced a pending operation on the same document
+     */
+    public long merged() {
+        return merged.get();
+    }
+
+    /**
+     * @return Number of times an operation found the queue full
+     */
+    public long overflowed() {
+        return overflowed.get();
+    }
+
+    public long batchesWritten() {
+        return batchesWritten.get();
+    }
+
+    /**
+     * @return Number of documents successfully written to the underlying search engine
+     */
+    public long documentsWritten() {
+        return documentsWritten.get();
+    }
+
+    /**
+     * @return Number of document writes that failed, including those later retried
+     */
+    public long documentsFailed() {
+        return documentsFailed.get();
+    }
+
+    /**
+     * @return Number of documents dropped after failing {@link WriteBehindConfiguration#maxWriteAttempts()} times
+     */
+    public long documentsDropped() {
+        return documentsDropped.get();
+    }
+
+    /**
+     * @return Total time spent writing batches, in milliseconds
+     */
+    public long writeMillis() {
+        return writeMillis.get();
+    }
+
+    /**
+     * @return Time taken to write the most recent batch, in milliseconds
+     */
+    public long lastWriteMillis() {
+        return lastWriteMillis;
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.configuration.StubDocument;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.options.SearchOptions;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.Query;
+
+public class DocumentSearchPagesTest {
+
+    private final DocumentSearchEngine mockDocumentSearchEngine = mock(DocumentSearchEngine.class);
+    private final Query mockQuery = mock(Query.class);
+
+    @Test
+    public void shouldSearchEachPageWithPreviousCursor_onDocuments() {
+        // Given
+        final List<StubDocument> documents = Arrays.asList(document("1"), document("2"), document("3"));
+        when(mockDocumentSearchEngine.search(eq(mockQuery), isNull(), eq(2), eq(StubDocument.class),
+                any(SearchOptions.class))).thenReturn(
+                        new DocumentSearchResponse<>(3, "cursor-2", documents.subList(0, 2)),
+                        new DocumentSearchResponse<>(3, "cursor-3", documents.subList(2, 3)));
+        final SearchOptions searchOptions = new SearchOptions();
+
+        // When
+        final List<StubDocument> result = DocumentSearchPages
+                .documents(mockDocumentSearchEngine, mockQuery, 2, StubDocument.class, searchOptions)
+                .collect(Collectors.toList());
+
+        // Then
+        assertEquals(documents, result);
+        final ArgumentCaptor<SearchOptions> searchOptionsCaptor = ArgumentCaptor.forClass(SearchOptions.class);
+        verify(mockDocumentSearchEngine, times(2)).search(eq(mockQuery), isNull(), eq(2), eq(StubDocument.class),
+                searchOptionsCaptor.capture());
+        assertEquals(SearchOptions.INITIAL_CURSOR, searchOptionsCaptor.getAllValues().get(0).getCursor());
+        assertEquals("cursor-2", searchOptionsCaptor.getAllValues().get(1).getCursor());
+        assertNull(searchOptions.getCursor());
+    }
+
+    @Test
+    public void shouldStopAfterAllResultsReturned_onNext() {
+        // Given
+        final List<StubDocument> documents = Arrays.asList(document("1"), document("2"));
+        when(mockDocumentSearchEngine.search(eq(mockQuery), isNull(), eq(2), eq(StubDocument.class),
+                any(SearchOptions.class))).thenReturn(new DocumentSearchResponse<>(2, "cursor", documents));
+        final DocumentSearchPages<StubDocument> pages = new DocumentSearchPages<>(mockDocumentSearchEngine, mockQuery,
+                2, StubDocument.class, new SearchOptions());
+
+        // When
+        pages.next();
+
+        // Then
+        assertFalse(pages.hasNext());
+    }
+
+    @Test
+    public void shouldStopAfterEmptyPage_onNext() {
+        // Given
+        when(mockDocumentSearchEngine.search(eq(mockQuery), isNull(), eq(2), eq(StubDocument.class),
+                any(SearchOptions.class)))
+                        .thenReturn(new DocumentSearchResponse<>(0, "cursor", Collections.<StubDocument> emptyList()));
+        final DocumentSearchPages<StubDocument> pages = new DocumentSearchPages<>(mockDocumentSearchEngine, mockQuery,
+                2, StubDocument.class, new SearchOptions());
+
+        // When
+        final DocumentSearchResponse<StubDocument> page = pages.next();
+
+        // Then
+        assertEquals(0, page.getCount());
+        assertFalse(pages.hasNext());
+    }
+
+    private StubDocument document(final String id) {
+        final StubDocument document = new StubDocument();
+        document.setId(id);
+        return document;
+    }
+}
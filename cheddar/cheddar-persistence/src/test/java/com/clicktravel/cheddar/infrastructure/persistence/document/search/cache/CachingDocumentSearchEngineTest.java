@@ -0,0 +1,227 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search.cache;
+
+import static com.clicktravel.common.random.Randoms.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.DocumentSearchEngine;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.DocumentSearchResponse;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.configuration.StubDocument;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.options.SearchOptions;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.Query;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.TermQuery;
+
+public class CachingDocumentSearchEngineTest {
+
+    private static final Function<Query, String> QUERY_NORMALISER = query -> ((TermQuery) query).getFieldName() + "="
+            + ((TermQuery) query).getValue();
+
+    private final DocumentSearchEngine mockDocumentSearchEngine = mock(DocumentSearchEngine.class);
+    private final Query query = new TermQuery(randomString(10), randomString(10));
+
+    @Test
+    public void shouldReturnCachedResponse_onRepeatedSearch() {
+        // Given
+        final DocumentSearchResponse<StubDocument> response = response();
+        when(mockDocumentSearchEngine.search(query, 0, 10, StubDocument.class, SearchOptions.DEFAULT))
+                .thenReturn(response);
+        final CachingDocumentSearchEngine cachingDocumentSearchEngine = cachingDocumentSearchEngine(10, 60000);
+        cachingDocumentSearchEngine.search(query, 0, 10, StubDocument.class, SearchOptions.DEFAULT);
+
+        // When
+        final DocumentSearchResponse<StubDocument> result = cachingDocumentSearchEngine
+                .search(new TermQuery(((TermQuery) query).getFieldName(), (String) ((TermQuery) query).getValue()),
+                        0, 10, StubDocument.class, new SearchOptions());
+
+        // Then
+        assertSame(response, result);
+        verify(mockDocumentSearchEngine).search(any(Query.class), anyInt(), anyInt(), eq(StubDocument.class),
+                any(SearchOptions.class));
+        final SearchResultCacheStatistics statistics = cachingDocumentSearchEngine.statistics()
+                .get(StubDocument.class);
+        assertEquals(1, statistics.hits());
+        assertEquals(1, statistics.misses());
+        assertEquals(0.5, statistics.hitRatio(), 0);
+    }
+
+    @Test
+    public void shouldSearchUnderlyingSearchEngine_withDifferentStartSizeOrOptions() {
+        // Given
+        when(mockDocumentSearchEngine.search(any(Query.class), anyInt(), anyInt(), eq(StubDocument.class),
+                any(SearchOptions.class))).thenReturn(response());
+        final CachingDocumentSearchEngine cachingDocumentSearchEngine = cachingDocumentSearchEngine(10, 60000);
+        cachingDocumentSearchEngine.search(query, 0, 10, StubDocument.class, new SearchOptions());
+
+        // When
+        cachingDocumentSearchEngine.search(query, 10, 10, StubDocument.class, new SearchOptions());
+        cachingDocumentSearchEngine.search(query, 0, 20, StubDocument.class, new SearchOptions());
+        cachingDocumentSearchEngine.search(query, 0, 10, StubDocument.class,
+                new SearchOptions().withReturnFields(randomString(10)));
+
+        // Then
+        verify(mockDocumentSearchEngine, times(4)).search(any(Query.class), anyInt(), anyInt(),
+                eq(StubDocument.class), any(SearchOptions.class));
+        assertEquals(0, cachingDocumentSearchEngine.statistics().get(StubDocument.class).hits());
+    }
+
+    @Test
+    public void shouldSearchUnderlyingSearchEngine_afterUpdate() {
+        // Given
+        when(mockDocumentSearchEngine.search(query, 0, 10, StubDocument.class)).thenReturn(response());
+        final CachingDocumentSearchEngine cachingDocumentSearchEngine = cachingDocumentSearchEngine(10, 60000);
+        cachingDocumentSearchEngine.search(query, 0, 10, StubDocument.class);
+        final StubDocument document = new StubDocument();
+        cachingDocumentSearchEngine.update(document);
+
+        // When
+        cachingDocumentSearchEngine.search(query, 0, 10, StubDocument.class);
+
+        // Then
+        verify(mockDocumentSearchEngine).update(document);
+        verify(mockDocumentSearchEngine, times(2)).search(query, 0, 10, StubDocument.class);
+        assertEquals(1, cachingDocumentSearchEngine.statistics().get(StubDocument.class).invalidations());
+    }
+
+    @Test
+    public void shouldSearchUnderlyingSearchEngine_afterDelete() {
+        // Given
+        when(mockDocumentSearchEngine.search(query, 0, 10, StubDocument.class)).thenReturn(response());
+        final CachingDocumentSearchEngine cachingDocumentSearchEngine = cachingDocumentSearchEngine(10, 60000);
+        cachingDocumentSearchEngine.search(query, 0, 10, StubDocument.class);
+        final StubDocument document = new StubDocument();
+        cachingDocumentSearchEngine.delete(Arrays.asList(document));
+
+        // When
+        cachingDocumentSearchEngine.search(query, 0, 10, StubDocument.class);
+
+        // Then
+        verify(mockDocumentSearchEngine).delete(Arrays.asList(document));
+        verify(mockDocumentSearchEngine, times(2)).search(query, 0, 10, StubDocument.class);
+    }
+
+    @Test
+    public void shouldReturnCachedResponse_afterUpdateOfOtherDocumentClass() {
+        // Given
+        final DocumentSearchResponse<StubDocument> response = response();
+        when(mockDocumentSearchEngine.search(query, 0, 10, StubDocument.class)).thenReturn(response);
+        final CachingDocumentSearchEngine cachingDocumentSearchEngine = cachingDocumentSearchEngine(10, 60000);
+        cachingDocumentSearchEngine.search(query, 0, 10, StubDocument.class);
+        cachingDocumentSearchEngine.update(new StubDocument() {
+        });
+
+        // When
+        final DocumentSearchResponse<StubDocument> result = cachingDocumentSearchEngine.search(query, 0, 10,
+                StubDocument.class);
+
+        // Then
+        assertSame(response, result);
+        verify(mockDocumentSearchEngine).search(query, 0, 10, StubDocument.class);
+    }
+
+    @Test
+    public void shouldNotCacheResponse_fromSearchOverlappingUpdate() {
+        // Given
+        final CachingDocumentSearchEngine cachingDocumentSearchEngine = cachingDocumentSearchEngine(10, 60000);
+        when(mockDocumentSearchEngine.search(query, 0, 10, StubDocument.class)).thenAnswer(invocation -> {
+            cachingDocumentSearchEngine.update(new StubDocument());
+            return response();
+        }).thenReturn(response());
+        cachingDocumentSearchEngine.search(query, 0, 10, StubDocument.class);
+
+        // When
+        cachingDocumentSearchEngine.search(query, 0, 10, StubDocument.class);
+
+        // Then
+        verify(mockDocumentSearchEngine, times(2)).search(query, 0, 10, StubDocument.class);
+    }
+
+    @Test
+    public void shouldSearchUnderlyingSearchEngine_afterTimeToLive() {
+        // Given
+        when(mockDocumentSearchEngine.search(query, 0, 10, StubDocument.class)).thenReturn(response());
+        final CachingDocumentSearchEngine cachingDocumentSearchEngine = cachingDocumentSearchEngine(10, 0);
+        cachingDocumentSearchEngine.search(query, 0, 10, StubDocument.class);
+
+        // When
+        cachingDocumentSearchEngine.search(query, 0, 10, StubDocument.class);
+
+        // Then
+        verify(mockDocumentSearchEngine, times(2)).search(query, 0, 10, StubDocument.class);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedResponse_withMaxEntriesCached() {
+        // Given
+        when(mockDocumentSearchEngine.search(eq(query), anyInt(), eq(10), eq(StubDocument.class)))
+                .thenReturn(response());
+        final CachingDocumentSearchEngine cachingDocumentSearchEngine = cachingDocumentSearchEngine(2, 60000);
+        cachingDocumentSearchEngine.search(query, 0, 10, StubDocument.class);
+        cachingDocumentSearchEngine.search(query, 10, 10, StubDocument.class);
+        cachingDocumentSearchEngine.search(query, 0, 10, StubDocument.class);
+
+        // When
+        cachingDocumentSearchEngine.search(query, 20, 10, StubDocument.class);
+        cachingDocumentSearchEngine.search(query, 0, 10, StubDocument.class);
+        cachingDocumentSearchEngine.search(query, 10, 10, StubDocument.class);
+
+        // Then
+        verify(mockDocumentSearchEngine).search(query, 0, 10, StubDocument.class);
+        verify(mockDocumentSearchEngine, times(2)).search(query, 10, 10, StubDocument.class);
+        verify(mockDocumentSearchEngine).search(query, 20, 10, StubDocument.class);
+    }
+
+    @Test
+    public void shouldNotReturnCachedResponse_withSearchOptionsChangedAfterSearch() {
+        // Given
+        when(mockDocumentSearchEngine.search(eq(query), eq(0), eq(10), eq(StubDocument.class),
+                any(SearchOptions.class))).thenReturn(response());
+        final CachingDocumentSearchEngine cachingDocumentSearchEngine = cachingDocumentSearchEngine(10, 60000);
+        final SearchOptions options = new SearchOptions();
+        cachingDocumentSearchEngine.search(query, 0, 10, StubDocument.class, options);
+        options.withCursor(SearchOptions.INITIAL_CURSOR);
+
+        // When
+        cachingDocumentSearchEngine.search(query, 0, 10, StubDocument.class, new SearchOptions());
+
+        // Then
+        verify(mockDocumentSearchEngine).search(eq(query), eq(0), eq(10), eq(StubDocument.class),
+                any(SearchOptions.class));
+    }
+
+    private CachingDocumentSearchEngine cachingDocumentSearchEngine(final int maxEntries,
+            final long timeToLiveMillis) {
+        return new CachingDocumentSearchEngine(mockDocumentSearchEngine, QUERY_NORMALISER,
+                new SearchResultCacheConfiguration(maxEntries, timeToLiveMillis));
+    }
+
+    private DocumentSearchResponse<StubDocument> response() {
+        return new DocumentSearchResponse<>(0, null, Collections.emptyList());
+    }
+
+}
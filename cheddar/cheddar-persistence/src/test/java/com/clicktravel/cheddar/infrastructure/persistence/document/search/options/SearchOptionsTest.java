@@ -25,6 +25,7 @@ import java.util.Map;
 
 import org.junit.Test;
 
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.facet.FacetRequest;
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.sort.SortOrder;
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.sort.SortingOption;
 import com.clicktravel.cheddar.infrastructure.persistence.document.search.sort.SortingOption.Direction;
@@ -161,4 +162,73 @@ public class SearchOptionsTest {
         assertTrue(searchOptions001.equals(searchOptions002));
         assertTrue(searchOptions002.equals(searchOptions001));
     }
+
+    @Test
+    public void shouldNotEquals_withDifferentCursors() {
+
+        final SearchOptions searchOptions001 = new SearchOptions();
+
+        final SearchOptions searchOptions002 = new SearchOptions().withCursor(SearchOptions.INITIAL_CURSOR);
+
+        assertFalse(searchOptions001.equals(searchOptions002));
+        assertFalse(searchOptions002.equals(searchOptions001));
+    }
+
+    @Test
+    public void shouldCopySearchOptions() {
+        final Map<String, String> expressions = new HashMap<String, String>();
+        expressions.put(Randoms.randomString(20), Randoms.randomString(20));
+        final SearchOptions searchOptions = new SearchOptions().withExpressions(expressions)
+                .withCursor(Randoms.randomString(20));
+
+        final SearchOptions copy = new SearchOptions(searchOptions);
+        copy.getExpressions().clear();
+
+        assertEquals(searchOptions.getCursor(), copy.getCursor());
+        assertEquals(searchOptions.getSortOrder(), copy.getSortOrder());
+        assertEquals(1, searchOptions.getExpressions().size());
+    }
+
+    @Test
+    public void shouldNotChangeCopy_onChangingOriginalSortOrderAndFacetRequests() {
+        final SortOrder sortOrder = new SortOrder();
+        sortOrder.addSortingOption(new SortingOption(Randoms.randomString(10)));
+        final FacetRequest facetRequest = new FacetRequest(Randoms.randomString(10));
+        final SearchOptions searchOptions = new SearchOptions().withSortOrder(sortOrder)
+                .withFacetRequest(facetRequest);
+        final SearchOptions copy = new SearchOptions(searchOptions);
+
+        sortOrder.addSortingOption(new SortingOption(Randoms.randomString(10)));
+        facetRequest.withSize(3).withBuckets("a");
+        searchOptions.withFacetRequest(new FacetRequest(Randoms.randomString(10)));
+
+        assertEquals(1, copy.getSortOrder().sortingOptions().size());
+        assertEquals(1, copy.getFacetRequests().size());
+        assertEquals(new FacetRequest(facetRequest.getField()), copy.getFacetRequests().get(0));
+    }
+
+    @Test
+    public void shouldNotEquals_withDifferentReturnFields() {
+
+        final SearchOptions searchOptions001 = new SearchOptions().withReturnFields("a", "b");
+
+        final SearchOptions searchOptions002 = new SearchOptions().withReturnFields("a");
+
+        assertFalse(searchOptions001.equals(searchOptions002));
+        assertFalse(searchOptions002.equals(searchOptions001));
+    }
+
+    @Test
+    public void shouldEquals_withSameFacetRequests() {
+
+        final SearchOptions searchOptions001 = new SearchOptions()
+                .withFacetRequest(new FacetRequest("a").withSize(3).withSort(FacetRequest.Sort.BUCKET));
+
+        final SearchOptions searchOptions002 = new SearchOptions()
+                .withFacetRequest(new FacetRequest("a").withSize(3).withSort(FacetRequest.Sort.BUCKET));
+
+        assertTrue(searchOptions001.equals(searchOptions002));
+        assertEquals(searchOptions001.hashCode(), searchOptions002.hashCode());
+        assertFalse(searchOptions001.equals(new SearchOptions().withFacetRequest(new FacetRequest("a").withSize(4))));
+    }
 }
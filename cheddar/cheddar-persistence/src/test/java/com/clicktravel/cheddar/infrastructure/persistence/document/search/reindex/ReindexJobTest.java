@@ -0,0 +1,266 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search.reindex;
+
+import static com.clicktravel.common.random.Randoms.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.clicktravel.cheddar.infrastructure.persistence.database.StubItem;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.DocumentSearchEngine;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.configuration.StubDocument;
+import com.clicktravel.common.concurrent.TokenBucket;
+import com.clicktravel.common.mapper.Mapper;
+
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class ReindexJobTest {
+
+    private final DocumentSearchEngine mockDocumentSearchEngine = mock(DocumentSearchEngine.class);
+    private final InMemoryReindexTracker reindexTracker = new InMemoryReindexTracker();
+    private final Mapper<StubItem, StubDocument> mapper = item -> {
+        final StubDocument document = new StubDocument();
+        document.setId(item.getId());
+        return document;
+    };
+    private final String reindexId = randomString(10);
+
+    @Test
+    public void shouldUploadDocumentsInBatches_withPages() {
+        // Given
+        final StubItemScanner itemScanner = new StubItemScanner(items(5));
+        final ReindexJob<StubItem, StubDocument> reindexJob = new ReindexJob<>(reindexId, itemScanner, mapper,
+                mockDocumentSearchEngine, reindexTracker, new ReindexConfiguration(3, 2, 1, 1), null);
+
+        // When
+        final ReindexProgress progress = reindexJob.run();
+
+        // Then
+        final ArgumentCaptor<Collection> batchCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(mockDocumentSearchEngine, times(3)).update(batchCaptor.capture());
+        final List<Integer> batchSizes = new ArrayList<>();
+        for (final Collection batch : batchCaptor.getAllValues()) {
+            batchSizes.add(batch.size());
+        }
+        assertEquals(Arrays.asList(2, 1, 2), batchSizes);
+        assertEquals(Arrays.asList(null, "3"), itemScanner.scannedPositions(0));
+        assertTrue(progress.isComplete());
+        assertEquals(5, progress.itemsScanned());
+        assertEquals(5, progress.documentsIndexed());
+        assertTrue(reindexTracker.progressForId(reindexId).isComplete());
+    }
+
+    @Test
+    public void shouldNotUploadDocuments_withItemsMappedToNull() {
+        // Given
+        final StubItemScanner itemScanner = new StubItemScanner(items(4));
+        final Mapper<StubItem, StubDocument> evenItemMapper = item -> Integer.parseInt(item.getId()) % 2 == 0
+                ? mapper.map(item) : null;
+        final ReindexJob<StubItem, StubDocument> reindexJob = new ReindexJob<>(reindexId, itemScanner,
+                evenItemMapper, mockDocumentSearchEngine, reindexTracker);
+
+        // When
+        final ReindexProgress progress = reindexJob.run();
+
+        // Then
+        assertEquals(Arrays.asList("0", "2"), uploadedIds());
+        assertEquals(4, progress.itemsScanned());
+        assertEquals(2, progress.documentsIndexed());
+    }
+
+    @Test
+    public void shouldUploadAllSegments_withParallelScan() {
+        // Given
+        final List<StubItem> segment0 = items(0, 7);
+        final List<StubItem> segment1 = items(7, 3);
+        final List<StubItem> segment2 = items(10, 0);
+        final StubItemScanner itemScanner = new StubItemScanner(segment0, segment1, segment2);
+        final ReindexJob<StubItem, StubDocument> reindexJob = new ReindexJob<>(reindexId, itemScanner, mapper,
+                mockDocumentSearchEngine, reindexTracker, new ReindexConfiguration(2, 2, 2, 2), null);
+
+        // When
+        final ReindexProgress progress = reindexJob.run();
+
+        // Then
+        final List<String> uploadedIds = uploadedIds();
+        Collections.sort(uploadedIds, Comparator.comparing(Integer::valueOf));
+        assertEquals(ids(10), uploadedIds);
+        assertTrue(progress.isComplete());
+        assertEquals(10, progress.itemsScanned());
+    }
+
+    @Test
+    public void shouldResumeFromRecordedPosition_withStartedReindex() {
+        // Given
+        final StubItemScanner itemScanner = new StubItemScanner(items(5), items(5, 2));
+        reindexTracker.startReindex(ReindexProgress.restore(reindexId, new String[] { "3", null },
+                new boolean[] { false, true }, 5, 5));
+        final ReindexJob<StubItem, StubDocument> reindexJob = new ReindexJob<>(reindexId, itemScanner, mapper,
+                mockDocumentSearchEngine, reindexTracker, new ReindexConfiguration(3, 2, 1, 2), null);
+
+        // When
+        final ReindexProgress progress = reindexJob.run();
+
+        // Then
+        assertEquals(Arrays.asList("3", "4"), uploadedIds());
+        assertEquals(Arrays.asList("3"), itemScanner.scannedPositions(0));
+        assertTrue(itemScanner.scannedPositions(1).isEmpty());
+        assertTrue(progress.isComplete());
+        assertEquals(7, progress.itemsScanned());
+    }
+
+    @Test
+    public void shouldRecordPositionOfLastUploadedPage_onScanFailure() {
+        // Given
+        final StubItemScanner itemScanner = new StubItemScanner(items(5));
+        itemScanner.failAtPosition = "3";
+        final ReindexJob<StubItem, StubDocument> reindexJob = new ReindexJob<>(reindexId, itemScanner, mapper,
+                mockDocumentSearchEngine, reindexTracker, new ReindexConfiguration(3, 10, 1, 1), null);
+
+        // When
+        ReindexException thrownException = null;
+        try {
+            reindexJob.run();
+        } catch (final ReindexException e) {
+            thrownException = e;
+        }
+
+        // Then
+        assertTrue(thrownException.getCause() instanceof IllegalStateException);
+        final ReindexProgress progress = reindexTracker.progressForId(reindexId);
+        assertFalse(progress.isComplete());
+        assertEquals("3", progress.position(0));
+        assertEquals(3, progress.documentsIndexed());
+    }
+
+    @Test
+    public void shouldNotRecordPosition_onUploadFailure() {
+        // Given
+        final StubItemScanner itemScanner = new StubItemScanner(items(5));
+        doThrow(IllegalStateException.class).when(mockDocumentSearchEngine).update(anyCollection());
+        final ReindexJob<StubItem, StubDocument> reindexJob = new ReindexJob<>(reindexId, itemScanner, mapper,
+                mockDocumentSearchEngine, reindexTracker, new ReindexConfiguration(3, 10, 1, 1), null);
+
+        // When
+        try {
+            reindexJob.run();
+            fail("Expected ReindexException");
+        } catch (final ReindexException e) {
+            // Expected
+        }
+
+        // Then
+        final ReindexProgress progress = reindexTracker.progressForId(reindexId);
+        assertNull(progress.position(0));
+        assertEquals(0, progress.documentsIndexed());
+    }
+
+    @Test
+    public void shouldTakeTokenForEachPage_withScanRateLimiter() throws Exception {
+        // Given
+        final StubItemScanner itemScanner = new StubItemScanner(items(5));
+        final TokenBucket mockScanRateLimiter = mock(TokenBucket.class);
+        final ReindexJob<StubItem, StubDocument> reindexJob = new ReindexJob<>(reindexId, itemScanner, mapper,
+                mockDocumentSearchEngine, reindexTracker, new ReindexConfiguration(2, 2, 1, 1), mockScanRateLimiter);
+
+        // When
+        reindexJob.run();
+
+        // Then
+        verify(mockScanRateLimiter, times(3)).takeToken();
+    }
+
+    private List<String> uploadedIds() {
+        final ArgumentCaptor<Collection> batchCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(mockDocumentSearchEngine, atLeast(0)).update(batchCaptor.capture());
+        final List<String> ids = new ArrayList<>();
+        for (final Collection<StubDocument> batch : batchCaptor.getAllValues()) {
+            for (final StubDocument document : batch) {
+                ids.add(document.getId());
+            }
+        }
+        return ids;
+    }
+
+    private static List<String> ids(final int count) {
+        final List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(String.valueOf(i));
+        }
+        return ids;
+    }
+
+    private static List<StubItem> items(final int count) {
+        return items(0, count);
+    }
+
+    private static List<StubItem> items(final int firstId, final int count) {
+        final List<StubItem> items = new ArrayList<>();
+        for (int i = firstId; i < firstId + count; i++) {
+            final StubItem item = new StubItem();
+            item.setId(String.valueOf(i));
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static class StubItemScanner implements ItemScanner<StubItem> {
+
+        private final List<List<StubItem>> segmentItems;
+        private final Map<Integer, List<String>> scannedPositions = new HashMap<>();
+        private volatile String failAtPosition;
+
+        @SafeVarargs
+        private StubItemScanner(final List<StubItem>... segmentItems) {
+            this.segmentItems = Arrays.asList(segmentItems);
+            for (int segment = 0; segment < segmentItems.length; segment++) {
+                scannedPositions.put(segment, Collections.synchronizedList(new ArrayList<>()));
+            }
+        }
+
+        @Override
+        public int segments() {
+            return segmentItems.size();
+        }
+
+        @Override
+        public ScanPage<StubItem> scan(final int segment, final String position, final int maxItems) {
+            scannedPositions.get(segment).add(position);
+            if (position != null && position.equals(failAtPosition)) {
+                throw new IllegalStateException();
+            }
+            final List<StubItem> items = segmentItems.get(segment);
+            final int start = position == null ? 0 : Integer.parseInt(position);
+            final int end = Math.min(start + maxItems, items.size());
+            return new ScanPage<>(items.subList(start, end), end < items.size() ? String.valueOf(end) : null);
+        }
+
+        private List<String> scannedPositions(final int segment) {
+            return scannedPositions.get(segment);
+        }
+    }
+
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.infrastructure.persistence.document.search.writebehind;
+
+import static com.clicktravel.common.random.Randoms.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.Document;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.DocumentSearchEngine;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.DocumentSearchResponse;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.configuration.StubDocument;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.options.SearchOptions;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.query.Query;
+import com.clicktravel.cheddar.infrastructure.persistence.document.search.writebehind.WriteBehindConfiguration.OverflowPolicy;
+
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class WriteBehindDocumentSearchEngineTest {
+
+    private static final long NEVER_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final DocumentSearchEngine mockDocumentSearchEngine = mock(DocumentSearchEngine.class);
+    private final CountDownLatch writeStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseWrite = new CountDownLatch(1);
+    private WriteBehindDocumentSearchEngine writeBehindDocumentSearchEngine;
+
+    @After
+    public void tearDown() {
+        releaseWrite.countDown();
+        if (writeBehindDocumentSearchEngine != null) {
+            writeBehindDocumentSearchEngine.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldNotWriteUpdate_beforeFlush() {
+        // Given
+        writeBehindDocumentSearchEngine = new WriteBehindDocumentSearchEngine(mockDocumentSearchEngine,
+                new WriteBehindConfiguration(10, NEVER_MILLIS, 10, OverflowPolicy.BLOCK, 1));
+
+        // When
+        writeBehindDocumentSearchEngine.update(document(randomString(10)));
+
+        // Then
+        verifyZeroInteractions(mockDocumentSearchEngine);
+        assertEquals(1, writeBehindDocumentSearchEngine.pendingOperations());
+    }
+
+    @Test
+    public void shouldWriteUpdatesAndDeletes_onFlush() {
+        // Given
+        writeBehindDocumentSearchEngine = new WriteBehindDocumentSearchEngine(mockDocumentSearchEngine,
+                new WriteBehindConfiguration(10, NEVER_MILLIS, 10, OverflowPolicy.BLOCK, 1));
+        final StubDocument document1 = document(randomString(10));
+        final StubDocument document2 = document(randomString(10));
+        final StubDocument otherClassDocument = new StubDocument() {
+        };
+        otherClassDocument.setId(randomString(10));
+        final StubDocument deletedDocument = document(randomString(10));
+        writeBehindDocumentSearchEngine.update(Arrays.asList(document1, document2));
+        writeBehindDocumentSearchEngine.update(otherClassDocument);
+        writeBehindDocumentSearchEngine.delete(deletedDocument);
+
+        // When
+        writeBehindDocumentSearchEngine.flush();
+
+        // Then
+        final ArgumentCaptor<Collection> updatedDocumentsCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(mockDocumentSearchEngine, times(2)).update(updatedDocumentsCaptor.capture());
+        assertEquals(Arrays.asList(document1, document2), updatedDocumentsCaptor.getAllValues().get(0));
+        assertEquals(Arrays.asList(otherClassDocument), updatedDocumentsCaptor.getAllValues().get(1));
+        verify(mockDocumentSearchEngine).delete(Arrays.asList(deletedDocument));
+        assertEquals(0, writeBehindDocumentSearchEngine.pendingOperations());
+        assertEquals(3, writeBehindDocumentSearchEngine.statistics().batchesWritten());
+        assertEquals(4, writeBehindDocumentSearchEngine.statistics().documentsWritten());
+    }
+
+    @Test
+    public void shouldWriteLatestOperation_withRepeatedOperationsOnDocument() {
+        // Given
+        writeBehindDocumentSearchEngine = new WriteBehindDocumentSearchEngine(mockDocumentSearchEngine,
+                new WriteBehindConfiguration(10, NEVER_MILLIS, 10, OverflowPolicy.BLOCK, 1));
+        final String id = randomString(10);
+        final StubDocument updatedDocument = document(id);
+        final StubDocument deletedDocument = document(id);
+        final StubDocument latestDocument = document(id);
+        writeBehindDocumentSearchEngine.update(updatedDocument);
+        writeBehindDocumentSearchEngine.delete(deletedDocument);
+        writeBehindDocumentSearchEngine.update(latestDocument);
+
+        // When
+        writeBehindDocumentSearchEngine.flush();
+
+        // Then
+        verify(mockDocumentSearchEngine).update(Arrays.asList(latestDocument));
+        verify(mockDocumentSearchEngine, never()).delete(anyCollection());
+        assertEquals(3, writeBehindDocumentSearchEngine.statistics().enqueued());
+        assertEquals(2, writeBehindDocumentSearchEngine.statistics().merged());
+    }
+
+    @Test
+    public void shouldWriteBatch_whenMaxBatchSizeReached() {
+        // Given
+        writeBehindDocumentSearchEngine = new WriteBehindDocumentSearchEngine(mockDocumentSearchEngine,
+                new WriteBehindConfiguration(2, NEVER_MILLIS, 10, OverflowPolicy.BLOCK, 1));
+        final List<StubDocument> documents = Arrays.asList(document(randomString(10)), document(randomString(10)));
+
+        // When
+        writeBehindDocumentSearchEngine.update(documents);
+
+        // Then
+        verify(mockDocumentSearchEngine, timeout(5000)).update(documents);
+    }
+
+    @Test
+    public void shouldWriteBatch_whenMaxBatchDelayPassed() {
+        // Given
+        writeBehindDocumentSearchEngine = new WriteBehindDocumentSearchEngine(mockDocumentSearchEngine,
+                new WriteBehindConfiguration(10, 10, 10, OverflowPolicy.BLOCK, 1));
+        final StubDocument document = document(randomString(10));
+
+        // When
+        writeBehindDocumentSearchEngine.delete(document);
+
+        // Then
+        verify(mockDocumentSearchEngine, timeout(5000)).delete(Arrays.asList(document));
+    }
+
+    @Test
+    public void shouldWriteRemainingOperation_whenMaxBatchDelayPassedSinceItWasEnqueued() throws Exception {
+        // Given
+        writeBehindDocumentSearchEngine = new WriteBehindDocumentSearchEngine(mockDocumentSearchEngine,
+                new WriteBehindConfiguration(2, 2000, 10, OverflowPolicy.BLOCK, 1));
+        blockFirstWrite();
+        writeBehindDocumentSearchEngine.update(Arrays.asList(document(randomString(10)), document(randomString(10))));
+        assertTrue(writeStarted.await(5, TimeUnit.SECONDS));
+        writeBehindDocumentSearchEngine.update(Arrays.asList(document(randomString(10)), document(randomString(10))));
+        final StubDocument remainingDocument = document(randomString(10));
+        writeBehindDocumentSearchEngine.delete(remainingDocument);
+        Thread.sleep(1500);
+
+        // When
+        releaseWrite.countDown();
+
+        // Then
+        verify(mockDocumentSearchEngine, timeout(1200)).delete(Arrays.asList(remainingDocument));
+    }
+
+    @Test
+    public void shouldRejectOperation_withFullQueueAndRejectPolicy() throws Exception {
+        // Given
+        writeBehindDocumentSearchEngine = new WriteBehindDocumentSearchEngine(mockDocumentSearchEngine,
+                new WriteBehindConfiguration(1, NEVER_MILLIS, 1, OverflowPolicy.REJECT, 1));
+        blockFirstWrite();
+        writeBehindDocumentSearchEngine.update(document(randomString(10)));
+        assertTrue(writeStarted.await(5, TimeUnit.SECONDS));
+
+        // When
+        WriteBehindQueueFullException thrownException = null;
+        try {
+            writeBehindDocumentSearchEngine.update(document(randomString(10)));
+            writeBehindDocumentSearchEngine.update(document(randomString(10)));
+        } catch (final WriteBehindQueueFullException e) {
+            thrownException = e;
+        }
+
+        // Then
+        assertNotNull(thrownException);
+        assertEquals(1, writeBehindDocumentSearchEngine.statistics().overflowed());
+    }
+
+    @Test
+    public void shouldWriteOnCallingThread_withFullQueueAndCallerWritesPolicy() throws Exception {
+        // Given
+        writeBehindDocumentSearchEngine = new WriteBehindDocumentSearchEngine(mockDocumentSearchEngine,
+                new WriteBehindConfiguration(1, NEVER_MILLIS, 1, OverflowPolicy.CALLER_WRITES, 1));
+        blockFirstWrite();
+        writeBehindDocumentSearchEngine.update(document(randomString(10)));
+        assertTrue(writeStarted.await(5, TimeUnit.SECONDS));
+        final StubDocument pendingDocument = document(randomString(10));
+        writeBehindDocumentSearchEngine.update(pendingDocument);
+        final List<Thread> writingThreads = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> writingThreads.add(Thread.currentThread())).when(mockDocumentSearchEngine)
+                .update(Arrays.asList(pendingDocument));
+
+        // When
+        final Thread caller = new Thread(() -> writeBehindDocumentSearchEngine.update(document(randomString(10))));
+        caller.start();
+        awaitState(caller, Thread.State.WAITING);
+        releaseWrite.countDown();
+        caller.join(5000);
+
+        // Then
+        assertEquals(Arrays.asList(caller), writingThreads);
+        assertEquals(1, writeBehindDocumentSearchEngine.statistics().overflowed());
+    }
+
+    @Test
+    public void shouldWaitForSpace_withFullQueueAndBlockPolicy() throws Exception {
+        // Given
+        writeBehindDocumentSearchEngine = new WriteBehindDocumentSearchEngine(mockDocumentSearchEngine,
+                new WriteBehindConfiguration(1, NEVER_MILLIS, 1, OverflowPolicy.BLOCK, 1));
+        blockFirstWrite();
+        writeBehindDocumentSearchEngine.update(document(randomString(10)));
+        assertTrue(writeStarted.await(5, TimeUnit.SECONDS));
+        writeBehindDocumentSearchEngine.update(document(randomString(10)));
+        final StubDocument blockedDocument = document(randomString(10));
+        final Thread caller = new Thread(() -> writeBehindDocumentSearchEngine.update(blockedDocument));
+        caller.start();
+        awaitState(caller, Thread.State.WAITING);
+
+        // When
+        releaseWrite.countDown();
+        caller.join(5000);
+
+        // Then
+        verify(mockDocumentSearchEngine, timeout(5000)).update(Arrays.asList(blockedDocument));
+        assertEquals(1, writeBehindDocumentSearchEngine.statistics().overflowed());
+    }
+
+    @Test
+    public void shouldRetryFailedWrite_onFlush() {
+        // Given
+        writeBehindDocumentSearchEngine = new WriteBehindDocumentSearchEngine(mockDocumentSearchEngine,
+                new WriteBehindConfiguration(10, NEVER_MILLIS, 10, OverflowPolicy.BLOCK, 2));
+        final StubDocument document = document(randomString(10));
+        doThrow(IllegalStateException.class).doNothing().when(mockDocumentSearchEngine)
+                .update(Arrays.asList(document));
+        writeBehindDocumentSearchEngine.update(document);
+        writeBehindDocumentSearchEngine.flush();
+
+        // When
+        writeBehindDocumentSearchEngine.flush();
+
+        // Then
+        verify(mockDocumentSearchEngine, times(2)).update(Arrays.asList(document));
+        assertEquals(0, writeBehindDocumentSearchEngine.pendingOperations());
+        assertEquals(1, writeBehindDocumentSearchEngine.statistics().documentsFailed());
+        assertEquals(1, writeBehindDocumentSearchEngine.statistics().documentsWritten());
+        assertEquals(0, writeBehindDocumentSearchEngine.statistics().documentsDropped());
+    }
+
+    @Test
+    public void shouldDropOperation_afterMaxWriteAttempts() {
+        // Given
+        writeBehindDocumentSearchEngine = new WriteBehindDocumentSearchEngine(mockDocumentSearchEngine,
+                new WriteBehindConfiguration(10, NEVER_MILLIS, 10, OverflowPolicy.BLOCK, 1));
+        final StubDocument document = document(randomString(10));
+        doThrow(IllegalStateException.class).when(mockDocumentSearchEngine).delete(Arrays.asList(document));
+        writeBehindDocumentSearchEngine.delete(document);
+
+        // When
+        writeBehindDocumentSearchEngine.flush();
+
+        // Then
+        assertEquals(0, writeBehindDocumentSearchEngine.pendingOperations());
+        assertEquals(1, writeBehindDocumentSearchEngine.statistics().documentsDropped());
+    }
+
+    @Test
+    public void shouldRejectOperation_afterShutdown() {
+        // Given
+        writeBehindDocumentSearchEngine = new WriteBehindDocumentSearchEngine(mockDocumentSearchEngine,
+                new WriteBehindConfiguration(10, NEVER_MILLIS, 10, OverflowPolicy.BLOCK, 1));
+        writeBehindDocumentSearchEngine.shutdown();
+
+        // When
+        IllegalStateException thrownException = null;
+        try {
+            writeBehindDocumentSearchEngine.update(document(randomString(10)));
+        } catch (final IllegalStateException e) {
+            thrownException = e;
+        }
+
+        // Then
+        assertNotNull(thrownException);
+        assertEquals(0, writeBehindDocumentSearchEngine.pendingOperations());
+        verifyZeroInteractions(mockDocumentSearchEngine);
+    }
+
+    @Test
+    public void shouldSearchUnderlyingSearchEngine_onSearch() {
+        // Given
+        writeBehindDocumentSearchEngine = new WriteBehindDocumentSearchEngine(mockDocumentSearchEngine,
+                WriteBehindConfiguration.defaults());
+        final Query query = mock(Query.class);
+        final SearchOptions options = new SearchOptions();
+        final DocumentSearchResponse<StubDocument> response = new DocumentSearchResponse<>(0, null,
+                Collections.emptyList());
+        when(mockDocumentSearchEngine.search(query, 0, 10, StubDocument.class, options)).thenReturn(response);
+
+        // When
+        final DocumentSearchResponse<StubDocument> result = writeBehindDocumentSearchEngine.search(query, 0, 10,
+                StubDocument.class, options);
+
+        // Then
+        assertSame(response, result);
+    }
+
+    /**
+     * Blocks the first write of updates to the underlying search engine until {@link #releaseWrite} is released
+     */
+    private void blockFirstWrite() {
+        doAnswer(invocation -> {
+            writeStarted.countDown();
+            releaseWrite.await();
+            return null;
+        }).doNothing().when(mockDocumentSearchEngine).update(anyCollection());
+    }
+
+    private void awaitState(final Thread thread, final Thread.State state) throws Exception {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (thread.getState() != state && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(state, thread.getState());
+    }
+
+    private StubDocument document(final String id) {
+        final StubDocument document = new StubDocument();
+        document.setId(id);
+        return document;
+    }
+
+}
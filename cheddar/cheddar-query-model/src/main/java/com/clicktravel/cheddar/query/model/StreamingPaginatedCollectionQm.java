@@ -0,0 +1,61 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.query.model;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Paginated collection whose items are written to the response as they are read from the underlying {@link Stream}
+ * or {@link Iterator}, instead of first being materialised in a {@link java.util.List}. It is written as a JSON object
+ * with a {@code totalCount} field and an array field with the given items name, like other paginated collections.
+ *
+ * The items can only be iterated once; the stream is closed after being written.
+ * @param <T> Item type
+ */
+public class StreamingPaginatedCollectionQm<T> extends PaginatedCollectionQm implements AutoCloseable {
+
+    private final String itemsName;
+    private final Stream<T> items;
+
+    public StreamingPaginatedCollectionQm(final String itemsName, final int totalCount, final Stream<T> items) {
+        this.itemsName = itemsName;
+        this.items = items;
+        setTotalCount(totalCount);
+    }
+
+    public StreamingPaginatedCollectionQm(final String itemsName, final int totalCount, final Iterator<T> items) {
+        this(itemsName, totalCount,
+                StreamSupport.stream(Spliterators.spliteratorUnknownSize(items, Spliterator.ORDERED), false));
+    }
+
+    public String getItemsName() {
+        return itemsName;
+    }
+
+    public Stream<T> getItems() {
+        return items;
+    }
+
+    @Override
+    public void close() {
+        items.close();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.resource.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Index of JAX-RS resource and provider classes, generated at build time by {@link ResourceIndexProcessor} so they can
+ * be registered without scanning the classpath on startup.
+ *
+ * The index is merged from every {@link #LOCATION} resource visible to a class loader, one per indexed jar. A package
+ * is {@linkplain #covers(String) covered} by the index if it contains any indexed class; all modules contributing
+ * classes to a covered package must therefore be indexed, otherwise classes in unindexed modules will be missed.
+ */
+public class ResourceIndex {
+
+    public static final String LOCATION = "META-INF/cheddar/resource-index";
+
+    private final SortedSet<String> classNames;
+
+    public ResourceIndex(final Collection<String> classNames) {
+        this.classNames = Collections.unmodifiableSortedSet(new TreeSet<>(classNames));
+    }
+
+    /**
+     * @param classLoader Class loader to find index resources with
+     * @return The merged index of all index resources found, which is empty if there are none
+     */
+    public static ResourceIndex load(final ClassLoader classLoader) {
+        final Collection<String> classNames = new ArrayList<>();
+        try {
+            final Enumeration<URL> indexUrls = classLoader.getResources(LOCATION);
+            while (indexUrls.hasMoreElements()) {
+                readClassNames(indexUrls.nextElement(), classNames);
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException("Unable to read " + LOCATION, e);
+        }
+        return new ResourceIndex(classNames);
+    }
+
+    private static void readClassNames(final URL indexUrl, final Collection<String> classNames) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(indexUrl.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String className = line.trim();
+                if (!className.isEmpty() && !className.startsWith("#")) {
+                    classNames.add(className);
+                }
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return classNames.isEmpty();
+    }
+
+    /**
+     * @param packageName Name of package
+     * @return {@code true} if any indexed class is in the package or one of its subpackages
+     */
+    public boolean covers(final String packageName) {
+        return !classNames(packageName).isEmpty();
+    }
+
+    /**
+     * @param packageName Name of package
+     * @return Sorted names of indexed classes in the package or one of its subpackages
+     */
+    public SortedSet<String> classNames(final String packageName) {
+        // '/' is the character after '.', so this range is exactly the names starting with packageName + "."
+        return classNames.subSet(packageName + ".", packageName + "/");
+    }
+
+    /**
+     * @return Sorted names of all indexed classes
+     */
+    public SortedSet<String> classNames() {
+        return classNames;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.resource.index;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor which writes a {@link ResourceIndex} of the classes in a compilation that are annotated with
+ * JAX-RS {@code @Path} or {@code @Provider}, or Swagger {@code @SwaggerDefinition}. The classes indexed are those a
+ * classpath scan would find: concrete classes which are either top level or static nested classes.
+ *
+ * To use, add this module to the annotation processor path of each module containing JAX-RS resources or providers,
+ * e.g. in Gradle: {@code annotationProcessor "com.clicktravel:cheddar-resource-index:${cheddarVersion}"}
+ */
+@SupportedAnnotationTypes({ "javax.ws.rs.Path", "javax.ws.rs.ext.Provider", "io.swagger.annotations.SwaggerDefinition" })
+public class ResourceIndexProcessor extends AbstractProcessor {
+
+    private final Set<String> classNames = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        for (final TypeElement annotation : annotations) {
+            for (final Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (isIndexable(element)) {
+                    classNames.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+                }
+            }
+        }
+        if (roundEnv.processingOver() && !classNames.isEmpty()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    private boolean isIndexable(final Element element) {
+        if (element.getKind() != ElementKind.CLASS || element.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        final NestingKind nestingKind = ((TypeElement) element).getNestingKind();
+        return nestingKind == NestingKind.TOP_LEVEL
+                || (nestingKind == NestingKind.MEMBER && element.getModifiers().contains(Modifier.STATIC));
+    }
+
+    private void writeIndex() {
+        try {
+            final FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    ResourceIndex.LOCATION);
+            try (Writer writer = new OutputStreamWriter(index.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (final String className : classNames) {
+                    writer.write(className);
+                    writer.write('\n');
+                }
+            }
+        } catch (final IOException e) {
+            processingEnv.getMessager().printMessage(Kind.ERROR,
+                    "Unable to write " + ResourceIndex.LOCATION + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.resource.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResourceIndexProcessorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldIndexResourcesAndProviders_onCompile() throws Exception {
+        // Given
+        final File sourceFile = source("example/Resources.java", "package example;",
+                "import javax.ws.rs.GET;", "import javax.ws.rs.Path;", "import javax.ws.rs.ext.Provider;",
+                "@Path(\"/a\") public class Resources {", "  @GET @Path(\"/b\") public String get() { return null; }",
+                "  @Provider public static class NestedProvider {}", "  @Provider public class InnerProvider {}",
+                "}", "@Provider abstract class AbstractProvider {}", "@Path(\"/c\") interface ResourceInterface {}");
+
+        // When
+        final File classOutput = compile(sourceFile);
+
+        // Then
+        final File index = new File(classOutput, ResourceIndex.LOCATION);
+        assertTrue(index.exists());
+        assertEquals(Arrays.asList("example.Resources", "example.Resources$NestedProvider"),
+                Files.readAllLines(index.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldNotWriteIndex_onCompileWithNoResources() throws Exception {
+        // Given
+        final File sourceFile = source("example/Plain.java", "package example;", "public class Plain {}");
+
+        // When
+        final File classOutput = compile(sourceFile);
+
+        // Then
+        assertFalse(new File(classOutput, ResourceIndex.LOCATION).exists());
+    }
+
+    private File source(final String path, final String... lines) throws Exception {
+        final File sourceFile = new File(temporaryFolder.newFolder(), path);
+        sourceFile.getParentFile().mkdirs();
+        Files.write(sourceFile.toPath(), String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+        return sourceFile;
+    }
+
+    private File compile(final File sourceFile) throws Exception {
+        final File classOutput = temporaryFolder.newFolder();
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+            final List<String> options = Arrays.asList("-d", classOutput.getPath(), "-classpath",
+                    System.getProperty("java.class.path"));
+            final CompilationTask task = compiler.getTask(null, fileManager, null, options, null,
+                    fileManager.getJavaFileObjects(sourceFile));
+            task.setProcessors(Arrays.asList(new ResourceIndexProcessor()));
+            assertTrue(task.call());
+        }
+        return classOutput;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.resource.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResourceIndexTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldMergeIndexes_onLoad() throws Exception {
+        // Given
+        final URL firstJar = indexedDirectory("com.clicktravel.services.a.AResource", "# comment", "");
+        final URL secondJar = indexedDirectory("com.clicktravel.cheddar.rest.BodyWriter");
+        final ClassLoader classLoader = new URLClassLoader(new URL[] { firstJar, secondJar }, null);
+
+        // When
+        final ResourceIndex resourceIndex = ResourceIndex.load(classLoader);
+
+        // Then
+        assertEquals(Arrays.asList("com.clicktravel.cheddar.rest.BodyWriter", "com.clicktravel.services.a.AResource"),
+                Arrays.asList(resourceIndex.classNames().toArray()));
+    }
+
+    @Test
+    public void shouldReturnEmptyIndex_onLoadWithNoIndexResources() throws Exception {
+        // Given
+        final ClassLoader classLoader = new URLClassLoader(new URL[0], null);
+
+        // When
+        final ResourceIndex resourceIndex = ResourceIndex.load(classLoader);
+
+        // Then
+        assertTrue(resourceIndex.isEmpty());
+    }
+
+    @Test
+    public void shouldReturnClassNamesInPackageAndSubpackages_onClassNames() {
+        // Given
+        final ResourceIndex resourceIndex = new ResourceIndex(Arrays.asList("com.a.Resource", "com.a.b.Resource",
+                "com.ab.Resource", "com.Resource", "com.a$Nested"));
+
+        // When
+        final Object[] classNames = resourceIndex.classNames("com.a").toArray();
+
+        // Then
+        assertEquals(Arrays.asList("com.a.Resource", "com.a.b.Resource"), Arrays.asList(classNames));
+        assertTrue(resourceIndex.covers("com"));
+        assertTrue(resourceIndex.covers("com.ab"));
+        assertFalse(resourceIndex.covers("com.a.b.c"));
+    }
+
+    private URL indexedDirectory(final String... lines) throws Exception {
+        final File directory = temporaryFolder.newFolder();
+        final File index = new File(directory, ResourceIndex.LOCATION);
+        index.getParentFile().mkdirs();
+        Files.write(index.toPath(), String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+        return directory.toURI().toURL();
+    }
+}
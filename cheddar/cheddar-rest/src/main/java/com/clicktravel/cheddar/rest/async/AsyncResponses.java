@@ -0,0 +1,54 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.rest.async;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+import javax.ws.rs.container.AsyncResponse;
+
+/**
+ * Bridges asynchronously computed values, such as those from
+ * {@link com.clicktravel.cheddar.application.pending.result.PendingResultHandler#valueFuture}, to a suspended JAX-RS
+ * {@link AsyncResponse}. The request thread is released while the value is awaited; the response is resumed with the
+ * value, or with the exception so that it is handled by the usual exception mappers.
+ */
+public abstract class AsyncResponses {
+
+    /**
+     * Resumes the suspended response when the given stage completes
+     * @param asyncResponse Suspended {@link AsyncResponse}
+     * @param stage {@link CompletionStage} providing the response entity (or {@link javax.ws.rs.core.Response})
+     */
+    public static void resumeOnCompletion(final AsyncResponse asyncResponse, final CompletionStage<?> stage) {
+        stage.whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                asyncResponse.resume(unwrap(throwable));
+            } else {
+                asyncResponse.resume(value);
+            }
+        });
+    }
+
+    private static Throwable unwrap(final Throwable throwable) {
+        if (throwable instanceof CompletionException && throwable.getCause() != null) {
+            return throwable.getCause();
+        }
+        return throwable;
+    }
+
+}
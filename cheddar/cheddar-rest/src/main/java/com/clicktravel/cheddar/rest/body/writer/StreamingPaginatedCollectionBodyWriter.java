@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.rest.body.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.Providers;
+
+import com.clicktravel.cheddar.query.model.StreamingPaginatedCollectionQm;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes a {@link StreamingPaginatedCollectionQm} as JSON, serialising each item straight to the response as it is
+ * read so the collection is never held in memory. Items are serialised with the {@link ObjectMapper} provided to
+ * JAX-RS (see {@code ObjectMapperProvider}), so are written as they would be in a materialised collection. As the
+ * response is already committed when an item fails to be read, such a failure leaves the JSON unterminated.
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class StreamingPaginatedCollectionBodyWriter implements MessageBodyWriter<StreamingPaginatedCollectionQm<?>> {
+
+    private static final String TOTAL_COUNT_FIELD = "totalCount";
+    private static final ObjectMapper DEFAULT_OBJECT_MAPPER = new ObjectMapper();
+
+    @Context
+    private Providers providers;
+
+    public StreamingPaginatedCollectionBodyWriter() {
+    }
+
+    StreamingPaginatedCollectionBodyWriter(final Providers providers) {
+        this.providers = providers;
+    }
+
+    @Override
+    public boolean isWriteable(final Class<?> type, final Type genericType, final Annotation[] annotations,
+            final MediaType mediaType) {
+        return StreamingPaginatedCollectionQm.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(final StreamingPaginatedCollectionQm<?> t, final Class<?> type, final Type genericType,
+            final Annotation[] annotations, final MediaType mediaType) {
+        // deprecated by JAX-RS 2.0 and ignored by Jersey runtime
+        return -1;
+    }
+
+    @Override
+    public void writeTo(final StreamingPaginatedCollectionQm<?> collection, final Class<?> type,
+            final Type genericType, final Annotation[] annotations, final MediaType mediaType,
+            final MultivaluedMap<String, Object> httpHeaders, final OutputStream entityStream)
+            throws IOException, WebApplicationException {
+        final ObjectMapper objectMapper = objectMapper(type, mediaType);
+        // Flushing after each item would send each one in its own chunk; the generator buffers instead
+        final ObjectWriter itemWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (StreamingPaginatedCollectionQm<?> items = collection;
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(entityStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // If reading items fails part way, the response must be left as invalid JSON rather than closed off into a
+            // well-formed but truncated collection the client cannot tell apart from a complete one
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            generator.writeStartObject();
+            generator.writeNumberField(TOTAL_COUNT_FIELD, collection.getTotalCount());
+            generator.writeArrayFieldStart(collection.getItemsName());
+            final Iterator<?> iterator = items.getItems().iterator();
+            while (iterator.hasNext()) {
+                itemWriter.writeValue(generator, iterator.next());
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    private ObjectMapper objectMapper(final Class<?> type, final MediaType mediaType) {
+        if (providers != null) {
+            final ContextResolver<ObjectMapper> resolver = providers.getContextResolver(ObjectMapper.class, mediaType);
+            if (resolver != null) {
+                final ObjectMapper objectMapper = resolver.getContext(type);
+                if (objectMapper != null) {
+                    return objectMapper;
+                }
+            }
+        }
+        return DEFAULT_OBJECT_MAPPER;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.rest.body.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.Providers;
+
+import org.junit.Test;
+
+import com.clicktravel.cheddar.query.model.PaginatedCollectionQm;
+import com.clicktravel.cheddar.query.model.StreamingPaginatedCollectionQm;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class StreamingPaginatedCollectionBodyWriterTest {
+
+    @Test
+    public void shouldWriteItemsWithObjectMapperFromProviders_onWriteTo() throws Exception {
+        // Given
+        final ObjectMapper objectMapper = new ObjectMapper().setSerializationInclusion(Include.NON_NULL);
+        final StreamingPaginatedCollectionBodyWriter writer = new StreamingPaginatedCollectionBodyWriter(
+                providers(objectMapper));
+        final StreamingPaginatedCollectionQm<Booking> collection = new StreamingPaginatedCollectionQm<>("bookings",
+                12, Arrays.asList(new Booking("b1", "London"), new Booking("b2", null)).iterator());
+
+        // When
+        final String json = write(writer, collection);
+
+        // Then
+        assertEquals("{\"totalCount\":12,\"bookings\":[{\"id\":\"b1\",\"city\":\"London\"},{\"id\":\"b2\"}]}", json);
+    }
+
+    @Test
+    public void shouldCloseStream_onWriteTo() throws Exception {
+        // Given
+        final AtomicBoolean closed = new AtomicBoolean();
+        final StreamingPaginatedCollectionBodyWriter writer = new StreamingPaginatedCollectionBodyWriter(null);
+        final StreamingPaginatedCollectionQm<Integer> collection = new StreamingPaginatedCollectionQm<>("numbers", 0,
+                Stream.<Integer> empty().onClose(() -> closed.set(true)));
+
+        // When
+        final String json = write(writer, collection);
+
+        // Then
+        assertEquals("{\"totalCount\":0,\"numbers\":[]}", json);
+        assertTrue(closed.get());
+    }
+
+    @Test
+    public void shouldLeaveJsonUnterminated_onWriteToWithItemsFailingPartway() throws Exception {
+        // Given
+        final StreamingPaginatedCollectionBodyWriter writer = new StreamingPaginatedCollectionBodyWriter(null);
+        final Iterator<Integer> items = Stream.of(1, 2).map(n -> {
+            if (n == 2) {
+                throw new IllegalStateException("Item read failed");
+            }
+            return n;
+        }).iterator();
+        final StreamingPaginatedCollectionQm<Integer> collection = new StreamingPaginatedCollectionQm<>("numbers", 2,
+                items);
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // When
+        IllegalStateException actualException = null;
+        try {
+            writer.writeTo(collection, StreamingPaginatedCollectionQm.class, null, new Annotation[0],
+                    MediaType.APPLICATION_JSON_TYPE, null, outputStream);
+        } catch (final IllegalStateException e) {
+            actualException = e;
+        }
+
+        // Then
+        assertNotNull(actualException);
+        final String json = new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+        assertEquals("{\"totalCount\":2,\"numbers\":[1", json);
+    }
+
+    @Test
+    public void shouldOnlyWriteStreamingCollections_onIsWriteable() {
+        // Given
+        final StreamingPaginatedCollectionBodyWriter writer = new StreamingPaginatedCollectionBodyWriter(null);
+
+        // Then
+        assertTrue(writer.isWriteable(StreamingPaginatedCollectionQm.class, null, new Annotation[0],
+                MediaType.APPLICATION_JSON_TYPE));
+        assertFalse(writer.isWriteable(PaginatedCollectionQm.class, null, new Annotation[0],
+                MediaType.APPLICATION_JSON_TYPE));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Providers providers(final ObjectMapper objectMapper) {
+        final Providers mockProviders = mock(Providers.class);
+        final ContextResolver<ObjectMapper> mockContextResolver = mock(ContextResolver.class);
+        when(mockProviders.getContextResolver(ObjectMapper.class, MediaType.APPLICATION_JSON_TYPE))
+                .thenReturn(mockContextResolver);
+        when(mockContextResolver.getContext(StreamingPaginatedCollectionQm.class)).thenReturn(objectMapper);
+        return mockProviders;
+    }
+
+    private String write(final StreamingPaginatedCollectionBodyWriter writer,
+            final StreamingPaginatedCollectionQm<?> collection) throws Exception {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writer.writeTo(collection, StreamingPaginatedCollectionQm.class, null, new Annotation[0],
+                MediaType.APPLICATION_JSON_TYPE, null, outputStream);
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    public static class Booking {
+
+        private final String id;
+        private final String city;
+
+        Booking(final String id, final String city) {
+            this.id = id;
+            this.city = city;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getCity() {
+            return city;
+        }
+    }
+}
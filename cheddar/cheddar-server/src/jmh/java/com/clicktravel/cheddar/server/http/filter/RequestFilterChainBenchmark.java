@@ -0,0 +1,148 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.http.filter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.clicktravel.cheddar.request.context.DefaultSecurityContext;
+import com.clicktravel.cheddar.request.context.SecurityContext;
+import com.clicktravel.cheddar.request.context.SecurityContextHolder;
+import com.clicktravel.cheddar.server.http.filter.application.gateway.ApplicationGatewayFilter;
+import com.clicktravel.cheddar.server.http.filter.application.gateway.ApplicationGatewayFilterConfiguration;
+import com.clicktravel.cheddar.server.http.filter.classification.RequestClassificationFilter;
+import com.clicktravel.cheddar.server.http.filter.flow.control.FlowControlledRequestFilter;
+import com.clicktravel.cheddar.server.http.filter.security.ContainerSecurityRequestFilter;
+import com.clicktravel.common.concurrent.LockFreeRateLimiter;
+import com.clicktravel.common.concurrent.TokenBucket;
+
+/**
+ * Measures the request filters which run on every request: classification, security context, application gateway
+ * token and flow control. {@link #filterChain()} runs the filters themselves; {@link #perFilterParsing()} repeats the
+ * same work the way the filters did before requests were classified once, with a regular expression match per filter
+ * and split header values, as a baseline. The rate limiter never blocks, so only filter overhead is measured. Run with
+ * the {@code gradle jmh} task; add {@code -prof gc} to the JMH arguments to compare allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestFilterChainBenchmark {
+
+    private static final String GATEWAY_TOKEN = "gateway-token";
+    private static final String GATEWAY_TOKEN_HEADER = "x-clicktravel-application-gateway-token";
+    private static final String SCHEME = "clickplatform";
+
+    @Param({ "/users/12345/bookings", "/status/healthCheck" })
+    private String path;
+
+    private TokenBucket rateLimiter;
+    private RequestClassificationFilter requestClassificationFilter;
+    private ContainerSecurityRequestFilter containerSecurityRequestFilter;
+    private ApplicationGatewayFilter applicationGatewayFilter;
+    private FlowControlledRequestFilter flowControlledRequestFilter;
+
+    @Setup
+    public void setUp() {
+        rateLimiter = new LockFreeRateLimiter(1000000, 1);
+        requestClassificationFilter = new RequestClassificationFilter();
+        containerSecurityRequestFilter = new ContainerSecurityRequestFilter();
+        applicationGatewayFilter = new ApplicationGatewayFilter(
+                new ApplicationGatewayFilterConfiguration(GATEWAY_TOKEN));
+        flowControlledRequestFilter = new FlowControlledRequestFilter(rateLimiter);
+    }
+
+    private ContainerRequest request() {
+        final ContainerRequest request = new ContainerRequest(URI.create("http://localhost:8080/"),
+                URI.create("http://localhost:8080" + path), "GET", null, new MapPropertiesDelegate());
+        request.header(HttpHeaders.AUTHORIZATION, SCHEME + " user-id");
+        request.header("Team-Id", SCHEME + " team-id");
+        request.header("App-Id", "app-id");
+        request.header(GATEWAY_TOKEN_HEADER, GATEWAY_TOKEN);
+        return request;
+    }
+
+    @Benchmark
+    public SecurityContext filterChain() throws IOException {
+        final ContainerRequest request = request();
+        requestClassificationFilter.filter(request);
+        containerSecurityRequestFilter.filter(request);
+        applicationGatewayFilter.filter(request);
+        flowControlledRequestFilter.filter(request);
+        return clearSecurityContext();
+    }
+
+    @Benchmark
+    public SecurityContext perFilterParsing() throws InterruptedException {
+        final ContainerRequest request = request();
+        final MultivaluedMap<String, String> headers = request.getHeaders();
+        SecurityContextHolder.set(new DefaultSecurityContext(splitValue(headers, HttpHeaders.AUTHORIZATION),
+                splitValue(headers, "Team-Id"), splitValue(headers, "Agent-Authorization"),
+                headers.getFirst("App-Id"), headers.getFirst("Identity-Provider-Id"),
+                headers.getFirst("Agent-Identity-Provider-Id")));
+        if (!request.getUriInfo().getRequestUri().getPath().matches("/status(/.*)?")) {
+            if (!GATEWAY_TOKEN.equals(request.getHeaderString(GATEWAY_TOKEN_HEADER))) {
+                throw new IllegalStateException();
+            }
+        }
+        if (!request.getUriInfo().getRequestUri().getPath().matches("/status(/.*)?")) {
+            rateLimiter.takeToken();
+        }
+        return clearSecurityContext();
+    }
+
+    private String splitValue(final MultivaluedMap<String, String> headers, final String header) {
+        final List<String> headerValues = headers.get(header);
+        if (headerValues != null) {
+            for (final String headerValue : headerValues) {
+                final String[] headerValueParts = headerValue.split(" ");
+                if (headerValueParts.length == 2 && SCHEME.equals(headerValueParts[0])) {
+                    return headerValueParts[1];
+                }
+            }
+        }
+        return null;
+    }
+
+    private SecurityContext clearSecurityContext() {
+        final SecurityContext securityContext = SecurityContextHolder.get();
+        SecurityContextHolder.clear();
+        return securityContext;
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.application.messaging;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.clicktravel.cheddar.server.application.configuration.ApplicationConfiguration;
+import com.clicktravel.cheddar.system.event.publisher.SystemEventFilterPolicy;
+import com.clicktravel.infrastructure.messaging.aws.sns.SnsTopicResource;
+import com.clicktravel.infrastructure.messaging.aws.sns.SnsTopicResourceFactory;
+import com.clicktravel.infrastructure.messaging.aws.sqs.SqsQueueResource;
+import com.clicktravel.infrastructure.messaging.aws.sqs.SqsQueueResourceFactory;
+
+/**
+ * Subscribes the system event queue of this application to the system event topic on start up, with a filter policy so
+ * that only system events targeted at this application name and version are delivered. Subscription takes place only
+ * if both the topic and queue names are configured; otherwise the subscription is left to be managed externally.
+ */
+@Component
+public class SystemEventQueueSubscriber {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final ApplicationConfiguration applicationConfiguration;
+    private final String topicName;
+    private final String queueName;
+    private SnsTopicResourceFactory snsTopicResourceFactory;
+    private SqsQueueResourceFactory sqsQueueResourceFactory;
+
+    @Autowired
+    public SystemEventQueueSubscriber(final ApplicationConfiguration applicationConfiguration,
+            @Value("${system.event.topicName:}") final String topicName,
+            @Value("${system.event.queueName:}") final String queueName) {
+        this.applicationConfiguration = applicationConfiguration;
+        this.topicName = topicName;
+        this.queueName = queueName;
+    }
+
+    @Autowired(required = false)
+    public void setSnsTopicResourceFactory(final SnsTopicResourceFactory snsTopicResourceFactory) {
+        this.snsTopicResourceFactory = snsTopicResourceFactory;
+    }
+
+    @Autowired(required = false)
+    public void setSqsQueueResourceFactory(final SqsQueueResourceFactory sqsQueueResourceFactory) {
+        this.sqsQueueResourceFactory = sqsQueueResourceFactory;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (topicName.isEmpty() || queueName.isEmpty()) {
+            return;
+        }
+        if (snsTopicResourceFactory == null || sqsQueueResourceFactory == null) {
+            throw new IllegalStateException(
+                    "SNS topic and SQS queue resource factories are required to subscribe to system events");
+        }
+        final SnsTopicResource snsTopicResource = snsTopicResourceFactory.createSnsTopicResource(topicName);
+        final SqsQueueResource sqsQueueResource = sqsQueueResourceFactory.createSqsQueueResource(queueName);
+        snsTopicResource.subscribe(sqsQueueResource, SystemEventFilterPolicy
+                .forApplication(applicationConfiguration.name(), applicationConfiguration.version()));
+        logger.info("Subscribed SQS queue [" + queueName + "] to system events from SNS topic [" + topicName + "]");
+    }
+
+}
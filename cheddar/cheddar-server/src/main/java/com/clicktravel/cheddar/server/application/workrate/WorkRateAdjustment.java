@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.application.workrate;
+
+import org.joda.time.DateTime;
+
+/**
+ * Outcome of a requested adjustment to a named work rate of this application
+ */
+public class WorkRateAdjustment {
+
+    private final DateTime time;
+    private final String workRateName;
+    private final boolean applied;
+    private final String description;
+
+    public WorkRateAdjustment(final DateTime time, final String workRateName, final boolean applied,
+            final String description) {
+        this.time = time;
+        this.workRateName = workRateName;
+        this.applied = applied;
+        this.description = description;
+    }
+
+    public DateTime time() {
+        return time;
+    }
+
+    public String workRateName() {
+        return workRateName;
+    }
+
+    public boolean applied() {
+        return applied;
+    }
+
+    public String description() {
+        return description;
+    }
+
+}
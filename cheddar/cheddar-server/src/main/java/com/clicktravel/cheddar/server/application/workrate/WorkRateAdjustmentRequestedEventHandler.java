@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.application.workrate;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.joda.time.DateTime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.clicktravel.cheddar.infrastructure.messaging.pooled.listener.PooledMessageListener;
+import com.clicktravel.cheddar.server.application.configuration.ApplicationConfiguration;
+import com.clicktravel.cheddar.system.event.SystemEvent;
+import com.clicktravel.cheddar.system.event.WorkRateAdjustmentRequestedEvent;
+import com.clicktravel.cheddar.system.event.handler.AbstractSystemEventHandler;
+import com.clicktravel.common.concurrent.TokenBucket;
+
+/**
+ * Applies a {@link WorkRateAdjustmentRequestedEvent} targeted at this application. The work rate name is matched
+ * against the bean names of {@link TokenBucket} rate limiters and {@link PooledMessageListener} listeners. Each
+ * outcome, whether applied or not, is recorded in {@link WorkRateAdjustments}.
+ */
+@Component
+public class WorkRateAdjustmentRequestedEventHandler extends AbstractSystemEventHandler {
+
+    private final Map<String, TokenBucket> rateLimiters;
+    private final WorkRateAdjustments workRateAdjustments;
+    private Map<String, PooledMessageListener<?>> messageListeners = Collections.emptyMap();
+
+    @Autowired
+    public WorkRateAdjustmentRequestedEventHandler(final ApplicationConfiguration applicationConfiguration,
+            final Map<String, TokenBucket> rateLimiters, final WorkRateAdjustments workRateAdjustments) {
+        super(applicationConfiguration.name(), applicationConfiguration.version());
+        this.rateLimiters = rateLimiters;
+        this.workRateAdjustments = workRateAdjustments;
+    }
+
+    @Autowired(required = false)
+    public void setMessageListeners(final Map<String, PooledMessageListener<?>> messageListeners) {
+        this.messageListeners = messageListeners;
+    }
+
+    @Override
+    protected void handleSystemEvent(final SystemEvent event) {
+        final WorkRateAdjustmentRequestedEvent systemEvent = (WorkRateAdjustmentRequestedEvent) event;
+        final String workRateName = systemEvent.getWorkRateName();
+        WorkRateAdjustment adjustment;
+        try {
+            adjustment = adjust(workRateName, systemEvent);
+        } catch (final IllegalArgumentException e) {
+            adjustment = new WorkRateAdjustment(DateTime.now(), workRateName, false, e.getMessage());
+        }
+        if (adjustment.applied()) {
+            logger.info("Work rate [" + workRateName + "] adjusted: " + adjustment.description());
+        } else {
+            logger.warn("Work rate [" + workRateName + "] not adjusted: " + adjustment.description());
+        }
+        workRateAdjustments.add(adjustment);
+    }
+
+    private WorkRateAdjustment adjust(final String workRateName, final WorkRateAdjustmentRequestedEvent event) {
+        final TokenBucket rateLimiter = rateLimiters.get(workRateName);
+        if (rateLimiter != null) {
+            return adjustRateLimiter(workRateName, rateLimiter, event);
+        }
+        final PooledMessageListener<?> messageListener = messageListeners.get(workRateName);
+        if (messageListener != null) {
+            return adjustMessageListener(workRateName, messageListener, event);
+        }
+        return new WorkRateAdjustment(DateTime.now(), workRateName, false, "No such work rate");
+    }
+
+    private WorkRateAdjustment adjustRateLimiter(final String workRateName, final TokenBucket rateLimiter,
+            final WorkRateAdjustmentRequestedEvent event) {
+        if (event.getBucketCapacity() == null && event.getTokenReplacementDelayMillis() == null) {
+            return new WorkRateAdjustment(DateTime.now(), workRateName, false,
+                    "No bucket capacity or token replacement delay requested for rate limiter");
+        }
+        final int bucketCapacity = event.getBucketCapacity() != null ? event.getBucketCapacity()
+                : rateLimiter.getBucketCapacity();
+        final long tokenReplacementDelayMillis = event.getTokenReplacementDelayMillis() != null
+                ? event.getTokenReplacementDelayMillis()
+                : rateLimiter.getTokenReplacementDelayMillis();
+        if (bucketCapacity < 1 || tokenReplacementDelayMillis < 0) {
+            throw new IllegalArgumentException("Invalid bucket capacity " + bucketCapacity
+                    + " or token replacement delay " + tokenReplacementDelayMillis);
+        }
+        rateLimiter.setParameters(bucketCapacity, tokenReplacementDelayMillis);
+        return new WorkRateAdjustment(DateTime.now(), workRateName, true, "bucketCapacity=" + bucketCapacity
+                + ", tokenReplacementDelayMillis=" + tokenReplacementDelayMillis);
+    }
+
+    private WorkRateAdjustment adjustMessageListener(final String workRateName,
+            final PooledMessageListener<?> messageListener, final WorkRateAdjustmentRequestedEvent event) {
+        if (event.getWorkerThreads() == null) {
+            return new WorkRateAdjustment(DateTime.now(), workRateName, false,
+                    "No worker threads requested for message listener");
+        }
+        messageListener.setWorkerThreads(event.getWorkerThreads());
+        return new WorkRateAdjustment(DateTime.now(), workRateName, true,
+                "workerThreads=" + event.getWorkerThreads());
+    }
+
+    @Override
+    public Class<? extends SystemEvent> getEventClass() {
+        return WorkRateAdjustmentRequestedEvent.class;
+    }
+
+}
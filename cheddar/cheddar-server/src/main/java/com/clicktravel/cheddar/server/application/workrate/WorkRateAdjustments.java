@@ -0,0 +1,50 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.application.workrate;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds the most recent work rate adjustments made to this application, so they can be acknowledged in the status
+ * output
+ */
+@Component
+public class WorkRateAdjustments {
+
+    static final int MAX_RECENT_ADJUSTMENTS = 10;
+
+    private final LinkedList<WorkRateAdjustment> recentAdjustments = new LinkedList<>();
+
+    public synchronized void add(final WorkRateAdjustment adjustment) {
+        recentAdjustments.addFirst(adjustment);
+        if (recentAdjustments.size() > MAX_RECENT_ADJUSTMENTS) {
+            recentAdjustments.removeLast();
+        }
+    }
+
+    /**
+     * @return Most recent adjustments, newest first
+     */
+    public synchronized List<WorkRateAdjustment> recent() {
+        return new ArrayList<>(recentAdjustments);
+    }
+
+}
@@ -27,6 +27,8 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.ext.Provider;
 
+import com.clicktravel.cheddar.server.http.filter.classification.RequestClassification;
+
 /**
  * Class to reject requests made to end-points which do not have the required HTTP header which is injected by the
  * application gateway
@@ -52,9 +54,7 @@ public class ApplicationGatewayFilter implements ContainerRequestFilter {
      */
     @Override
     public void filter(final ContainerRequestContext requestContext) throws IOException {
-        final String path = requestContext.getUriInfo().getRequestUri().getPath();
-        final boolean isStatusResource = path.matches("/status(/.*)?");
-        if (!isStatusResource) {
+        if (!RequestClassification.of(requestContext).isStatusResource()) {
             final String applicationGatewayToken = applicationGatewayFilterConfiguration.applicationGatewayToken();
             if (!applicationGatewayToken.isEmpty()) {
                 final String receivedApplicationGatewayToken = requestContext
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.http.filter.classification;
+
+import javax.ws.rs.container.ContainerRequestContext;
+
+/**
+ * Facts about a request which several filters depend on, worked out once per request by
+ * {@link RequestClassificationFilter} and held as a request property.
+ */
+public class RequestClassification {
+
+    private static final String PROPERTY = RequestClassification.class.getName();
+    private static final String STATUS_RESOURCE_PATH = "/status";
+
+    private final String path;
+    private final boolean statusResource;
+
+    RequestClassification(final String path) {
+        this.path = path;
+        statusResource = isStatusResourcePath(path);
+    }
+
+    /**
+     * Gets the classification of a request, classifying it now if this has not already been done
+     * @param requestContext Request to classify
+     * @return {@link RequestClassification} of the request
+     */
+    public static RequestClassification of(final ContainerRequestContext requestContext) {
+        final Object property = requestContext.getProperty(PROPERTY);
+        if (property instanceof RequestClassification) {
+            return (RequestClassification) property;
+        }
+        final RequestClassification classification = new RequestClassification(
+                requestContext.getUriInfo().getRequestUri().getPath());
+        requestContext.setProperty(PROPERTY, classification);
+        return classification;
+    }
+
+    /**
+     * Equivalent to matching the regular expression {@code /status(/.*)?}, without the cost of compiling it
+     */
+    static boolean isStatusResourcePath(final String path) {
+        return path != null && path.startsWith(STATUS_RESOURCE_PATH)
+                && (path.length() == STATUS_RESOURCE_PATH.length()
+                        || path.charAt(STATUS_RESOURCE_PATH.length()) == '/');
+    }
+
+    public String path() {
+        return path;
+    }
+
+    /**
+     * @return {@code true} if the request is for the status resource, which is exempt from gateway checks and flow
+     *         control
+     */
+    public boolean isStatusResource() {
+        return statusResource;
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.http.filter.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Output stream which buffers written bytes until a minimum size is reached, then compresses everything written to
+ * the underlying stream. If fewer bytes than the minimum size are written, they are passed on uncompressed when the
+ * stream is finished. A callback is run just before compression starts, while headers can still be changed.
+ * <p/>
+ * The {@link Deflater} used for either content coding is owned by this stream and its native memory is released by
+ * {@link #finish()} or {@link #end()}, rather than being left for finalization. For gzip, the header and trailer are
+ * written around raw deflate output, as {@link java.util.zip.GZIPOutputStream} would.
+ */
+class CompressingOutputStream extends FilterOutputStream {
+
+    private static final int COMPRESSION_BUFFER_SIZE = 8192;
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+    private final int minSizeBytes;
+    private final String contentCoding;
+    private final Runnable onCompressionStart;
+    private ByteArrayOutputStream buffer;
+    private Deflater deflater;
+    private DeflaterOutputStream deflaterStream;
+    private CRC32 gzipCrc;
+    private OutputStream compressedStream;
+    private boolean finished;
+
+    CompressingOutputStream(final OutputStream out, final int minSizeBytes, final String contentCoding,
+            final Runnable onCompressionStart) {
+        super(out);
+        this.minSizeBytes = minSizeBytes;
+        this.contentCoding = contentCoding;
+        this.onCompressionStart = onCompressionStart;
+        buffer = new ByteArrayOutputStream(Math.min(minSizeBytes, COMPRESSION_BUFFER_SIZE));
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        if (compressedStream != null) {
+            compressedStream.write(b, off, len);
+            return;
+        }
+        buffer.write(b, off, len);
+        if (buffer.size() >= minSizeBytes) {
+            startCompression();
+        }
+    }
+
+    private void startCompression() throws IOException {
+        onCompressionStart.run();
+        final boolean gzip = CompressionFilter.GZIP.equals(contentCoding);
+        deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, gzip);
+        deflaterStream = new DeflaterOutputStream(out, deflater, COMPRESSION_BUFFER_SIZE);
+        if (gzip) {
+            out.write(GZIP_HEADER);
+            gzipCrc = new CRC32();
+            compressedStream = new CheckedOutputStream(deflaterStream, gzipCrc);
+        } else {
+            compressedStream = deflaterStream;
+        }
+        buffer.writeTo(compressedStream);
+        buffer = null;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // While buffering, flushing would commit the response before the content coding is known
+        if (compressedStream != null) {
+            compressedStream.flush();
+        }
+    }
+
+    /**
+     * Writes any buffered bytes and completes compression, without closing the underlying stream
+     * @throws IOException
+     */
+    void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (compressedStream != null) {
+            try {
+                deflaterStream.finish();
+                if (gzipCrc != null) {
+                    writeGzipTrailer();
+                }
+            } finally {
+                end();
+            }
+        } else {
+            buffer.writeTo(out);
+        }
+        out.flush();
+    }
+
+    /**
+     * Releases the compressor, whether or not the stream was finished. Does nothing if compression has not started or
+     * the compressor has already been released
+     */
+    void end() {
+        if (deflater != null) {
+            deflater.end();
+        }
+    }
+
+    private void writeGzipTrailer() throws IOException {
+        writeIntLittleEndian((int) gzipCrc.getValue());
+        writeIntLittleEndian((int) deflater.getBytesRead());
+    }
+
+    private void writeIntLittleEndian(final int value) throws IOException {
+        out.write(value);
+        out.write(value >> 8);
+        out.write(value >> 16);
+        out.write(value >> 24);
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        out.close();
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.http.filter.compression;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration of response compression for {@link CompressionFilter}. Response entities of at least
+ * {@link #minSizeBytes()} are compressed when the client accepts a supported content coding.
+ */
+@Component
+public class CompressionConfiguration {
+
+    private final boolean enabled;
+    private final int minSizeBytes;
+
+    @Autowired
+    public CompressionConfiguration(@Value("${http.compression.enabled:false}") final boolean enabled,
+            @Value("${http.compression.minSizeBytes:1024}") final int minSizeBytes) {
+        this.enabled = enabled;
+        this.minSizeBytes = minSizeBytes;
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public int minSizeBytes() {
+        return minSizeBytes;
+    }
+
+}
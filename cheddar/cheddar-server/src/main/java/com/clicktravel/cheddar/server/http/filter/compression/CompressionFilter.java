@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.http.filter.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Compresses response entities using gzip or deflate, as accepted by the client. The response filter selects the
+ * content coding from the {@code Accept-Encoding} request header; the writer interceptor then buffers the serialised
+ * entity until it reaches the configured minimum size, at which point the {@code Content-Encoding} header is set and
+ * compression starts. Smaller entities are written unchanged.
+ */
+@Provider
+@Priority(Priorities.ENTITY_CODER)
+public class CompressionFilter implements ContainerResponseFilter, WriterInterceptor {
+
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+    static final String CONTENT_CODING_PROPERTY = CompressionFilter.class.getName() + ".contentCoding";
+
+    private final CompressionConfiguration compressionConfiguration;
+
+    @Autowired
+    public CompressionFilter(final CompressionConfiguration compressionConfiguration) {
+        this.compressionConfiguration = compressionConfiguration;
+    }
+
+    @Override
+    public void filter(final ContainerRequestContext requestContext, final ContainerResponseContext responseContext)
+            throws IOException {
+        if (!compressionConfiguration.enabled() || !responseContext.hasEntity()
+                || responseContext.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            return;
+        }
+        responseContext.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        final String contentCoding = acceptedContentCoding(requestContext.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        if (contentCoding != null) {
+            requestContext.setProperty(CONTENT_CODING_PROPERTY, contentCoding);
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(final WriterInterceptorContext context) throws IOException {
+        final String contentCoding = (String) context.getProperty(CONTENT_CODING_PROPERTY);
+        if (contentCoding == null) {
+            context.proceed();
+            return;
+        }
+        final OutputStream outputStream = context.getOutputStream();
+        final CompressingOutputStream compressingOutputStream = new CompressingOutputStream(outputStream,
+                compressionConfiguration.minSizeBytes(), contentCoding, () -> {
+                    context.getHeaders().putSingle(HttpHeaders.CONTENT_ENCODING, contentCoding);
+                    context.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+                });
+        context.setOutputStream(compressingOutputStream);
+        try {
+            context.proceed();
+            compressingOutputStream.finish();
+        } finally {
+            compressingOutputStream.end();
+            context.setOutputStream(outputStream);
+        }
+    }
+
+    /**
+     * @param acceptEncoding Value of {@code Accept-Encoding} request header, may be null
+     * @return Preferred supported content coding accepted by the client, or null if none
+     */
+    static String acceptedContentCoding(final String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        boolean deflateAccepted = false;
+        for (final String element : acceptEncoding.toLowerCase(Locale.ENGLISH).split(",")) {
+            final String[] parts = element.split(";");
+            final String coding = parts[0].trim();
+            if (isRefused(parts)) {
+                continue;
+            }
+            if (GZIP.equals(coding) || "x-gzip".equals(coding) || "*".equals(coding)) {
+                return GZIP;
+            }
+            if (DEFLATE.equals(coding)) {
+                deflateAccepted = true;
+            }
+        }
+        return deflateAccepted ? DEFLATE : null;
+    }
+
+    private static boolean isRefused(final String[] codingParts) {
+        for (int i = 1; i < codingParts.length; i++) {
+            final String parameter = codingParts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim()) == 0;
+                } catch (final NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.http.filter.etag;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration of {@link EntityTagFilter}, which adds entity tags to GET responses and answers conditional requests.
+ * Responses of {@link ContentHashEntityTag} resource methods serialising to more than
+ * {@link #maxContentHashBytes()} are left untagged.
+ */
+@Component
+public class EntityTagConfiguration {
+
+    private final boolean enabled;
+    private final int maxContentHashBytes;
+
+    @Autowired
+    public EntityTagConfiguration(@Value("${http.etag.enabled:false}") final boolean enabled,
+            @Value("${http.etag.maxContentHashBytes:262144}") final int maxContentHashBytes) {
+        this.enabled = enabled;
+        this.maxContentHashBytes = maxContentHashBytes;
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public int maxContentHashBytes() {
+        return maxContentHashBytes;
+    }
+
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.http.filter.etag;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.Priority;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.Providers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.clicktravel.cheddar.infrastructure.persistence.database.Item;
+import com.clicktravel.cheddar.query.model.StreamingPaginatedCollectionQm;
+import com.clicktravel.common.hash.HashUtils;
+
+/**
+ * Adds a weak entity tag to successful GET responses and replies with status 304 (Not Modified) when it matches the
+ * {@code If-None-Match} request header.
+ *
+ * The entity tag is taken from the response if already set by the resource, or derived from the version of an
+ * {@link Item} entity together with a hash of the request path, which identifies the item; in both cases a 304 is
+ * returned without serialising the entity. Otherwise, for resource methods
+ * annotated {@link ContentHashEntityTag}, the entity is serialised once to compute a content hash, and the serialised
+ * bytes are reused as the response entity. Streamed entities, including {@link StreamingPaginatedCollectionQm}, and
+ * entities larger than {@link EntityTagConfiguration#maxContentHashBytes()} are left untagged.
+ */
+@Provider
+@Priority(Priorities.USER)
+public class EntityTagFilter implements ContainerResponseFilter {
+
+    private final EntityTagConfiguration entityTagConfiguration;
+
+    @Context
+    private Providers providers;
+
+    @Autowired
+    public EntityTagFilter(final EntityTagConfiguration entityTagConfiguration) {
+        this.entityTagConfiguration = entityTagConfiguration;
+    }
+
+    EntityTagFilter(final EntityTagConfiguration entityTagConfiguration, final Providers providers) {
+        this(entityTagConfiguration);
+        this.providers = providers;
+    }
+
+    @Override
+    public void filter(final ContainerRequestContext requestContext, final ContainerResponseContext responseContext)
+            throws IOException {
+        if (!entityTagConfiguration.enabled() || !isTaggable(requestContext, responseContext)) {
+            return;
+        }
+        EntityTag entityTag = responseContext.getEntityTag();
+        if (entityTag == null) {
+            entityTag = versionEntityTag(requestContext, responseContext.getEntity());
+        }
+        if (entityTag == null) {
+            entityTag = contentHashEntityTag(responseContext);
+        }
+        if (entityTag == null) {
+            return;
+        }
+        responseContext.getHeaders().putSingle(HttpHeaders.ETAG, entityTag);
+        if (matches(requestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH), entityTag)) {
+            responseContext.setStatus(Status.NOT_MODIFIED.getStatusCode());
+            responseContext.setEntity(null);
+            responseContext.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+        }
+    }
+
+    private boolean isTaggable(final ContainerRequestContext requestContext,
+            final ContainerResponseContext responseContext) {
+        final String method = requestContext.getMethod();
+        return (HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method))
+                && responseContext.getStatus() == Status.OK.getStatusCode() && responseContext.hasEntity();
+    }
+
+    /**
+     * Items of the same type at the same version are told apart by the request path, as {@link Item} exposes no id
+     */
+    private EntityTag versionEntityTag(final ContainerRequestContext requestContext, final Object entity) {
+        if (entity instanceof Item) {
+            final Long version = ((Item) entity).getVersion();
+            if (version != null) {
+                final String pathHash = HashUtils.generateMd5Base64Hash(
+                        requestContext.getUriInfo().getPath().getBytes(StandardCharsets.UTF_8));
+                return new EntityTag(entity.getClass().getSimpleName() + "-" + pathHash + "-" + version, true);
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private EntityTag contentHashEntityTag(final ContainerResponseContext responseContext) throws IOException {
+        final Object entity = responseContext.getEntity();
+        final MediaType mediaType = responseContext.getMediaType();
+        if (mediaType == null || !isContentHashed(responseContext.getEntityAnnotations()) || isStreamed(entity)) {
+            return null;
+        }
+        final int maxContentHashBytes = entityTagConfiguration.maxContentHashBytes();
+        final byte[] content;
+        if (entity instanceof byte[]) {
+            content = (byte[]) entity;
+            if (content.length > maxContentHashBytes) {
+                return null;
+            }
+        } else {
+            final MessageBodyWriter writer = providers.getMessageBodyWriter(responseContext.getEntityClass(),
+                    responseContext.getEntityType(), responseContext.getEntityAnnotations(), mediaType);
+            if (writer == null) {
+                return null;
+            }
+            final BoundedByteArrayOutputStream outputStream = new BoundedByteArrayOutputStream(maxContentHashBytes);
+            try {
+                writer.writeTo(entity, responseContext.getEntityClass(), responseContext.getEntityType(),
+                        responseContext.getEntityAnnotations(), mediaType, responseContext.getHeaders(),
+                        outputStream);
+            } catch (final IOException | RuntimeException e) {
+                if (outputStream.exceeded) {
+                    return null; // entity is written as normal, without an entity tag
+                }
+                throw e;
+            }
+            content = outputStream.toByteArray();
+            responseContext.setEntity(content, responseContext.getEntityAnnotations(), mediaType);
+        }
+        return new EntityTag(HashUtils.generateMd5Base64Hash(content), true);
+    }
+
+    private boolean isStreamed(final Object entity) {
+        return entity instanceof StreamingOutput || entity instanceof StreamingPaginatedCollectionQm
+                || entity instanceof InputStream || entity instanceof Reader || entity instanceof File;
+    }
+
+    private boolean isContentHashed(final Annotation[] entityAnnotations) {
+        if (entityAnnotations != null) {
+            for (final Annotation annotation : entityAnnotations) {
+                if (annotation instanceof ContentHashEntityTag) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Weak comparison of entity tag against {@code If-None-Match} request header, as required for GET requests
+     */
+    static boolean matches(final String ifNoneMatch, final EntityTag entityTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (final String element : ifNoneMatch.split(",")) {
+            String candidate = element.trim();
+            if ("*".equals(candidate)) {
+                return true;
+            }
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.length() >= 2 && candidate.startsWith("\"") && candidate.endsWith("\"")
+                    && candidate.substring(1, candidate.length() - 1).equals(entityTag.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Byte array output stream which fails once more than a maximum number of bytes are written, so that serialising a
+     * large entity is abandoned early
+     */
+    private static class BoundedByteArrayOutputStream extends ByteArrayOutputStream {
+
+        private final int maxSizeBytes;
+        private boolean exceeded;
+
+        BoundedByteArrayOutputStream(final int maxSizeBytes) {
+            this.maxSizeBytes = maxSizeBytes;
+        }
+
+        @Override
+        public void write(final int b) {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            if (size() + len > maxSizeBytes) {
+                exceeded = true;
+                throw new UncheckedIOException(new IOException("Entity exceeds " + maxSizeBytes + " bytes"));
+            }
+            super.write(b, off, len);
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.http.filter.flow.control;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration of admission control for {@link FlowControlledRequestFilter}. With admission control enabled, a request
+ * waits at most {@link #admissionTimeoutMillis()} for rate limit tokens and is otherwise rejected with status 429. As
+ * well as the global REST request rate limit, requests may be limited per route (resource method) and per team; a
+ * bucket capacity of zero disables that limit.
+ */
+@Component
+public class AdmissionControlConfiguration {
+
+    private final boolean enabled;
+    private final long admissionTimeoutMillis;
+    private final int routeBucketCapacity;
+    private final long routeTokenReplacementDelayMillis;
+    private final int teamBucketCapacity;
+    private final long teamTokenReplacementDelayMillis;
+
+    @Autowired
+    public AdmissionControlConfiguration(@Value("${flow.control.admissionControl:false}") final boolean enabled,
+            @Value("${flow.control.admissionTimeoutMillis:1000}") final long admissionTimeoutMillis,
+            @Value("${flow.control.routeBucketCapacity:0}") final int routeBucketCapacity,
+            @Value("${flow.control.routeTokenReplacementDelayMillis:1000}") final long routeTokenReplacementDelayMillis,
+            @Value("${flow.control.teamBucketCapacity:0}") final int teamBucketCapacity,
+            @Value("${flow.control.teamTokenReplacementDelayMillis:1000}") final long teamTokenReplacementDelayMillis) {
+        this.enabled = enabled;
+        this.admissionTimeoutMillis = admissionTimeoutMillis;
+        this.routeBucketCapacity = routeBucketCapacity;
+        this.routeTokenReplacementDelayMillis = routeTokenReplacementDelayMillis;
+        this.teamBucketCapacity = teamBucketCapacity;
+        this.teamTokenReplacementDelayMillis = teamTokenReplacementDelayMillis;
+    }
+
+    /**
+     * @return Configuration for blocking flow control, where requests wait as long as it takes to obtain a token
+     */
+    public static AdmissionControlConfiguration disabled() {
+        return new AdmissionControlConfiguration(false, 0, 0, 0, 0, 0);
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public long admissionTimeoutMillis() {
+        return admissionTimeoutMillis;
+    }
+
+    public int routeBucketCapacity() {
+        return routeBucketCapacity;
+    }
+
+    public long routeTokenReplacementDelayMillis() {
+        return routeTokenReplacementDelayMillis;
+    }
+
+    public int teamBucketCapacity() {
+        return teamBucketCapacity;
+    }
+
+    public long teamTokenReplacementDelayMillis() {
+        return teamTokenReplacementDelayMillis;
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.http.filter.flow.control;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Queue wait statistics of requests passing through {@link FlowControlledRequestFilter} in admission control mode,
+ * for all requests and for each route.
+ */
+@Component
+public class AdmissionControlStatistics {
+
+    private final QueueWaitHistogram queueWait = new QueueWaitHistogram();
+    private final Map<String, QueueWaitHistogram> routeQueueWaits = new ConcurrentHashMap<>();
+
+    public void recordAdmitted(final String route, final long waitNanos) {
+        queueWait.recordAdmitted(waitNanos);
+        routeQueueWait(route).recordAdmitted(waitNanos);
+    }
+
+    public void recordRejected(final String route) {
+        queueWait.recordRejected();
+        routeQueueWait(route).recordRejected();
+    }
+
+    private QueueWaitHistogram routeQueueWait(final String route) {
+        return routeQueueWaits.computeIfAbsent(route, r -> new QueueWaitHistogram());
+    }
+
+    public QueueWaitHistogram queueWait() {
+        return queueWait;
+    }
+
+    public Map<String, QueueWaitHistogram> routeQueueWaits() {
+        return Collections.unmodifiableMap(routeQueueWaits);
+    }
+
+}
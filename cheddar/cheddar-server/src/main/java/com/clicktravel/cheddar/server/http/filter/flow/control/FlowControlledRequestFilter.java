@@ -17,27 +17,67 @@
 package com.clicktravel.cheddar.server.http.filter.flow.control;
 
 import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 import javax.annotation.Priority;
 import javax.ws.rs.Priorities;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.ext.Provider;
 
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ExtendedUriInfo;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+import org.glassfish.jersey.uri.UriTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
-import com.clicktravel.common.concurrent.RateLimiter;
+import com.clicktravel.cheddar.request.context.SecurityContextHolder;
+import com.clicktravel.cheddar.server.http.filter.classification.RequestClassification;
+import com.clicktravel.common.concurrent.AdaptiveConcurrencyLimiter;
+import com.clicktravel.common.concurrent.LockFreeRateLimiter;
+import com.clicktravel.common.concurrent.TokenBucket;
 
 /**
- * Applies a rate limit function to all (matched) requests, except for status resource (/status). This filter will block
- * until the rate limiter allows the request processing to proceed.
+ * Applies a rate limit function to all (matched) requests, except for status resource (/status). By default this
+ * filter will block until the rate limiter allows the request processing to proceed.
+ * <p/>
+ * If admission control is enabled (see {@link AdmissionControlConfiguration}), a request waits no longer than the
+ * admission timeout for tokens from the global rate limiter and any per-route and per-team rate limiters. Requests not
+ * admitted in time are rejected with status 429 (Too Many Requests) and a Retry-After header, so that worker threads
+ * are not held indefinitely under overload. Tokens obtained for a request which is then rejected are returned. Per-team
+ * rate limiters are kept for up to {@value #MAX_TEAM_RATE_LIMITERS} teams; beyond that, those of teams idle for at
+ * least the token replacement delay are discarded, their buckets being full again.
+ * <p/>
+ * If an {@link AdaptiveConcurrencyLimiter} bean named restRequestConcurrencyLimiter exists, the number of requests in
+ * processing is also limited, adapting to the observed processing latency. The permit taken for a request is released
+ * when Jersey finishes processing the request, however that processing ends.
  */
 @Provider
 @Priority(Priorities.USER)
-public class FlowControlledRequestFilter implements ContainerRequestFilter {
+public class FlowControlledRequestFilter implements ContainerRequestFilter, ApplicationEventListener {
+
+    static final String CONCURRENCY_PERMIT_START_PROPERTY = FlowControlledRequestFilter.class.getName()
+            + ".concurrencyPermitStart";
+
+    /** Number of per-team rate limiters above which idle, or failing that least recently used, ones are discarded */
+    static final int MAX_TEAM_RATE_LIMITERS = 10000;
 
     @Autowired
     @Value("${flow.control.rateLimitLogging:false}")
@@ -45,24 +85,51 @@ public class FlowControlledRequestFilter implements ContainerRequestFilter {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    private final RateLimiter restRequestRateLimiter;
+    private final TokenBucket restRequestRateLimiter;
+    private final AdmissionControlConfiguration admissionControlConfiguration;
+    private final AdmissionControlStatistics admissionControlStatistics;
+    private final Map<String, TokenBucket> routeRateLimiters = new ConcurrentHashMap<>();
+    private final Map<String, TeamRateLimiter> teamRateLimiters = new ConcurrentHashMap<>();
+    private final AtomicBoolean evictingTeamRateLimiters = new AtomicBoolean();
+    private final RequestEventListener concurrencyPermitReleaser = this::releaseConcurrencyPermit;
+    private AdaptiveConcurrencyLimiter restRequestConcurrencyLimiter;
+
+    public FlowControlledRequestFilter(final TokenBucket restRequestRateLimiter) {
+        this(restRequestRateLimiter, AdmissionControlConfiguration.disabled(), new AdmissionControlStatistics());
+    }
 
     @Autowired
-    public FlowControlledRequestFilter(final RateLimiter restRequestRateLimiter) {
+    public FlowControlledRequestFilter(final TokenBucket restRequestRateLimiter,
+            final AdmissionControlConfiguration admissionControlConfiguration,
+            final AdmissionControlStatistics admissionControlStatistics) {
         this.restRequestRateLimiter = restRequestRateLimiter;
+        this.admissionControlConfiguration = admissionControlConfiguration;
+        this.admissionControlStatistics = admissionControlStatistics;
+    }
+
+    @Autowired(required = false)
+    public void setRestRequestConcurrencyLimiter(final AdaptiveConcurrencyLimiter restRequestConcurrencyLimiter) {
+        this.restRequestConcurrencyLimiter = restRequestConcurrencyLimiter;
     }
 
     @Override
     public void filter(final ContainerRequestContext requestContext) throws IOException {
-        final String path = requestContext.getUriInfo().getRequestUri().getPath();
-        final boolean isStatusResource = path.matches("/status(/.*)?");
-        if (!isStatusResource) {
+        final RequestClassification classification = RequestClassification.of(requestContext);
+        if (!classification.isStatusResource()) {
             try {
-                final long start = rateLimitLogging ? System.currentTimeMillis() : 0l;
-                restRequestRateLimiter.takeToken(); // block until allowed by rate limit
-                if (rateLimitLogging) {
-                    logger.debug(path + " took " + ((System.currentTimeMillis() - start) / 1000)
-                            + "s to obtain a token to process");
+                if (admissionControlConfiguration.enabled()) {
+                    applyAdmissionControl(requestContext);
+                } else {
+                    final long start = rateLimitLogging ? System.currentTimeMillis() : 0l;
+                    restRequestRateLimiter.takeToken(); // block until allowed by rate limit
+                    if (restRequestConcurrencyLimiter != null) {
+                        restRequestConcurrencyLimiter.acquire(); // block until allowed by concurrency limit
+                        concurrencyPermitAcquired(requestContext);
+                    }
+                    if (rateLimitLogging) {
+                        logger.debug(classification.path() + " took " + ((System.currentTimeMillis() - start) / 1000)
+                                + "s to obtain a token to process");
+                    }
                 }
             } catch (final InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -70,4 +137,181 @@ public class FlowControlledRequestFilter implements ContainerRequestFilter {
         }
     }
 
+    @Override
+    public void onEvent(final ApplicationEvent event) {
+        // No application events are of interest
+    }
+
+    @Override
+    public RequestEventListener onRequest(final RequestEvent requestEvent) {
+        return restRequestConcurrencyLimiter == null ? null : concurrencyPermitReleaser;
+    }
+
+    /**
+     * Releases the concurrency permit of a request once its processing has finished. Jersey always fires the finished
+     * event, including for requests aborted by a later filter, failing with an unmapped exception or whose connection
+     * failed, none of which are guaranteed to reach a response filter.
+     */
+    private void releaseConcurrencyPermit(final RequestEvent event) {
+        if (event.getType() == RequestEvent.Type.FINISHED) {
+            final ContainerRequest request = event.getContainerRequest();
+            final Object permitStart = request.getProperty(CONCURRENCY_PERMIT_START_PROPERTY);
+            if (permitStart != null) {
+                request.removeProperty(CONCURRENCY_PERMIT_START_PROPERTY);
+                restRequestConcurrencyLimiter.release(System.nanoTime() - (Long) permitStart);
+            }
+        }
+    }
+
+    private void concurrencyPermitAcquired(final ContainerRequestContext requestContext) {
+        requestContext.setProperty(CONCURRENCY_PERMIT_START_PROPERTY, System.nanoTime());
+    }
+
+    private void applyAdmissionControl(final ContainerRequestContext requestContext) throws InterruptedException {
+        final String route = route(requestContext);
+        final long start = System.nanoTime();
+        final long deadline = start
+                + TimeUnit.MILLISECONDS.toNanos(admissionControlConfiguration.admissionTimeoutMillis());
+        final long retryAfterSeconds = admit(requestContext, route, deadline);
+        final long waitNanos = System.nanoTime() - start;
+        if (retryAfterSeconds == 0) {
+            admissionControlStatistics.recordAdmitted(route, waitNanos);
+            if (rateLimitLogging) {
+                logger.debug(route + " waited " + TimeUnit.NANOSECONDS.toMillis(waitNanos) + "ms for admission");
+            }
+        } else {
+            admissionControlStatistics.recordRejected(route);
+            if (rateLimitLogging) {
+                logger.debug(route + " rejected after waiting " + TimeUnit.NANOSECONDS.toMillis(waitNanos) + "ms");
+            }
+            requestContext.abortWith(Response.status(Status.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds).build());
+        }
+    }
+
+    /**
+     * Waits until the deadline for tokens from each applicable rate limiter and a permit from the concurrency limiter.
+     * The global rate limiter, shared by all requests, is tried first. Tokens already obtained for a request which is
+     * not admitted are returned.
+     * @return Zero if the request is admitted, otherwise the number of seconds after which the request may be retried
+     */
+    private long admit(final ContainerRequestContext requestContext, final String route, final long deadline)
+            throws InterruptedException {
+        final TokenBucket[] rateLimiters = { restRequestRateLimiter, routeRateLimiter(route), teamRateLimiter() };
+        int tokensObtained = 0;
+        boolean admitted = false;
+        try {
+            for (; tokensObtained < rateLimiters.length; tokensObtained++) {
+                final TokenBucket rateLimiter = rateLimiters[tokensObtained];
+                if (rateLimiter != null && !rateLimiter.pollToken(remainingNanos(deadline), TimeUnit.NANOSECONDS)) {
+                    return retryAfterSeconds(rateLimiter);
+                }
+            }
+            if (restRequestConcurrencyLimiter != null) {
+                if (!restRequestConcurrencyLimiter.tryAcquire(remainingNanos(deadline), TimeUnit.NANOSECONDS)) {
+                    return 1;
+                }
+                concurrencyPermitAcquired(requestContext);
+            }
+            admitted = true;
+            return 0;
+        } finally {
+            if (!admitted) {
+                returnTokens(rateLimiters, tokensObtained);
+            }
+        }
+    }
+
+    private void returnTokens(final TokenBucket[] rateLimiters, final int tokensObtained) {
+        for (int n = 0; n < tokensObtained; n++) {
+            if (rateLimiters[n] != null) {
+                rateLimiters[n].returnToken();
+            }
+        }
+    }
+
+    private long remainingNanos(final long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    private TokenBucket teamRateLimiter() {
+        final Optional<String> teamId = SecurityContextHolder.get().teamId();
+        final int capacity = admissionControlConfiguration.teamBucketCapacity();
+        if (capacity == 0 || !teamId.isPresent()) {
+            return null;
+        }
+        final long tokenReplacementDelayMillis = admissionControlConfiguration.teamTokenReplacementDelayMillis();
+        final long now = System.nanoTime();
+        final TeamRateLimiter teamRateLimiter = teamRateLimiters.computeIfAbsent(teamId.get(),
+                t -> new TeamRateLimiter(new LockFreeRateLimiter(capacity, tokenReplacementDelayMillis)));
+        teamRateLimiter.lastUsedNanos = now;
+        if (teamRateLimiters.size() > MAX_TEAM_RATE_LIMITERS) {
+            evictTeamRateLimiters(now, TimeUnit.MILLISECONDS.toNanos(tokenReplacementDelayMillis));
+        }
+        return teamRateLimiter.rateLimiter;
+    }
+
+    /**
+     * Discards the per-team rate limiters unused for at least the token replacement delay, whose buckets are full and
+     * so no different from new ones. If too many teams are still active, the least recently used are discarded, down
+     * to nine tenths of the maximum so that this is not repeated for every new team. Only one thread evicts at a time;
+     * any other continues without waiting.
+     */
+    private void evictTeamRateLimiters(final long now, final long idleNanos) {
+        if (!evictingTeamRateLimiters.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            teamRateLimiters.values().removeIf(teamRateLimiter -> now - teamRateLimiter.lastUsedNanos >= idleNanos);
+            if (teamRateLimiters.size() > MAX_TEAM_RATE_LIMITERS) {
+                final int excess = teamRateLimiters.size() - MAX_TEAM_RATE_LIMITERS * 9 / 10;
+                final Comparator<Map.Entry<String, TeamRateLimiter>> leastRecentlyUsedFirst = Comparator
+                        .comparingLong(entry -> entry.getValue().lastUsedNanos);
+                teamRateLimiters.entrySet().stream().sorted(leastRecentlyUsedFirst).limit(excess)
+                        .map(Map.Entry::getKey).collect(Collectors.toList()).forEach(teamRateLimiters::remove);
+            }
+        } finally {
+            evictingTeamRateLimiters.set(false);
+        }
+    }
+
+    private TokenBucket routeRateLimiter(final String route) {
+        final int capacity = admissionControlConfiguration.routeBucketCapacity();
+        if (capacity == 0) {
+            return null;
+        }
+        final long tokenReplacementDelayMillis = admissionControlConfiguration.routeTokenReplacementDelayMillis();
+        return routeRateLimiters.computeIfAbsent(route,
+                r -> new LockFreeRateLimiter(capacity, tokenReplacementDelayMillis));
+    }
+
+    /**
+     * @return Route of the request, being its method and the path template of the matched resource method
+     */
+    private String route(final ContainerRequestContext requestContext) {
+        final UriInfo uriInfo = requestContext.getUriInfo();
+        final StringBuilder route = new StringBuilder(requestContext.getMethod()).append(' ');
+        if (uriInfo instanceof ExtendedUriInfo) {
+            final List<UriTemplate> matchedTemplates = ((ExtendedUriInfo) uriInfo).getMatchedTemplates();
+            for (int n = matchedTemplates.size() - 1; n >= 0; n--) { // matched templates are in reverse order
+                route.append(matchedTemplates.get(n).getTemplate());
+            }
+        }
+        return route.toString();
+    }
+
+    private long retryAfterSeconds(final TokenBucket rateLimiter) {
+        final long tokenIntervalMillis = rateLimiter.getTokenReplacementDelayMillis() / rateLimiter.getBucketCapacity();
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(tokenIntervalMillis + 999));
+    }
+
+    private static class TeamRateLimiter {
+
+        final TokenBucket rateLimiter;
+        volatile long lastUsedNanos;
+
+        TeamRateLimiter(final TokenBucket rateLimiter) {
+            this.rateLimiter = rateLimiter;
+        }
+    }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.http.filter.flow.control;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of the time requests spend waiting for admission, with fixed bucket bounds in milliseconds. Recording is
+ * lock-free so that it adds no contention to the request path.
+ */
+public class QueueWaitHistogram {
+
+    private static final long[] UPPER_BOUNDS_MILLIS = { 1, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+    private final LongAdder[] bucketCounts = new LongAdder[UPPER_BOUNDS_MILLIS.length + 1];
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public QueueWaitHistogram() {
+        for (int n = 0; n < bucketCounts.length; n++) {
+            bucketCounts[n] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records the wait of an admitted request
+     * @param waitNanos Time waited for admission, in nanoseconds
+     */
+    public void recordAdmitted(final long waitNanos) {
+        final long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+        int bucket = 0;
+        while (bucket < UPPER_BOUNDS_MILLIS.length && waitMillis > UPPER_BOUNDS_MILLIS[bucket]) {
+            bucket++;
+        }
+        bucketCounts[bucket].increment();
+    }
+
+    public void recordRejected() {
+        rejectedCount.increment();
+    }
+
+    /**
+     * @return Number of admitted requests for each bucket, keyed by the bucket's upper bound in milliseconds ("+Inf"
+     *         for the last bucket), in order of increasing wait
+     */
+    public Map<String, Long> bucketCounts() {
+        final Map<String, Long> counts = new LinkedHashMap<>();
+        for (int n = 0; n < UPPER_BOUNDS_MILLIS.length; n++) {
+            counts.put(String.valueOf(UPPER_BOUNDS_MILLIS[n]), bucketCounts[n].sum());
+        }
+        counts.put("+Inf", bucketCounts[UPPER_BOUNDS_MILLIS.length].sum());
+        return counts;
+    }
+
+    public long admittedCount() {
+        long admittedCount = 0;
+        for (final LongAdder bucketCount : bucketCounts) {
+            admittedCount += bucketCount.sum();
+        }
+        return admittedCount;
+    }
+
+    public long rejectedCount() {
+        return rejectedCount.sum();
+    }
+
+}
@@ -17,6 +17,7 @@
 package com.clicktravel.cheddar.server.http.filter.security;
 
 import java.io.IOException;
+import java.util.List;
 
 import javax.annotation.Priority;
 import javax.ws.rs.Priorities;
@@ -58,26 +59,42 @@ public class ContainerSecurityRequestFilter implements ContainerRequestFilter {
 
     private String getValueForHeaderAndScheme(final MultivaluedMap<String, String> headers, final String header,
             final String scheme) {
-        if (headers.containsKey(header)) {
-            for (final String headerValue : headers.get(header)) {
-                final String[] headerValueParts = headerValue.split(" ");
-                if (headerValueParts.length == 2) {
-                    if (scheme.equals(headerValueParts[0])) {
-                        return headerValueParts[1];
-                    }
+        final List<String> headerValues = headers.get(header);
+        if (headerValues != null) {
+            for (int i = 0; i < headerValues.size(); i++) {
+                final String credentials = credentialsForScheme(headerValues.get(i), scheme);
+                if (credentials != null) {
+                    return credentials;
                 }
             }
         }
         return null;
     }
 
-    private String getValueForHeader(final MultivaluedMap<String, String> headers, final String header) {
-        if (headers.containsKey(header)) {
-            for (final String headerValue : headers.get(header)) {
-                return headerValue;
-            }
+    /**
+     * Parses a header value of the form {@code <scheme> <credentials>} without splitting it. Trailing spaces are
+     * ignored; any other space means the value is not of this form.
+     * @return Credentials if the header value is for the given scheme, otherwise null
+     */
+    static String credentialsForScheme(final String headerValue, final String scheme) {
+        final int credentialsStart = scheme.length() + 1;
+        if (!headerValue.startsWith(scheme) || headerValue.length() <= credentialsStart
+                || headerValue.charAt(scheme.length()) != ' ') {
+            return null;
         }
-        return null;
+        int credentialsEnd = headerValue.length();
+        while (credentialsEnd > credentialsStart && headerValue.charAt(credentialsEnd - 1) == ' ') {
+            credentialsEnd--;
+        }
+        final int space = headerValue.indexOf(' ', credentialsStart);
+        if (credentialsEnd == credentialsStart || (space >= 0 && space < credentialsEnd)) {
+            return null;
+        }
+        return headerValue.substring(credentialsStart, credentialsEnd);
+    }
+
+    private String getValueForHeader(final MultivaluedMap<String, String> headers, final String header) {
+        return headers.getFirst(header);
     }
 
 }
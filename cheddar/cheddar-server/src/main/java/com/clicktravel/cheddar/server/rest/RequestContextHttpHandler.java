@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.rest;
+
+import java.util.concurrent.Executor;
+
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.RequestExecutorProvider;
+import org.glassfish.grizzly.http.server.Response;
+
+import com.clicktravel.cheddar.features.FeaturesContextHolder;
+import com.clicktravel.cheddar.request.context.AWSXraySegmentContextHolder;
+import com.clicktravel.cheddar.request.context.SecurityContextHolder;
+
+/**
+ * Decorates the Jersey {@link HttpHandler} so that requests are optionally handled on a given {@link Executor} rather
+ * than on a Grizzly worker thread, and so that the request context {@link ThreadLocal}s are always cleared from the
+ * handling thread once it is done with a request.
+ *
+ * Jersey request and response filters set and clear these contexts, but when a request is suspended (e.g. using
+ * {@link javax.ws.rs.container.AsyncResponse}) the response filters run on whichever thread resumes it, leaving the
+ * contexts behind on the thread which handled the request.
+ */
+class RequestContextHttpHandler extends HttpHandler {
+
+    private final HttpHandler delegate;
+    private final RequestExecutorProvider requestExecutorProvider;
+
+    RequestContextHttpHandler(final HttpHandler delegate, final Executor requestExecutor) {
+        this.delegate = delegate;
+        requestExecutorProvider = requestExecutor == null ? null : request -> requestExecutor;
+    }
+
+    @Override
+    public void service(final Request request, final Response response) throws Exception {
+        try {
+            delegate.service(request, response);
+        } finally {
+            SecurityContextHolder.clear();
+            FeaturesContextHolder.clear();
+            AWSXraySegmentContextHolder.clear();
+        }
+    }
+
+    @Override
+    public RequestExecutorProvider getRequestExecutorProvider() {
+        return requestExecutorProvider == null ? super.getRequestExecutorProvider() : requestExecutorProvider;
+    }
+
+    @Override
+    public void start() {
+        delegate.start();
+    }
+
+    @Override
+    public void destroy() {
+        delegate.destroy();
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.rest;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Factory for {@link ExecutorService}s to use with {@link RestServer} for handling requests. These decouple the number
+ * of in-flight requests from the number of Grizzly worker threads, so that requests blocking on remote calls do not
+ * hold back other requests. In-flight requests should instead be limited by rate, admission and concurrency control.
+ */
+public abstract class RequestExecutors {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestExecutors.class);
+
+    /**
+     * Time (in seconds) an idle thread above the core pool size is kept before being discarded
+     */
+    private static final long ELASTIC_KEEP_ALIVE_SECONDS = 60;
+
+    /**
+     * Creates an elastic executor which starts a new thread for a request whenever all existing threads are busy, up
+     * to a maximum. Beyond the maximum, requests are handled on the Grizzly worker thread that dispatched them.
+     * @param coreThreads Number of threads kept when idle
+     * @param maxThreads Maximum number of threads
+     * @return Elastic {@link ExecutorService}
+     */
+    public static ExecutorService elastic(final int coreThreads, final int maxThreads) {
+        return new ThreadPoolExecutor(coreThreads, maxThreads, ELASTIC_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), threadFactory("rest-request-"), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Creates an executor which handles each request on a new virtual thread, when running on a JVM which supports
+     * virtual threads. On other JVMs an elastic executor is created instead.
+     * @param fallbackCoreThreads Number of threads kept when idle, for the fallback elastic executor
+     * @param fallbackMaxThreads Maximum number of threads, for the fallback elastic executor
+     * @return Virtual thread per task {@link ExecutorService}, or elastic {@link ExecutorService}
+     */
+    public static ExecutorService virtualThreadPerRequest(final int fallbackCoreThreads,
+            final int fallbackMaxThreads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final ReflectiveOperationException e) {
+            LOGGER.info("Virtual threads are not supported by this JVM; using elastic request executor");
+            return elastic(fallbackCoreThreads, fallbackMaxThreads);
+        }
+    }
+
+    private static ThreadFactory threadFactory(final String namePrefix) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+    }
+
+}
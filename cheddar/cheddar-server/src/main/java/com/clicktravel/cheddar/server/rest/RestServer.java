@@ -18,13 +18,19 @@ package com.clicktravel.cheddar.server.rest;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.core.UriBuilder;
 
 import org.glassfish.grizzly.GrizzlyFuture;
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.HttpHandlerRegistration;
 import org.glassfish.grizzly.http.server.HttpServer;
 import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.http.server.ServerConfiguration;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
 import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
 import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
@@ -32,22 +38,30 @@ import org.glassfish.jersey.server.ResourceConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import io.swagger.jaxrs.config.BeanConfig;
-import io.swagger.models.Info;
+import io.swagger.config.ScannerFactory;
 
 /**
  * HTTP server which exposes JAX-RS resources.
  *
- * A Grizzly HTTP server is used with the provided {@link ResourceConfig} configuration
+ * A Grizzly HTTP server is used with the provided {@link ResourceConfig} configuration. By default, requests are
+ * handled on the Grizzly worker threads, so the number of worker threads caps the number of in-flight requests. If a
+ * request {@link ExecutorService} is provided (see {@link RequestExecutors}), requests are instead handled on its
+ * threads and the worker threads are freed for I/O.
  */
 public class RestServer {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final ResourceConfig resourceConfig;
+    private final ExecutorService requestExecutor;
     private HttpServer httpServer;
 
     public RestServer(final ResourceConfig resourceConfig) {
+        this(resourceConfig, null);
+    }
+
+    public RestServer(final ResourceConfig resourceConfig, final ExecutorService requestExecutor) {
         this.resourceConfig = resourceConfig;
+        this.requestExecutor = requestExecutor;
     }
 
     public void start(final int servicePort, final String bindAddress, final int workerThreads) throws IOException {
@@ -63,24 +77,28 @@ public class RestServer {
                     return "<html><body><h1>Error processing request</h1><p>Apologies, there was an error processing your request. Please try again.</p></body></html>";
                 });
 
+        decorateHttpHandlers();
         enableAutoGenerationOfSwaggerSpecification();
         configureWorkerThreadPool(httpServer.getListener("grizzly"), workerThreads);
         logger.info("Starting REST server; servicePort:[" + servicePort + "]");
         httpServer.start();
+        SwaggerSpecResource.generateInBackground();
+    }
+
+    private void decorateHttpHandlers() {
+        final ServerConfiguration serverConfiguration = httpServer.getServerConfiguration();
+        final Map<HttpHandler, HttpHandlerRegistration[]> httpHandlers = new HashMap<>(
+                serverConfiguration.getHttpHandlersWithMapping());
+        for (final Map.Entry<HttpHandler, HttpHandlerRegistration[]> entry : httpHandlers.entrySet()) {
+            serverConfiguration.removeHttpHandler(entry.getKey());
+            serverConfiguration.addHttpHandler(new RequestContextHttpHandler(entry.getKey(), requestExecutor),
+                    entry.getValue());
+        }
     }
 
     private void enableAutoGenerationOfSwaggerSpecification() {
-        // The main scanner class used to scan the classes for swagger + jax-rs annoatations
-        final BeanConfig beanConfig = new BeanConfig();
-        beanConfig.setResourcePackage("com.clicktravel.services,com.clicktravel.services.*");
-        beanConfig.setSchemes(new String[] { "https" });
-        beanConfig.setBasePath("/");
-        final Info info = new Info();
-        info.setVersion("2.0.0");
-        beanConfig.setInfo(info);
-        beanConfig.setTitle("Swagger Specification");
-        beanConfig.setVersion("0.0.0");
-        beanConfig.setScan(true);
+        // Only configures the scanner; the specification is generated later by SwaggerSpecResource
+        ScannerFactory.setScanner(SwaggerSpecConfig.forServices(getClass().getClassLoader()));
     }
 
     private void configureWorkerThreadPool(final NetworkListener networkListener, final int workerThreads) {
@@ -99,6 +117,9 @@ public class RestServer {
                 final GrizzlyFuture<HttpServer> future = httpServer.shutdown(timeoutMillis, TimeUnit.MILLISECONDS);
                 future.get();
             }
+            if (requestExecutor != null) {
+                requestExecutor.shutdown();
+            }
             logger.info("Shutdown of REST server complete");
         } catch (final Exception e) {
             throw new IllegalStateException(e);
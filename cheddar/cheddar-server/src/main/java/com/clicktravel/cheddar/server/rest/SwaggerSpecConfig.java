@@ -0,0 +1,123 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.rest;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.ws.rs.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.clicktravel.cheddar.resource.index.ResourceIndex;
+
+import io.swagger.annotations.SwaggerDefinition;
+import io.swagger.jaxrs.config.BeanConfig;
+import io.swagger.models.Info;
+import io.swagger.models.Swagger;
+import io.swagger.util.Json;
+
+/**
+ * Swagger configuration for the JAX-RS resources of a service. The Swagger specification is taken from a
+ * {@link #PREGENERATED_SPEC_LOCATION} resource if one was generated at build time by {@link SwaggerSpecGenerator}.
+ * Otherwise it is read from the resource classes, which are found using the {@link ResourceIndex} if it covers the
+ * resource package, or else by scanning the classpath.
+ */
+public class SwaggerSpecConfig extends BeanConfig {
+
+    public static final String SERVICES_PACKAGE = "com.clicktravel.services";
+    public static final String PREGENERATED_SPEC_LOCATION = "META-INF/cheddar/swagger.json";
+
+    private static final Logger logger = LoggerFactory.getLogger(SwaggerSpecConfig.class);
+
+    private final String resourcePackage;
+    private final ResourceIndex resourceIndex;
+    private final Swagger pregeneratedSwagger;
+
+    public SwaggerSpecConfig(final String resourcePackage, final ResourceIndex resourceIndex,
+            final Swagger pregeneratedSwagger) {
+        this.resourcePackage = resourcePackage;
+        this.resourceIndex = resourceIndex;
+        this.pregeneratedSwagger = pregeneratedSwagger;
+        setResourcePackage(resourcePackage + "," + resourcePackage + ".*");
+        setSchemes(new String[] { "https" });
+        setBasePath("/");
+        final Info info = new Info();
+        info.setVersion("2.0.0");
+        setInfo(info);
+        setTitle("Swagger Specification");
+        setVersion("0.0.0");
+    }
+
+    /**
+     * @param classLoader Class loader to find the resource index and any pre-generated specification with
+     * @return Swagger configuration for the resources of the service
+     */
+    public static SwaggerSpecConfig forServices(final ClassLoader classLoader) {
+        return new SwaggerSpecConfig(SERVICES_PACKAGE, ResourceIndex.load(classLoader),
+                loadPregeneratedSwagger(classLoader));
+    }
+
+    private static Swagger loadPregeneratedSwagger(final ClassLoader classLoader) {
+        final URL specUrl = classLoader.getResource(PREGENERATED_SPEC_LOCATION);
+        if (specUrl == null) {
+            return null;
+        }
+        try {
+            return Json.mapper().readValue(specUrl, Swagger.class);
+        } catch (final IOException e) {
+            logger.warn("Unable to read pre-generated Swagger specification; reading resource classes instead", e);
+            return null;
+        }
+    }
+
+    @Override
+    public Set<Class<?>> classes() {
+        if (pregeneratedSwagger != null) {
+            return Collections.emptySet();
+        }
+        if (!resourceIndex.covers(resourcePackage)) {
+            return super.classes();
+        }
+        final Set<Class<?>> classes = new HashSet<>();
+        for (final String className : resourceIndex.classNames(resourcePackage)) {
+            final Class<?> indexedClass = loadClass(className);
+            if (indexedClass.isAnnotationPresent(Path.class)
+                    || indexedClass.isAnnotationPresent(SwaggerDefinition.class)) {
+                classes.add(indexedClass);
+            }
+        }
+        return classes;
+    }
+
+    private Class<?> loadClass(final String className) {
+        try {
+            return Class.forName(className, false, getClass().getClassLoader());
+        } catch (final ClassNotFoundException e) {
+            throw new IllegalStateException("Indexed class not found: " + className, e);
+        }
+    }
+
+    @Override
+    public Swagger getSwagger() {
+        return pregeneratedSwagger != null ? pregeneratedSwagger : super.getSwagger();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.rest;
+
+import javax.ws.rs.core.EntityTag;
+
+import com.clicktravel.common.hash.HashUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import io.swagger.models.Swagger;
+import io.swagger.util.Json;
+import io.swagger.util.Yaml;
+
+/**
+ * A Swagger specification serialised once as JSON and YAML, each with an entity tag derived from its content
+ */
+class SwaggerSpecDocument {
+
+    private final Representation json;
+    private final Representation yaml;
+
+    SwaggerSpecDocument(final Swagger swagger) throws JsonProcessingException {
+        json = new Representation(Json.mapper().writeValueAsBytes(swagger));
+        yaml = new Representation(Yaml.mapper().writeValueAsBytes(swagger));
+    }
+
+    public Representation json() {
+        return json;
+    }
+
+    public Representation yaml() {
+        return yaml;
+    }
+
+    static class Representation {
+
+        private final byte[] content;
+        private final EntityTag entityTag;
+
+        Representation(final byte[] content) {
+            this.content = content;
+            entityTag = new EntityTag(HashUtils.generateMd5Base64Hash(content), true);
+        }
+
+        public byte[] content() {
+            return content;
+        }
+
+        public EntityTag entityTag() {
+            return entityTag;
+        }
+    }
+}
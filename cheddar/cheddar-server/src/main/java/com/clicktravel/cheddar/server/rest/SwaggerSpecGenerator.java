@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.rest;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.clicktravel.cheddar.resource.index.ResourceIndex;
+
+import io.swagger.models.Swagger;
+import io.swagger.util.Json;
+
+/**
+ * Generates the Swagger specification of a service at build time, so that it is not read from the resource classes on
+ * startup. The specification must be written to {@link SwaggerSpecConfig#PREGENERATED_SPEC_LOCATION} in the
+ * service's resources, e.g. in Gradle:
+ *
+ * <pre>
+ * task generateSwaggerSpec(type: JavaExec, dependsOn: classes) {
+ *     main = 'com.clicktravel.cheddar.server.rest.SwaggerSpecGenerator'
+ *     classpath = sourceSets.main.runtimeClasspath
+ *     args "${sourceSets.main.output.resourcesDir}/META-INF/cheddar/swagger.json"
+ * }
+ * jar.dependsOn generateSwaggerSpec
+ * </pre>
+ */
+public class SwaggerSpecGenerator {
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: SwaggerSpecGenerator <specification file>");
+        }
+        final ClassLoader classLoader = SwaggerSpecGenerator.class.getClassLoader();
+        final SwaggerSpecConfig swaggerSpecConfig = new SwaggerSpecConfig(SwaggerSpecConfig.SERVICES_PACKAGE,
+                ResourceIndex.load(classLoader), null);
+        writeSpec(swaggerSpecConfig, new File(args[0]));
+    }
+
+    static void writeSpec(final SwaggerSpecConfig swaggerSpecConfig, final File specFile) throws IOException {
+        swaggerSpecConfig.scanAndRead();
+        final Swagger swagger = swaggerSpecConfig.configure(swaggerSpecConfig.getSwagger());
+        final File specDirectory = specFile.getAbsoluteFile().getParentFile();
+        if (!specDirectory.isDirectory() && !specDirectory.mkdirs()) {
+            throw new IOException("Unable to create directory " + specDirectory);
+        }
+        Json.mapper().writeValue(specFile, swagger);
+    }
+}
@@ -14,110 +14,129 @@
  * limitations under the License.
  *
  */
-
 package com.clicktravel.cheddar.server.rest;
 
-import java.util.Set;
+import java.util.function.Function;
 
-import javax.servlet.ServletConfig;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
-import javax.ws.rs.core.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+
 import io.swagger.config.FilterFactory;
 import io.swagger.config.Scanner;
 import io.swagger.config.ScannerFactory;
-import io.swagger.config.SwaggerConfig;
 import io.swagger.core.filter.SpecFilter;
 import io.swagger.core.filter.SwaggerSpecFilter;
-import io.swagger.jaxrs.Reader;
 import io.swagger.jaxrs.config.BeanConfig;
-import io.swagger.jaxrs.config.JaxrsScanner;
-import io.swagger.jaxrs.listing.SwaggerSerializers;
 import io.swagger.models.Swagger;
 
 /**
  * Cheddar's own version of the class com.wordnik.swagger.jaxrs.listing.ApiListingResource that removes the dependacy on
  * a servlet deployment which cheddar currently do not support. This version changes the fetching of the swagger object
  * to the scanner (BeanConfig) object instead of the servlet context.
+ *
+ * The specification is generated only once, on the first request or in the background after the server starts (see
+ * {@link #generateInBackground()}). It is then served as pre-serialised JSON or YAML with an entity tag, so repeated
+ * requests pay neither the reflection nor the serialisation cost, and clients can revalidate with
+ * {@code If-None-Match}.
  */
-
 @Path("/")
 public class SwaggerSpecResource {
 
-    Logger LOGGER = LoggerFactory.getLogger(SwaggerSpecResource.class);
+    private static final Logger LOGGER = LoggerFactory.getLogger(SwaggerSpecResource.class);
+    private static final String APPLICATION_YAML = "application/yaml";
 
-    static boolean initialized = false;
+    private static SwaggerSpecDocument document;
 
-    protected synchronized Swagger scanResourcesForJaxrsAnnotations(final Application app, final ServletConfig sc) {
-        Swagger swagger = null;
-        final Scanner scanner = ScannerFactory.getScanner();
-        LOGGER.debug("using scanner " + scanner);
-
-        if (scanner != null) {
-            SwaggerSerializers.setPrettyPrint(scanner.getPrettyPrint());
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/swagger.json")
+    public Response getListingJson(@Context final Request request) {
+        return getListing(request, SwaggerSpecDocument::json, MediaType.APPLICATION_JSON);
+    }
 
-            swagger = getSwagger();
+    @GET
+    @Produces(APPLICATION_YAML)
+    @Path("/swagger.yaml")
+    public Response getListingYaml(@Context final Request request) {
+        return getListing(request, SwaggerSpecDocument::yaml, APPLICATION_YAML);
+    }
 
-            Set<Class<?>> classes = null;
-            if (scanner instanceof JaxrsScanner) {
-                final JaxrsScanner jaxrsScanner = (JaxrsScanner) scanner;
-                classes = jaxrsScanner.classesFromContext(app, sc);
-            } else {
-                classes = scanner.classes();
-            }
-            if (classes != null) {
-                final Reader reader = new Reader(swagger);
-                swagger = reader.read(classes);
-                if (scanner instanceof SwaggerConfig) {
-                    swagger = ((SwaggerConfig) scanner).configure(swagger);
-                } else {
-                    LOGGER.debug("no configurator");
-                }
-            }
+    private Response getListing(final Request request,
+            final Function<SwaggerSpecDocument, SwaggerSpecDocument.Representation> representationSelector,
+            final String mediaType) {
+        final SwaggerSpecDocument document = document();
+        if (document == null) {
+            return Response.status(404).build();
         }
-        initialized = true;
-        return swagger;
+        final SwaggerSpecDocument.Representation representation = representationSelector.apply(document);
+        final ResponseBuilder notModifiedResponseBuilder = request.evaluatePreconditions(representation.entityTag());
+        if (notModifiedResponseBuilder != null) {
+            return notModifiedResponseBuilder.build();
+        }
+        return Response.ok(representation.content(), mediaType).tag(representation.entityTag()).build();
     }
 
-    @GET
-    @Produces(MediaType.APPLICATION_JSON)
-    @Path("/swagger.json")
-    public Response getListingJson(@Context final Application app, @Context final ServletConfig sc,
-            @Context final HttpHeaders headers, @Context final UriInfo uriInfo) {
-        Swagger swagger = getSwagger();
-        if (!initialized) {
-            swagger = scanResourcesForJaxrsAnnotations(app, sc);
-        }
-        if (swagger != null) {
-            final SwaggerSpecFilter filterImpl = FilterFactory.getFilter();
-            if (filterImpl != null) {
-                final SpecFilter f = new SpecFilter();
-                swagger = f.filter(swagger, filterImpl, null, null, null);
+    /**
+     * Generates the specification on a low priority background thread, so that it is ready before it is requested
+     */
+    static void generateInBackground() {
+        final Thread generatorThread = new Thread(() -> {
+            try {
+                document();
+            } catch (final RuntimeException e) {
+                LOGGER.warn("Unable to generate Swagger specification", e);
             }
-            return Response.ok().entity(swagger).build();
-        } else {
-            return Response.status(404).build();
-        }
+        }, "swagger-spec-generator");
+        generatorThread.setDaemon(true);
+        generatorThread.setPriority(Thread.MIN_PRIORITY);
+        generatorThread.start();
     }
 
     /**
-     * Will get the swagger configuration from the scanner, if it is of type BeanConfig and return the object. This will
-     * be used in the parsing and formating of the resulting swagger specification.
-     *
-     * @return swagger configuration. If the scanner is not of type io.swagger.jaxrs.config.BeanConfig then null will be
-     *         returned.
+     * @return The specification, generated on first use, or {@code null} if no Swagger scanner is configured
      */
+    static synchronized SwaggerSpecDocument document() {
+        if (document == null) {
+            final Swagger swagger = generateSwagger();
+            if (swagger != null) {
+                try {
+                    document = new SwaggerSpecDocument(swagger);
+                } catch (final JsonProcessingException e) {
+                    throw new IllegalStateException("Unable to serialise Swagger specification", e);
+                }
+            }
+        }
+        return document;
+    }
 
-    private Swagger getSwagger() {
+    static synchronized void clearDocument() {
+        document = null;
+    }
+
+    private static Swagger generateSwagger() {
         final Scanner scanner = ScannerFactory.getScanner();
-        if (scanner instanceof BeanConfig) {
-            return ((BeanConfig) scanner).getSwagger();
+        if (!(scanner instanceof BeanConfig)) {
+            LOGGER.debug("No Swagger scanner configured; scanner: " + scanner);
+            return null;
         }
-        return null;
+        final BeanConfig beanConfig = (BeanConfig) scanner;
+        beanConfig.scanAndRead();
+        Swagger swagger = beanConfig.configure(beanConfig.getSwagger());
+        final SwaggerSpecFilter filterImpl = FilterFactory.getFilter();
+        if (filterImpl != null) {
+            swagger = new SpecFilter().filter(swagger, filterImpl, null, null, null);
+        }
+        return swagger;
     }
 }
@@ -37,18 +37,26 @@ import org.springframework.context.annotation.ClassPathScanningCandidateComponen
 import org.springframework.core.type.filter.AnnotationTypeFilter;
 import org.springframework.stereotype.Component;
 
+import com.clicktravel.cheddar.resource.index.ResourceIndex;
 import com.clicktravel.common.http.application.ObjectMapperProvider;
 
+/**
+ * Jersey configuration registering the JAX-RS resources and providers of Cheddar and the service. Classes in packages
+ * covered by a build-time {@link ResourceIndex} are registered from the index; other packages are scanned on the
+ * classpath.
+ */
 @Component
 public class RestResourceConfig extends ResourceConfig {
 
     final ClassPathScanningCandidateComponentProvider scanner;
+    private final ResourceIndex resourceIndex;
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     @Autowired
     public RestResourceConfig(final ApplicationContext applicationContext) {
         property("contextConfig", applicationContext);
+        resourceIndex = ResourceIndex.load(applicationContext.getClassLoader());
         scanner = new ClassPathScanningCandidateComponentProvider(true);
         scanner.resetFilters(false);
         scanner.addIncludeFilter(new AnnotationTypeFilter(Path.class));
@@ -83,8 +91,13 @@ public class RestResourceConfig extends ResourceConfig {
 
         final Collection<String> resourceClassNames = new ArrayList<>();
         for (final String packageName : packageNames) {
-            for (final BeanDefinition bd : scanner.findCandidateComponents(packageName)) {
-                resourceClassNames.add(bd.getBeanClassName());
+            if (resourceIndex.covers(packageName)) {
+                resourceClassNames.addAll(resourceIndex.classNames(packageName));
+            } else {
+                logger.debug("Scanning classpath for resources in package not covered by index: " + packageName);
+                for (final BeanDefinition bd : scanner.findCandidateComponents(packageName)) {
+                    resourceClassNames.add(bd.getBeanClassName());
+                }
             }
         }
         return resourceClassNames;
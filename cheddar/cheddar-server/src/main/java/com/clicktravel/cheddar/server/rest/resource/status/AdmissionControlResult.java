@@ -0,0 +1,60 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.rest.resource.status;
+
+import java.util.Map;
+
+public class AdmissionControlResult {
+
+    private boolean enabled;
+    private long admissionTimeoutMillis;
+    private QueueWaitResult queueWait;
+    private Map<String, QueueWaitResult> routeQueueWaits;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getAdmissionTimeoutMillis() {
+        return admissionTimeoutMillis;
+    }
+
+    public void setAdmissionTimeoutMillis(final long admissionTimeoutMillis) {
+        this.admissionTimeoutMillis = admissionTimeoutMillis;
+    }
+
+    public QueueWaitResult getQueueWait() {
+        return queueWait;
+    }
+
+    public void setQueueWait(final QueueWaitResult queueWait) {
+        this.queueWait = queueWait;
+    }
+
+    public Map<String, QueueWaitResult> getRouteQueueWaits() {
+        return routeQueueWaits;
+    }
+
+    public void setRouteQueueWaits(final Map<String, QueueWaitResult> routeQueueWaits) {
+        this.routeQueueWaits = routeQueueWaits;
+    }
+
+}
@@ -20,6 +20,8 @@ public class MaximumWorkRate {
 
     private int bucketCapacity;
     private long tokenReplacementDelay;
+    private Integer concurrencyLimit;
+    private Integer concurrencyInFlight;
 
     public int getBucketCapacity() {
         return bucketCapacity;
@@ -37,4 +39,23 @@ public class MaximumWorkRate {
         return tokenReplacementDelay;
     }
 
+    /**
+     * @return Current limit of the adaptive concurrency limiter, or null if work is not concurrency limited
+     */
+    public Integer getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public void setConcurrencyLimit(final Integer concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    public Integer getConcurrencyInFlight() {
+        return concurrencyInFlight;
+    }
+
+    public void setConcurrencyInFlight(final Integer concurrencyInFlight) {
+        this.concurrencyInFlight = concurrencyInFlight;
+    }
+
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.rest.resource.status;
+
+import java.util.Map;
+
+public class QueueWaitResult {
+
+    private Map<String, Long> waitMillisHistogram;
+    private long admitted;
+    private long rejected;
+
+    public Map<String, Long> getWaitMillisHistogram() {
+        return waitMillisHistogram;
+    }
+
+    public void setWaitMillisHistogram(final Map<String, Long> waitMillisHistogram) {
+        this.waitMillisHistogram = waitMillisHistogram;
+    }
+
+    public long getAdmitted() {
+        return admitted;
+    }
+
+    public void setAdmitted(final long admitted) {
+        this.admitted = admitted;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(final long rejected) {
+        this.rejected = rejected;
+    }
+
+}
@@ -17,6 +17,10 @@
 package com.clicktravel.cheddar.server.rest.resource.status;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
@@ -30,23 +34,60 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.clicktravel.cheddar.server.application.configuration.ApplicationConfiguration;
-import com.clicktravel.common.concurrent.RateLimiter;
+import com.clicktravel.cheddar.server.application.workrate.WorkRateAdjustment;
+import com.clicktravel.cheddar.server.application.workrate.WorkRateAdjustments;
+import com.clicktravel.cheddar.server.http.filter.flow.control.AdmissionControlConfiguration;
+import com.clicktravel.cheddar.server.http.filter.flow.control.AdmissionControlStatistics;
+import com.clicktravel.cheddar.server.http.filter.flow.control.QueueWaitHistogram;
+import com.clicktravel.common.concurrent.AdaptiveConcurrencyLimiter;
+import com.clicktravel.common.concurrent.TokenBucket;
 
 @Path("/status")
 public class StatusResource {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final ApplicationConfiguration applicationConfiguration;
-    private final RateLimiter restRequestRateLimiter;
-    private final RateLimiter domainEventHandlerRateLimiter;
+    private final TokenBucket restRequestRateLimiter;
+    private final TokenBucket domainEventHandlerRateLimiter;
+    private final AdmissionControlConfiguration admissionControlConfiguration;
+    private final AdmissionControlStatistics admissionControlStatistics;
+    private AdaptiveConcurrencyLimiter restRequestConcurrencyLimiter;
+    private AdaptiveConcurrencyLimiter domainEventHandlerConcurrencyLimiter;
+    private WorkRateAdjustments workRateAdjustments;
 
-    @Autowired
     public StatusResource(final ApplicationConfiguration applicationConfiguration,
-            final RateLimiter restRequestRateLimiter, final RateLimiter domainEventHandlerRateLimiter)
+            final TokenBucket restRequestRateLimiter, final TokenBucket domainEventHandlerRateLimiter)
             throws IOException {
+        this(applicationConfiguration, restRequestRateLimiter, domainEventHandlerRateLimiter,
+                AdmissionControlConfiguration.disabled(), new AdmissionControlStatistics());
+    }
+
+    @Autowired
+    public StatusResource(final ApplicationConfiguration applicationConfiguration,
+            final TokenBucket restRequestRateLimiter, final TokenBucket domainEventHandlerRateLimiter,
+            final AdmissionControlConfiguration admissionControlConfiguration,
+            final AdmissionControlStatistics admissionControlStatistics) throws IOException {
         this.applicationConfiguration = applicationConfiguration;
         this.restRequestRateLimiter = restRequestRateLimiter;
         this.domainEventHandlerRateLimiter = domainEventHandlerRateLimiter;
+        this.admissionControlConfiguration = admissionControlConfiguration;
+        this.admissionControlStatistics = admissionControlStatistics;
+    }
+
+    @Autowired(required = false)
+    public void setRestRequestConcurrencyLimiter(final AdaptiveConcurrencyLimiter restRequestConcurrencyLimiter) {
+        this.restRequestConcurrencyLimiter = restRequestConcurrencyLimiter;
+    }
+
+    @Autowired(required = false)
+    public void setDomainEventHandlerConcurrencyLimiter(
+            final AdaptiveConcurrencyLimiter domainEventHandlerConcurrencyLimiter) {
+        this.domainEventHandlerConcurrencyLimiter = domainEventHandlerConcurrencyLimiter;
+    }
+
+    @Autowired(required = false)
+    public void setWorkRateAdjustments(final WorkRateAdjustments workRateAdjustments) {
+        this.workRateAdjustments = workRateAdjustments;
     }
 
     @GET
@@ -58,6 +99,8 @@ public class StatusResource {
         status.setVersion(applicationConfiguration.version());
         status.setFrameworkVersion(applicationConfiguration.frameworkVersion());
         status.setMaximumWorkRates(getMaximumWorkRates());
+        status.setAdmissionControl(getAdmissionControl());
+        status.setWorkRateAdjustments(getWorkRateAdjustments());
         final Response response = Response.status(javax.ws.rs.core.Response.Status.OK).entity(status).build();
         return response;
     }
@@ -66,16 +109,63 @@ public class StatusResource {
         final MaximumWorkRate restResultMaximumWorkRate = new MaximumWorkRate();
         restResultMaximumWorkRate.setBucketCapacity(restRequestRateLimiter.getBucketCapacity());
         restResultMaximumWorkRate.setTokenReplacementDelay(restRequestRateLimiter.getTokenReplacementDelayMillis());
+        setConcurrencyLimit(restResultMaximumWorkRate, restRequestConcurrencyLimiter);
         final MaximumWorkRate domainEventHandlerMaximumWorkRate = new MaximumWorkRate();
         domainEventHandlerMaximumWorkRate.setBucketCapacity(domainEventHandlerRateLimiter.getBucketCapacity());
         domainEventHandlerMaximumWorkRate
                 .setTokenReplacementDelay(domainEventHandlerRateLimiter.getTokenReplacementDelayMillis());
+        setConcurrencyLimit(domainEventHandlerMaximumWorkRate, domainEventHandlerConcurrencyLimiter);
         final MaximumWorkRates maximumWorkRates = new MaximumWorkRates();
         maximumWorkRates.setRestRequest(restResultMaximumWorkRate);
         maximumWorkRates.setDomainEventHandler(domainEventHandlerMaximumWorkRate);
         return maximumWorkRates;
     }
 
+    private void setConcurrencyLimit(final MaximumWorkRate maximumWorkRate,
+            final AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        if (concurrencyLimiter != null) {
+            maximumWorkRate.setConcurrencyLimit(concurrencyLimiter.getLimit());
+            maximumWorkRate.setConcurrencyInFlight(concurrencyLimiter.getInFlight());
+        }
+    }
+
+    private AdmissionControlResult getAdmissionControl() {
+        final AdmissionControlResult admissionControl = new AdmissionControlResult();
+        admissionControl.setEnabled(admissionControlConfiguration.enabled());
+        admissionControl.setAdmissionTimeoutMillis(admissionControlConfiguration.admissionTimeoutMillis());
+        admissionControl.setQueueWait(getQueueWait(admissionControlStatistics.queueWait()));
+        final Map<String, QueueWaitResult> routeQueueWaits = new TreeMap<>();
+        for (final Map.Entry<String, QueueWaitHistogram> entry : admissionControlStatistics.routeQueueWaits()
+                .entrySet()) {
+            routeQueueWaits.put(entry.getKey(), getQueueWait(entry.getValue()));
+        }
+        admissionControl.setRouteQueueWaits(routeQueueWaits);
+        return admissionControl;
+    }
+
+    private QueueWaitResult getQueueWait(final QueueWaitHistogram queueWaitHistogram) {
+        final QueueWaitResult queueWait = new QueueWaitResult();
+        queueWait.setWaitMillisHistogram(queueWaitHistogram.bucketCounts());
+        queueWait.setAdmitted(queueWaitHistogram.admittedCount());
+        queueWait.setRejected(queueWaitHistogram.rejectedCount());
+        return queueWait;
+    }
+
+    private List<WorkRateAdjustmentResult> getWorkRateAdjustments() {
+        final List<WorkRateAdjustmentResult> results = new ArrayList<>();
+        if (workRateAdjustments != null) {
+            for (final WorkRateAdjustment adjustment : workRateAdjustments.recent()) {
+                final WorkRateAdjustmentResult result = new WorkRateAdjustmentResult();
+                result.setTime(adjustment.time().toString());
+                result.setWorkRateName(adjustment.workRateName());
+                result.setApplied(adjustment.applied());
+                result.setDescription(adjustment.description());
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
     @GET
     @Path("/healthCheck")
     @Produces(MediaType.TEXT_PLAIN)
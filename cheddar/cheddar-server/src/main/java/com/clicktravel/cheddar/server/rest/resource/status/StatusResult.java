@@ -16,6 +16,8 @@
  */
 package com.clicktravel.cheddar.server.rest.resource.status;
 
+import java.util.List;
+
 public class StatusResult {
 
     private String name;
@@ -23,6 +25,8 @@ public class StatusResult {
     private String frameworkVersion;
     private String status;
     private MaximumWorkRates maximumWorkRates;
+    private AdmissionControlResult admissionControl;
+    private List<WorkRateAdjustmentResult> workRateAdjustments;
 
     public String getName() {
         return name;
@@ -64,4 +68,20 @@ public class StatusResult {
         this.maximumWorkRates = maximumWorkRates;
     }
 
+    public AdmissionControlResult getAdmissionControl() {
+        return admissionControl;
+    }
+
+    public void setAdmissionControl(final AdmissionControlResult admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    public List<WorkRateAdjustmentResult> getWorkRateAdjustments() {
+        return workRateAdjustments;
+    }
+
+    public void setWorkRateAdjustments(final List<WorkRateAdjustmentResult> workRateAdjustments) {
+        this.workRateAdjustments = workRateAdjustments;
+    }
+
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.rest.resource.status;
+
+public class WorkRateAdjustmentResult {
+
+    private String time;
+    private String workRateName;
+    private boolean applied;
+    private String description;
+
+    public String getTime() {
+        return time;
+    }
+
+    public void setTime(final String time) {
+        this.time = time;
+    }
+
+    public String getWorkRateName() {
+        return workRateName;
+    }
+
+    public void setWorkRateName(final String workRateName) {
+        this.workRateName = workRateName;
+    }
+
+    public boolean isApplied() {
+        return applied;
+    }
+
+    public void setApplied(final boolean applied) {
+        this.applied = applied;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(final String description) {
+        this.description = description;
+    }
+
+}
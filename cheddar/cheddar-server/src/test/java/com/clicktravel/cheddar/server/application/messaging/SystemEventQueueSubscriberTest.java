@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.application.messaging;
+
+import static com.clicktravel.common.random.Randoms.randomString;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.clicktravel.cheddar.server.application.configuration.ApplicationConfiguration;
+import com.clicktravel.cheddar.system.event.publisher.SystemEventFilterPolicy;
+import com.clicktravel.infrastructure.messaging.aws.sns.SnsTopicResource;
+import com.clicktravel.infrastructure.messaging.aws.sns.SnsTopicResourceFactory;
+import com.clicktravel.infrastructure.messaging.aws.sqs.SqsQueueResource;
+import com.clicktravel.infrastructure.messaging.aws.sqs.SqsQueueResourceFactory;
+
+public class SystemEventQueueSubscriberTest {
+
+    private String applicationName;
+    private String applicationVersion;
+    private ApplicationConfiguration mockApplicationConfiguration;
+    private SnsTopicResourceFactory mockSnsTopicResourceFactory;
+    private SqsQueueResourceFactory mockSqsQueueResourceFactory;
+    private SnsTopicResource mockSnsTopicResource;
+    private SqsQueueResource mockSqsQueueResource;
+    private String topicName;
+    private String queueName;
+
+    @Before
+    public void setUp() {
+        applicationName = randomString(10);
+        applicationVersion = randomString(10);
+        mockApplicationConfiguration = mock(ApplicationConfiguration.class);
+        when(mockApplicationConfiguration.name()).thenReturn(applicationName);
+        when(mockApplicationConfiguration.version()).thenReturn(applicationVersion);
+        topicName = randomString(10);
+        queueName = randomString(10);
+        mockSnsTopicResource = mock(SnsTopicResource.class);
+        mockSqsQueueResource = mock(SqsQueueResource.class);
+        mockSnsTopicResourceFactory = mock(SnsTopicResourceFactory.class);
+        when(mockSnsTopicResourceFactory.createSnsTopicResource(topicName)).thenReturn(mockSnsTopicResource);
+        mockSqsQueueResourceFactory = mock(SqsQueueResourceFactory.class);
+        when(mockSqsQueueResourceFactory.createSqsQueueResource(queueName)).thenReturn(mockSqsQueueResource);
+    }
+
+    @Test
+    public void shouldSubscribeQueueWithFilterPolicy_onSubscribe() {
+        // Given
+        final SystemEventQueueSubscriber subscriber = new SystemEventQueueSubscriber(mockApplicationConfiguration,
+                topicName, queueName);
+        subscriber.setSnsTopicResourceFactory(mockSnsTopicResourceFactory);
+        subscriber.setSqsQueueResourceFactory(mockSqsQueueResourceFactory);
+
+        // When
+        subscriber.subscribe();
+
+        // Then
+        verify(mockSnsTopicResource).subscribe(mockSqsQueueResource,
+                SystemEventFilterPolicy.forApplication(applicationName, applicationVersion));
+    }
+
+    @Test
+    public void shouldNotSubscribe_withoutTopicName() {
+        // Given
+        final SystemEventQueueSubscriber subscriber = new SystemEventQueueSubscriber(mockApplicationConfiguration, "",
+                queueName);
+        subscriber.setSnsTopicResourceFactory(mockSnsTopicResourceFactory);
+        subscriber.setSqsQueueResourceFactory(mockSqsQueueResourceFactory);
+
+        // When
+        subscriber.subscribe();
+
+        // Then
+        verify(mockSnsTopicResourceFactory, never()).createSnsTopicResource(anyString());
+        verify(mockSnsTopicResource, never()).subscribe(any(SqsQueueResource.class), anyString());
+    }
+
+    @Test
+    public void shouldThrowException_onSubscribeWithoutResourceFactories() {
+        // Given
+        final SystemEventQueueSubscriber subscriber = new SystemEventQueueSubscriber(mockApplicationConfiguration,
+                topicName, queueName);
+
+        // When
+        IllegalStateException thrownException = null;
+        try {
+            subscriber.subscribe();
+        } catch (final IllegalStateException e) {
+            thrownException = e;
+        }
+
+        // Then
+        assertNotNull(thrownException);
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.application.workrate;
+
+import static com.clicktravel.common.random.Randoms.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.clicktravel.cheddar.infrastructure.messaging.pooled.listener.PooledMessageListener;
+import com.clicktravel.cheddar.server.application.configuration.ApplicationConfiguration;
+import com.clicktravel.cheddar.system.event.WorkRateAdjustmentRequestedEvent;
+import com.clicktravel.common.concurrent.TokenBucket;
+
+public class WorkRateAdjustmentRequestedEventHandlerTest {
+
+    private String applicationName;
+    private String applicationVersion;
+    private TokenBucket mockRateLimiter;
+    private PooledMessageListener<?> mockMessageListener;
+    private WorkRateAdjustments workRateAdjustments;
+    private WorkRateAdjustmentRequestedEventHandler handler;
+
+    @Before
+    public void setUp() {
+        applicationName = randomString(10);
+        applicationVersion = randomString(10);
+        final ApplicationConfiguration mockApplicationConfiguration = mock(ApplicationConfiguration.class);
+        when(mockApplicationConfiguration.name()).thenReturn(applicationName);
+        when(mockApplicationConfiguration.version()).thenReturn(applicationVersion);
+        mockRateLimiter = mock(TokenBucket.class);
+        when(mockRateLimiter.getBucketCapacity()).thenReturn(10);
+        when(mockRateLimiter.getTokenReplacementDelayMillis()).thenReturn(1000L);
+        mockMessageListener = mock(PooledMessageListener.class);
+        workRateAdjustments = new WorkRateAdjustments();
+        handler = new WorkRateAdjustmentRequestedEventHandler(mockApplicationConfiguration,
+                Collections.singletonMap("restRequestRateLimiter", mockRateLimiter), workRateAdjustments);
+        handler.setMessageListeners(Collections.singletonMap("domainEventListener", mockMessageListener));
+    }
+
+    private WorkRateAdjustmentRequestedEvent event(final String workRateName) {
+        final WorkRateAdjustmentRequestedEvent event = new WorkRateAdjustmentRequestedEvent();
+        event.setTargetApplicationName(applicationName);
+        event.setWorkRateName(workRateName);
+        return event;
+    }
+
+    @Test
+    public void shouldSetRateLimiterParameters_onHandleWithBucketCapacity() {
+        // Given
+        final WorkRateAdjustmentRequestedEvent event = event("restRequestRateLimiter");
+        event.setBucketCapacity(50);
+
+        // When
+        handler.handle(event);
+
+        // Then
+        verify(mockRateLimiter).setParameters(50, 1000L);
+        final WorkRateAdjustment adjustment = workRateAdjustments.recent().get(0);
+        assertTrue(adjustment.applied());
+        assertEquals("restRequestRateLimiter", adjustment.workRateName());
+    }
+
+    @Test
+    public void shouldSetRateLimiterParameters_onHandleWithTokenReplacementDelay() {
+        // Given
+        final WorkRateAdjustmentRequestedEvent event = event("restRequestRateLimiter");
+        event.setTokenReplacementDelayMillis(200L);
+
+        // When
+        handler.handle(event);
+
+        // Then
+        verify(mockRateLimiter).setParameters(10, 200L);
+    }
+
+    @Test
+    public void shouldNotSetRateLimiterParameters_onHandleWithInvalidBucketCapacity() {
+        // Given
+        final WorkRateAdjustmentRequestedEvent event = event("restRequestRateLimiter");
+        event.setBucketCapacity(0);
+
+        // When
+        handler.handle(event);
+
+        // Then
+        verify(mockRateLimiter, never()).setParameters(anyInt(), anyLong());
+        assertFalse(workRateAdjustments.recent().get(0).applied());
+    }
+
+    @Test
+    public void shouldSetWorkerThreads_onHandleWithWorkerThreads() {
+        // Given
+        final WorkRateAdjustmentRequestedEvent event = event("domainEventListener");
+        event.setWorkerThreads(20);
+
+        // When
+        handler.handle(event);
+
+        // Then
+        verify(mockMessageListener).setWorkerThreads(20);
+        assertTrue(workRateAdjustments.recent().get(0).applied());
+    }
+
+    @Test
+    public void shouldRecordNotApplied_onHandleWithUnknownWorkRate() {
+        // Given
+        final WorkRateAdjustmentRequestedEvent event = event(randomString(10));
+        event.setBucketCapacity(50);
+
+        // When
+        handler.handle(event);
+
+        // Then
+        verify(mockRateLimiter, never()).setParameters(anyInt(), anyLong());
+        assertFalse(workRateAdjustments.recent().get(0).applied());
+    }
+
+    @Test
+    public void shouldIgnore_onHandleForOtherApplication() {
+        // Given
+        final WorkRateAdjustmentRequestedEvent event = event("restRequestRateLimiter");
+        event.setTargetApplicationName(randomString(10));
+        event.setBucketCapacity(50);
+
+        // When
+        handler.handle(event);
+
+        // Then
+        verify(mockRateLimiter, never()).setParameters(anyInt(), anyLong());
+        assertTrue(workRateAdjustments.recent().isEmpty());
+    }
+
+    @Test
+    public void shouldKeepMostRecentAdjustments_onManyAdjustments() {
+        // Given
+        final WorkRateAdjustmentRequestedEvent event = event("restRequestRateLimiter");
+        event.setBucketCapacity(50);
+
+        // When
+        for (int i = 0; i < WorkRateAdjustments.MAX_RECENT_ADJUSTMENTS + 5; i++) {
+            handler.handle(event);
+        }
+
+        // Then
+        assertEquals(WorkRateAdjustments.MAX_RECENT_ADJUSTMENTS, workRateAdjustments.recent().size());
+    }
+
+}
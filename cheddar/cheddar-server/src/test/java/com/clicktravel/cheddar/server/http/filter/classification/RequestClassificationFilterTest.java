@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.http.filter.classification;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.UriInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class RequestClassificationFilterTest {
+
+    private ContainerRequestContext mockContainerRequestContext;
+
+    @Before
+    public void setUp() {
+        mockContainerRequestContext = mock(ContainerRequestContext.class);
+    }
+
+    private void setUpRequestPath(final String uri) {
+        final UriInfo mockUriInfo = mock(UriInfo.class);
+        when(mockUriInfo.getRequestUri()).thenReturn(URI.create(uri));
+        when(mockContainerRequestContext.getUriInfo()).thenReturn(mockUriInfo);
+    }
+
+    @Test
+    public void shouldSetClassification_onFilter() throws Exception {
+        // Given
+        setUpRequestPath("http://www.example.com/status/healthCheck");
+        final RequestClassificationFilter filter = new RequestClassificationFilter();
+
+        // When
+        filter.filter(mockContainerRequestContext);
+
+        // Then
+        final ArgumentCaptor<Object> classificationCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockContainerRequestContext).setProperty(anyString(), classificationCaptor.capture());
+        final RequestClassification classification = (RequestClassification) classificationCaptor.getValue();
+        assertTrue(classification.isStatusResource());
+        assertEquals("/status/healthCheck", classification.path());
+    }
+
+    @Test
+    public void shouldReuseClassification_onOfWithClassifiedRequest() throws Exception {
+        // Given
+        final RequestClassification classification = new RequestClassification("/request");
+        when(mockContainerRequestContext.getProperty(anyString())).thenReturn(classification);
+
+        // When
+        final RequestClassification result = RequestClassification.of(mockContainerRequestContext);
+
+        // Then
+        assertSame(classification, result);
+        verify(mockContainerRequestContext, never()).getUriInfo();
+        verify(mockContainerRequestContext, never()).setProperty(anyString(), any());
+    }
+
+    @Test
+    public void shouldClassifyStatusResourcePaths() {
+        assertTrue(RequestClassification.isStatusResourcePath("/status"));
+        assertTrue(RequestClassification.isStatusResourcePath("/status/"));
+        assertTrue(RequestClassification.isStatusResourcePath("/status/healthCheck"));
+        assertFalse(RequestClassification.isStatusResourcePath("/statuses"));
+        assertFalse(RequestClassification.isStatusResourcePath("/request/status"));
+        assertFalse(RequestClassification.isStatusResourcePath("/"));
+        assertFalse(RequestClassification.isStatusResourcePath(null));
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.http.filter.compression;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompressionFilterTest {
+
+    private static final int MIN_SIZE_BYTES = 100;
+
+    private ContainerRequestContext mockRequestContext;
+    private ContainerResponseContext mockResponseContext;
+    private MultivaluedMap<String, Object> responseHeaders;
+
+    @Before
+    public void setUp() {
+        mockRequestContext = mock(ContainerRequestContext.class);
+        mockResponseContext = mock(ContainerResponseContext.class);
+        responseHeaders = new MultivaluedHashMap<>();
+        when(mockResponseContext.getHeaders()).thenReturn(responseHeaders);
+        when(mockResponseContext.hasEntity()).thenReturn(true);
+    }
+
+    @Test
+    public void shouldSelectContentCoding_onFilterWithAcceptEncoding() throws Exception {
+        // Given
+        when(mockRequestContext.getHeaderString(HttpHeaders.ACCEPT_ENCODING)).thenReturn("deflate, gzip;q=0.8");
+        final CompressionFilter filter = new CompressionFilter(new CompressionConfiguration(true, MIN_SIZE_BYTES));
+
+        // When
+        filter.filter(mockRequestContext, mockResponseContext);
+
+        // Then
+        verify(mockRequestContext).setProperty(CompressionFilter.CONTENT_CODING_PROPERTY, CompressionFilter.GZIP);
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, responseHeaders.getFirst(HttpHeaders.VARY));
+    }
+
+    @Test
+    public void shouldNotSelectContentCoding_onFilterWithCompressionDisabled() throws Exception {
+        // Given
+        when(mockRequestContext.getHeaderString(HttpHeaders.ACCEPT_ENCODING)).thenReturn("gzip");
+        final CompressionFilter filter = new CompressionFilter(new CompressionConfiguration(false, MIN_SIZE_BYTES));
+
+        // When
+        filter.filter(mockRequestContext, mockResponseContext);
+
+        // Then
+        verify(mockRequestContext, never()).setProperty(anyString(), any());
+        assertTrue(responseHeaders.isEmpty());
+    }
+
+    @Test
+    public void shouldSelectPreferredAcceptedContentCoding() {
+        assertEquals(CompressionFilter.GZIP, CompressionFilter.acceptedContentCoding("gzip"));
+        assertEquals(CompressionFilter.GZIP, CompressionFilter.acceptedContentCoding("br, *"));
+        assertEquals(CompressionFilter.DEFLATE, CompressionFilter.acceptedContentCoding("gzip;q=0, deflate"));
+        assertNull(CompressionFilter.acceptedContentCoding("identity"));
+        assertNull(CompressionFilter.acceptedContentCoding("gzip; q=0.0"));
+        assertNull(CompressionFilter.acceptedContentCoding(null));
+    }
+
+    @Test
+    public void shouldCompressEntity_onAroundWriteToWithLargeEntity() throws Exception {
+        // Given
+        final byte[] entity = new byte[MIN_SIZE_BYTES * 10];
+        Arrays.fill(entity, (byte) 'a');
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+        headers.putSingle(HttpHeaders.CONTENT_LENGTH, entity.length);
+        final WriterInterceptorContext context = writerInterceptorContext(CompressionFilter.GZIP, entity, output,
+                headers);
+        final CompressionFilter filter = new CompressionFilter(new CompressionConfiguration(true, MIN_SIZE_BYTES));
+
+        // When
+        filter.aroundWriteTo(context);
+
+        // Then
+        assertEquals(CompressionFilter.GZIP, headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertFalse(headers.containsKey(HttpHeaders.CONTENT_LENGTH));
+        assertArrayEquals(entity, gunzip(output.toByteArray()));
+    }
+
+    @Test
+    public void shouldCompressEntity_onAroundWriteToWithDeflateContentCoding() throws Exception {
+        // Given
+        final byte[] entity = new byte[MIN_SIZE_BYTES * 10];
+        Arrays.fill(entity, (byte) 'a');
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+        final WriterInterceptorContext context = writerInterceptorContext(CompressionFilter.DEFLATE, entity, output,
+                headers);
+        final CompressionFilter filter = new CompressionFilter(new CompressionConfiguration(true, MIN_SIZE_BYTES));
+
+        // When
+        filter.aroundWriteTo(context);
+
+        // Then
+        assertEquals(CompressionFilter.DEFLATE, headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(entity, readAll(new InflaterInputStream(new ByteArrayInputStream(output.toByteArray()))));
+    }
+
+    @Test
+    public void shouldNotCompressEntity_onAroundWriteToWithSmallEntity() throws Exception {
+        // Given
+        final byte[] entity = new byte[MIN_SIZE_BYTES - 1];
+        Arrays.fill(entity, (byte) 'a');
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+        final WriterInterceptorContext context = writerInterceptorContext(CompressionFilter.GZIP, entity, output,
+                headers);
+        final CompressionFilter filter = new CompressionFilter(new CompressionConfiguration(true, MIN_SIZE_BYTES));
+
+        // When
+        filter.aroundWriteTo(context);
+
+        // Then
+        assertFalse(headers.containsKey(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(entity, output.toByteArray());
+    }
+
+    private WriterInterceptorContext writerInterceptorContext(final String contentCoding, final byte[] entity,
+            final OutputStream output, final MultivaluedMap<String, Object> headers) throws Exception {
+        final WriterInterceptorContext context = mock(WriterInterceptorContext.class);
+        final OutputStream[] currentOutput = { output };
+        when(context.getProperty(CompressionFilter.CONTENT_CODING_PROPERTY)).thenReturn(contentCoding);
+        when(context.getHeaders()).thenReturn(headers);
+        when(context.getOutputStream()).thenAnswer(invocation -> currentOutput[0]);
+        doAnswer(invocation -> {
+            currentOutput[0] = invocation.getArgument(0);
+            return null;
+        }).when(context).setOutputStream(any(OutputStream.class));
+        doAnswer(invocation -> {
+            // Write in small chunks, as a message body writer would
+            for (int offset = 0; offset < entity.length; offset += 7) {
+                currentOutput[0].write(entity, offset, Math.min(7, entity.length - offset));
+            }
+            return null;
+        }).when(context).proceed();
+        return context;
+    }
+
+    private byte[] gunzip(final byte[] compressed) throws Exception {
+        return readAll(new GZIPInputStream(new ByteArrayInputStream(compressed)));
+    }
+
+    private byte[] readAll(final InputStream inputStream) throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream input = inputStream) {
+            final byte[] buffer = new byte[1024];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        }
+        return output.toByteArray();
+    }
+
+}
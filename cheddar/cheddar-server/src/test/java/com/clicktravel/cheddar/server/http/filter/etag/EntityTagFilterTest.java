@@ -0,0 +1,306 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.http.filter.etag;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Providers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.clicktravel.cheddar.infrastructure.persistence.database.Item;
+import com.clicktravel.cheddar.query.model.StreamingPaginatedCollectionQm;
+import com.clicktravel.common.hash.HashUtils;
+
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class EntityTagFilterTest {
+
+    private static final int MAX_CONTENT_HASH_BYTES = 64;
+
+    private static final String ITEM_PATH = "items/item-1";
+
+    private ContainerRequestContext mockRequestContext;
+    private UriInfo mockUriInfo;
+    private ContainerResponseContext mockResponseContext;
+    private MultivaluedMap<String, Object> responseHeaders;
+    private Providers mockProviders;
+    private MessageBodyWriter mockMessageBodyWriter;
+    private EntityTagFilter filter;
+
+    @Before
+    public void setUp() throws Exception {
+        mockRequestContext = mock(ContainerRequestContext.class);
+        mockResponseContext = mock(ContainerResponseContext.class);
+        responseHeaders = new MultivaluedHashMap<>();
+        mockUriInfo = mock(UriInfo.class);
+        when(mockRequestContext.getMethod()).thenReturn(HttpMethod.GET);
+        when(mockRequestContext.getUriInfo()).thenReturn(mockUriInfo);
+        when(mockUriInfo.getPath()).thenReturn(ITEM_PATH);
+        when(mockResponseContext.getStatus()).thenReturn(200);
+        when(mockResponseContext.hasEntity()).thenReturn(true);
+        when(mockResponseContext.getHeaders()).thenReturn(responseHeaders);
+        when(mockResponseContext.getMediaType()).thenReturn(MediaType.APPLICATION_JSON_TYPE);
+        when(mockResponseContext.getEntityAnnotations()).thenReturn(contentHashedAnnotations());
+        mockProviders = mock(Providers.class);
+        mockMessageBodyWriter = mock(MessageBodyWriter.class);
+        when(mockProviders.getMessageBodyWriter(any(), any(), any(), any())).thenReturn(mockMessageBodyWriter);
+        filter = new EntityTagFilter(new EntityTagConfiguration(true, MAX_CONTENT_HASH_BYTES), mockProviders);
+    }
+
+    private void setEntity(final Object entity, final String serialised) throws Exception {
+        when(mockResponseContext.getEntity()).thenReturn(entity);
+        when(mockResponseContext.getEntityClass()).thenReturn((Class) entity.getClass());
+        when(mockResponseContext.getEntityType()).thenReturn(entity.getClass());
+        doAnswer(invocation -> {
+            ((OutputStream) invocation.getArgument(6)).write(serialised.getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(mockMessageBodyWriter).writeTo(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void shouldAddContentHashEntityTag_onFilter() throws Exception {
+        // Given
+        setEntity("entity", "{\"name\":\"value\"}");
+
+        // When
+        filter.filter(mockRequestContext, mockResponseContext);
+
+        // Then
+        final EntityTag entityTag = (EntityTag) responseHeaders.getFirst(HttpHeaders.ETAG);
+        assertTrue(entityTag.isWeak());
+        verify(mockResponseContext).setEntity(any(byte[].class), any(), eq(MediaType.APPLICATION_JSON_TYPE));
+        verify(mockResponseContext, never()).setStatus(304);
+    }
+
+    @Test
+    public void shouldAddDifferentEntityTags_onFilterWithDifferentContent() throws Exception {
+        // Given
+        setEntity("entity", "{\"name\":\"value1\"}");
+        filter.filter(mockRequestContext, mockResponseContext);
+        final Object firstEntityTag = responseHeaders.getFirst(HttpHeaders.ETAG);
+        setEntity("entity", "{\"name\":\"value2\"}");
+
+        // When
+        filter.filter(mockRequestContext, mockResponseContext);
+
+        // Then
+        assertNotEquals(firstEntityTag, responseHeaders.getFirst(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void shouldNotAddEntityTagOrSerialise_onFilterWithResourceMethodNotContentHashed() throws Exception {
+        // Given
+        setEntity("entity", "{\"name\":\"value\"}");
+        when(mockResponseContext.getEntityAnnotations()).thenReturn(new Annotation[0]);
+
+        // When
+        filter.filter(mockRequestContext, mockResponseContext);
+
+        // Then
+        assertFalse(responseHeaders.containsKey(HttpHeaders.ETAG));
+        verifyZeroInteractions(mockMessageBodyWriter);
+    }
+
+    @Test
+    public void shouldNotAddEntityTag_onFilterWithEntityLargerThanMaxContentHashBytes() throws Exception {
+        // Given
+        final char[] value = new char[MAX_CONTENT_HASH_BYTES];
+        Arrays.fill(value, 'a');
+        setEntity("entity", "{\"name\":\"" + new String(value) + "\"}");
+
+        // When
+        filter.filter(mockRequestContext, mockResponseContext);
+
+        // Then
+        assertFalse(responseHeaders.containsKey(HttpHeaders.ETAG));
+        verify(mockResponseContext, never()).setEntity(any(), any(), any());
+    }
+
+    @Test
+    public void shouldNotAddEntityTagOrSerialise_onFilterWithStreamingPaginatedCollection() throws Exception {
+        // Given
+        setEntity(new StreamingPaginatedCollectionQm<>("items", 0, Stream.empty()), "{}");
+
+        // When
+        filter.filter(mockRequestContext, mockResponseContext);
+
+        // Then
+        assertFalse(responseHeaders.containsKey(HttpHeaders.ETAG));
+        verifyZeroInteractions(mockMessageBodyWriter);
+    }
+
+    @Test
+    public void shouldReturnNotModified_onFilterWithMatchingIfNoneMatch() throws Exception {
+        // Given
+        setEntity("entity", "{\"name\":\"value\"}");
+        filter.filter(mockRequestContext, mockResponseContext);
+        final EntityTag entityTag = (EntityTag) responseHeaders.getFirst(HttpHeaders.ETAG);
+        when(mockRequestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH)).thenReturn(entityTag.toString());
+
+        // When
+        filter.filter(mockRequestContext, mockResponseContext);
+
+        // Then
+        verify(mockResponseContext).setStatus(304);
+        verify(mockResponseContext).setEntity(null);
+    }
+
+    @Test
+    public void shouldReturnNotModifiedWithoutSerialising_onFilterWithItemEntity() throws Exception {
+        // Given
+        final StubItem item = new StubItem();
+        item.setVersion(3L);
+        setEntity(item, "{}");
+        final String entityTagValue = "StubItem-" + pathHash(ITEM_PATH) + "-3";
+        when(mockRequestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH)).thenReturn("W/\"" + entityTagValue + "\"");
+
+        // When
+        filter.filter(mockRequestContext, mockResponseContext);
+
+        // Then
+        assertEquals(new EntityTag(entityTagValue, true), responseHeaders.getFirst(HttpHeaders.ETAG));
+        verify(mockResponseContext).setStatus(304);
+        verifyZeroInteractions(mockMessageBodyWriter);
+    }
+
+    @Test
+    public void shouldReturnEntity_onFilterWithOtherItemEntityAtSameVersion() throws Exception {
+        // Given
+        final StubItem item = new StubItem();
+        item.setVersion(3L);
+        setEntity(item, "{}");
+        when(mockUriInfo.getPath()).thenReturn("items/item-2");
+        when(mockRequestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH))
+                .thenReturn("W/\"StubItem-" + pathHash(ITEM_PATH) + "-3\"");
+
+        // When
+        filter.filter(mockRequestContext, mockResponseContext);
+
+        // Then
+        assertEquals(new EntityTag("StubItem-" + pathHash("items/item-2") + "-3", true),
+                responseHeaders.getFirst(HttpHeaders.ETAG));
+        verify(mockResponseContext, never()).setStatus(304);
+    }
+
+    @Test
+    public void shouldReturnNotModifiedWithoutSerialising_onFilterWithResourceEntityTag() throws Exception {
+        // Given
+        setEntity("entity", "{}");
+        when(mockResponseContext.getEntityTag()).thenReturn(new EntityTag("resource-tag"));
+        when(mockRequestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH)).thenReturn("\"resource-tag\"");
+
+        // When
+        filter.filter(mockRequestContext, mockResponseContext);
+
+        // Then
+        verify(mockResponseContext).setStatus(304);
+        verifyZeroInteractions(mockMessageBodyWriter);
+    }
+
+    @Test
+    public void shouldNotAddEntityTag_onFilterWithPost() throws Exception {
+        // Given
+        setEntity("entity", "{}");
+        when(mockRequestContext.getMethod()).thenReturn(HttpMethod.POST);
+
+        // When
+        filter.filter(mockRequestContext, mockResponseContext);
+
+        // Then
+        assertFalse(responseHeaders.containsKey(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void shouldNotAddEntityTag_onFilterWithEntityTagsDisabled() throws Exception {
+        // Given
+        setEntity("entity", "{}");
+        filter = new EntityTagFilter(new EntityTagConfiguration(false, MAX_CONTENT_HASH_BYTES), mockProviders);
+
+        // When
+        filter.filter(mockRequestContext, mockResponseContext);
+
+        // Then
+        assertFalse(responseHeaders.containsKey(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void shouldMatchIfNoneMatch() {
+        final EntityTag entityTag = new EntityTag("abc", true);
+        assertTrue(EntityTagFilter.matches("\"abc\"", entityTag));
+        assertTrue(EntityTagFilter.matches("\"x\", W/\"abc\"", entityTag));
+        assertTrue(EntityTagFilter.matches("*", entityTag));
+        assertFalse(EntityTagFilter.matches("\"abcd\"", entityTag));
+        assertFalse(EntityTagFilter.matches(null, entityTag));
+    }
+
+    private Annotation[] contentHashedAnnotations() throws Exception {
+        return getClass().getDeclaredMethod("contentHashedResourceMethod").getAnnotations();
+    }
+
+    @ContentHashEntityTag
+    private static void contentHashedResourceMethod() {
+    }
+
+    private static String pathHash(final String path) {
+        return HashUtils.generateMd5Base64Hash(path.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class StubItem implements Item {
+
+        private Long version;
+
+        @Override
+        public Long getVersion() {
+            return version;
+        }
+
+        @Override
+        public void setVersion(final Long version) {
+            this.version = version;
+        }
+
+    }
+
+}
@@ -16,19 +16,40 @@
  */
 package com.clicktravel.cheddar.server.http.filter.flow.control;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ExtendedUriInfo;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+import org.glassfish.jersey.uri.UriTemplate;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
+import com.clicktravel.cheddar.request.context.DefaultSecurityContext;
+import com.clicktravel.cheddar.request.context.SecurityContextHolder;
+import com.clicktravel.common.concurrent.AdaptiveConcurrencyLimiter;
 import com.clicktravel.common.concurrent.RateLimiter;
 import com.clicktravel.common.random.Randoms;
 
@@ -45,6 +66,11 @@ public class FlowControlledRequestFilterTest {
         flowControlledRequestFilter = new FlowControlledRequestFilter(mockRateLimiter);
     }
 
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clear();
+    }
+
     @Test
     public void shouldApplyFlowControl_onNonStatusResourceRequest() throws Exception {
         // Given
@@ -81,10 +107,234 @@ public class FlowControlledRequestFilterTest {
         verifyZeroInteractions(mockRateLimiter);
     }
 
+    @Test
+    public void shouldAdmitRequest_onTokenObtainedWithinAdmissionTimeout() throws Exception {
+        // Given
+        final AdmissionControlStatistics admissionControlStatistics = new AdmissionControlStatistics();
+        flowControlledRequestFilter = new FlowControlledRequestFilter(mockRateLimiter,
+                new AdmissionControlConfiguration(true, 500, 0, 0, 0, 0), admissionControlStatistics);
+        setUpMatchedRequest("GET", "/request", "/{id}");
+        when(mockRateLimiter.pollToken(anyLong(), any(TimeUnit.class))).thenReturn(true);
+
+        // When
+        flowControlledRequestFilter.filter(mockContainerRequestContext);
+
+        // Then
+        final ArgumentCaptor<Long> timeoutCaptor = ArgumentCaptor.forClass(Long.class);
+        verify(mockRateLimiter).pollToken(timeoutCaptor.capture(), any(TimeUnit.class));
+        assertTrue(timeoutCaptor.getValue() <= TimeUnit.MILLISECONDS.toNanos(500));
+        verify(mockRateLimiter, never()).takeToken();
+        verify(mockContainerRequestContext, never()).abortWith(any(Response.class));
+        assertEquals(1, admissionControlStatistics.queueWait().admittedCount());
+        assertEquals(1, admissionControlStatistics.routeQueueWaits().get("GET /request/{id}").admittedCount());
+    }
+
+    @Test
+    public void shouldRejectRequest_onNoTokenWithinAdmissionTimeout() throws Exception {
+        // Given
+        final AdmissionControlStatistics admissionControlStatistics = new AdmissionControlStatistics();
+        flowControlledRequestFilter = new FlowControlledRequestFilter(mockRateLimiter,
+                new AdmissionControlConfiguration(true, 500, 0, 0, 0, 0), admissionControlStatistics);
+        setUpMatchedRequest("POST", "/request");
+        when(mockRateLimiter.pollToken(anyLong(), any(TimeUnit.class))).thenReturn(false);
+        when(mockRateLimiter.getBucketCapacity()).thenReturn(1);
+        when(mockRateLimiter.getTokenReplacementDelayMillis()).thenReturn(2500L);
+
+        // When
+        flowControlledRequestFilter.filter(mockContainerRequestContext);
+
+        // Then
+        final ArgumentCaptor<Response> responseCaptor = ArgumentCaptor.forClass(Response.class);
+        verify(mockContainerRequestContext).abortWith(responseCaptor.capture());
+        assertEquals(429, responseCaptor.getValue().getStatus());
+        assertEquals("3", responseCaptor.getValue().getHeaderString(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, admissionControlStatistics.queueWait().rejectedCount());
+        assertEquals(1, admissionControlStatistics.routeQueueWaits().get("POST /request").rejectedCount());
+    }
+
+    @Test
+    public void shouldRejectRequest_onTeamRateLimitExceeded() throws Exception {
+        // Given
+        flowControlledRequestFilter = new FlowControlledRequestFilter(mockRateLimiter,
+                new AdmissionControlConfiguration(true, 0, 0, 0, 1, 60000), new AdmissionControlStatistics());
+        when(mockRateLimiter.pollToken(anyLong(), any(TimeUnit.class))).thenReturn(true);
+        final String teamId = Randoms.randomId();
+        SecurityContextHolder.set(new DefaultSecurityContext(Randoms.randomId(), teamId, null, null, null, null));
+        setUpMatchedRequest("GET", "/request");
+        flowControlledRequestFilter.filter(mockContainerRequestContext);
+
+        // When
+        flowControlledRequestFilter.filter(mockContainerRequestContext);
+
+        // Then
+        final ArgumentCaptor<Response> responseCaptor = ArgumentCaptor.forClass(Response.class);
+        verify(mockContainerRequestContext).abortWith(responseCaptor.capture());
+        assertEquals(429, responseCaptor.getValue().getStatus());
+        assertEquals("60", responseCaptor.getValue().getHeaderString(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    public void shouldReturnGlobalToken_onRouteRateLimitExceeded() throws Exception {
+        // Given
+        flowControlledRequestFilter = new FlowControlledRequestFilter(mockRateLimiter,
+                new AdmissionControlConfiguration(true, 0, 1, 60000, 0, 0), new AdmissionControlStatistics());
+        when(mockRateLimiter.pollToken(anyLong(), any(TimeUnit.class))).thenReturn(true);
+        setUpMatchedRequest("GET", "/request");
+        flowControlledRequestFilter.filter(mockContainerRequestContext);
+
+        // When
+        flowControlledRequestFilter.filter(mockContainerRequestContext);
+
+        // Then
+        verify(mockContainerRequestContext).abortWith(any(Response.class));
+        verify(mockRateLimiter).returnToken();
+    }
+
+    @Test
+    public void shouldDiscardLeastRecentlyUsedTeamRateLimiter_onMaxTeamsExceeded() throws Exception {
+        // Given
+        flowControlledRequestFilter = new FlowControlledRequestFilter(mockRateLimiter,
+                new AdmissionControlConfiguration(true, 0, 0, 0, 1, 60000), new AdmissionControlStatistics());
+        when(mockRateLimiter.pollToken(anyLong(), any(TimeUnit.class))).thenReturn(true);
+        setUpMatchedRequest("GET", "/request");
+        final String teamId = Randoms.randomId();
+        SecurityContextHolder.set(new DefaultSecurityContext(Randoms.randomId(), teamId, null, null, null, null));
+        flowControlledRequestFilter.filter(mockContainerRequestContext);
+        for (int n = 0; n < FlowControlledRequestFilter.MAX_TEAM_RATE_LIMITERS; n++) {
+            SecurityContextHolder.set(new DefaultSecurityContext(null, "team-" + n, null, null, null, null));
+            flowControlledRequestFilter.filter(mockContainerRequestContext);
+        }
+
+        // When
+        SecurityContextHolder.set(new DefaultSecurityContext(Randoms.randomId(), teamId, null, null, null, null));
+        flowControlledRequestFilter.filter(mockContainerRequestContext);
+
+        // Then
+        verify(mockContainerRequestContext, never()).abortWith(any(Response.class));
+    }
+
+    @Test
+    public void shouldKeepRecentlyUsedTeamRateLimiter_onMaxTeamsExceeded() throws Exception {
+        // Given
+        flowControlledRequestFilter = new FlowControlledRequestFilter(mockRateLimiter,
+                new AdmissionControlConfiguration(true, 0, 0, 0, 1, 60000), new AdmissionControlStatistics());
+        when(mockRateLimiter.pollToken(anyLong(), any(TimeUnit.class))).thenReturn(true);
+        setUpMatchedRequest("GET", "/request");
+        for (int n = 0; n < FlowControlledRequestFilter.MAX_TEAM_RATE_LIMITERS; n++) {
+            SecurityContextHolder.set(new DefaultSecurityContext(null, "team-" + n, null, null, null, null));
+            flowControlledRequestFilter.filter(mockContainerRequestContext);
+        }
+        final String teamId = Randoms.randomId();
+        SecurityContextHolder.set(new DefaultSecurityContext(Randoms.randomId(), teamId, null, null, null, null));
+        flowControlledRequestFilter.filter(mockContainerRequestContext);
+
+        // When
+        SecurityContextHolder.set(new DefaultSecurityContext(Randoms.randomId(), teamId, null, null, null, null));
+        flowControlledRequestFilter.filter(mockContainerRequestContext);
+
+        // Then
+        verify(mockContainerRequestContext).abortWith(any(Response.class));
+    }
+
+    @Test
+    public void shouldLimitRoutesSeparately_onRouteRateLimit() throws Exception {
+        // Given
+        flowControlledRequestFilter = new FlowControlledRequestFilter(mockRateLimiter,
+                new AdmissionControlConfiguration(true, 0, 1, 60000, 0, 0), new AdmissionControlStatistics());
+        when(mockRateLimiter.pollToken(anyLong(), any(TimeUnit.class))).thenReturn(true);
+        setUpMatchedRequest("GET", "/request");
+        flowControlledRequestFilter.filter(mockContainerRequestContext);
+
+        // When
+        setUpMatchedRequest("GET", "/other");
+        flowControlledRequestFilter.filter(mockContainerRequestContext);
+
+        // Then
+        verify(mockContainerRequestContext, never()).abortWith(any(Response.class));
+    }
+
+    @Test
+    public void shouldReleaseConcurrencyPermit_onRequestFinished() throws Exception {
+        // Given
+        final AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter(1, 1, 10);
+        flowControlledRequestFilter.setRestRequestConcurrencyLimiter(concurrencyLimiter);
+        setUpRequestPath("http://www.example.com/request");
+        flowControlledRequestFilter.filter(mockContainerRequestContext);
+        final ArgumentCaptor<Object> permitStartCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockContainerRequestContext).setProperty(
+                eq(FlowControlledRequestFilter.CONCURRENCY_PERMIT_START_PROPERTY), permitStartCaptor.capture());
+        final ContainerRequest mockContainerRequest = mock(ContainerRequest.class);
+        when(mockContainerRequest.getProperty(FlowControlledRequestFilter.CONCURRENCY_PERMIT_START_PROPERTY))
+                .thenReturn(permitStartCaptor.getValue());
+        final RequestEventListener requestEventListener = flowControlledRequestFilter
+                .onRequest(requestEvent(RequestEvent.Type.START, mockContainerRequest));
+        requestEventListener.onEvent(requestEvent(RequestEvent.Type.ON_EXCEPTION, mockContainerRequest));
+        final int inFlightBeforeFinished = concurrencyLimiter.getInFlight();
+
+        // When
+        requestEventListener.onEvent(requestEvent(RequestEvent.Type.FINISHED, mockContainerRequest));
+
+        // Then
+        assertEquals(1, inFlightBeforeFinished);
+        assertEquals(0, concurrencyLimiter.getInFlight());
+        verify(mockContainerRequest).removeProperty(FlowControlledRequestFilter.CONCURRENCY_PERMIT_START_PROPERTY);
+    }
+
+    @Test
+    public void shouldNotListenToRequestEvents_withoutConcurrencyLimiter() {
+        // When
+        final RequestEventListener requestEventListener = flowControlledRequestFilter
+                .onRequest(requestEvent(RequestEvent.Type.START, mock(ContainerRequest.class)));
+
+        // Then
+        assertNull(requestEventListener);
+    }
+
+    @Test
+    public void shouldRejectRequest_onConcurrencyLimitReachedWithinAdmissionTimeout() throws Exception {
+        // Given
+        flowControlledRequestFilter = new FlowControlledRequestFilter(mockRateLimiter,
+                new AdmissionControlConfiguration(true, 10, 0, 0, 0, 0), new AdmissionControlStatistics());
+        final AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter(1, 1, 10);
+        concurrencyLimiter.acquire();
+        flowControlledRequestFilter.setRestRequestConcurrencyLimiter(concurrencyLimiter);
+        when(mockRateLimiter.pollToken(anyLong(), any(TimeUnit.class))).thenReturn(true);
+        setUpMatchedRequest("GET", "/request");
+
+        // When
+        flowControlledRequestFilter.filter(mockContainerRequestContext);
+
+        // Then
+        final ArgumentCaptor<Response> responseCaptor = ArgumentCaptor.forClass(Response.class);
+        verify(mockContainerRequestContext).abortWith(responseCaptor.capture());
+        assertEquals(429, responseCaptor.getValue().getStatus());
+        assertEquals(1, concurrencyLimiter.getInFlight());
+        verify(mockRateLimiter).returnToken();
+    }
+
+    private RequestEvent requestEvent(final RequestEvent.Type type, final ContainerRequest containerRequest) {
+        final RequestEvent mockRequestEvent = mock(RequestEvent.class);
+        when(mockRequestEvent.getType()).thenReturn(type);
+        when(mockRequestEvent.getContainerRequest()).thenReturn(containerRequest);
+        return mockRequestEvent;
+    }
+
     private void setUpRequestPath(final String path) throws Exception {
         final UriInfo mockUriInfo = mock(UriInfo.class);
         when(mockContainerRequestContext.getUriInfo()).thenReturn(mockUriInfo);
         final URI uri = new URI(path);
         when(mockUriInfo.getRequestUri()).thenReturn(uri);
     }
+
+    private void setUpMatchedRequest(final String method, final String... templates) throws Exception {
+        final ExtendedUriInfo mockUriInfo = mock(ExtendedUriInfo.class);
+        when(mockContainerRequestContext.getUriInfo()).thenReturn(mockUriInfo);
+        when(mockContainerRequestContext.getMethod()).thenReturn(method);
+        when(mockUriInfo.getRequestUri()).thenReturn(new URI("http://www.example.com" + templates[0]));
+        final UriTemplate[] matchedTemplates = new UriTemplate[templates.length];
+        for (int n = 0; n < templates.length; n++) {
+            matchedTemplates[templates.length - 1 - n] = new UriTemplate(templates[n]);
+        }
+        when(mockUriInfo.getMatchedTemplates()).thenReturn(Arrays.asList(matchedTemplates));
+    }
 }
@@ -18,6 +18,7 @@ package com.clicktravel.cheddar.server.http.filter.security;
 
 import static com.clicktravel.common.random.Randoms.randomId;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.powermock.api.mockito.PowerMockito.mock;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.verifyStatic;
@@ -139,4 +140,21 @@ public class ContainerSecurityRequestFilterTest {
         assertEquals(Optional.empty(), securityContextCaptor.getValue().agentUserId());
         assertEquals(Optional.empty(), securityContextCaptor.getValue().appId());
     }
+
+    @Test
+    public void shouldParseCredentialsForScheme() {
+        assertEquals("user", credentials("clickplatform user"));
+        assertEquals("user", credentials("clickplatform user  "));
+        assertNull(credentials("Bearer user"));
+        assertNull(credentials("clickplatformX user"));
+        assertNull(credentials("clickplatform  user"));
+        assertNull(credentials("clickplatform user extra"));
+        assertNull(credentials("clickplatform "));
+        assertNull(credentials("clickplatform"));
+    }
+
+    private String credentials(final String headerValue) {
+        return ContainerSecurityRequestFilter.credentialsForScheme(headerValue, "clickplatform");
+    }
+
 }
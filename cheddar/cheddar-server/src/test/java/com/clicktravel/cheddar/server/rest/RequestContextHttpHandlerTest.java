@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.rest;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.Executor;
+
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.clicktravel.cheddar.features.FeaturesContext;
+import com.clicktravel.cheddar.features.FeaturesContextHolder;
+import com.clicktravel.cheddar.request.context.AWSXraySegmentContext;
+import com.clicktravel.cheddar.request.context.AWSXraySegmentContextHolder;
+import com.clicktravel.cheddar.request.context.DefaultSecurityContext;
+import com.clicktravel.cheddar.request.context.SecurityContextHolder;
+
+public class RequestContextHttpHandlerTest {
+
+    private HttpHandler mockDelegate;
+    private Request mockRequest;
+    private Response mockResponse;
+
+    @Before
+    public void setUp() {
+        mockDelegate = mock(HttpHandler.class);
+        mockRequest = mock(Request.class);
+        mockResponse = mock(Response.class);
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clear();
+        FeaturesContextHolder.clear();
+        AWSXraySegmentContextHolder.clear();
+    }
+
+    private void setRequestContextsOnService() throws Exception {
+        doAnswer(invocation -> {
+            SecurityContextHolder.set(new DefaultSecurityContext("user", null, null, null, null, null));
+            FeaturesContextHolder.set(new FeaturesContext("featureSet"));
+            AWSXraySegmentContextHolder.set(mock(AWSXraySegmentContext.class));
+            return null;
+        }).when(mockDelegate).service(mockRequest, mockResponse);
+    }
+
+    private void assertRequestContextsCleared() {
+        assertFalse(SecurityContextHolder.get().userId().isPresent());
+        assertNull(FeaturesContextHolder.get());
+        assertFalse(AWSXraySegmentContextHolder.get().requestSegment().isPresent());
+    }
+
+    @Test
+    public void shouldClearRequestContexts_onService() throws Exception {
+        // Given
+        setRequestContextsOnService();
+        final RequestContextHttpHandler handler = new RequestContextHttpHandler(mockDelegate, null);
+
+        // When
+        handler.service(mockRequest, mockResponse);
+
+        // Then
+        verify(mockDelegate).service(mockRequest, mockResponse);
+        assertRequestContextsCleared();
+    }
+
+    @Test
+    public void shouldClearRequestContexts_onServiceWithException() throws Exception {
+        // Given
+        SecurityContextHolder.set(new DefaultSecurityContext("user", null, null, null, null, null));
+        doThrow(IllegalStateException.class).when(mockDelegate).service(mockRequest, mockResponse);
+        final RequestContextHttpHandler handler = new RequestContextHttpHandler(mockDelegate, null);
+
+        // When
+        IllegalStateException thrownException = null;
+        try {
+            handler.service(mockRequest, mockResponse);
+        } catch (final IllegalStateException e) {
+            thrownException = e;
+        }
+
+        // Then
+        assertSame(IllegalStateException.class, thrownException.getClass());
+        assertRequestContextsCleared();
+    }
+
+    @Test
+    public void shouldProvideRequestExecutor_withRequestExecutor() {
+        // Given
+        final Executor requestExecutor = mock(Executor.class);
+
+        // When
+        final RequestContextHttpHandler handler = new RequestContextHttpHandler(mockDelegate, requestExecutor);
+
+        // Then
+        assertSame(requestExecutor, handler.getRequestExecutorProvider().getExecutor(mockRequest));
+    }
+
+    @Test
+    public void shouldDelegateLifecycle_onStartAndDestroy() {
+        // Given
+        final RequestContextHttpHandler handler = new RequestContextHttpHandler(mockDelegate, null);
+
+        // When
+        handler.start();
+        handler.destroy();
+
+        // Then
+        verify(mockDelegate).start();
+        verify(mockDelegate).destroy();
+    }
+
+}
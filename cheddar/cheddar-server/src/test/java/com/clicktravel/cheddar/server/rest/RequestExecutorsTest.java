@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RequestExecutorsTest {
+
+    @Test
+    public void shouldStartThreadPerBlockedRequest_onElastic() throws Exception {
+        // Given
+        final ThreadPoolExecutor executor = (ThreadPoolExecutor) RequestExecutors.elastic(1, 10);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(5);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        // Then
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(5, executor.getPoolSize());
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldRunOnCallingThread_onElasticAtMaxThreads() throws Exception {
+        // Given
+        final ExecutorService executor = RequestExecutors.elastic(1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        final Thread[] runningThread = new Thread[1];
+
+        // When
+        executor.execute(() -> runningThread[0] = Thread.currentThread());
+
+        // Then
+        assertEquals(Thread.currentThread(), runningThread[0]);
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldCreateExecutor_onVirtualThreadPerRequest() throws Exception {
+        // When
+        final ExecutorService executor = RequestExecutors.virtualThreadPerRequest(1, 10);
+
+        // Then
+        assertNotNull(executor.submit(() -> "done").get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.clicktravel.cheddar.resource.index.ResourceIndex;
+
+import io.swagger.annotations.Api;
+import io.swagger.models.Swagger;
+
+public class SwaggerSpecConfigTest {
+
+    private static final String RESOURCE_PACKAGE = SwaggerSpecConfigTest.class.getPackage().getName();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldReadIndexedResources_onScanAndRead() {
+        // Given
+        final ResourceIndex resourceIndex = new ResourceIndex(
+                Arrays.asList(WidgetResource.class.getName(), SwaggerSpecConfigTest.class.getName()));
+        final SwaggerSpecConfig swaggerSpecConfig = new SwaggerSpecConfig(RESOURCE_PACKAGE, resourceIndex, null);
+
+        // When
+        swaggerSpecConfig.scanAndRead();
+
+        // Then
+        assertEquals(Collections.singleton(WidgetResource.class), swaggerSpecConfig.classes());
+        assertNotNull(swaggerSpecConfig.getSwagger().getPath("/widgets"));
+    }
+
+    @Test
+    public void shouldUsePregeneratedSwagger_onScanAndRead() {
+        // Given
+        final Swagger pregeneratedSwagger = new Swagger().path("/gadgets", new io.swagger.models.Path());
+        final ResourceIndex resourceIndex = new ResourceIndex(Arrays.asList(WidgetResource.class.getName()));
+        final SwaggerSpecConfig swaggerSpecConfig = new SwaggerSpecConfig(RESOURCE_PACKAGE, resourceIndex,
+                pregeneratedSwagger);
+
+        // When
+        swaggerSpecConfig.scanAndRead();
+
+        // Then
+        assertTrue(swaggerSpecConfig.classes().isEmpty());
+        assertSame(pregeneratedSwagger, swaggerSpecConfig.getSwagger());
+    }
+
+    @Test
+    public void shouldLoadGeneratedSpec_onForServices() throws Exception {
+        // Given
+        final ResourceIndex resourceIndex = new ResourceIndex(Arrays.asList(WidgetResource.class.getName()));
+        final File resourcesDirectory = temporaryFolder.newFolder();
+        SwaggerSpecGenerator.writeSpec(new SwaggerSpecConfig(RESOURCE_PACKAGE, resourceIndex, null),
+                new File(resourcesDirectory, SwaggerSpecConfig.PREGENERATED_SPEC_LOCATION));
+        final ClassLoader classLoader = new URLClassLoader(new URL[] { resourcesDirectory.toURI().toURL() }, null);
+
+        // When
+        final SwaggerSpecConfig swaggerSpecConfig = SwaggerSpecConfig.forServices(classLoader);
+
+        // Then
+        assertTrue(swaggerSpecConfig.classes().isEmpty());
+        final Swagger swagger = swaggerSpecConfig.getSwagger();
+        assertNotNull(swagger.getPath("/widgets").getGet());
+        assertEquals("Swagger Specification", swagger.getInfo().getTitle());
+    }
+
+    @Api
+    @Path("/widgets")
+    public static class WidgetResource {
+
+        @GET
+        public String getWidgets() {
+            return "widgets";
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.server.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.clicktravel.cheddar.resource.index.ResourceIndex;
+import com.clicktravel.cheddar.server.rest.SwaggerSpecConfigTest.WidgetResource;
+
+import io.swagger.config.ScannerFactory;
+import io.swagger.models.Swagger;
+import io.swagger.util.Json;
+
+public class SwaggerSpecResourceTest {
+
+    private CountingSwaggerSpecConfig swaggerSpecConfig;
+    private Request mockRequest;
+
+    @Before
+    public void setUp() {
+        SwaggerSpecResource.clearDocument();
+        swaggerSpecConfig = new CountingSwaggerSpecConfig();
+        ScannerFactory.setScanner(swaggerSpecConfig);
+        mockRequest = mock(Request.class);
+    }
+
+    @After
+    public void tearDown() {
+        SwaggerSpecResource.clearDocument();
+        ScannerFactory.setScanner(null);
+    }
+
+    @Test
+    public void shouldReturnJsonWithEntityTag_onGetListingJson() throws Exception {
+        // Given
+        final SwaggerSpecResource swaggerSpecResource = new SwaggerSpecResource();
+
+        // When
+        final Response response = swaggerSpecResource.getListingJson(mockRequest);
+
+        // Then
+        assertEquals(Status.OK.getStatusCode(), response.getStatus());
+        assertNotNull(response.getEntityTag());
+        final Swagger swagger = Json.mapper().readValue((byte[]) response.getEntity(), Swagger.class);
+        assertNotNull(swagger.getPath("/widgets"));
+    }
+
+    @Test
+    public void shouldReturnYaml_onGetListingYaml() {
+        // Given
+        final SwaggerSpecResource swaggerSpecResource = new SwaggerSpecResource();
+
+        // When
+        final Response response = swaggerSpecResource.getListingYaml(mockRequest);
+
+        // Then
+        assertEquals(Status.OK.getStatusCode(), response.getStatus());
+        assertEquals("application/yaml", response.getMediaType().toString());
+        assertTrue(new String((byte[]) response.getEntity(), StandardCharsets.UTF_8).contains("/widgets:"));
+    }
+
+    @Test
+    public void shouldGenerateSpecificationOnce_onRepeatedRequests() {
+        // Given
+        final SwaggerSpecResource swaggerSpecResource = new SwaggerSpecResource();
+        final byte[] firstContent = (byte[]) swaggerSpecResource.getListingJson(mockRequest).getEntity();
+
+        // When
+        final Response response = swaggerSpecResource.getListingJson(mockRequest);
+        swaggerSpecResource.getListingYaml(mockRequest);
+
+        // Then
+        assertSame(firstContent, response.getEntity());
+        assertEquals(1, swaggerSpecConfig.scanAndReadCount);
+    }
+
+    @Test
+    public void shouldReturnNotModified_onGetListingJsonWithMatchingEntityTag() {
+        // Given
+        final SwaggerSpecResource swaggerSpecResource = new SwaggerSpecResource();
+        when(mockRequest.evaluatePreconditions(any(EntityTag.class))).thenReturn(Response.notModified());
+
+        // When
+        final Response response = swaggerSpecResource.getListingJson(mockRequest);
+
+        // Then
+        assertEquals(Status.NOT_MODIFIED.getStatusCode(), response.getStatus());
+        assertNull(response.getEntity());
+    }
+
+    @Test
+    public void shouldReturnNotFound_onGetListingJsonWithNoScanner() {
+        // Given
+        ScannerFactory.setScanner(null);
+        final SwaggerSpecResource swaggerSpecResource = new SwaggerSpecResource();
+
+        // When
+        final Response response = swaggerSpecResource.getListingJson(mockRequest);
+
+        // Then
+        assertEquals(Status.NOT_FOUND.getStatusCode(), response.getStatus());
+    }
+
+    private static class CountingSwaggerSpecConfig extends SwaggerSpecConfig {
+
+        private int scanAndReadCount;
+
+        CountingSwaggerSpecConfig() {
+            super(SwaggerSpecResourceTest.class.getPackage().getName(),
+                    new ResourceIndex(Arrays.asList(WidgetResource.class.getName())), null);
+        }
+
+        @Override
+        public void scanAndRead() {
+            scanAndReadCount++;
+            super.scanAndRead();
+        }
+    }
+}
@@ -20,18 +20,28 @@ import static com.clicktravel.common.random.Randoms.randomInt;
 import static com.clicktravel.common.random.Randoms.randomLong;
 import static com.clicktravel.common.random.Randoms.randomString;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.mock;
 
+import java.util.List;
+
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
 import org.junit.Before;
+import org.joda.time.DateTime;
 import org.junit.Test;
 
 import com.clicktravel.cheddar.server.application.configuration.ApplicationConfiguration;
+import com.clicktravel.cheddar.server.application.workrate.WorkRateAdjustment;
+import com.clicktravel.cheddar.server.application.workrate.WorkRateAdjustments;
+import com.clicktravel.cheddar.server.http.filter.flow.control.AdmissionControlConfiguration;
+import com.clicktravel.cheddar.server.http.filter.flow.control.AdmissionControlStatistics;
+import com.clicktravel.common.concurrent.AdaptiveConcurrencyLimiter;
 import com.clicktravel.common.concurrent.RateLimiter;
 
 public class StatusResourceTest {
@@ -86,6 +96,79 @@ public class StatusResourceTest {
                 statusResult.getMaximumWorkRates().getDomainEventHandler().getTokenReplacementDelay());
     }
 
+    @Test
+    public void shouldReturnConcurrencyLimits_onGetStatus() throws Exception {
+        // Given
+        final StatusResource statusResource = new StatusResource(mockApplicationConfiguration,
+                mockRestRequestRateLimiter, mockDomainEventHandlerRateLimiter);
+        final AdaptiveConcurrencyLimiter restRequestConcurrencyLimiter = new AdaptiveConcurrencyLimiter(5, 1, 10);
+        restRequestConcurrencyLimiter.acquire();
+        statusResource.setRestRequestConcurrencyLimiter(restRequestConcurrencyLimiter);
+
+        // When
+        final Response status = statusResource.getStatus();
+
+        // Then
+        final MaximumWorkRates maximumWorkRates = ((StatusResult) status.getEntity()).getMaximumWorkRates();
+        assertEquals(Integer.valueOf(5), maximumWorkRates.getRestRequest().getConcurrencyLimit());
+        assertEquals(Integer.valueOf(1), maximumWorkRates.getRestRequest().getConcurrencyInFlight());
+        assertNull(maximumWorkRates.getDomainEventHandler().getConcurrencyLimit());
+    }
+
+    @Test
+    public void shouldReturnAdmissionControlQueueWaits_onGetStatus() throws Exception {
+        // Given
+        final long admissionTimeoutMillis = randomInt(1000);
+        final AdmissionControlConfiguration admissionControlConfiguration = new AdmissionControlConfiguration(true,
+                admissionTimeoutMillis, 0, 0, 0, 0);
+        final AdmissionControlStatistics admissionControlStatistics = new AdmissionControlStatistics();
+        final String route = randomString(10);
+        admissionControlStatistics.recordAdmitted(route, 3000000L);
+        admissionControlStatistics.recordRejected(route);
+        final StatusResource statusResource = new StatusResource(mockApplicationConfiguration,
+                mockRestRequestRateLimiter, mockDomainEventHandlerRateLimiter, admissionControlConfiguration,
+                admissionControlStatistics);
+
+        // When
+        final Response status = statusResource.getStatus();
+
+        // Then
+        final AdmissionControlResult admissionControl = ((StatusResult) status.getEntity()).getAdmissionControl();
+        assertTrue(admissionControl.isEnabled());
+        assertEquals(admissionTimeoutMillis, admissionControl.getAdmissionTimeoutMillis());
+        assertEquals(1, admissionControl.getQueueWait().getAdmitted());
+        assertEquals(1, admissionControl.getQueueWait().getRejected());
+        assertEquals(Long.valueOf(1), admissionControl.getQueueWait().getWaitMillisHistogram().get("5"));
+        final QueueWaitResult routeQueueWait = admissionControl.getRouteQueueWaits().get(route);
+        assertEquals(1, routeQueueWait.getAdmitted());
+        assertEquals(1, routeQueueWait.getRejected());
+    }
+
+    @Test
+    public void shouldReturnWorkRateAdjustments_onGetStatus() throws Exception {
+        // Given
+        final StatusResource statusResource = new StatusResource(mockApplicationConfiguration,
+                mockRestRequestRateLimiter, mockDomainEventHandlerRateLimiter);
+        final WorkRateAdjustments workRateAdjustments = new WorkRateAdjustments();
+        final String workRateName = randomString(10);
+        final String description = randomString(10);
+        workRateAdjustments.add(new WorkRateAdjustment(DateTime.now(), randomString(10), false, randomString(10)));
+        workRateAdjustments.add(new WorkRateAdjustment(DateTime.now(), workRateName, true, description));
+        statusResource.setWorkRateAdjustments(workRateAdjustments);
+
+        // When
+        final Response status = statusResource.getStatus();
+
+        // Then
+        final List<WorkRateAdjustmentResult> results = ((StatusResult) status.getEntity()).getWorkRateAdjustments();
+        assertEquals(2, results.size());
+        assertEquals(workRateName, results.get(0).getWorkRateName());
+        assertTrue(results.get(0).isApplied());
+        assertEquals(description, results.get(0).getDescription());
+        assertNotNull(results.get(0).getTime());
+        assertFalse(results.get(1).isApplied());
+    }
+
     public void shouldReturnReady() throws Exception {
         // Given
         final StatusResource statusResource = new StatusResource(mockApplicationConfiguration,
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.system.event;
+
+/**
+ * System event requesting that a named work rate of an application is adjusted at runtime. The work rate name is the
+ * bean name of either a rate limiter (e.g. restRequestRateLimiter, domainEventHandlerRateLimiter), whose bucket
+ * capacity and token replacement delay are set, or a pooled message listener, whose number of worker threads is set.
+ * Properties which are null are left unchanged. Target application name and version select which applications of the
+ * fleet apply the adjustment.
+ */
+public class WorkRateAdjustmentRequestedEvent extends AbstractSystemEvent {
+
+    private String workRateName;
+    private Integer bucketCapacity;
+    private Long tokenReplacementDelayMillis;
+    private Integer workerThreads;
+
+    public String getWorkRateName() {
+        return workRateName;
+    }
+
+    public void setWorkRateName(final String workRateName) {
+        this.workRateName = workRateName;
+    }
+
+    public Integer getBucketCapacity() {
+        return bucketCapacity;
+    }
+
+    public void setBucketCapacity(final Integer bucketCapacity) {
+        this.bucketCapacity = bucketCapacity;
+    }
+
+    public Long getTokenReplacementDelayMillis() {
+        return tokenReplacementDelayMillis;
+    }
+
+    public void setTokenReplacementDelayMillis(final Long tokenReplacementDelayMillis) {
+        this.tokenReplacementDelayMillis = tokenReplacementDelayMillis;
+    }
+
+    public Integer getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(final Integer workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((workRateName == null) ? 0 : workRateName.hashCode());
+        result = prime * result + ((bucketCapacity == null) ? 0 : bucketCapacity.hashCode());
+        result = prime * result + ((tokenReplacementDelayMillis == null) ? 0 : tokenReplacementDelayMillis.hashCode());
+        result = prime * result + ((workerThreads == null) ? 0 : workerThreads.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final WorkRateAdjustmentRequestedEvent other = (WorkRateAdjustmentRequestedEvent) obj;
+        if (workRateName == null) {
+            if (other.workRateName != null) {
+                return false;
+            }
+        } else if (!workRateName.equals(other.workRateName)) {
+            return false;
+        }
+        if (bucketCapacity == null) {
+            if (other.bucketCapacity != null) {
+                return false;
+            }
+        } else if (!bucketCapacity.equals(other.bucketCapacity)) {
+            return false;
+        }
+        if (tokenReplacementDelayMillis == null) {
+            if (other.tokenReplacementDelayMillis != null) {
+                return false;
+            }
+        } else if (!tokenReplacementDelayMillis.equals(other.tokenReplacementDelayMillis)) {
+            return false;
+        }
+        if (workerThreads == null) {
+            if (other.workerThreads != null) {
+                return false;
+            }
+        } else if (!workerThreads.equals(other.workerThreads)) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "WorkRateAdjustmentRequestedEvent [workRateName=" + workRateName + ", bucketCapacity=" + bucketCapacity
+                + ", tokenReplacementDelayMillis=" + tokenReplacementDelayMillis + ", workerThreads=" + workerThreads
+                + ", type()=" + type() + ", getTargetApplicationName()=" + getTargetApplicationName()
+                + ", getTargetApplicationVersion()=" + getTargetApplicationVersion() + "]";
+    }
+
+}
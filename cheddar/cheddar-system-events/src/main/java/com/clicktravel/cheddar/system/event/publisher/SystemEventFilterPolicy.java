@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.system.event.publisher;
+
+import static com.clicktravel.cheddar.system.event.publisher.SystemEventPublisher.ANY_TARGET;
+import static com.clicktravel.cheddar.system.event.publisher.SystemEventPublisher.TARGET_APPLICATION_NAME_ATTRIBUTE;
+import static com.clicktravel.cheddar.system.event.publisher.SystemEventPublisher.TARGET_APPLICATION_VERSION_ATTRIBUTE;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Builds subscription filter policies (in the AWS SNS filter policy format) which accept only the system events
+ * published by {@link SystemEventPublisher} that target a given application name and version. Messages without target
+ * attributes, as sent by publishers predating message attributes, are still accepted and left to the handler to
+ * filter.
+ */
+public abstract class SystemEventFilterPolicy {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * @param applicationName Name of the subscribing application
+     * @param applicationVersion Version of the subscribing application
+     * @return JSON filter policy accepting system events targeted at the given application name and version
+     */
+    public static String forApplication(final String applicationName, final String applicationVersion) {
+        final ObjectNode policy = MAPPER.createObjectNode();
+        addTargetCondition(policy, TARGET_APPLICATION_NAME_ATTRIBUTE, applicationName);
+        addTargetCondition(policy, TARGET_APPLICATION_VERSION_ATTRIBUTE, applicationVersion);
+        return policy.toString();
+    }
+
+    private static void addTargetCondition(final ObjectNode policy, final String attribute, final String target) {
+        final ArrayNode acceptedValues = policy.putArray(attribute);
+        acceptedValues.add(ANY_TARGET);
+        acceptedValues.add(target);
+        acceptedValues.addObject().put("exists", false);
+    }
+
+}
@@ -16,13 +16,25 @@
  */
 package com.clicktravel.cheddar.system.event.publisher;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import com.clicktravel.cheddar.event.EventPublisher;
 import com.clicktravel.cheddar.infrastructure.messaging.MessagePublisher;
 import com.clicktravel.cheddar.infrastructure.messaging.TypedMessage;
 import com.clicktravel.cheddar.system.event.SystemEvent;
 
+/**
+ * Publishes {@link SystemEvent}s. Each message carries its target application name and version as message attributes,
+ * so subscriptions using a {@link SystemEventFilterPolicy} only receive system events targeted at them. The value
+ * {@value #ANY_TARGET} is used where the event does not restrict the target.
+ */
 public class SystemEventPublisher extends EventPublisher<SystemEvent> {
 
+    public static final String TARGET_APPLICATION_NAME_ATTRIBUTE = "targetApplicationName";
+    public static final String TARGET_APPLICATION_VERSION_ATTRIBUTE = "targetApplicationVersion";
+    public static final String ANY_TARGET = "*";
+
     private static SystemEventPublisher instance;
 
     public static void init(final MessagePublisher<TypedMessage> messagePublisher) {
@@ -40,4 +52,16 @@ public class SystemEventPublisher extends EventPublisher<SystemEvent> {
         return instance;
     }
 
+    @Override
+    protected Map<String, String> messageAttributes(final SystemEvent event) {
+        final Map<String, String> attributes = new HashMap<>();
+        attributes.put(TARGET_APPLICATION_NAME_ATTRIBUTE, targetAttributeValue(event.getTargetApplicationName()));
+        attributes.put(TARGET_APPLICATION_VERSION_ATTRIBUTE, targetAttributeValue(event.getTargetApplicationVersion()));
+        return attributes;
+    }
+
+    private static String targetAttributeValue(final String target) {
+        return target == null ? ANY_TARGET : target;
+    }
+
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.system.event.publisher;
+
+import static com.clicktravel.common.random.Randoms.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class SystemEventFilterPolicyTest {
+
+    @Test
+    public void shouldBuildFilterPolicy_withApplicationNameAndVersion() throws Exception {
+        // Given
+        final String applicationName = randomString(10);
+        final String applicationVersion = randomString(10);
+
+        // When
+        final String filterPolicy = SystemEventFilterPolicy.forApplication(applicationName, applicationVersion);
+
+        // Then
+        final JsonNode policy = new ObjectMapper().readTree(filterPolicy);
+        assertEquals(2, policy.size());
+        assertAcceptedValues(policy.get(SystemEventPublisher.TARGET_APPLICATION_NAME_ATTRIBUTE), applicationName);
+        assertAcceptedValues(policy.get(SystemEventPublisher.TARGET_APPLICATION_VERSION_ATTRIBUTE),
+                applicationVersion);
+    }
+
+    private void assertAcceptedValues(final JsonNode acceptedValues, final String target) {
+        assertEquals(3, acceptedValues.size());
+        assertEquals(SystemEventPublisher.ANY_TARGET, acceptedValues.get(0).asText());
+        assertEquals(target, acceptedValues.get(1).asText());
+        assertFalse(acceptedValues.get(2).get("exists").asBoolean());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.cheddar.system.event.publisher;
+
+import static com.clicktravel.common.random.Randoms.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.clicktravel.cheddar.infrastructure.messaging.MessagePublisher;
+import com.clicktravel.cheddar.infrastructure.messaging.TypedMessage;
+import com.clicktravel.cheddar.system.event.SystemEvent;
+
+public class SystemEventPublisherTest {
+
+    private MessagePublisher<TypedMessage> mockMessagePublisher;
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() {
+        mockMessagePublisher = mock(MessagePublisher.class);
+        SystemEventPublisher.init(mockMessagePublisher);
+    }
+
+    @Test
+    public void shouldPublishEvent_withTargetAttributes() {
+        // Given
+        final String applicationName = randomString(10);
+        final String applicationVersion = randomString(10);
+        final SystemEvent event = mockSystemEvent(applicationName, applicationVersion);
+
+        // When
+        SystemEventPublisher.instance().publishEvent(event);
+
+        // Then
+        final Map<String, String> attributes = publishedMessage().getAttributes();
+        assertEquals(applicationName, attributes.get(SystemEventPublisher.TARGET_APPLICATION_NAME_ATTRIBUTE));
+        assertEquals(applicationVersion, attributes.get(SystemEventPublisher.TARGET_APPLICATION_VERSION_ATTRIBUTE));
+    }
+
+    @Test
+    public void shouldPublishEvent_withAnyTargetAttributes_onUntargetedEvent() {
+        // Given
+        final SystemEvent event = mockSystemEvent(null, null);
+
+        // When
+        SystemEventPublisher.instance().publishEvent(event);
+
+        // Then
+        final TypedMessage message = publishedMessage();
+        assertEquals(event.type(), message.getType());
+        assertEquals(event.serialize(), message.getPayload());
+        final Map<String, String> attributes = message.getAttributes();
+        assertEquals(SystemEventPublisher.ANY_TARGET,
+                attributes.get(SystemEventPublisher.TARGET_APPLICATION_NAME_ATTRIBUTE));
+        assertEquals(SystemEventPublisher.ANY_TARGET,
+                attributes.get(SystemEventPublisher.TARGET_APPLICATION_VERSION_ATTRIBUTE));
+    }
+
+    private SystemEvent mockSystemEvent(final String applicationName, final String applicationVersion) {
+        final SystemEvent event = mock(SystemEvent.class);
+        when(event.type()).thenReturn(randomString(5));
+        when(event.serialize()).thenReturn(randomString());
+        when(event.getTargetApplicationName()).thenReturn(applicationName);
+        when(event.getTargetApplicationVersion()).thenReturn(applicationVersion);
+        return event;
+    }
+
+    private TypedMessage publishedMessage() {
+        final ArgumentCaptor<TypedMessage> messageArgumentCaptor = ArgumentCaptor.forClass(TypedMessage.class);
+        verify(mockMessagePublisher).publish(messageArgumentCaptor.capture());
+        return messageArgumentCaptor.getValue();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.common.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link RateLimiter} with {@link LockFreeRateLimiter} under contention from several threads polling a single
+ * shared bucket, as the REST request filter and pooled message listeners do. The rate is set high enough that the
+ * bucket is rarely empty, so the benchmark measures the cost of obtaining a token rather than the rate limit itself.
+ * Run with the {@code gradle jmh} task; add {@code -prof gc} to the JMH arguments to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    @Param({ "RateLimiter", "LockFreeRateLimiter" })
+    private String implementation;
+
+    private TokenBucket tokenBucket;
+
+    @Setup
+    public void setUp() {
+        final int bucketCapacity = 10000;
+        final long tokenReplacementDelayMillis = 1;
+        tokenBucket = implementation.equals("RateLimiter")
+                ? new RateLimiter(bucketCapacity, tokenReplacementDelayMillis)
+                : new LockFreeRateLimiter(bucketCapacity, tokenReplacementDelayMillis);
+    }
+
+    @Benchmark
+    public boolean pollToken() {
+        return tokenBucket.pollToken();
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.common.serialization;
+
+import static com.clicktravel.common.random.Randoms.randomDateTime;
+import static com.clicktravel.common.random.Randoms.randomId;
+import static com.clicktravel.common.random.Randoms.randomInt;
+import static com.clicktravel.common.random.Randoms.randomString;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.xml.CompactWriter;
+
+/**
+ * Compares round trips of a typical value object through {@link KryoObjectSerializer} and through XStream compact XML,
+ * which was previously used for pending results and in-memory items. Run with the {@code gradle jmh} task; add
+ * {@code -prof gc} to the JMH arguments to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectSerializerBenchmark {
+
+    private final XStream xStream = new XStream();
+    private final ObjectSerializer kryoObjectSerializer = new KryoObjectSerializer();
+    private Value value;
+    private String xml;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        final List<String> tags = new ArrayList<>();
+        for (int n = 0; n < 10; n++) {
+            tags.add(randomString(20));
+        }
+        value = new Value(randomId(), randomString(40), randomInt(1000), randomDateTime(), tags);
+        xml = toCompactXml(value);
+        bytes = kryoObjectSerializer.serialize(value);
+    }
+
+    @Benchmark
+    public String xStreamSerialize() {
+        return toCompactXml(value);
+    }
+
+    @Benchmark
+    public Object xStreamDeserialize() {
+        return xStream.fromXML(xml);
+    }
+
+    @Benchmark
+    public byte[] kryoSerialize() {
+        return kryoObjectSerializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object kryoDeserialize() {
+        return kryoObjectSerializer.deserialize(bytes);
+    }
+
+    private String toCompactXml(final Object object) {
+        final StringWriter stringWriter = new StringWriter();
+        xStream.marshal(object, new CompactWriter(stringWriter));
+        return stringWriter.toString();
+    }
+
+    public static class Value {
+
+        private final String id;
+        private final String name;
+        private final int quantity;
+        private final DateTime created;
+        private final List<String> tags;
+
+        public Value(final String id, final String name, final int quantity, final DateTime created,
+                final List<String> tags) {
+            this.id = id;
+            this.name = name;
+            this.quantity = quantity;
+            this.created = created;
+            this.tags = tags;
+        }
+
+    }
+}
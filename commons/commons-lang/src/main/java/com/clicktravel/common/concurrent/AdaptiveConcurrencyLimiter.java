@@ -0,0 +1,202 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.common.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of concurrently executing units of work, adapting the limit to observed latency. Where a
+ * {@link TokenBucket} limits the rate at which work starts, this limits how much work is in flight, which is what
+ * degrades an instance when a downstream dependency slows down.
+ * <p/>
+ * The limit follows an additive increase, multiplicative decrease (AIMD) scheme. Each completed unit of work reports
+ * its latency. Once per window of roughly <code>limit</code> samples, the recent (short term average) latency is
+ * compared with the baseline (long term average) latency. If recent latency exceeds the baseline by more than the
+ * latency tolerance factor the limit is reduced by 10%, otherwise if the limit was at least half used it is increased
+ * by one. The limit always lies between the configured minimum and maximum limits.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    public static final double DEFAULT_LATENCY_TOLERANCE = 2.0;
+
+    private static final double RECENT_LATENCY_SMOOTHING = 0.1;
+    private static final double BASELINE_LATENCY_SMOOTHING = 0.002;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+
+    private double limit;
+    private int inFlight;
+    private int peakInFlight;
+    private int samplesInWindow;
+    private double recentLatencyNanos = -1;
+    private double baselineLatencyNanos = -1;
+
+    /**
+     * @param initialLimit Initial concurrency limit
+     * @param minLimit Lowest concurrency limit, which must be at least 1
+     * @param maxLimit Highest concurrency limit
+     */
+    public AdaptiveConcurrencyLimiter(final int initialLimit, final int minLimit, final int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, DEFAULT_LATENCY_TOLERANCE);
+    }
+
+    /**
+     * @param initialLimit Initial concurrency limit
+     * @param minLimit Lowest concurrency limit, which must be at least 1
+     * @param maxLimit Highest concurrency limit
+     * @param latencyTolerance Factor by which recent latency may exceed baseline latency before the limit is reduced
+     */
+    public AdaptiveConcurrencyLimiter(final int initialLimit, final int minLimit, final int maxLimit,
+            final double latencyTolerance) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= minLimit <= maxLimit");
+        }
+        if (initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Initial limit must be between minLimit and maxLimit");
+        }
+        if (latencyTolerance <= 1.0) {
+            throw new IllegalArgumentException("Latency tolerance must be greater than 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        limit = initialLimit;
+    }
+
+    /**
+     * Acquires a permit to start a unit of work, blocking if necessary until the number of units in flight is below
+     * the limit. Every acquired permit must be released by {@link #release(long)} or {@link #release()}.
+     * @throws InterruptedException
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (inFlight >= getLimit()) {
+            wait();
+        }
+        acquired();
+    }
+
+    /**
+     * Acquires a permit, but only if one is immediately available.
+     * @return <code>true</code> if a permit was acquired
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= getLimit()) {
+            return false;
+        }
+        acquired();
+        return true;
+    }
+
+    /**
+     * Acquires a permit, blocking if necessary until one is available or timeout occurs.
+     * @param timeout How long to wait for a permit, in units of <code>unit</code>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the <code>timeout</code> parameter
+     * @return <code>true</code> if a permit was acquired, <code>false</code> if timeout occurs
+     * @throws InterruptedException
+     */
+    public synchronized boolean tryAcquire(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (inFlight >= getLimit()) {
+            final long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+        }
+        acquired();
+        return true;
+    }
+
+    private void acquired() {
+        inFlight++;
+        peakInFlight = Math.max(peakInFlight, inFlight);
+    }
+
+    /**
+     * Releases a permit for a completed unit of work, adapting the limit to the latency of the work.
+     * @param latencyNanos Time taken by the unit of work, in nanoseconds
+     */
+    public synchronized void release(final long latencyNanos) {
+        inFlight--;
+        sampleLatency(latencyNanos);
+        notifyAll();
+    }
+
+    /**
+     * Releases a permit without reporting latency, for a unit of work which was abandoned before it ran.
+     */
+    public synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    private void sampleLatency(final long latencyNanos) {
+        if (recentLatencyNanos < 0) {
+            recentLatencyNanos = latencyNanos;
+            baselineLatencyNanos = latencyNanos;
+        } else {
+            recentLatencyNanos += RECENT_LATENCY_SMOOTHING * (latencyNanos - recentLatencyNanos);
+            // Baseline is a long term average, which follows falling latency immediately
+            baselineLatencyNanos += BASELINE_LATENCY_SMOOTHING * (latencyNanos - baselineLatencyNanos);
+            baselineLatencyNanos = Math.min(baselineLatencyNanos, recentLatencyNanos);
+        }
+        if (++samplesInWindow >= limit) {
+            adjustLimit();
+            samplesInWindow = 0;
+            peakInFlight = inFlight;
+        }
+    }
+
+    private void adjustLimit() {
+        if (recentLatencyNanos > latencyTolerance * baselineLatencyNanos) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+        } else if (peakInFlight * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    /**
+     * @return Current concurrency limit
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return Number of permits currently acquired
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AdaptiveConcurrencyLimiter [limit=" + getLimit() + ", inFlight=" + inFlight + ", minLimit="
+                + minLimit + ", maxLimit=" + maxLimit + "]";
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.common.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * A lock-free {@link TokenBucket} which, unlike {@link RateLimiter}, keeps no token objects. The bucket records, in a
+ * ring of <code>C</code> slots, the time at which each of its tokens is replaced, to the microsecond. The slots are
+ * taken in turn: a thread takes a token with a single compare-and-set which records its replacement time, and a thread
+ * finding that token already taken moves the ticket counter on itself rather than waiting for the taker to do so. A
+ * stalled thread therefore never holds up the others, and taking a token does not allocate.
+ * <p/>
+ * With capacity <code>C</code> and token replacement delay <code>D</code>, each token taken is replaced <code>D</code>
+ * milliseconds later, exactly as for {@link RateLimiter}. So no more than <code>C</code> tokens may be obtained in any
+ * period of <code>D</code> milliseconds, up to <code>C</code> tokens may be obtained simultaneously, and the maximum
+ * long term rate is <code>1000 * C / D</code> tokens per second.
+ * <p/>
+ * A blocking {@link #takeToken()} holds no token while it waits: it sleeps until the next token is due to be replaced
+ * and then competes for it again, so an interrupted or timed out wait never consumes a token.
+ */
+public class LockFreeRateLimiter implements TokenBucket {
+
+    private final LongSupplier nanoClock;
+
+    /** {@link System#nanoTime()} from which replacement times are measured, shared by successive buckets */
+    private final long baseNanos;
+
+    private volatile Bucket bucket;
+
+    /**
+     * Constructs a lock-free rate limiter which is initially full of tokens. Maximum allowed rate is
+     * <code>1000 * bucketCapacity / tokenReplacementDelayMillis</code> tokens per second. Maximum number of tokens that
+     * may be obtained simultaneously is <code>bucketCapacity</code>
+     * @param bucketCapacity Maximum number of tokens in bucket
+     * @param tokenReplacementDelayMillis Delay before a token is replaced, in milliseconds
+     */
+    public LockFreeRateLimiter(final int bucketCapacity, final long tokenReplacementDelayMillis) {
+        this(bucketCapacity, tokenReplacementDelayMillis, System::nanoTime);
+    }
+
+    LockFreeRateLimiter(final int bucketCapacity, final long tokenReplacementDelayMillis,
+            final LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        baseNanos = nanoClock.getAsLong();
+        setParameters(bucketCapacity, tokenReplacementDelayMillis);
+    }
+
+    /**
+     * Sets the rate limiter parameters to new values. The most recently taken tokens keep their replacement times, and
+     * any extra capacity is immediately available. Tokens taken concurrently with the change may be replaced under the
+     * previous parameters, so the transition period is up to the previous value of tokenReplacementDelayMillis in
+     * length.
+     * @param bucketCapacity New maximum number of tokens in bucket
+     * @param tokenReplacementDelayMillis New delay before a token is replaced, in milliseconds
+     */
+    @Override
+    public synchronized void setParameters(final int bucketCapacity, final long tokenReplacementDelayMillis) {
+        if (bucketCapacity < 1) {
+            throw new IllegalArgumentException("Bucket must have capacity of at least 1 token");
+        }
+        if (tokenReplacementDelayMillis < 0) {
+            throw new IllegalArgumentException("Token replacement delay cannot be negative");
+        }
+        bucket = new Bucket(bucketCapacity, tokenReplacementDelayMillis, bucket, baseNanos, nanoClock.getAsLong());
+    }
+
+    @Override
+    public void takeToken() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        long waitNanos;
+        while ((waitNanos = bucket.tryTake(nanoClock.getAsLong())) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    @Override
+    public boolean pollToken() {
+        return bucket.tryTake(nanoClock.getAsLong()) == 0;
+    }
+
+    @Override
+    public boolean pollToken(final long timeout, final TimeUnit unit) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        final long start = nanoClock.getAsLong();
+        final long timeoutNanos = unit.toNanos(timeout);
+        long now = start;
+        long waitNanos;
+        while ((waitNanos = bucket.tryTake(now)) > 0) {
+            final long remainingNanos = timeoutNanos - (now - start);
+            if (waitNanos > remainingNanos) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+            now = nanoClock.getAsLong();
+        }
+        return true;
+    }
+
+    @Override
+    public void returnToken() {
+        bucket.returnToken(nanoClock.getAsLong());
+    }
+
+    @Override
+    public int getBucketCapacity() {
+        return bucket.capacity;
+    }
+
+    @Override
+    public long getTokenReplacementDelayMillis() {
+        return bucket.tokenReplacementDelayMillis;
+    }
+
+    @Override
+    public String toString() {
+        final Bucket currentBucket = bucket;
+        return "LockFreeRateLimiter [bucketCapacity=" + currentBucket.capacity + ", tokenReplacementDelayMillis="
+                + currentBucket.tokenReplacementDelayMillis + "]";
+    }
+
+    private static class Bucket {
+
+        /** Each slot packs the lap of the ticket which may next take its token into its top bits */
+        static final int LAP_SHIFT = 56;
+        static final long LAP_MASK = 0xFF;
+        static final long TIME_MASK = (1L << LAP_SHIFT) - 1;
+
+        final int capacity;
+        final long tokenReplacementDelayMillis;
+        final long tokenReplacementDelayMicros;
+        final long baseNanos;
+
+        /** Ticket of the next token to be taken; ticket <code>n</code> takes the token in slot n % capacity */
+        final AtomicLong nextTicket = new AtomicLong();
+
+        /**
+         * For each slot, the lap (ticket / capacity, modulo 256) of the ticket which may next take its token, together
+         * with the time at which that token is (or was) replaced, in microseconds after {@link #baseNanos}. Taking a
+         * token replaces both with a single compare-and-set, so the slot is never seen half updated
+         */
+        final AtomicLongArray slots;
+
+        Bucket(final int capacity, final long tokenReplacementDelayMillis, final Bucket previous, final long baseNanos,
+                final long now) {
+            this.capacity = capacity;
+            this.tokenReplacementDelayMillis = tokenReplacementDelayMillis;
+            this.baseNanos = baseNanos;
+            tokenReplacementDelayMicros = TimeUnit.MILLISECONDS.toMicros(tokenReplacementDelayMillis);
+            slots = new AtomicLongArray(capacity);
+            final long nowMicros = (now - baseNanos) / 1000;
+            for (int slot = 0; slot < capacity; slot++) {
+                slots.set(slot, pack(0, nowMicros));
+            }
+            if (previous != null) {
+                // Carry over the most recently taken tokens, oldest first, so the slots are taken in replacement order
+                final long previousTicket = previous.nextTicket.get();
+                final long carried = Math.min(Math.min(capacity, previous.capacity), previousTicket);
+                for (int n = 1; n <= carried; n++) {
+                    final int previousSlot = (int) ((previousTicket - n) % previous.capacity);
+                    slots.set(capacity - n, pack(0, timeOf(previous.slots.get(previousSlot))));
+                }
+            }
+        }
+
+        /**
+         * Takes a token if one is available at the given time. A token is taken by one compare-and-set on its slot; any
+         * thread which then finds the slot already taken advances the ticket on the taker's behalf, so no thread ever
+         * waits for another to finish
+         * @param now Current {@link System#nanoTime()}
+         * @return Zero if a token was taken, otherwise the time until the next token is replaced, in nanoseconds
+         */
+        long tryTake(final long now) {
+            final long elapsedNanos = now - baseNanos;
+            final long replacementMicros = (elapsedNanos + 999) / 1000 + tokenReplacementDelayMicros;
+            while (true) {
+                final long ticket = nextTicket.get();
+                final int slot = (int) (ticket % capacity);
+                final long lap = lapOf(ticket);
+                final long value = slots.get(slot);
+                if (((value >>> LAP_SHIFT) & LAP_MASK) != lap) {
+                    nextTicket.compareAndSet(ticket, ticket + 1); // already taken for this ticket
+                    continue;
+                }
+                final long waitNanos = timeOf(value) * 1000 - elapsedNanos;
+                if (waitNanos > 0) {
+                    return waitNanos;
+                }
+                if (slots.compareAndSet(slot, value, pack(lap + 1, replacementMicros))) {
+                    nextTicket.compareAndSet(ticket, ticket + 1);
+                    return 0;
+                }
+            }
+        }
+
+        /**
+         * Makes the next token to be replaced available at the given time. The returned token is lost if that slot is
+         * taken concurrently, which errs on the side of the rate limit
+         * @param now Current {@link System#nanoTime()}
+         */
+        void returnToken(final long now) {
+            final long elapsedNanos = now - baseNanos;
+            final long ticket = nextTicket.get();
+            for (long n = ticket; n < ticket + capacity; n++) {
+                final int slot = (int) (n % capacity);
+                final long lap = lapOf(n);
+                final long value = slots.get(slot);
+                if (((value >>> LAP_SHIFT) & LAP_MASK) != lap) {
+                    return;
+                }
+                if (timeOf(value) * 1000 - elapsedNanos > 0) {
+                    slots.compareAndSet(slot, value, pack(lap, elapsedNanos / 1000));
+                    return;
+                }
+            }
+        }
+
+        private long lapOf(final long ticket) {
+            return (ticket / capacity) & LAP_MASK;
+        }
+
+        private static long timeOf(final long value) {
+            return value & TIME_MASK;
+        }
+
+        private static long pack(final long lap, final long timeMicros) {
+            return ((lap & LAP_MASK) << LAP_SHIFT) | (timeMicros & TIME_MASK);
+        }
+    }
+}
@@ -49,7 +49,7 @@ import java.util.concurrent.TimeUnit;
  * after construction, though there may be a transition period where the effective rate limitation adjusts to the new
  * parameter values.
  */
-public class RateLimiter {
+public class RateLimiter implements TokenBucket {
 
     /**
      * Bucket of tokens. The bucket is maintained to contain a number of tokens equal to capacity (the bucket is always
@@ -83,6 +83,7 @@ public class RateLimiter {
      *            tokens are added which are immediately available.
      * @param tokenReplacementDelayMillis New delay before a token is replaced, in milliseconds
      */
+    @Override
     public synchronized void setParameters(final int bucketCapacity, final long tokenReplacementDelayMillis) {
         setTokenReplacementDelayMillis(tokenReplacementDelayMillis);
         setBucketCapacity(bucketCapacity);
@@ -93,6 +94,7 @@ public class RateLimiter {
      * Obtain a rate limited token, blocking if necessary until one is available.
      * @throws InterruptedException
      */
+    @Override
     public void takeToken() throws InterruptedException {
         processObtainedToken(bucket.take()); // block until token is available
     }
@@ -101,6 +103,7 @@ public class RateLimiter {
      * Obtains a rate limited token, but only if such a token is immediately available.
      * @return <code>true</code> if a token was obtained
      */
+    @Override
     public boolean pollToken() {
         return processObtainedToken(bucket.poll()); // no blocking
     }
@@ -112,10 +115,24 @@ public class RateLimiter {
      * @return <code>true</code> if a token was obtained, <code>false</code> if timeout occurs
      * @throws InterruptedException
      */
+    @Override
     public boolean pollToken(final long timeout, final TimeUnit unit) throws InterruptedException {
         return processObtainedToken(bucket.poll(timeout, unit)); // block until token available or timeout
     }
 
+    @Override
+    public synchronized void returnToken() {
+        Token nextToken = null;
+        for (final Token token : bucket) {
+            if (token.getDelay(TimeUnit.MILLISECONDS) > 0 && (nextToken == null || token.compareTo(nextToken) < 0)) {
+                nextToken = token;
+            }
+        }
+        if (nextToken != null && bucket.remove(nextToken)) {
+            bucket.add(new Token(0L));
+        }
+    }
+
     private boolean processObtainedToken(final Token token) {
         if (token == null) {
             return false;
@@ -145,10 +162,12 @@ public class RateLimiter {
         }
     }
 
+    @Override
     public int getBucketCapacity() {
         return bucketCapacity;
     }
 
+    @Override
     public long getTokenReplacementDelayMillis() {
         return tokenReplacementDelayMillis;
     }
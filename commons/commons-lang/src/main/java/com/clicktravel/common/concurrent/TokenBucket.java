@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.common.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A concurrent rate limiter based on the 'token bucket' algorithm. Before a rate limited resource is accessed or unit
+ * of work executed, a token must first be obtained. The bucket holds up to <code>bucketCapacity</code> tokens, and
+ * tokens are replenished so that at most <code>1000 * bucketCapacity / tokenReplacementDelayMillis</code> tokens per
+ * second may be obtained over a long period of time.
+ * @see RateLimiter
+ * @see LockFreeRateLimiter
+ */
+public interface TokenBucket {
+
+    /**
+     * Obtain a rate limited token, blocking if necessary until one is available.
+     * @throws InterruptedException
+     */
+    void takeToken() throws InterruptedException;
+
+    /**
+     * Obtains a rate limited token, but only if such a token is immediately available.
+     * @return <code>true</code> if a token was obtained
+     */
+    boolean pollToken();
+
+    /**
+     * Obtain a rate limited token, blocking if necessary until one is available or timeout occurs.
+     * @param timeout How long to wait for obtaining a token, in units of <code>unit</code>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the <code>timeout</code> parameter
+     * @return <code>true</code> if a token was obtained, <code>false</code> if timeout occurs
+     * @throws InterruptedException
+     */
+    boolean pollToken(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Returns a token which was obtained but not used, for example because a request also needing a token from another
+     * bucket was rejected. The token which would next be replaced becomes available immediately; if every token is
+     * already available, this has no effect.
+     */
+    void returnToken();
+
+    /**
+     * Sets the rate limiter parameters to new values. There may be a transition period, of up to the previous value of
+     * tokenReplacementDelayMillis, before rate limitation is fully effective for the new values.
+     * @param bucketCapacity New maximum number of tokens in bucket
+     * @param tokenReplacementDelayMillis New delay before a token is replaced, in milliseconds
+     */
+    void setParameters(int bucketCapacity, long tokenReplacementDelayMillis);
+
+    int getBucketCapacity();
+
+    long getTokenReplacementDelayMillis();
+
+}
@@ -19,6 +19,7 @@ package com.clicktravel.common.hash;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 
 public class HashUtils {
 
@@ -49,6 +50,14 @@ public class HashUtils {
         return generateHash(generateParameterKey(args), HashType.SHA_512);
     }
 
+    /**
+     * @param content Bytes to hash
+     * @return MD5 hash of the given bytes, encoded as URL-safe Base64 without padding
+     */
+    public static String generateMd5Base64Hash(final byte[] content) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest(content, HashType.MD5));
+    }
+
     private static String generateParameterKey(final Object[] args) {
         final StringBuilder sb = new StringBuilder();
         sb.append(SEPARATOR);
@@ -60,19 +69,21 @@ public class HashUtils {
     }
 
     private static String generateHash(final String input, final HashType hashType) {
-        try {
-            final MessageDigest md = MessageDigest.getInstance(hashType.value());
-            md.update(input.getBytes(StandardCharsets.UTF_8));
-            final byte byteData[] = md.digest();
-            final StringBuilder sb = new StringBuilder();
-            for (final byte element : byteData) {
-                final String hex = Integer.toHexString(0xff & element);
-                if (hex.length() == 1) {
-                    sb.append('0');
-                }
-                sb.append(hex);
+        final byte byteData[] = digest(input.getBytes(StandardCharsets.UTF_8), hashType);
+        final StringBuilder sb = new StringBuilder();
+        for (final byte element : byteData) {
+            final String hex = Integer.toHexString(0xff & element);
+            if (hex.length() == 1) {
+                sb.append('0');
             }
-            return sb.toString();
+            sb.append(hex);
+        }
+        return sb.toString();
+    }
+
+    private static byte[] digest(final byte[] input, final HashType hashType) {
+        try {
+            return MessageDigest.getInstance(hashType.value()).digest(input);
         } catch (final NoSuchAlgorithmException e) {
             throw new IllegalStateException(e);
         }
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.common.serialization;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.joda.time.Chronology;
+import org.joda.time.DateTimeZone;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Registration;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoFactory;
+import com.esotericsoftware.kryo.pool.KryoPool;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+
+/**
+ * {@link ObjectSerializer} backed by Kryo. Classes need not be registered and need not have a no-arg constructor, but
+ * only classes in an allow-list of packages may be serialized or deserialized, so bytes received from other processes
+ * cannot instantiate arbitrary classes. Java serialization is never used; exceptions and Joda-Time chronologies and
+ * time zones have dedicated serializers so that their invariants are preserved. Kryo instances are not threadsafe, so a
+ * pool of configured instances is shared by all threads using this serializer.
+ */
+public class KryoObjectSerializer implements ObjectSerializer {
+
+    /**
+     * Packages (including their subpackages) of classes which may always be serialized and deserialized
+     */
+    public static final List<String> DEFAULT_ALLOWED_PACKAGES = Collections.unmodifiableList(
+            Arrays.asList("java.lang", "java.util", "java.math", "org.joda.time", "com.clicktravel"));
+
+    private static final int INITIAL_BUFFER_SIZE = 512;
+
+    private final KryoPool kryoPool;
+
+    public KryoObjectSerializer() {
+        this(Collections.<String> emptyList());
+    }
+
+    /**
+     * @param allowedPackages Packages (including their subpackages) of classes which may be serialized and
+     *            deserialized, in addition to {@link #DEFAULT_ALLOWED_PACKAGES}
+     */
+    public KryoObjectSerializer(final Collection<String> allowedPackages) {
+        final List<String> allowedPackagesWithDefaults = new ArrayList<>(DEFAULT_ALLOWED_PACKAGES);
+        allowedPackagesWithDefaults.addAll(allowedPackages);
+        kryoPool = newKryoPool(() -> configure(new AllowListKryo(allowedPackagesWithDefaults)));
+    }
+
+    private KryoObjectSerializer(final KryoPool kryoPool) {
+        this.kryoPool = kryoPool;
+    }
+
+    /**
+     * Creates a serializer which may serialize and deserialize any class. This must only be used for bytes which never
+     * leave the current process.
+     * @return {@link KryoObjectSerializer} without an allow-list
+     */
+    public static KryoObjectSerializer unrestricted() {
+        return new KryoObjectSerializer(newKryoPool(() -> configure(new Kryo())));
+    }
+
+    private static KryoPool newKryoPool(final KryoFactory kryoFactory) {
+        return new KryoPool.Builder(kryoFactory).softReferences().build();
+    }
+
+    @Override
+    public byte[] serialize(final Object object) {
+        final Kryo kryo = kryoPool.borrow();
+        try {
+            final Output output = new Output(INITIAL_BUFFER_SIZE, -1);
+            kryo.writeClassAndObject(output, object);
+            return output.toBytes();
+        } catch (final KryoException e) {
+            throw new SerializationException("Could not serialize object of " + classOf(object), e);
+        } finally {
+            kryoPool.release(kryo);
+        }
+    }
+
+    @Override
+    public Object deserialize(final byte[] bytes) {
+        final Kryo kryo = kryoPool.borrow();
+        try {
+            return kryo.readClassAndObject(new Input(bytes));
+        } catch (final KryoException e) {
+            throw new SerializationException("Could not deserialize object", e);
+        } finally {
+            kryoPool.release(kryo);
+        }
+    }
+
+    private static String classOf(final Object object) {
+        return object == null ? "null" : object.getClass().getName();
+    }
+
+    private static Kryo configure(final Kryo kryo) {
+        kryo.setRegistrationRequired(false);
+        kryo.setReferences(true);
+        kryo.setInstantiatorStrategy(new Kryo.DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        kryo.addDefaultSerializer(Throwable.class, ThrowableSerializer::new);
+        kryo.addDefaultSerializer(Chronology.class, new ChronologySerializer());
+        kryo.addDefaultSerializer(DateTimeZone.class, new DateTimeZoneSerializer());
+        return kryo;
+    }
+
+    /**
+     * Rejects classes outside the allowed packages. Kryo obtains the registration of every class it writes or reads,
+     * and resolves a class read by name without initializing it, so no code of a rejected class is run.
+     */
+    private static class AllowListKryo extends Kryo {
+
+        private final List<String> allowedPackages;
+
+        AllowListKryo(final List<String> allowedPackages) {
+            this.allowedPackages = allowedPackages;
+        }
+
+        // Kryo declares the parameter as a raw type, so it cannot be overridden as Class<?>
+        @Override
+        @SuppressWarnings("rawtypes")
+        public Registration getRegistration(final Class type) {
+            if (!isAllowed(type)) {
+                throw new KryoException("Class is not allowed to be serialized: " + type.getName());
+            }
+            return super.getRegistration(type);
+        }
+
+        private boolean isAllowed(final Class<?> type) {
+            if (type.isPrimitive()) {
+                return true;
+            }
+            if (type.isArray()) {
+                return isAllowed(type.getComponentType());
+            }
+            final String className = type.getName();
+            final int packageEnd = className.lastIndexOf('.');
+            final String packageName = packageEnd < 0 ? "" : className.substring(0, packageEnd);
+            for (final String allowedPackage : allowedPackages) {
+                if (packageName.equals(allowedPackage) || packageName.startsWith(allowedPackage + ".")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Serializes the fields of an exception. The stack trace is filled in before writing, as it is otherwise computed
+     * lazily. Suppressed exceptions are not serialized.
+     */
+    private static class ThrowableSerializer extends FieldSerializer<Throwable> {
+
+        ThrowableSerializer(final Kryo kryo, final Class<?> type) {
+            super(kryo, type);
+            removeField("suppressedExceptions");
+        }
+
+        @Override
+        public void write(final Kryo kryo, final Output output, final Throwable throwable) {
+            throwable.getStackTrace();
+            super.write(kryo, output, throwable);
+        }
+    }
+
+    /**
+     * Serializes a Joda-Time chronology as its time zone ID, reading it back using the static
+     * {@code getInstance(DateTimeZone)} method of the chronology class, so the cached instance is obtained
+     */
+    private static class ChronologySerializer extends Serializer<Chronology> {
+
+        ChronologySerializer() {
+            super(false, true);
+        }
+
+        @Override
+        public void write(final Kryo kryo, final Output output, final Chronology chronology) {
+            instanceMethod(chronology.getClass());
+            output.writeString(chronology.getZone().getID());
+        }
+
+        @Override
+        public Chronology read(final Kryo kryo, final Input input, final Class<Chronology> type) {
+            final DateTimeZone zone = DateTimeZone.forID(input.readString());
+            try {
+                return (Chronology) instanceMethod(type).invoke(null, zone);
+            } catch (final ReflectiveOperationException e) {
+                throw new KryoException("Could not create chronology: " + type.getName(), e);
+            }
+        }
+
+        private Method instanceMethod(final Class<?> type) {
+            final Method method;
+            try {
+                method = type.getMethod("getInstance", DateTimeZone.class);
+            } catch (final NoSuchMethodException e) {
+                throw new KryoException("Chronology cannot be serialized: " + type.getName(), e);
+            }
+            if (!Modifier.isStatic(method.getModifiers()) || !type.isAssignableFrom(method.getReturnType())) {
+                throw new KryoException("Chronology cannot be serialized: " + type.getName());
+            }
+            return method;
+        }
+    }
+
+    /**
+     * Serializes a Joda-Time time zone as its ID
+     */
+    private static class DateTimeZoneSerializer extends Serializer<DateTimeZone> {
+
+        DateTimeZoneSerializer() {
+            super(false, true);
+        }
+
+        @Override
+        public void write(final Kryo kryo, final Output output, final DateTimeZone zone) {
+            output.writeString(zone.getID());
+        }
+
+        @Override
+        public DateTimeZone read(final Kryo kryo, final Input input, final Class<DateTimeZone> type) {
+            return DateTimeZone.forID(input.readString());
+        }
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.common.serialization;
+
+/**
+ * Converts arbitrary object graphs to and from a compact binary representation. Implementations must be threadsafe.
+ */
+public interface ObjectSerializer {
+
+    /**
+     * @param object Object graph to serialize, may be {@code null}
+     * @return Binary representation of the object graph, including its type information
+     * @throws SerializationException if the object graph cannot be serialized
+     */
+    byte[] serialize(Object object);
+
+    /**
+     * @param bytes Binary representation previously produced by {@link #serialize(Object)}
+     * @return Reconstructed object graph
+     * @throws SerializationException if the bytes cannot be deserialized
+     */
+    Object deserialize(byte[] bytes);
+
+}
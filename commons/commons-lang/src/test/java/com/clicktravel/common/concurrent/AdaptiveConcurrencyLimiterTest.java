@@ -0,0 +1,146 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.common.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    public void shouldNotAcquire_onLimitReached() throws Exception {
+        // Given
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10);
+        limiter.acquire();
+        limiter.acquire();
+
+        // When
+        final boolean acquired = limiter.tryAcquire();
+        final boolean acquiredWithTimeout = limiter.tryAcquire(10, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertFalse(acquired);
+        assertFalse(acquiredWithTimeout);
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test(timeout = 1000)
+    public void shouldAcquire_onPermitReleasedWhileWaiting() throws Exception {
+        // Given
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 10);
+        limiter.acquire();
+        new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            limiter.release();
+        }).start();
+
+        // When
+        final boolean acquired = limiter.tryAcquire(900, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertTrue(acquired);
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    public void shouldIncreaseLimit_onSaturatedWithSteadyLatency() {
+        // Given
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 10);
+
+        // When
+        runSaturated(limiter, FAST_NANOS, 100);
+
+        // Then
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    public void shouldNotIncreaseLimit_onLittleConcurrentWork() {
+        // Given
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 10);
+
+        // When
+        for (int n = 0; n < 100; n++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(FAST_NANOS);
+        }
+
+        // Then
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void shouldDecreaseLimitToMinimum_onRisingLatency() {
+        // Given
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 10);
+        runSaturated(limiter, FAST_NANOS, 100);
+
+        // When
+        runSaturated(limiter, SLOW_NANOS, 100);
+
+        // Then
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void shouldRecoverLimit_onLatencyRecovering() {
+        // Given
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 10);
+        runSaturated(limiter, FAST_NANOS, 100);
+        runSaturated(limiter, SLOW_NANOS, 100);
+
+        // When
+        runSaturated(limiter, FAST_NANOS, 100);
+
+        // Then
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowException_withInitialLimitAboveMaximum() {
+        new AdaptiveConcurrencyLimiter(11, 1, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowException_withZeroMinimumLimit() {
+        new AdaptiveConcurrencyLimiter(1, 0, 10);
+    }
+
+    private void runSaturated(final AdaptiveConcurrencyLimiter limiter, final long latencyNanos, final int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            int acquired = 0;
+            while (limiter.tryAcquire()) {
+                acquired++;
+            }
+            for (int n = 0; n < acquired; n++) {
+                limiter.release(latencyNanos);
+            }
+        }
+    }
+}
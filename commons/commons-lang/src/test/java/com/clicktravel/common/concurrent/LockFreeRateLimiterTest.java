@@ -0,0 +1,251 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.common.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class LockFreeRateLimiterTest {
+
+    private final AtomicLong nanoTime = new AtomicLong(System.nanoTime());
+
+    @Test
+    public void shouldPollTokensUpToCapacity_onFullBucket() {
+        // Given
+        final int capacity = 50;
+        final LockFreeRateLimiter rateLimiter = new LockFreeRateLimiter(capacity, 500, nanoTime::get);
+
+        // When
+        final int tokens = pollAvailableTokens(rateLimiter);
+
+        // Then
+        assertEquals(capacity, tokens);
+    }
+
+    @Test
+    public void shouldReplaceTokensAfterDelay_onTimePassing() {
+        // Given
+        final LockFreeRateLimiter rateLimiter = new LockFreeRateLimiter(10, 100, nanoTime::get);
+        pollAvailableTokens(rateLimiter);
+
+        // When
+        advanceMillis(99);
+        final boolean tokenBeforeDelay = rateLimiter.pollToken();
+        advanceMillis(1);
+        final int tokensAfterDelay = pollAvailableTokens(rateLimiter);
+
+        // Then
+        assertFalse(tokenBeforeDelay);
+        assertEquals(10, tokensAfterDelay);
+    }
+
+    @Test
+    public void shouldNotExceedCapacityWithinDelay_onSteadyPolling() {
+        // Given
+        final int capacity = 10;
+        final LockFreeRateLimiter rateLimiter = new LockFreeRateLimiter(capacity, 100, nanoTime::get);
+        pollAvailableTokens(rateLimiter);
+
+        // When
+        int tokens = 0;
+        for (int n = 0; n < 100; n++) {
+            advanceMillis(1);
+            tokens += pollAvailableTokens(rateLimiter);
+        }
+
+        // Then
+        assertEquals(capacity, tokens);
+    }
+
+    @Test
+    public void shouldNotExceedCapacity_onIdleBucket() {
+        // Given
+        final int capacity = 5;
+        final LockFreeRateLimiter rateLimiter = new LockFreeRateLimiter(capacity, 100, nanoTime::get);
+        pollAvailableTokens(rateLimiter);
+
+        // When
+        advanceMillis(10000);
+        final int tokens = pollAvailableTokens(rateLimiter);
+
+        // Then
+        assertEquals(capacity, tokens);
+    }
+
+    @Test
+    public void shouldDoubleRate_onDoubleCapacity() {
+        // Given
+        final LockFreeRateLimiter rateLimiter = new LockFreeRateLimiter(10, 100, nanoTime::get);
+        pollAvailableTokens(rateLimiter);
+
+        // When
+        rateLimiter.setParameters(20, 100);
+        final int addedTokens = pollAvailableTokens(rateLimiter);
+        advanceMillis(100);
+        final int tokens = pollAvailableTokens(rateLimiter);
+
+        // Then
+        assertEquals(20, rateLimiter.getBucketCapacity());
+        assertEquals(100, rateLimiter.getTokenReplacementDelayMillis());
+        assertEquals(10, addedTokens);
+        assertEquals(20, tokens);
+    }
+
+    @Test
+    public void shouldTimeOut_onPollTokenWithTimeoutShorterThanWait() throws Exception {
+        // Given
+        final LockFreeRateLimiter rateLimiter = new LockFreeRateLimiter(1, 1000, nanoTime::get);
+        rateLimiter.pollToken();
+
+        // When
+        final boolean tokenObtained = rateLimiter.pollToken(999, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertFalse(tokenObtained);
+    }
+
+    @Test
+    public void shouldMakeTokenAvailable_onReturnToken() {
+        // Given
+        final LockFreeRateLimiter rateLimiter = new LockFreeRateLimiter(2, 1000, nanoTime::get);
+        pollAvailableTokens(rateLimiter);
+
+        // When
+        rateLimiter.returnToken();
+        final int tokens = pollAvailableTokens(rateLimiter);
+
+        // Then
+        assertEquals(1, tokens);
+    }
+
+    @Test
+    public void shouldNotExceedCapacity_onReturnTokenToFullBucket() {
+        // Given
+        final int capacity = 5;
+        final LockFreeRateLimiter rateLimiter = new LockFreeRateLimiter(capacity, 1000, nanoTime::get);
+
+        // When
+        rateLimiter.returnToken();
+        final int tokens = pollAvailableTokens(rateLimiter);
+
+        // Then
+        assertEquals(capacity, tokens);
+    }
+
+    @Test
+    public void shouldNotConsumeToken_onInterruptedTakeToken() {
+        // Given
+        final LockFreeRateLimiter rateLimiter = new LockFreeRateLimiter(1, 1000, nanoTime::get);
+        rateLimiter.pollToken();
+        Thread.currentThread().interrupt();
+
+        // When
+        InterruptedException actualException = null;
+        try {
+            rateLimiter.takeToken();
+        } catch (final InterruptedException e) {
+            actualException = e;
+        }
+        advanceMillis(1000);
+        final boolean tokenObtained = rateLimiter.pollToken();
+
+        // Then
+        assertNotNull(actualException);
+        assertTrue(tokenObtained);
+    }
+
+    @Test
+    public void shouldNotExceedCapacity_onConcurrentPollToken() throws Exception {
+        // Given
+        final int capacity = 1000;
+        final LockFreeRateLimiter rateLimiter = new LockFreeRateLimiter(capacity, 100000, nanoTime::get);
+        final AtomicInteger tokens = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<>();
+        for (int n = 0; n < 8; n++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < capacity; i++) {
+                    if (rateLimiter.pollToken()) {
+                        tokens.incrementAndGet();
+                    }
+                }
+            }));
+        }
+
+        // When
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        // Then
+        assertEquals(capacity, tokens.get());
+    }
+
+    @Test(timeout = 1000)
+    public void shouldLimitRate_onTakeToken() throws Exception {
+        // Given
+        final int capacity = 2;
+        final long tokenDelayMillis = 40;
+        final LockFreeRateLimiter rateLimiter = new LockFreeRateLimiter(capacity, tokenDelayMillis);
+
+        // When
+        final long start = System.currentTimeMillis();
+        for (int n = 0; n < capacity + 10; n++) {
+            rateLimiter.takeToken();
+        }
+        final long elapsedMillis = System.currentTimeMillis() - start;
+
+        // Then
+        final long idealElapsedMillis = 10 * tokenDelayMillis / capacity; // = 200
+        assertTrue("Elapsed time was " + elapsedMillis + "ms", elapsedMillis >= idealElapsedMillis - 5);
+        assertTrue("Elapsed time was " + elapsedMillis + "ms", elapsedMillis <= idealElapsedMillis + tokenDelayMillis);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowException_withZeroCapacity() {
+        new LockFreeRateLimiter(0, 100);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowException_withNegativeDelay() {
+        new LockFreeRateLimiter(1, -1);
+    }
+
+    private int pollAvailableTokens(final TokenBucket rateLimiter) {
+        int tokens = 0;
+        while (rateLimiter.pollToken()) {
+            tokens++;
+        }
+        return tokens;
+    }
+
+    private void advanceMillis(final long millis) {
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
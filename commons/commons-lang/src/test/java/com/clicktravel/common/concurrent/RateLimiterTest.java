@@ -17,6 +17,7 @@
 package com.clicktravel.common.concurrent;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -219,6 +220,22 @@ public class RateLimiterTest {
                 + elapsedMillis + "ms", elapsedMillis >= minExpectedElapsedMillis);
     }
 
+    @Test
+    public void shouldMakeTokenAvailable_onReturnToken() throws Exception {
+        // Given
+        rateLimiter = new RateLimiter(2, 60000);
+        timeGetTokens(2);
+
+        // When
+        rateLimiter.returnToken();
+        final boolean tokenObtained = rateLimiter.pollToken();
+        final boolean secondTokenObtained = rateLimiter.pollToken();
+
+        // Then
+        assertTrue(tokenObtained);
+        assertFalse(secondTokenObtained);
+    }
+
     @Test
     public void shouldReturnParameters_onGet() {
         // Given
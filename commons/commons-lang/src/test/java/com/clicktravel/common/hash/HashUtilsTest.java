@@ -19,6 +19,7 @@ package com.clicktravel.common.hash;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -147,4 +148,16 @@ public class HashUtilsTest {
 
     }
 
+    @Test
+    public void shouldGenerateMd5Base64Hash_withBytes() {
+        // Given
+        final byte[] content = "test".getBytes(StandardCharsets.UTF_8);
+
+        // When
+        final String hash = HashUtils.generateMd5Base64Hash(content);
+
+        // Then
+        assertEquals("CY9rzUYh03PK3k6DJie09g", hash);
+    }
+
 }
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2014 Click Travel Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.clicktravel.common.serialization;
+
+import static com.clicktravel.common.random.Randoms.randomDateTime;
+import static com.clicktravel.common.random.Randoms.randomInt;
+import static com.clicktravel.common.random.Randoms.randomString;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KryoObjectSerializerTest {
+
+    private KryoObjectSerializer kryoObjectSerializer;
+
+    @Before
+    public void setUp() {
+        kryoObjectSerializer = new KryoObjectSerializer();
+    }
+
+    @Test
+    public void shouldRoundTrip_withNull() {
+        // When
+        final Object result = kryoObjectSerializer.deserialize(kryoObjectSerializer.serialize(null));
+
+        // Then
+        assertNull(result);
+    }
+
+    @Test
+    public void shouldRoundTrip_withObjectWithoutNoArgConstructor() {
+        // Given
+        final StubValue value = new StubValue(randomString(), randomInt(100));
+
+        // When
+        final Object result = kryoObjectSerializer.deserialize(kryoObjectSerializer.serialize(value));
+
+        // Then
+        assertEquals(value, result);
+    }
+
+    @Test
+    public void shouldRoundTrip_withCollections() {
+        // Given
+        final Set<String> set = new HashSet<>(Arrays.asList(randomString(), randomString()));
+        final Map<String, Object> map = new HashMap<>();
+        map.put(randomString(), set);
+        map.put(randomString(), new StubValue(randomString(), randomInt(100)));
+
+        // When
+        final Object result = kryoObjectSerializer.deserialize(kryoObjectSerializer.serialize(map));
+
+        // Then
+        assertEquals(map, result);
+    }
+
+    @Test
+    public void shouldRoundTrip_withDateTime() {
+        // Given
+        final DateTime dateTime = randomDateTime();
+
+        // When
+        final DateTime result = (DateTime) kryoObjectSerializer.deserialize(kryoObjectSerializer.serialize(dateTime));
+
+        // Then
+        assertEquals(dateTime, result);
+        assertSame(dateTime.getChronology(), result.getChronology());
+    }
+
+    @Test
+    public void shouldRoundTrip_withException() {
+        // Given
+        final IllegalStateException exception = new IllegalStateException(randomString(),
+                new IllegalArgumentException(randomString()));
+
+        // When
+        final Object result = kryoObjectSerializer.deserialize(kryoObjectSerializer.serialize(exception));
+
+        // Then
+        assertTrue(result instanceof IllegalStateException);
+        final IllegalStateException resultException = (IllegalStateException) result;
+        assertEquals(exception.getMessage(), resultException.getMessage());
+        assertEquals(exception.getCause().getMessage(), resultException.getCause().getMessage());
+        assertArrayEquals(exception.getStackTrace(), resultException.getStackTrace());
+        assertEquals(0, resultException.getSuppressed().length);
+    }
+
+    @Test
+    public void shouldThrowSerializationException_withCorruptBytes() {
+        // Given
+        final byte[] bytes = { (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff };
+
+        // When
+        SerializationException thrownException = null;
+        try {
+            kryoObjectSerializer.deserialize(bytes);
+        } catch (final SerializationException e) {
+            thrownException = e;
+        }
+
+        // Then
+        assertNotNull(thrownException);
+    }
+
+    @Test
+    public void shouldNotSerialize_withClassOutsideAllowedPackages() {
+        // Given
+        final QName value = new QName(randomString(), randomString());
+
+        // When
+        SerializationException thrownException = null;
+        try {
+            kryoObjectSerializer.serialize(value);
+        } catch (final SerializationException e) {
+            thrownException = e;
+        }
+
+        // Then
+        assertNotNull(thrownException);
+    }
+
+    @Test
+    public void shouldNotDeserialize_withClassOutsideAllowedPackages() {
+        // Given
+        final byte[] bytes = KryoObjectSerializer.unrestricted()
+                .serialize(Arrays.asList(new QName(randomString(), randomString())));
+
+        // When
+        SerializationException thrownException = null;
+        try {
+            kryoObjectSerializer.deserialize(bytes);
+        } catch (final SerializationException e) {
+            thrownException = e;
+        }
+
+        // Then
+        assertNotNull(thrownException);
+    }
+
+    @Test
+    public void shouldRoundTrip_withClassInAdditionalAllowedPackage() {
+        // Given
+        final KryoObjectSerializer kryoObjectSerializer = new KryoObjectSerializer(Arrays.asList("javax.xml"));
+        final QName value = new QName(randomString(), randomString());
+
+        // When
+        final Object result = kryoObjectSerializer.deserialize(kryoObjectSerializer.serialize(value));
+
+        // Then
+        assertEquals(value, result);
+    }
+
+    private static class StubValue {
+
+        private final String stringValue;
+        private final int intValue;
+
+        StubValue(final String stringValue, final int intValue) {
+            this.stringValue = stringValue;
+            this.intValue = intValue;
+        }
+
+        @Override
+        public int hashCode() {
+            return stringValue.hashCode() * 31 + intValue;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof StubValue)) {
+                return false;
+            }
+            final StubValue other = (StubValue) obj;
+            return stringValue.equals(other.stringValue) && intValue == other.intValue;
+        }
+    }
+}